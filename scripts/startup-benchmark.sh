@@ -0,0 +1,98 @@
+#!/usr/bin/env bash
+# Temps de démarrage comparé : JVM, JVM + AOT + archive CDS, image native GraalVM.
+#
+# Mesure, pour chaque variante, le délai entre le lancement du processus et le premier
+# /actuator/health UP (catalogue SQL chargé, serveur prêt), sur RUNS lancements ; affiche la médiane.
+#
+# Usage : scripts/startup-benchmark.sh [jvm] [cds] [native]     (défaut : les trois)
+#   RUNS=5 PORT=18080 SKIP_BUILD=1 scripts/startup-benchmark.sh jvm cds
+#
+# Prérequis : JDK 17+, Maven ; pour native, GraalVM (native-image) comme JAVA_HOME.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${RUNS:-5}
+PORT=${PORT:-18080}
+MAIN_CLASS=com.sqlgenerator.backend.SqlGeneratorApplication
+WORK=target/startup-benchmark
+MODES=("$@")
+if [ ${#MODES[@]} -eq 0 ]; then
+    MODES=(jvm cds native)
+fi
+
+mkdir -p "$WORK"
+# Patchs et historique dans un répertoire jetable, pas dans svn_repo_mock
+APP_ARGS=(--server.port="$PORT" --patch.store.path="$WORK/store/" --patch.history.path="$WORK/store/history.log")
+
+now_ms() {
+    date +%s%3N
+}
+
+# Lance la commande, attend /actuator/health UP, arrête le processus ; affiche le délai en ms
+measure() {
+    local log="$WORK/run.log"
+    local start
+    start=$(now_ms)
+    "$@" "${APP_ARGS[@]}" > "$log" 2>&1 &
+    local pid=$!
+    until curl -sf "http://localhost:$PORT/actuator/health" 2>/dev/null | grep -q '"UP"'; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "Échec du démarrage, voir $log" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    local elapsed=$(( $(now_ms) - start ))
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo "$elapsed"
+}
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+bench() {
+    local name=$1
+    shift
+    local times=()
+    for _ in $(seq "$RUNS"); do
+        times+=("$(measure "$@")")
+    done
+    printf '%-8s médiane %6s ms   (%s)\n' "$name" "$(printf '%s\n' "${times[@]}" | median)" "${times[*]}"
+}
+
+if [ -z "${SKIP_BUILD:-}" ]; then
+    # Le jar du profil aot contient aussi le contexte précalculé (utilisé seulement avec -Dspring.aot.enabled=true)
+    mvn -B -q -Paot -DskipTests package
+    if [[ " ${MODES[*]} " == *" native "* ]]; then
+        mvn -B -q -Pnative -DskipTests native:compile
+    fi
+fi
+JAR=$(ls target/backend-*.jar | grep -v plain | head -1)
+
+for mode in "${MODES[@]}"; do
+    case "$mode" in
+        jvm)
+            bench jvm java -jar "$JAR"
+            ;;
+        cds)
+            # CDS exige un classpath de fichiers (jar extrait) ; l'archive est produite par un lancement
+            # d'entraînement qui s'arrête dès le contexte rafraîchi (spring.context.exit=onRefresh)
+            rm -rf "$WORK/cds" && mkdir -p "$WORK/cds"
+            (cd "$WORK/cds" && jar -xf "../../../$JAR")
+            CDS_CP="$WORK/cds/BOOT-INF/classes:$WORK/cds/BOOT-INF/lib/*"
+            java -XX:ArchiveClassesAtExit="$WORK/app.jsa" -Dspring.context.exit=onRefresh -Dspring.aot.enabled=true \
+                -cp "$CDS_CP" "$MAIN_CLASS" "${APP_ARGS[@]}" > "$WORK/cds-training.log" 2>&1
+            bench cds java -XX:SharedArchiveFile="$WORK/app.jsa" -Dspring.aot.enabled=true -cp "$CDS_CP" "$MAIN_CLASS"
+            ;;
+        native)
+            bench native target/backend
+            ;;
+        *)
+            echo "Variante inconnue : $mode (jvm, cds, native)" >&2
+            exit 1
+            ;;
+    esac
+done
@@ -0,0 +1,142 @@
+package com.sqlgenerator.backend.config;
+
+import com.sqlgenerator.backend.model.QueryDefinition;
+import com.sqlgenerator.backend.service.AdmissionControlService;
+import com.sqlgenerator.backend.service.AdmissionRejectedException;
+import com.sqlgenerator.backend.service.QueryService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Filtre d'admission placé devant PatchController pour les générations lourdes.
+ *
+ * Pourquoi un filtre et pas un contrôle dans le contrôleur ?
+ * Le filtre s'exécute avant le DispatcherServlet, donc avant que Spring ne lise
+ * et ne bufferise les parts multipart : une requête rejetée ne consomme ni heap ni disque.
+ *
+ * Sont considérées comme lourdes :
+ * - Les requêtes multipart (upload de fichier IN ou CSV)
+ * - Les requêtes vers /api/patch/{id}/masse et /api/patch/{id}/masse/stream
+ * (et leurs équivalents /api/{namespace}/patch/...)
+ * - Les morceaux d'upload reprenable (PUT /api/uploads/{uploadId}) et leur finalisation
+ * (POST /api/uploads/{uploadId}/complete, qui relit tout le fichier pour l'empreinte)
+ *
+ * Le namespace soumis à quota est celui de la requête SQL visée, résolu depuis l'URL :
+ * /api/patch/{id} relève aussi du namespace de la requête {id}. Un upload n'est lié à aucune
+ * requête avant la génération : il ne compte que dans les limites globales.
+ * Un morceau refusé (429) est simplement renvoyé au même offset après Retry-After.
+ */
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+    private static final String API_PREFIX = "/api/";
+    private static final String PATCH_SEGMENT = "patch";
+    private static final String UPLOADS_PREFIX = "/api/uploads/";
+    private static final String COMPLETE_SEGMENT = "complete";
+
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
+    @Autowired
+    private QueryService queryService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (uri != null && uploadId(uri) != null) {
+            return !"PUT".equalsIgnoreCase(request.getMethod())
+                    && !("POST".equalsIgnoreCase(request.getMethod()) && uri.endsWith("/" + COMPLETE_SEGMENT));
+        }
+        if (!"POST".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+        if (uri == null || patchPath(uri) == null) {
+            return true;
+        }
+        String contentType = request.getContentType();
+        boolean multipart = contentType != null && contentType.toLowerCase().startsWith("multipart/");
+        return !multipart && !uri.endsWith("/masse") && !uri.endsWith("/masse/stream");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdmissionControlService.Permit permit;
+        try {
+            permit = admissionControlService.admit(request.getContentLengthLong(),
+                    resolveNamespace(request.getRequestURI()));
+        } catch (AdmissionRejectedException e) {
+            logger.warn("Génération refusée ({}) pour {} : {}", e.getReason(), request.getRequestURI(), e.getMessage());
+            if (e.getReason() == AdmissionRejectedException.Reason.TOO_LARGE) {
+                // Réessayer ne changera rien : pas de Retry-After
+                response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+            } else {
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+                response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage());
+            }
+            return;
+        }
+
+        try (permit) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Segments après /patch/ ({id}, puis masse...) et namespace éventuel, ou null hors génération.
+     */
+    private static String[] patchPath(String uri) {
+        if (!uri.startsWith(API_PREFIX)) {
+            return null;
+        }
+        String[] segments = uri.substring(API_PREFIX.length()).split("/");
+        if (segments.length >= 2 && PATCH_SEGMENT.equals(segments[0])) {
+            return new String[] {null, segments[1]};
+        }
+        if (segments.length >= 3 && PATCH_SEGMENT.equals(segments[1])) {
+            return new String[] {segments[0], segments[2]};
+        }
+        return null;
+    }
+
+    /**
+     * Identifiant de l'upload reprenable visé (/api/uploads/{uploadId}[/complete]), ou null.
+     */
+    private static String uploadId(String uri) {
+        if (!uri.startsWith(UPLOADS_PREFIX)) {
+            return null;
+        }
+        String[] segments = uri.substring(UPLOADS_PREFIX.length()).split("/");
+        if (segments.length == 1 || (segments.length == 2 && COMPLETE_SEGMENT.equals(segments[1]))) {
+            return segments[0].isEmpty() ? null : segments[0];
+        }
+        return null;
+    }
+
+    /**
+     * Namespace de la requête visée ; null pour un upload ou si la requête est inconnue
+     * (le contrôleur répondra 404).
+     */
+    private String resolveNamespace(String uri) {
+        if (uploadId(uri) != null) {
+            return null;
+        }
+        String[] path = patchPath(uri);
+        QueryDefinition query = queryService.getQueryById(path[0], path[1]);
+        return query != null ? query.getNamespace() : null;
+    }
+}
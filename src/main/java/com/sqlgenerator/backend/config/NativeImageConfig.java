@@ -0,0 +1,47 @@
+package com.sqlgenerator.backend.config;
+
+import com.sqlgenerator.backend.model.ParameterDefinition;
+import com.sqlgenerator.backend.model.PatchEstimate;
+import com.sqlgenerator.backend.model.PatchHistoryPage;
+import com.sqlgenerator.backend.model.PatchRecord;
+import com.sqlgenerator.backend.model.QueryCatalogPage;
+import com.sqlgenerator.backend.model.QueryDefinition;
+import com.sqlgenerator.backend.model.UploadStatus;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Indications AOT pour l'image native GraalVM (profil native du pom) et l'exécution AOT sur JVM (profil aot).
+ *
+ * Pourquoi des indications ?
+ * L'image native ne contient que ce que l'analyse statique voit : les fichiers sql/*.sql et
+ * sql/{namespace}/*.sql lus par QueryService au démarrage et les getters des modèles Lombok appelés par Jackson (réflexion) en seraient
+ * absents. springdoc fournit ses propres indications pour les modèles OpenAPI.
+ *
+ * Les conditions (@ConditionalOnProperty) sont évaluées à la construction : patch.store.type et
+ * patch.tracing.log-spans sont figés dans l'image.
+ */
+@Configuration
+@ImportRuntimeHints(NativeImageConfig.SqlGeneratorRuntimeHints.class)
+public class NativeImageConfig {
+
+    static class SqlGeneratorRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            // Catalogue des requêtes (QueryService.SQL_FILES_PATTERN et NAMESPACED_SQL_FILES_PATTERN)
+            hints.resources().registerPattern("sql/*.sql");
+            hints.resources().registerPattern("sql/*/*.sql");
+            // Interface Swagger UI servie depuis le webjar
+            hints.resources().registerPattern("META-INF/resources/webjars/swagger-ui/**");
+
+            // Modèles renvoyés en JSON : constructeurs, getters et types des champs
+            new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                    QueryDefinition.class, ParameterDefinition.class, QueryCatalogPage.class,
+                    PatchRecord.class, PatchHistoryPage.class, PatchEstimate.class, UploadStatus.class);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.sqlgenerator.backend.config;
 
 import com.sqlgenerator.backend.model.ParameterDefinition;
 import com.sqlgenerator.backend.model.QueryDefinition;
+import com.sqlgenerator.backend.service.QueryConstants;
 import com.sqlgenerator.backend.service.QueryService;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.Operation;
@@ -14,6 +15,7 @@ import org.springdoc.core.customizers.OpenApiCustomizer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
@@ -58,7 +60,7 @@ public class PatchOpenApiCustomizer implements OpenApiCustomizer {
         operation.setDescription(query.getDescription());
         
         if (query.getTags() != null && !query.getTags().isEmpty()) {
-            operation.setTags(query.getTags());
+            operation.setTags(new ArrayList<>(query.getTags()));
         }
         
         operation.setRequestBody(createRequestBody(query));
@@ -74,6 +76,9 @@ public class PatchOpenApiCustomizer implements OpenApiCustomizer {
         addTicketParameter(schema);
         addExecutionTypeParameter(schema, hasInParameter);
         addQueryParameters(schema, query);
+        if (hasInParameter) {
+            addTransactionParameters(schema, false);
+        }
         
         RequestBody requestBody = buildRequestBody(schema, hasInParameter);
         return requestBody;
@@ -103,6 +108,36 @@ public class PatchOpenApiCustomizer implements OpenApiCustomizer {
         schema.addProperty("executionType", executionTypeSchema);
     }
 
+    /**
+     * Options transactionnelles : lots IN (endpoint unitaire) et lignes CSV (endpoint masse).
+     */
+    private void addTransactionParameters(ObjectSchema schema, boolean masse) {
+        StringSchema commitModeSchema = new StringSchema();
+        commitModeSchema.setDescription("Stratégie transactionnelle : none (défaut), commit (COMMIT tous les N), "
+                + "block (bloc BEGIN ... COMMIT; END; tous les N)"
+                + (masse ? ", forall (Oracle : FORALL par groupe de N lignes)" : ""));
+        commitModeSchema.setDefault("none");
+        commitModeSchema.addEnumItem("none");
+        commitModeSchema.addEnumItem("commit");
+        commitModeSchema.addEnumItem("block");
+        if (masse) {
+            commitModeSchema.addEnumItem("forall");
+        }
+        schema.addProperty(QueryConstants.PARAM_COMMIT_MODE, commitModeSchema);
+
+        IntegerSchema intervalSchema = new IntegerSchema();
+        intervalSchema.setDescription("Nombre " + (masse ? "de lignes" : "de lots") + " par transaction");
+        intervalSchema.setMinimum(java.math.BigDecimal.ONE);
+        schema.addProperty(QueryConstants.PARAM_COMMIT_INTERVAL, intervalSchema);
+
+        StringSchema validationModeSchema = new StringSchema();
+        validationModeSchema.setDescription("Valeur invalide : failFast (arrêt à la première erreur) ou "
+                + "collect (toutes les erreurs " + (masse ? "du fichier " : "") + "remontées ensemble)");
+        validationModeSchema.addEnumItem("failFast");
+        validationModeSchema.addEnumItem("collect");
+        schema.addProperty(QueryConstants.PARAM_VALIDATION_MODE, validationModeSchema);
+    }
+
     /**
      * Crée une opération spécifique pour le mode masse.
      */
@@ -113,7 +148,7 @@ public class PatchOpenApiCustomizer implements OpenApiCustomizer {
                 "Les valeurs doivent être séparées par virgule dans l'ordre des paramètres.");
         
         if (query.getTags() != null && !query.getTags().isEmpty()) {
-            operation.setTags(query.getTags());
+            operation.setTags(new ArrayList<>(query.getTags()));
         }
         
         operation.setRequestBody(createMasseRequestBody(query));
@@ -133,11 +168,21 @@ public class PatchOpenApiCustomizer implements OpenApiCustomizer {
         // Fichier CSV obligatoire pour le mode masse
         StringSchema masseFileSchema = new StringSchema();
         masseFileSchema.setFormat("binary");
-        masseFileSchema.setDescription("Fichier CSV (requis). " +
-                "Une ligne par requête, valeurs séparées par virgule dans l'ordre des paramètres : " +
-                getParameterOrderDescription(query));
+        masseFileSchema.setDescription("Fichier CSV ou NDJSON (requis). " +
+                "CSV : une ligne par requête, valeurs séparées par virgule dans l'ordre des paramètres : " +
+                getParameterOrderDescription(query) + ". " +
+                "NDJSON (.ndjson / application/x-ndjson) ou tableau JSON : un objet par requête, champs nommés comme les paramètres.");
         schema.addProperty("masseFile", masseFileSchema);
         schema.addRequiredItem("masseFile");
+        addTransactionParameters(schema, true);
+
+        StringSchema outputModeSchema = new StringSchema();
+        outputModeSchema.setDescription("Forme du SQL : literal (une instruction par ligne, défaut) ou "
+                + "bind (une instruction paramétrée parsée une fois, exécutée pour chaque ligne)");
+        outputModeSchema.setDefault(QueryConstants.OUTPUT_MODE_LITERAL);
+        outputModeSchema.addEnumItem(QueryConstants.OUTPUT_MODE_LITERAL);
+        outputModeSchema.addEnumItem(QueryConstants.OUTPUT_MODE_BIND);
+        schema.addProperty(QueryConstants.PARAM_OUTPUT_MODE, outputModeSchema);
         
         RequestBody requestBody = new RequestBody();
         requestBody.setDescription("Paramètres pour générer le patch SQL en mode masse");
@@ -237,6 +282,11 @@ public class PatchOpenApiCustomizer implements OpenApiCustomizer {
                 schema.setDescription(param.getLabel());
             }
         }
+
+        if (param.getConstraints() != null) {
+            String label = schema.getDescription() != null ? schema.getDescription() + " " : "";
+            schema.setDescription(label + "[contraintes : " + param.getConstraints() + "]");
+        }
         
         return schema;
     }
@@ -0,0 +1,12 @@
+package com.sqlgenerator.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Active les tâches planifiées (maintenance du store de patchs, hors du chemin des requêtes).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
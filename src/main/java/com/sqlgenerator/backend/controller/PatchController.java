@@ -1,10 +1,18 @@
 package com.sqlgenerator.backend.controller;
 
+import com.sqlgenerator.backend.model.ParameterDefinition;
 import com.sqlgenerator.backend.service.QueryConstants;
 import com.sqlgenerator.backend.service.QueryService;
+import com.sqlgenerator.backend.service.SqlFileBuilder;
+import com.sqlgenerator.backend.service.estimate.PatchEstimator;
+import com.sqlgenerator.backend.service.input.MasseFormat;
+import com.sqlgenerator.backend.service.input.MasseInput;
+import com.sqlgenerator.backend.service.storage.PatchStore;
+import com.sqlgenerator.backend.service.tracing.GenerationTracer;
+import com.sqlgenerator.backend.service.upload.UploadService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -12,15 +20,14 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,7 +37,15 @@ import org.slf4j.LoggerFactory;
  * 
  * Endpoints générés dynamiquement par PatchOpenApiCustomizer :
  * - POST /api/patch/{id} : mode unitaire (ou avec IN)
- * - POST /api/patch/{id}/masse : mode masse (uniquement pour requêtes sans IN)
+ * - POST /api/patch/{id}/masse : mode masse (uniquement pour requêtes sans IN),
+ *   fichier CSV / NDJSON en multipart ou NDJSON / JSON directement en corps de requête
+ * - POST /api/patch/{id}/estimate : estimation (taille, instructions, durée) sans génération
+ * 
+ * Chaque endpoint existe aussi sous /api/{namespace}/patch/... : la requête doit alors appartenir
+ * à ce namespace (404 sinon), et le namespace est celui dont les quotas s'appliquent.
+ * 
+ * Un fichier envoyé par upload reprenable (/api/uploads) se passe par son identifiant :
+ * nom.upload=uploadId au lieu du fichier nom (masseFile.upload pour le mode masse).
  * 
  * Pourquoi deux endpoints séparés ?
  * - Interface Swagger plus claire : pas de paramètres inutiles selon le mode
@@ -38,7 +53,7 @@ import org.slf4j.LoggerFactory;
  * - Meilleure expérience utilisateur dans la documentation
  */
 @RestController
-@RequestMapping("/api/patch")
+@RequestMapping({"/api/patch", "/api/{namespace}/patch"})
 @CrossOrigin(origins = "*")
 public class PatchController {
 
@@ -47,28 +62,41 @@ public class PatchController {
     @Autowired
     private QueryService queryService;
 
+    @Autowired
+    private PatchStore patchStore;
+
+    @Autowired
+    private PatchEstimator patchEstimator;
+
+    @Autowired
+    private GenerationTracer tracer;
+
+    @Autowired
+    private UploadService uploadService;
+
     @PostMapping(value = "/{id}", consumes = {MediaType.APPLICATION_FORM_URLENCODED_VALUE, MediaType.MULTIPART_FORM_DATA_VALUE})
     @io.swagger.v3.oas.annotations.Hidden
     public ResponseEntity<Resource> generatePatch(
+            @PathVariable(required = false) String namespace,
             @PathVariable String id,
             @RequestParam Map<String, String> formParams,
             @RequestParam(required = false) Map<String, MultipartFile> fileParams) {
         
-        var query = queryService.getQueryById(id);
+        var query = queryService.getQueryById(namespace, id);
         if (query == null) {
             logger.warn("Tentative d'accès à une query inexistante : {}", id);
             return ResponseEntity.notFound().build();
         }
 
         String executionType = formParams.getOrDefault("executionType", QueryConstants.EXECUTION_TYPE_UNITAIRE);
-        Map<String, Object> params = extractParameters(query, formParams, fileParams);
         
         try {
+            Map<String, Object> params = readParameters(query, executionType, formParams, fileParams);
             String fileName = queryService.generatePatchFile(id, executionType, params);
             return buildFileResponse(fileName);
         } catch (IllegalArgumentException e) {
             logger.error("Erreur de validation pour query '{}' : {}", id, e.getMessage());
-            return ResponseEntity.badRequest().build();
+            return badRequest(e);
         } catch (Exception e) {
             logger.error("Erreur lors de la génération du patch pour query '{}' : {}", id, e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
@@ -78,16 +106,31 @@ public class PatchController {
     @PostMapping(value = "/{id}/masse", consumes = {MediaType.APPLICATION_FORM_URLENCODED_VALUE, MediaType.MULTIPART_FORM_DATA_VALUE})
     @io.swagger.v3.oas.annotations.Hidden
     public ResponseEntity<Resource> generatePatchMasse(
+            @PathVariable(required = false) String namespace,
             @PathVariable String id,
             @RequestParam Map<String, String> formParams,
             @RequestParam(required = false) Map<String, MultipartFile> fileParams) {
         
-        var query = queryService.getQueryById(id);
+        var query = queryService.getQueryById(namespace, id);
         if (query == null) {
             logger.warn("Tentative d'accès à une query inexistante (masse) : {}", id);
             return ResponseEntity.notFound().build();
         }
 
+        // Fichier déjà envoyé par upload reprenable : lu en flux depuis le spool
+        String masseUpload = formParams.get("masseFile" + QueryConstants.UPLOAD_PARAM_SUFFIX);
+        if (masseUpload != null && !masseUpload.isEmpty()) {
+            try {
+                return generateMasse(id, formParams, uploadService.openMasse(masseUpload));
+            } catch (IllegalArgumentException e) {
+                logger.error("Upload masse inutilisable pour query '{}' : {}", id, e.getMessage());
+                return badRequest(e);
+            } catch (Exception e) {
+                logger.error("Erreur lors de la lecture de l'upload masse pour query '{}' : {}", id, e.getMessage(), e);
+                return ResponseEntity.internalServerError().build();
+            }
+        }
+
         // Vérifier que le fichier CSV est présent
         if (fileParams == null || !fileParams.containsKey("masseFile")) {
             logger.warn("Fichier CSV manquant pour query '{}' en mode masse", id);
@@ -101,28 +144,164 @@ public class PatchController {
         }
 
         try {
-            // Parser le fichier CSV
-            List<String> csvLines = parseFileContent(masseFile);
-            logger.debug("Fichier CSV parsé : {} ligne(s) pour query '{}'", csvLines.size(), id);
-            
+            // Format déduit du type du fichier (CSV par défaut, NDJSON/JSON si déclaré ou par extension)
+            MasseFormat format = MasseFormat.detect(masseFile.getContentType(), masseFile.getOriginalFilename());
+            return generateMasse(id, formParams, new MasseInput(format, masseFile.getInputStream()));
+        } catch (Exception e) {
+            logger.error("Erreur lors de la lecture du fichier masse pour query '{}' : {}", id, e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Mode masse avec le fichier en corps de requête (NDJSON ou tableau JSON), sans multipart.
+     * 
+     * Pourquoi ce second point d'entrée ?
+     * Les exports de nos systèmes amont sont en NDJSON : envoyés tels quels en corps de requête,
+     * ils sont lus en flux directement depuis la connexion, sans copie temporaire multipart.
+     * Le ticket et les options sont passés en paramètres d'URL.
+     */
+    @PostMapping(value = "/{id}/masse", consumes = {"application/x-ndjson", MediaType.APPLICATION_JSON_VALUE})
+    @io.swagger.v3.oas.annotations.Hidden
+    public ResponseEntity<Resource> generatePatchMasseJson(
+            @PathVariable(required = false) String namespace,
+            @PathVariable String id,
+            @RequestParam Map<String, String> queryParams,
+            InputStream body) {
+
+        if (queryService.getQueryById(namespace, id) == null) {
+            logger.warn("Tentative d'accès à une query inexistante (masse) : {}", id);
+            return ResponseEntity.notFound().build();
+        }
+        return generateMasse(id, queryParams, new MasseInput(MasseFormat.JSON, body));
+    }
+
+    /**
+     * Estimation à blanc : mêmes paramètres que la génération (masseFile pour le mode masse),
+     * mais rien n'est rendu ni écrit dans le store.
+     * 
+     * Pourquoi avant de générer ?
+     * Sur un gros fichier, l'utilisateur voit le nombre d'instructions, de lots, la taille
+     * et la durée attendues, ainsi que les lignes invalides, avant de lancer une génération longue.
+     */
+    @PostMapping(value = "/{id}/estimate", consumes = {MediaType.APPLICATION_FORM_URLENCODED_VALUE, MediaType.MULTIPART_FORM_DATA_VALUE})
+    @io.swagger.v3.oas.annotations.Hidden
+    public ResponseEntity<?> estimatePatch(
+            @PathVariable(required = false) String namespace,
+            @PathVariable String id,
+            @RequestParam Map<String, String> formParams,
+            @RequestParam(required = false) Map<String, MultipartFile> fileParams) {
+
+        var query = queryService.getQueryById(namespace, id);
+        if (query == null) {
+            logger.warn("Tentative d'estimation d'une query inexistante : {}", id);
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
             Map<String, Object> params = new HashMap<>();
             String ticket = formParams.get("ticket");
             if (ticket != null) {
                 params.put("ticket", ticket);
             }
-            params.put("masseFile", csvLines);
+            for (var paramDef : query.getParameters() != null ? query.getParameters() : List.<ParameterDefinition>of()) {
+                if (paramDef.isFile()) {
+                    // Fichiers passés en flux : l'estimateur les lit en une seule passe
+                    String upload = formParams.get(paramDef.getName() + QueryConstants.UPLOAD_PARAM_SUFFIX);
+                    MultipartFile file = fileParams != null ? fileParams.get(paramDef.getName()) : null;
+                    if (upload != null && !upload.isEmpty()) {
+                        params.put(paramDef.getName(), uploadService.openStream(upload));
+                    } else if (file != null && !file.isEmpty()) {
+                        params.put(paramDef.getName(), file.getInputStream());
+                    }
+                } else {
+                    String value = extractFormParameter(paramDef.getName(), formParams);
+                    if (value != null) {
+                        params.put(paramDef.getName(), value);
+                    }
+                }
+            }
+
+            String executionType = QueryConstants.EXECUTION_TYPE_UNITAIRE;
+            String masseUpload = formParams.get("masseFile" + QueryConstants.UPLOAD_PARAM_SUFFIX);
+            MultipartFile masseFile = fileParams != null ? fileParams.get("masseFile") : null;
+            if (masseUpload != null && !masseUpload.isEmpty()) {
+                executionType = QueryConstants.EXECUTION_TYPE_MASSE;
+                params.put("masseFile", uploadService.openMasse(masseUpload));
+            } else if (masseFile != null && !masseFile.isEmpty()) {
+                executionType = QueryConstants.EXECUTION_TYPE_MASSE;
+                MasseFormat format = MasseFormat.detect(masseFile.getContentType(), masseFile.getOriginalFilename());
+                params.put("masseFile", new MasseInput(format, masseFile.getInputStream()));
+            }
+
+            return ResponseEntity.ok(patchEstimator.estimate(id, executionType, params));
+        } catch (IllegalArgumentException e) {
+            logger.error("Erreur de validation pour l'estimation de query '{}' : {}", id, e.getMessage());
+            return badRequest(e);
+        } catch (Exception e) {
+            logger.error("Erreur lors de l'estimation pour query '{}' : {}", id, e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    private ResponseEntity<Resource> generateMasse(String id, Map<String, String> formParams, MasseInput input) {
+        try {
+            Map<String, Object> params = new HashMap<>();
+            String ticket = formParams.get("ticket");
+            if (ticket != null) {
+                params.put("ticket", ticket);
+            }
+            params.put("masseFile", input);
+            putTransactionOptions(params, formParams);
             
             String fileName = queryService.generatePatchFile(id, QueryConstants.EXECUTION_TYPE_MASSE, params);
             return buildFileResponse(fileName);
         } catch (IllegalArgumentException e) {
             logger.error("Erreur de validation pour query '{}' (masse) : {}", id, e.getMessage());
-            return ResponseEntity.badRequest().build();
+            return badRequest(e);
         } catch (Exception e) {
             logger.error("Erreur lors de la génération du patch (masse) pour query '{}' : {}", id, e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    /**
+     * 400 avec le message en texte brut : en validationMode=collect il liste les lignes à corriger.
+     */
+    private ResponseEntity<Resource> badRequest(IllegalArgumentException e) {
+        String message = e.getMessage() != null ? e.getMessage() : "Requête invalide";
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(new ByteArrayResource(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Lecture des paramètres, tracée comme phase "upload" : lecture des parts multipart et découpage
+     * des fichiers IN en valeurs (lignes = valeurs lues, octets = taille des fichiers reçus).
+     */
+    private Map<String, Object> readParameters(com.sqlgenerator.backend.model.QueryDefinition query,
+                                               String executionType,
+                                               Map<String, String> formParams,
+                                               Map<String, MultipartFile> fileParams) {
+        try (GenerationTracer.Phase phase = tracer.start(GenerationTracer.PHASE_UPLOAD, query.getId(), executionType)) {
+            Map<String, Object> params = extractParameters(query, formParams, fileParams);
+            long values = 0;
+            for (Object value : params.values()) {
+                if (value instanceof List) {
+                    values += ((List<?>) value).size();
+                }
+            }
+            long bytes = 0;
+            if (fileParams != null) {
+                for (MultipartFile file : fileParams.values()) {
+                    bytes += file.getSize();
+                }
+            }
+            phase.rows(values).bytes(bytes);
+            return params;
+        }
+    }
+
     private Map<String, Object> extractParameters(com.sqlgenerator.backend.model.QueryDefinition query,
                                                    Map<String, String> formParams,
                                                    Map<String, MultipartFile> fileParams) {
@@ -143,13 +322,32 @@ public class PatchController {
         if (ticket != null) {
             params.put("ticket", ticket);
         }
+        putTransactionOptions(params, formParams);
 
         return params;
     }
 
-    private Object extractParameterValue(com.sqlgenerator.backend.model.ParameterDefinition paramDef,
+    /**
+     * Options de génération (QueryConstants.GENERATION_OPTIONS) transmises telles quelles au service qui les valide.
+     */
+    private void putTransactionOptions(Map<String, Object> params, Map<String, String> formParams) {
+        for (String name : QueryConstants.GENERATION_OPTIONS) {
+            String value = formParams.get(name);
+            if (value != null && !value.isEmpty()) {
+                params.put(name, value);
+            }
+        }
+    }
+
+    private Object extractParameterValue(ParameterDefinition paramDef,
                                         Map<String, String> formParams,
                                         Map<String, MultipartFile> fileParams) {
+        if (paramDef.isFile()) {
+            String upload = formParams.get(paramDef.getName() + QueryConstants.UPLOAD_PARAM_SUFFIX);
+            if (upload != null && !upload.isEmpty()) {
+                return extractUploadParameter(paramDef.getName(), upload);
+            }
+        }
         if (paramDef.isFile() && fileParams != null) {
             return extractFileParameter(paramDef.getName(), fileParams);
         }
@@ -168,6 +366,18 @@ public class PatchController {
         }
     }
 
+    /**
+     * Valeurs d'un upload reprenable terminé : lues depuis le spool à la demande, jamais chargées en entier.
+     */
+    private Object extractUploadParameter(String paramName, String uploadId) {
+        try {
+            return uploadService.openValues(uploadId);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Erreur lors de la lecture de l'upload " + uploadId
+                    + " pour " + paramName, e);
+        }
+    }
+
     private String extractFormParameter(String paramName, Map<String, String> formParams) {
         String value = formParams.get(paramName);
         return (value != null && !value.isEmpty()) ? value : null;
@@ -175,13 +385,20 @@ public class PatchController {
 
     private ResponseEntity<Resource> buildFileResponse(String fileName) {
         try {
-            Path path = Paths.get("./svn_repo_mock/" + fileName);
-            Resource resource = new UrlResource(Objects.requireNonNull(path.toUri()));
+            Resource resource = patchStore.open(fileName);
+            if (resource == null) {
+                throw new IllegalStateException("Patch introuvable dans le store : " + fileName);
+            }
 
-            return ResponseEntity.ok()
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                     .contentType(MediaType.parseMediaType("application/sql"))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
-                    .body(resource);
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+            // Rollback généré avec le patch : écrit à côté de lui dans le store des patchs
+            String rollbackFileName = SqlFileBuilder.rollbackFileName(fileName);
+            if (patchStore.open(rollbackFileName) != null) {
+                response.header("X-Rollback-File", rollbackFileName);
+            }
+            return response.body(resource);
         } catch (Exception e) {
             throw new RuntimeException("Erreur lors de la création de la ressource pour " + fileName, e);
         }
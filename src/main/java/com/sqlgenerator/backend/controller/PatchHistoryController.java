@@ -0,0 +1,57 @@
+package com.sqlgenerator.backend.controller;
+
+import com.sqlgenerator.backend.model.PatchHistoryPage;
+import com.sqlgenerator.backend.service.history.PatchHistoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Recherche dans l'historique des patchs générés.
+ *
+ * GET /api/patch/history?ticket=...&queryId=...&executionType=...&from=...&to=...&page=0&size=50
+ *
+ * Tous les critères sont optionnels ; les résultats vont du plus récent au plus ancien.
+ * Les dates sont au format ISO (ex: 2024-11-30T14:40:19), "to" est exclusif.
+ */
+@RestController
+@RequestMapping("/api/patch/history")
+@CrossOrigin(origins = "*")
+public class PatchHistoryController {
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    @Autowired
+    private PatchHistoryService historyService;
+
+    @GetMapping
+    public ResponseEntity<PatchHistoryPage> search(
+            @RequestParam(required = false) String ticket,
+            @RequestParam(required = false) String queryId,
+            @RequestParam(required = false) String executionType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+
+        if (page < 0 || size <= 0 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        PatchHistoryPage result = historyService.search(blankToNull(queryId), blankToNull(ticket),
+                blankToNull(executionType), toMillis(from), toMillis(to), page, size);
+        return ResponseEntity.ok(result);
+    }
+
+    private static Long toMillis(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : null;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -0,0 +1,135 @@
+package com.sqlgenerator.backend.controller;
+
+import com.sqlgenerator.backend.service.QueryConstants;
+import com.sqlgenerator.backend.service.QueryService;
+import com.sqlgenerator.backend.service.input.MasseFormat;
+import com.sqlgenerator.backend.service.input.MasseInput;
+import jakarta.servlet.http.HttpServletResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Génération masse streamée : POST /api/patch/{id}/masse/stream (activée par patch.streaming.enabled).
+ *
+ * Le corps de la requête (CSV, NDJSON ou tableau JSON selon le Content-Type) est lu en flux et
+ * le patch est renvoyé au fil du rendu, par blocs, au lieu d'être servi depuis le store une fois terminé.
+ *
+ * Pourquoi pas WebFlux ?
+ * L'application est en Servlet (springdoc webmvc, filtre d'admission). Les écritures bloquantes
+ * sur la réponse donnent la même contre-pression : un client lent bloque l'écriture d'un bloc,
+ * ce qui suspend le rendu et la lecture du corps (le client amont est freiné par TCP).
+ * La mémoire reste bornée au tampon de SqlSink, quelle que soit la taille du patch.
+ *
+ * Le patch est aussi stocké et historisé ; son nom est donné par la dernière ligne
+ * (-- Patch enregistré : ...). Une erreur survenue après le début de l'envoi ne peut plus
+ * changer le statut HTTP : le flux se termine alors par -- ERREUR : ... suivi d'une erreur
+ * du dialecte (SqlDialect.abortScript) qui fait échouer l'exécution du script tronqué, et rien n'est stocké.
+ */
+@RestController
+@RequestMapping({"/api/patch", "/api/{namespace}/patch"})
+@CrossOrigin(origins = "*")
+@ConditionalOnProperty(name = "patch.streaming.enabled", havingValue = "true")
+public class PatchStreamController {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatchStreamController.class);
+
+    @Autowired
+    private QueryService queryService;
+
+    @PostMapping(value = "/{id}/masse/stream", consumes = {"text/csv", "application/x-ndjson", "application/json"})
+    @Operation(summary = "Génération masse streamée",
+            description = "Corps CSV, NDJSON ou tableau JSON lu en flux ; le patch est renvoyé au fil du rendu. "
+                    + "Paramètres de requête : ticket et options de génération (commitMode, outputMode...). "
+                    + "Un patch complet se termine par la ligne \"-- Patch enregistré : {fichier}\" : le client "
+                    + "doit la vérifier. Une erreur survenue après le début de l'envoi ne change plus le statut "
+                    + "HTTP (200) : le script reçu est tronqué et se termine par une instruction en erreur "
+                    + "(RAISE_APPLICATION_ERROR sous WHENEVER SQLERROR EXIT, RAISE EXCEPTION sous ON_ERROR_STOP, "
+                    + "RAISERROR sous :on error exit) qui arrête son exécution ; rien n'est enregistré.")
+    public void streamPatchMasse(
+            @PathVariable(required = false) String namespace,
+            @PathVariable String id,
+            @RequestParam Map<String, String> queryParams,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            InputStream body,
+            HttpServletResponse response) throws IOException {
+
+        if (queryService.getQueryById(namespace, id) == null) {
+            logger.warn("Tentative d'accès à une query inexistante (masse streamée) : {}", id);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        Map<String, Object> params = new HashMap<>();
+        String ticket = queryParams.get("ticket");
+        if (ticket != null) {
+            params.put("ticket", ticket);
+        }
+        for (String name : QueryConstants.GENERATION_OPTIONS) {
+            String value = queryParams.get(name);
+            if (value != null && !value.isEmpty()) {
+                params.put(name, value);
+            }
+        }
+        params.put("masseFile", new MasseInput(MasseFormat.detect(contentType, null), body));
+
+        response.setContentType("application/sql");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + id + "_" + QueryConstants.EXECUTION_TYPE_MASSE + ".sql\"");
+
+        // Pas de BufferedWriter : SqlSink écrit déjà par blocs et vide la réponse à chaque bloc
+        Writer out = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+        try {
+            String fileName = queryService.streamPatchFile(id, QueryConstants.EXECUTION_TYPE_MASSE, params, out);
+            out.append("\n-- Patch enregistré : ").append(fileName).append("\n");
+            out.flush();
+        } catch (IllegalArgumentException e) {
+            logger.error("Erreur de validation pour query '{}' (masse streamée) : {}", id, e.getMessage());
+            fail(response, out, id, HttpServletResponse.SC_BAD_REQUEST,
+                    e.getMessage() != null ? e.getMessage() : "Requête invalide");
+        } catch (IOException e) {
+            // Le plus souvent le client a fermé la connexion : le patch est abandonné
+            logger.warn("Génération streamée interrompue pour query '{}' : {}", id, e.getMessage());
+        } catch (Exception e) {
+            logger.error("Erreur lors de la génération streamée pour query '{}' : {}", id, e.getMessage(), e);
+            fail(response, out, id, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Erreur lors de la génération");
+        }
+    }
+
+    /**
+     * Statut d'erreur si rien n'a encore été envoyé. Sinon le client a déjà reçu un script exécutable :
+     * un commentaire ne suffit pas (sqlplus, psql et sqlcmd les ignorent), le script se termine
+     * par une erreur qui arrête son exécution.
+     */
+    private void fail(HttpServletResponse response, Writer out, String id, int status, String message)
+            throws IOException {
+        if (!response.isCommitted()) {
+            response.reset();
+            response.setStatus(status);
+            response.setContentType("text/plain");
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        out.append("\n-- ERREUR : génération interrompue, patch non enregistré\n-- ")
+                .append(message.replace("\n", "\n-- ")).append("\n")
+                .append(queryService.getCompiledQuery(id).getDialect()
+                        .abortScript("Patch " + id + " incomplet : génération interrompue, patch non enregistré"))
+                .append("\n");
+        out.flush();
+    }
+}
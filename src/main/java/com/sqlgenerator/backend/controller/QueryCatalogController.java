@@ -0,0 +1,78 @@
+package com.sqlgenerator.backend.controller;
+
+import com.sqlgenerator.backend.model.QueryCatalogPage;
+import com.sqlgenerator.backend.service.QueryCatalog;
+import com.sqlgenerator.backend.service.QueryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Liste et recherche des requêtes disponibles, sans passer par le document OpenAPI.
+ *
+ * GET /api/queries?q=personne nom&tag=person&tag=update&page=0&size=50
+ * GET /api/{namespace}/queries?q=... : mêmes critères, limités au catalogue d'une équipe
+ *
+ * q : mots cherchés dans l'id, le nom, la description et les tags (tous requis, par préfixe,
+ * sans casse ni accents) ; tag : tags exacts, tous requis. Critères optionnels.
+ *
+ * La réponse porte un ETag (version du catalogue) : avec If-None-Match, un catalogue inchangé
+ * répond 304 sans corps.
+ */
+@RestController
+@RequestMapping({"/api/queries", "/api/{namespace}/queries"})
+@CrossOrigin(origins = "*")
+public class QueryCatalogController {
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    @Autowired
+    private QueryService queryService;
+
+    @GetMapping
+    public ResponseEntity<QueryCatalogPage> search(
+            @PathVariable(required = false) String namespace,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) List<String> tag,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (page < 0 || size <= 0 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Un seul instantané pour l'ETag et le contenu : un rechargement entre les deux ne les désaccorde pas
+        QueryCatalog catalog = queryService.getCatalog();
+        String etag = "\"" + catalog.getVersion() + "\"";
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(catalog.search(namespace, q, tag, page, size));
+    }
+
+    /**
+     * If-None-Match peut lister plusieurs ETags, faibles (W/) ou non, ou valoir *.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
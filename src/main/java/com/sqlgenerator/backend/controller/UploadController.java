@@ -0,0 +1,108 @@
+package com.sqlgenerator.backend.controller;
+
+import com.sqlgenerator.backend.model.UploadStatus;
+import com.sqlgenerator.backend.service.upload.UploadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Uploads reprenables par morceaux, pour les fichiers IN ou masse de plusieurs Go.
+ *
+ * - POST /api/uploads?fileName=ids.txt&size=...&sha256=... : ouvre un upload (201, uploadId)
+ * - PUT /api/uploads/{uploadId}?offset=...&sha256=... : ajoute un morceau (corps brut) à l'offset donné
+ *   (un seul morceau à la fois : 409 si un autre est encore en cours de réception)
+ * - GET /api/uploads/{uploadId} : octets reçus (offset de reprise après une coupure)
+ * - POST /api/uploads/{uploadId}/complete?sha256=... : vérifie taille et empreinte, rend le fichier utilisable
+ * - DELETE /api/uploads/{uploadId}
+ *
+ * Le fichier terminé est ensuite passé à la génération par son identifiant :
+ * nom.upload=uploadId (paramètre fichier IN) ou masseFile.upload=uploadId (mode masse).
+ */
+@RestController
+@RequestMapping("/api/uploads")
+@CrossOrigin(origins = "*")
+public class UploadController {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadController.class);
+
+    @Autowired
+    private UploadService uploadService;
+
+    @PostMapping
+    public ResponseEntity<UploadStatus> create(
+            @RequestParam(required = false) String fileName,
+            @RequestParam(required = false) Long size,
+            @RequestParam(required = false) String sha256) throws IOException {
+        try {
+            UploadStatus status = uploadService.create(fileName, size, sha256);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header(HttpHeaders.LOCATION, "/api/uploads/" + status.getUploadId())
+                    .body(status);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ouverture d'upload refusée : {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PutMapping(value = "/{uploadId}", consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<UploadStatus> appendChunk(
+            @PathVariable String uploadId,
+            @RequestParam long offset,
+            @RequestParam(required = false) String sha256,
+            InputStream body) throws IOException {
+        if (uploadService.status(uploadId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(uploadService.append(uploadId, offset, body, sha256));
+        } catch (IllegalStateException e) {
+            // Offset décalé (morceau rejoué ou perdu), morceau déjà en cours ou upload terminé :
+            // le corps donne l'offset attendu
+            logger.warn("Morceau refusé pour l'upload {} : {}", uploadId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(uploadService.status(uploadId));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Morceau rejeté pour l'upload {} : {}", uploadId, e.getMessage());
+            return ResponseEntity.badRequest().body(uploadService.status(uploadId));
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadStatus> status(@PathVariable String uploadId) {
+        UploadStatus status = uploadService.status(uploadId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<UploadStatus> complete(
+            @PathVariable String uploadId,
+            @RequestParam(required = false) String sha256) throws IOException {
+        if (uploadService.status(uploadId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(uploadService.complete(uploadId, sha256));
+        } catch (IllegalStateException e) {
+            // Un morceau est encore en cours de réception
+            logger.warn("Fin d'upload refusée pour {} : {}", uploadId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(uploadService.status(uploadId));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Fin d'upload refusée pour {} : {}", uploadId, e.getMessage());
+            return ResponseEntity.badRequest().body(uploadService.status(uploadId));
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> delete(@PathVariable String uploadId) throws IOException {
+        return uploadService.delete(uploadId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
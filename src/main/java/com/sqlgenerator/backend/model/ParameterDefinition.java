@@ -1,12 +1,18 @@
 package com.sqlgenerator.backend.model;
 
-import lombok.Data;
+import lombok.Builder;
+import lombok.Value;
 
-@Data
+/**
+ * Paramètre d'une requête (ligne -- @param: ou -- @param-file:), immuable.
+ */
+@Value
+@Builder
 public class ParameterDefinition {
-    private String name;
-    private String type; // number, text, date, file
-    private String label;
-    private boolean required;
-    private boolean isFile; // true si le paramètre nécessite un fichier upload
+    String name;
+    String type; // number, text, date, file
+    String label;
+    boolean required;
+    boolean isFile; // true si le paramètre nécessite un fichier upload
+    String constraints; // ex: min=0;max=100, maxLength=10;regex=^[A-Z]+$ (compilées par ParameterValidator)
 }
@@ -0,0 +1,18 @@
+package com.sqlgenerator.backend.model;
+
+import lombok.Data;
+import java.util.Map;
+
+@Data
+public class PatchEstimate {
+    private String queryId;
+    private String dialect;
+    private String executionType;
+    private long rowCount; // Lignes masse ou valeurs de la liste IN lues
+    private long invalidRowCount; // Paramètre obligatoire absent ou nombre mal formé
+    private Map<String, Long> distinctValues; // Estimation (HyperLogLog) par paramètre
+    private long statementCount;
+    private int lotCount;
+    private long estimatedBytes;
+    private long estimatedMillis; // D'après le débit mesuré sur les générations récentes
+}
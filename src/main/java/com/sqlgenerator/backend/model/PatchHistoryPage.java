@@ -0,0 +1,12 @@
+package com.sqlgenerator.backend.model;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class PatchHistoryPage {
+    private List<PatchRecord> items; // Du plus récent au plus ancien
+    private long total; // Nombre total de résultats pour les critères
+    private int page;
+    private int size;
+}
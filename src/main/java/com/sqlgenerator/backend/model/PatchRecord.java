@@ -0,0 +1,15 @@
+package com.sqlgenerator.backend.model;
+
+import lombok.Data;
+
+@Data
+public class PatchRecord {
+    private String fileName; // Identifiant unique du patch (ex: "activate-contrats_unitaire_20241130144019123.sql")
+    private String queryId;
+    private String ticket;
+    private String executionType;
+    private long createdAt; // Epoch en millisecondes
+    private long sizeBytes;
+    private long rowCount; // Lignes masse, valeurs IN ou 1 en unitaire
+    private int lotCount; // Nombre de lots IN générés (0 si pas de clause IN)
+}
@@ -0,0 +1,12 @@
+package com.sqlgenerator.backend.model;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class QueryCatalogPage {
+    private List<QueryDefinition> items; // Dans l'ordre du catalogue
+    private long total; // Nombre total de requêtes correspondant aux critères
+    private int page;
+    private int size;
+}
@@ -1,14 +1,41 @@
 package com.sqlgenerator.backend.model;
 
-import lombok.Data;
+import lombok.Builder;
+import lombok.Value;
 import java.util.List;
 
-@Data
+/**
+ * Définition d'une requête lue depuis les métadonnées de son fichier SQL.
+ *
+ * Immuable, listes comprises (copiées à la construction) : partagée sans verrou
+ * par tous les threads via le catalogue publié par QueryService.
+ */
+@Value
 public class QueryDefinition {
-    private String id;
-    private String name;
-    private String description;
-    private List<String> tags;
-    private String sqlFile; // Nom du fichier SQL dans resources/sql/ (ex: "update-person-name.sql")
-    private List<ParameterDefinition> parameters;
+    String id; // Unique dans tout le catalogue, quel que soit le namespace
+    String namespace; // Catalogue de l'équipe (-- @namespace: ou sous-répertoire de sql/) ; "default" sinon
+    String name;
+    String description;
+    List<String> tags; // null si le fichier n'a pas de -- @tags:
+    String sqlFile; // Chemin du fichier SQL sous resources/sql/ (ex: "update-person-name.sql", "rh/renommer.sql")
+    List<ParameterDefinition> parameters;
+    String dialect; // Dialecte SQL cible (oracle, postgresql, sqlserver) ; null = dialecte par défaut
+    String batching; // Combinaison des lots de plusieurs fichiers (cross, zip) ; null = cross
+    boolean rollback; // Section -- @rollback: présente : un script de rollback est généré avec chaque patch
+
+    @Builder
+    private QueryDefinition(String id, String namespace, String name, String description, List<String> tags,
+                            String sqlFile, List<ParameterDefinition> parameters, String dialect, String batching,
+                            boolean rollback) {
+        this.id = id;
+        this.namespace = namespace;
+        this.name = name;
+        this.description = description;
+        this.tags = tags != null ? List.copyOf(tags) : null;
+        this.sqlFile = sqlFile;
+        this.parameters = parameters != null ? List.copyOf(parameters) : List.of();
+        this.dialect = dialect;
+        this.batching = batching;
+        this.rollback = rollback;
+    }
 }
@@ -0,0 +1,13 @@
+package com.sqlgenerator.backend.model;
+
+import lombok.Data;
+
+@Data
+public class UploadStatus {
+    private String uploadId;
+    private String fileName;
+    private long receivedBytes; // Offset attendu pour le prochain morceau
+    private Long expectedBytes; // Taille annoncée à l'ouverture (null si inconnue)
+    private boolean complete;
+    private String sha256; // Empreinte du fichier complet (hexadécimal), une fois terminé
+}
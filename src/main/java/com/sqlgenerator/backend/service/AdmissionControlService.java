@@ -0,0 +1,228 @@
+package com.sqlgenerator.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Contrôle d'admission des générations lourdes (uploads multipart, mode masse).
+ *
+ * Deux limites sont appliquées avant que la requête n'atteigne le contrôleur :
+ * - Un nombre maximum de générations lourdes simultanées
+ * - Un budget en octets pour la taille cumulée des uploads en cours de traitement
+ *
+ * Pourquoi ce contrôle ?
+ * Quelques uploads de plusieurs centaines de Mo en parallèle suffisent à saturer le heap
+ * et à dégrader toutes les autres requêtes. Au-delà des limites, les requêtes attendent
+ * dans une file bornée puis sont rejetées (429 + Retry-After) plutôt que de faire tomber le serveur.
+ *
+ * Un créneau du namespace de la requête (NamespaceQuotas) est pris avant les limites globales :
+ * une équipe qui dépasse son quota attend sur son propre sémaphore sans occuper la file globale.
+ */
+@Service
+public class AdmissionControlService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlService.class);
+
+    /**
+     * Le budget est géré en Ko pour rester dans la plage d'un Semaphore (int) même avec plusieurs Go.
+     */
+    private static final int BYTES_PER_PERMIT = 1024;
+
+    @Value("${patch.admission.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Value("${patch.admission.max-inflight-bytes:1073741824}")
+    private long maxInflightBytes;
+
+    @Value("${patch.admission.max-queue-size:16}")
+    private int maxQueueSize;
+
+    @Value("${patch.admission.queue-timeout-ms:10000}")
+    private long queueTimeoutMs;
+
+    @Value("${patch.admission.retry-after-seconds:30}")
+    private int retryAfterSeconds;
+
+    @Value("${patch.admission.unknown-length-bytes:104857600}")
+    private long unknownLengthBytes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private NamespaceQuotas namespaceQuotas;
+
+    private Semaphore concurrencySlots;
+    private Semaphore byteBudget;
+    private int byteBudgetPermits;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong inflightBytes = new AtomicLong();
+
+    private Counter admittedCounter;
+    private Counter rejectedQueueFullCounter;
+    private Counter rejectedTimeoutCounter;
+    private Counter rejectedTooLargeCounter;
+    private Counter rejectedNamespaceCounter;
+
+    @PostConstruct
+    public void init() {
+        byteBudgetPermits = toPermits(maxInflightBytes);
+        // Sémaphores équitables : les requêtes en file sont servies dans l'ordre d'arrivée
+        concurrencySlots = new Semaphore(maxConcurrent, true);
+        byteBudget = new Semaphore(byteBudgetPermits, true);
+
+        Gauge.builder("patch.admission.active", active, AtomicInteger::get)
+                .description("Générations lourdes en cours")
+                .register(meterRegistry);
+        Gauge.builder("patch.admission.queued", queued, AtomicInteger::get)
+                .description("Générations lourdes en attente d'admission")
+                .register(meterRegistry);
+        Gauge.builder("patch.admission.inflight.bytes", inflightBytes, AtomicLong::get)
+                .description("Taille cumulée des uploads admis")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        admittedCounter = Counter.builder("patch.admission.admitted").register(meterRegistry);
+        rejectedQueueFullCounter = Counter.builder("patch.admission.rejected")
+                .tag("reason", "queue-full").register(meterRegistry);
+        rejectedTimeoutCounter = Counter.builder("patch.admission.rejected")
+                .tag("reason", "timeout").register(meterRegistry);
+        rejectedTooLargeCounter = Counter.builder("patch.admission.rejected")
+                .tag("reason", "too-large").register(meterRegistry);
+        rejectedNamespaceCounter = Counter.builder("patch.admission.rejected")
+                .tag("reason", "namespace").register(meterRegistry);
+
+        logger.info("Contrôle d'admission : {} génération(s) lourde(s) simultanée(s), budget {} octet(s), file de {}",
+                maxConcurrent, maxInflightBytes, maxQueueSize);
+    }
+
+    /**
+     * Demande l'admission d'une génération lourde.
+     *
+     * Prend d'abord un créneau du namespace, puis attend qu'un créneau global et le budget en octets
+     * se libèrent ; le délai queue-timeout-ms couvre les deux étapes.
+     * Le Permit retourné doit être fermé à la fin du traitement (try-with-resources).
+     *
+     * @param contentLength Taille annoncée de la requête (-1 si inconnue)
+     * @param namespace Namespace soumis à quota (null : aucun quota)
+     * @throws AdmissionRejectedException Si la file est pleine, le délai dépassé ou la requête trop grosse
+     */
+    public Permit admit(long contentLength, String namespace) throws AdmissionRejectedException {
+        long requestBytes = contentLength >= 0 ? contentLength : unknownLengthBytes;
+        int permits = Math.max(1, toPermits(requestBytes));
+
+        if (permits > byteBudgetPermits) {
+            rejectedTooLargeCounter.increment();
+            throw new AdmissionRejectedException(AdmissionRejectedException.Reason.TOO_LARGE, retryAfterSeconds,
+                    "Taille de la requête (" + requestBytes + " octets) supérieure au budget total");
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+        boolean namespaceAcquired = false;
+        try {
+            namespaceAcquired = namespaceQuotas.tryAcquire(namespace, TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!namespaceAcquired) {
+            rejectedNamespaceCounter.increment();
+            throw new AdmissionRejectedException(AdmissionRejectedException.Reason.NAMESPACE_BUSY, retryAfterSeconds,
+                    "Quota de générations simultanées du namespace '" + namespace
+                            + "' atteint (file d'attente pleine ou délai dépassé)");
+        }
+
+        try {
+            return admitGlobal(requestBytes, permits, deadline, namespace);
+        } catch (AdmissionRejectedException e) {
+            namespaceQuotas.release(namespace);
+            throw e;
+        }
+    }
+
+    private Permit admitGlobal(long requestBytes, int permits, long deadline, String namespace)
+            throws AdmissionRejectedException {
+        if (queued.incrementAndGet() > maxQueueSize) {
+            queued.decrementAndGet();
+            rejectedQueueFullCounter.increment();
+            throw new AdmissionRejectedException(AdmissionRejectedException.Reason.QUEUE_FULL, retryAfterSeconds,
+                    "File d'attente pleine");
+        }
+
+        boolean bytesAcquired = false;
+        try {
+            bytesAcquired = byteBudget.tryAcquire(permits,
+                    Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (bytesAcquired && concurrencySlots.tryAcquire(
+                    Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                return grant(requestBytes, permits, namespace);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queued.decrementAndGet();
+        }
+
+        if (bytesAcquired) {
+            byteBudget.release(permits);
+        }
+        rejectedTimeoutCounter.increment();
+        throw new AdmissionRejectedException(AdmissionRejectedException.Reason.TIMEOUT, retryAfterSeconds,
+                "Délai d'attente d'admission dépassé");
+    }
+
+    private Permit grant(long requestBytes, int permits, String namespace) {
+        active.incrementAndGet();
+        inflightBytes.addAndGet(requestBytes);
+        admittedCounter.increment();
+        return new Permit(requestBytes, permits, namespace);
+    }
+
+    private static int toPermits(long bytes) {
+        long permits = (bytes + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT;
+        return (int) Math.min(Integer.MAX_VALUE, permits);
+    }
+
+    /**
+     * Jeton d'admission : libère les créneaux (global et namespace) et le budget à la fermeture (une seule fois).
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final long requestBytes;
+        private final int permits;
+        private final String namespace;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long requestBytes, int permits, String namespace) {
+            this.requestBytes = requestBytes;
+            this.permits = permits;
+            this.namespace = namespace;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                active.decrementAndGet();
+                inflightBytes.addAndGet(-requestBytes);
+                concurrencySlots.release();
+                byteBudget.release(permits);
+                namespaceQuotas.release(namespace);
+            }
+        }
+    }
+}
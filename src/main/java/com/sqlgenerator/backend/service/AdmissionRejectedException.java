@@ -0,0 +1,37 @@
+package com.sqlgenerator.backend.service;
+
+/**
+ * Levée quand une génération lourde ne peut pas être admise.
+ *
+ * Porte la raison du rejet (pour choisir le code HTTP) et le délai conseillé avant nouvel essai.
+ */
+public class AdmissionRejectedException extends Exception {
+
+    public enum Reason {
+        /** File d'attente pleine : rejet immédiat */
+        QUEUE_FULL,
+        /** Aucun créneau libéré dans le délai d'attente */
+        TIMEOUT,
+        /** La requête dépasse à elle seule le budget en octets */
+        TOO_LARGE,
+        /** Le namespace de la requête a atteint son quota de générations simultanées */
+        NAMESPACE_BUSY
+    }
+
+    private final Reason reason;
+    private final int retryAfterSeconds;
+
+    public AdmissionRejectedException(Reason reason, int retryAfterSeconds, String message) {
+        super(message);
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,130 @@
+package com.sqlgenerator.backend.service;
+
+import com.sqlgenerator.backend.model.ParameterDefinition;
+import com.sqlgenerator.backend.model.QueryDefinition;
+import com.sqlgenerator.backend.service.batching.BatchingMode;
+import com.sqlgenerator.backend.service.dialect.SqlDialect;
+import com.sqlgenerator.backend.service.template.CompiledTemplate;
+import com.sqlgenerator.backend.service.validation.ParameterValidator;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Requête prête à être rendue : définition, template compilé, dialecte et validateurs résolus au chargement.
+ *
+ * Évite de relire le fichier SQL depuis le classpath et de re-parser le template à chaque requête.
+ * Une contrainte de paramètre invalide fait échouer la compilation (la requête n'est pas chargée).
+ */
+public final class CompiledQuery {
+
+    private final QueryDefinition definition;
+    private final CompiledTemplate template;
+    private final List<CompiledTemplate> statements;
+    private final SqlDialect dialect;
+    private final Map<String, ParameterDefinition> parametersByName;
+    private final Map<String, ParameterValidator> validatorsByName;
+    private final boolean proceduralBlock;
+    private final BatchingMode batchingMode;
+    private final PatchHeader header;
+    private final CompiledQuery rollback;
+
+    public CompiledQuery(QueryDefinition definition, CompiledTemplate template, SqlDialect dialect,
+                         boolean proceduralBlock) {
+        this(definition, template, List.of(template), dialect, proceduralBlock);
+    }
+
+    /**
+     * @param statements Le même SQL découpé en instructions (chacune terminée), pour le lotissement
+     */
+    public CompiledQuery(QueryDefinition definition, CompiledTemplate template, List<CompiledTemplate> statements,
+                         SqlDialect dialect, boolean proceduralBlock) {
+        this(definition, template, statements, dialect, proceduralBlock, null);
+    }
+
+    /**
+     * @param rollback Section -- @rollback: compilée (mêmes paramètres et dialecte), ou null
+     */
+    public CompiledQuery(QueryDefinition definition, CompiledTemplate template, List<CompiledTemplate> statements,
+                         SqlDialect dialect, boolean proceduralBlock, CompiledQuery rollback) {
+        this.rollback = rollback;
+        this.definition = definition;
+        this.template = template;
+        this.statements = List.copyOf(statements);
+        this.dialect = dialect;
+        this.proceduralBlock = proceduralBlock;
+        this.batchingMode = BatchingMode.fromMetadata(definition.getBatching());
+        this.header = PatchHeader.compile(definition);
+        Map<String, ParameterDefinition> byName = new LinkedHashMap<>();
+        Map<String, ParameterValidator> validators = new LinkedHashMap<>();
+        for (ParameterDefinition param : definition.getParameters()) {
+            byName.put(param.getName(), param);
+            ParameterValidator validator = ParameterValidator.compile(param);
+            if (!validator.isTrivial()) {
+                validators.put(param.getName(), validator);
+            }
+        }
+        this.parametersByName = Collections.unmodifiableMap(byName);
+        this.validatorsByName = Collections.unmodifiableMap(validators);
+    }
+
+    public QueryDefinition getDefinition() {
+        return definition;
+    }
+
+    public CompiledTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Instructions du template, dans l'ordre (une seule pour un bloc procédural ou une requête simple).
+     */
+    public List<CompiledTemplate> getStatements() {
+        return statements;
+    }
+
+    public SqlDialect getDialect() {
+        return dialect;
+    }
+
+    public ParameterDefinition getParameter(String name) {
+        return parametersByName.get(name);
+    }
+
+    /**
+     * Validateur du paramètre, ou null s'il n'a aucune règle (ni type contrôlé, ni obligatoire, ni contrainte).
+     */
+    public ParameterValidator getValidator(String name) {
+        return validatorsByName.get(name);
+    }
+
+    /**
+     * Combinaison des lots quand plusieurs paramètres fichier sont découpés (-- @batching:).
+     */
+    public BatchingMode getBatchingMode() {
+        return batchingMode;
+    }
+
+    /**
+     * En-tête et préfixe de nom des patchs de cette requête.
+     */
+    public PatchHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Script de rollback rendu avec le patch (section -- @rollback:), ou null si la requête n'en a pas.
+     */
+    public CompiledQuery getRollback() {
+        return rollback;
+    }
+
+    /**
+     * Bloc procédural (PL/SQL) plutôt qu'instruction SQL simple : incompatible avec FORALL.
+     */
+    public boolean isProceduralBlock() {
+        return proceduralBlock;
+    }
+}
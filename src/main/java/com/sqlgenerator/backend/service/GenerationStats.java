@@ -0,0 +1,28 @@
+package com.sqlgenerator.backend.service;
+
+/**
+ * Compteurs d'une génération, remplis pendant le traitement du SQL.
+ *
+ * Reportés dans l'historique des patchs (nombre de lignes traitées, nombre de lots IN).
+ */
+public class GenerationStats {
+
+    private long rowCount;
+    private int lotCount;
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void addRows(long rows) {
+        rowCount += rows;
+    }
+
+    public int getLotCount() {
+        return lotCount;
+    }
+
+    public void addLots(int lots) {
+        lotCount += lots;
+    }
+}
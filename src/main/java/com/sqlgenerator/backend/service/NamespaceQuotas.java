@@ -0,0 +1,137 @@
+package com.sqlgenerator.backend.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Quotas propres à chaque namespace (catalogue d'équipe) : générations lourdes simultanées et taille de sortie.
+ *
+ * Pourquoi des quotas par namespace ?
+ * Le contrôle d'admission global ne distingue pas les équipes : quelques gros jobs masse d'une équipe
+ * occupent tous les créneaux et les requêtes des autres attendent derrière eux. Avec un plafond par
+ * namespace, les jobs en trop d'une équipe attendent sur son propre sémaphore, sans prendre de place
+ * dans les créneaux ni dans la file globale.
+ *
+ * L'attente sur ce sémaphore est elle-même bornée (max-queue-size) : au-delà, la requête est rejetée
+ * tout de suite. Sinon chaque requête en trop d'une équipe garderait un thread Tomcat pendant tout
+ * le délai d'attente, et une équipe au-dessus de son quota épuiserait le pool des autres.
+ *
+ * Configuration : patch.namespace.{namespace}.max-concurrent, .max-queue-size et .max-output-bytes,
+ * sinon les valeurs patch.namespace.default-* ; 0 = pas de limite (sauf max-queue-size : 0 = pas d'attente).
+ *
+ * Seuls les namespaces du catalogue arrivent ici (AdmissionControlFilter et SqlFileBuilder passent
+ * par une requête connue) : la table des quotas reste bornée.
+ */
+@Service
+public class NamespaceQuotas {
+
+    @Value("${patch.namespace.default-max-concurrent:0}")
+    private int defaultMaxConcurrent;
+
+    @Value("${patch.namespace.default-max-queue-size:4}")
+    private int defaultMaxQueueSize;
+
+    @Value("${patch.namespace.default-max-output-bytes:0}")
+    private long defaultMaxOutputBytes;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Quota> quotas = new ConcurrentHashMap<>();
+
+    /**
+     * Taille maximale d'un fichier généré pour ce namespace, 0 si illimitée.
+     */
+    public long getMaxOutputBytes(String namespace) {
+        return namespace == null ? 0 : quota(namespace).maxOutputBytes;
+    }
+
+    /**
+     * Prend un créneau de génération lourde du namespace (immédiatement s'il n'a pas de limite).
+     *
+     * @return false si la file d'attente du namespace est pleine, ou si aucun créneau ne s'est libéré dans le délai
+     */
+    boolean tryAcquire(String namespace, long timeoutNanos) throws InterruptedException {
+        if (namespace == null) {
+            return true;
+        }
+        Quota quota = quota(namespace);
+        if (quota.slots != null && !quota.slots.tryAcquire() && !awaitSlot(quota, timeoutNanos)) {
+            return false;
+        }
+        quota.active.incrementAndGet();
+        return true;
+    }
+
+    private static boolean awaitSlot(Quota quota, long timeoutNanos) throws InterruptedException {
+        if (quota.waiting.incrementAndGet() > quota.maxQueueSize) {
+            quota.waiting.decrementAndGet();
+            return false;
+        }
+        try {
+            return quota.slots.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            quota.waiting.decrementAndGet();
+        }
+    }
+
+    void release(String namespace) {
+        if (namespace == null) {
+            return;
+        }
+        Quota quota = quota(namespace);
+        quota.active.decrementAndGet();
+        if (quota.slots != null) {
+            quota.slots.release();
+        }
+    }
+
+    private Quota quota(String namespace) {
+        return quotas.computeIfAbsent(namespace, this::createQuota);
+    }
+
+    private Quota createQuota(String namespace) {
+        String prefix = "patch.namespace." + namespace + ".";
+        int maxConcurrent = environment.getProperty(prefix + "max-concurrent", Integer.class, defaultMaxConcurrent);
+        int maxQueueSize = environment.getProperty(prefix + "max-queue-size", Integer.class, defaultMaxQueueSize);
+        long maxOutputBytes = environment.getProperty(prefix + "max-output-bytes", Long.class, defaultMaxOutputBytes);
+        Quota quota = new Quota(maxConcurrent, maxQueueSize, maxOutputBytes);
+        Gauge.builder("patch.namespace.active", quota.active, AtomicInteger::get)
+                .description("Générations lourdes en cours par namespace")
+                .tag("namespace", namespace)
+                .register(meterRegistry);
+        Gauge.builder("patch.namespace.queued", quota.waiting, AtomicInteger::get)
+                .description("Générations lourdes en attente d'un créneau du namespace")
+                .tag("namespace", namespace)
+                .register(meterRegistry);
+        return quota;
+    }
+
+    private static final class Quota {
+        // Équitable comme les sémaphores globaux : ordre d'arrivée dans le namespace
+        private final Semaphore slots;
+        private final int maxQueueSize;
+        private final long maxOutputBytes;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private Quota(int maxConcurrent, int maxQueueSize, long maxOutputBytes) {
+            this.slots = maxConcurrent > 0 ? new Semaphore(maxConcurrent, true) : null;
+            this.maxQueueSize = maxQueueSize;
+            this.maxOutputBytes = maxOutputBytes;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.sqlgenerator.backend.service;
+
+/**
+ * Découpage d'un patch en parties : une nouvelle partie toutes les N instructions ou M octets.
+ *
+ * Pourquoi découper ?
+ * Un patch masse de plusieurs millions de lignes fait un seul fichier de plusieurs Go :
+ * SQL*Plus et les outils de relecture peinent à l'ouvrir, et une reprise après erreur oblige
+ * à rejouer tout le fichier. Des parties bornées se relisent et se rejouent une à une.
+ *
+ * Une limite à 0 est désactivée ; sans aucune limite, le patch reste un fichier unique.
+ */
+public final class PartLimits {
+
+    private static final PartLimits NONE = new PartLimits(0, 0);
+
+    private final long maxStatements;
+    private final long maxBytes;
+
+    public PartLimits(long maxStatements, long maxBytes) {
+        if (maxStatements < 0) {
+            throw new IllegalArgumentException("partMaxStatements doit être positif : " + maxStatements);
+        }
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("partMaxBytes doit être positif : " + maxBytes);
+        }
+        this.maxStatements = maxStatements;
+        this.maxBytes = maxBytes;
+    }
+
+    public static PartLimits none() {
+        return NONE;
+    }
+
+    public boolean isEnabled() {
+        return maxStatements > 0 || maxBytes > 0;
+    }
+
+    /**
+     * Nombre d'instructions (lignes masse ou lots) par partie, 0 si illimité.
+     */
+    public long getMaxStatements() {
+        return maxStatements;
+    }
+
+    /**
+     * Taille visée d'une partie en octets, 0 si illimitée.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * La partie courante est-elle pleine ?
+     */
+    boolean isReached(long statements, long bytes) {
+        return (maxStatements > 0 && statements >= maxStatements) || (maxBytes > 0 && bytes >= maxBytes);
+    }
+}
@@ -0,0 +1,126 @@
+package com.sqlgenerator.backend.service;
+
+import com.sqlgenerator.backend.model.PatchRecord;
+import com.sqlgenerator.backend.model.QueryDefinition;
+import com.sqlgenerator.backend.service.template.CompiledTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * En-tête et préfixe de nom de fichier d'une requête, préparés une fois au chargement du catalogue.
+ *
+ * Pourquoi précalculer ?
+ * Le nom et l'identifiant de la requête ne changent pas d'une génération à l'autre : ils sont figés
+ * dans le template de l'en-tête (CompiledTemplate.bind), comme les paramètres simples d'un lot.
+ * À chaque génération il ne reste que trois emplacements à remplir : date, ticket et type.
+ *
+ * Immuable : partagé sans verrou entre les threads de requêtes.
+ */
+public final class PatchHeader {
+
+    private static final String GENERATED_AT = "generatedAt";
+    private static final String TICKET = "ticket";
+    private static final String EXECUTION_TYPE = "executionType";
+
+    /**
+     * Format modifiable ici sans impact sur la logique métier.
+     */
+    private static final String HEADER_TEMPLATE =
+            "-- Fichier de Patch Généré le {{" + GENERATED_AT + "}}\n"
+            + "-- Requête: {{name}}\n"
+            + "-- ID: {{id}}\n"
+            + "-- Ticket: {{" + TICKET + "}}\n"
+            + "-- Type: {{" + EXECUTION_TYPE + "}}\n";
+
+    private static final CompiledTemplate COMPILED_HEADER = CompiledTemplate.compile(HEADER_TEMPLATE);
+
+    /**
+     * Horodatage des noms de fichiers, à la milliseconde (DateTimeFormatter est immuable et thread-safe).
+     */
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    /**
+     * Relecture de fileName() : {queryId}_{executionType}_{timestamp}, suffixe d'unicité du store (-N),
+     * puis suffixes des compagnons (_rollback, _partNNN, chacun éventuellement suffixé à son tour).
+     * L'identifiant peut contenir des _ : le type et l'horodatage sont ancrés à la fin.
+     */
+    private static final Pattern FILE_NAME = Pattern.compile(
+            "^(.+)_([^_]+)_(\\d{17})(?:-\\d+)?(?:_rollback(?:-\\d+)?)?(?:_part\\d+(?:-\\d+)?)?\\.sql$");
+
+    private final CompiledTemplate template;
+    private final String fileNamePrefix;
+
+    private PatchHeader(CompiledTemplate template, String fileNamePrefix) {
+        this.template = template;
+        this.fileNamePrefix = fileNamePrefix;
+    }
+
+    /**
+     * Fige le nom et l'identifiant de la requête (valeurs insérées telles quelles, jamais réinterprétées).
+     */
+    public static PatchHeader compile(QueryDefinition query) {
+        CompiledTemplate template = COMPILED_HEADER.bind(Map.of(
+                "name", String.valueOf(query.getName()),
+                "id", String.valueOf(query.getId())));
+        return new PatchHeader(template, query.getId() + "_");
+    }
+
+    /**
+     * Ajoute l'en-tête à out : seuls la date, le ticket et le type sont rendus ici.
+     */
+    public void renderTo(StringBuilder out, LocalDateTime generatedAt, Object ticket, String executionType) {
+        template.renderTo(out, name -> {
+            if (GENERATED_AT.equals(name)) {
+                return generatedAt.toString();
+            }
+            if (TICKET.equals(name)) {
+                return String.valueOf(ticket);
+            }
+            return executionType;
+        });
+    }
+
+    public String render(LocalDateTime generatedAt, Object ticket, String executionType) {
+        StringBuilder out = new StringBuilder(template.getLiteralLength() + 96);
+        renderTo(out, generatedAt, ticket, executionType);
+        return out.toString();
+    }
+
+    /**
+     * Nom de fichier : {queryId}_{executionType}_{timestamp}.sql
+     */
+    public String fileName(String executionType, LocalDateTime generatedAt) {
+        return fileNamePrefix + executionType + "_" + FILE_TIMESTAMP.format(generatedAt) + ".sql";
+    }
+
+    /**
+     * Requête, type et date de génération d'un fichier généré (patch, rollback ou partie), relus
+     * dans son nom ; null si le nom n'a pas été produit par fileName().
+     *
+     * La date est celle du nom, pas celle du fichier : une copie ou une restauration change la date
+     * de modification, pas le nom.
+     */
+    public static PatchRecord parseFileName(String fileName) {
+        Matcher matcher = FILE_NAME.matcher(fileName);
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            LocalDateTime generatedAt = LocalDateTime.parse(matcher.group(3), FILE_TIMESTAMP);
+            PatchRecord record = new PatchRecord();
+            record.setFileName(fileName);
+            record.setQueryId(matcher.group(1));
+            record.setExecutionType(matcher.group(2));
+            record.setCreatedAt(generatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            return record;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.sqlgenerator.backend.service;
+
+import com.sqlgenerator.backend.model.QueryCatalogPage;
+import com.sqlgenerator.backend.model.QueryDefinition;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instantané du catalogue : requêtes chargées (dans l'ordre des fichiers) et leur version compilée par id.
+ *
+ * Pourquoi un instantané immuable ?
+ * Le catalogue est lu par chaque requête HTTP et par la documentation OpenAPI, mais n'est écrit qu'au
+ * chargement. Construit en entier puis publié d'un bloc (référence volatile dans QueryService), il se lit
+ * sans verrou ni copie défensive ; un rechargement remplace l'instantané : un lecteur voit l'ancien
+ * catalogue ou le nouveau, jamais un catalogue à moitié rempli.
+ *
+ * Définitions (QueryDefinition) et requêtes compilées (CompiledQuery) sont elles-mêmes immuables.
+ * L'index de recherche (QuerySearchIndex) et la version (ETag de GET /api/queries) sont calculés
+ * une fois avec l'instantané.
+ */
+public final class QueryCatalog {
+
+    private static final QueryCatalog EMPTY = new QueryCatalog(List.of());
+
+    private final List<QueryDefinition> queries;
+    private final Map<String, CompiledQuery> compiledQueries;
+    private final QuerySearchIndex searchIndex;
+    private final String version;
+
+    /**
+     * @param compiled Requêtes compilées dans l'ordre de chargement ; pour un id en double, la dernière l'emporte
+     */
+    public QueryCatalog(List<CompiledQuery> compiled) {
+        List<QueryDefinition> definitions = new ArrayList<>(compiled.size());
+        Map<String, CompiledQuery> byId = new HashMap<>();
+        for (CompiledQuery query : compiled) {
+            definitions.add(query.getDefinition());
+            byId.put(query.getDefinition().getId(), query);
+        }
+        this.queries = Collections.unmodifiableList(definitions);
+        this.compiledQueries = Collections.unmodifiableMap(byId);
+        this.searchIndex = new QuerySearchIndex(queries);
+        this.version = fingerprint(queries);
+    }
+
+    /**
+     * Empreinte du contenu des définitions : inchangée tant que le catalogue rechargé est identique.
+     */
+    private static String fingerprint(List<QueryDefinition> queries) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(queries.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    public static QueryCatalog empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Requête compilée ou null si inconnue.
+     */
+    public CompiledQuery getCompiledQuery(String id) {
+        return id != null ? compiledQueries.get(id) : null;
+    }
+
+    /**
+     * Définitions dans l'ordre de chargement (liste non modifiable).
+     */
+    public List<QueryDefinition> getQueries() {
+        return queries;
+    }
+
+    public int size() {
+        return queries.size();
+    }
+
+    /**
+     * Version du contenu (hexadécimal), change dès qu'une définition change.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Requêtes dont l'id, le nom, la description ou les tags contiennent tous les mots de text
+     * (par préfixe, sans casse ni accents) et qui portent tous les tags demandés, limitées au namespace
+     * s'il est donné ; critères optionnels.
+     */
+    public QueryCatalogPage search(String namespace, String text, List<String> tags, int page, int size) {
+        int[] positions = searchIndex.search(namespace, text, tags);
+        int from = (int) Math.min((long) page * size, positions.length);
+        int to = Math.min(from + size, positions.length);
+        List<QueryDefinition> items = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            items.add(queries.get(positions[i]));
+        }
+
+        QueryCatalogPage result = new QueryCatalogPage();
+        result.setItems(items);
+        result.setTotal(positions.length);
+        result.setPage(page);
+        result.setSize(size);
+        return result;
+    }
+}
@@ -1,5 +1,7 @@
 package com.sqlgenerator.backend.service;
 
+import java.util.List;
+
 /**
  * Constantes utilisées dans le traitement des requêtes SQL.
  * Centralisées ici pour faciliter la maintenance et éviter les valeurs magiques.
@@ -26,6 +28,75 @@ public final class QueryConstants {
      */
     public static final String EXECUTION_TYPE_MASSE = "masse";
 
+    /**
+     * Namespace des requêtes sans -- @namespace: placées directement dans sql/.
+     */
+    public static final String DEFAULT_NAMESPACE = "default";
+
+    /**
+     * Paramètre de requête : stratégie transactionnelle des modes masse et lotis (none, commit, block, forall).
+     */
+    public static final String PARAM_COMMIT_MODE = "commitMode";
+
+    /**
+     * Paramètre de requête : nombre d'instructions (lignes masse ou lots) par transaction.
+     */
+    public static final String PARAM_COMMIT_INTERVAL = "commitInterval";
+
+    /**
+     * Paramètre de requête : forme du SQL généré en mode masse (literal ou bind).
+     */
+    public static final String PARAM_OUTPUT_MODE = "outputMode";
+
+    /**
+     * Mode de sortie : une instruction littérale par ligne (défaut).
+     */
+    public static final String OUTPUT_MODE_LITERAL = "literal";
+
+    /**
+     * Mode de sortie : une instruction paramétrée exécutée pour chaque ligne (variables de liaison).
+     */
+    public static final String OUTPUT_MODE_BIND = "bind";
+
+    /**
+     * Paramètre de requête : comportement face à une valeur invalide (failFast ou collect).
+     */
+    public static final String PARAM_VALIDATION_MODE = "validationMode";
+
+    /**
+     * Paramètre de requête : nombre d'instructions (lignes masse ou lots) par partie du patch (0 = pas de découpage).
+     */
+    public static final String PARAM_PART_MAX_STATEMENTS = "partMaxStatements";
+
+    /**
+     * Paramètre de requête : taille maximale visée d'une partie du patch, en octets (0 = pas de découpage).
+     */
+    public static final String PARAM_PART_MAX_BYTES = "partMaxBytes";
+
+    /**
+     * Paramètre de requête : patch précédent (nom de fichier de l'historique) contre lequel ne générer
+     * que les valeurs ajoutées du paramètre fichier.
+     */
+    public static final String PARAM_DELTA_FROM = "deltaFrom";
+
+    /**
+     * Paramètre de requête : avec deltaFrom, ajoute le rollback des valeurs retirées (true/false).
+     */
+    public static final String PARAM_DELTA_REMOVED = "deltaRemoved";
+
+    /**
+     * Options de génération transmises telles quelles par les contrôleurs au service, qui les valide.
+     * Une seule liste pour tous les points d'entrée : une option ajoutée ici est acceptée partout.
+     */
+    public static final List<String> GENERATION_OPTIONS = List.of(PARAM_COMMIT_MODE, PARAM_COMMIT_INTERVAL,
+            PARAM_OUTPUT_MODE, PARAM_VALIDATION_MODE, PARAM_PART_MAX_STATEMENTS, PARAM_PART_MAX_BYTES,
+            PARAM_DELTA_FROM, PARAM_DELTA_REMOVED);
+
+    /**
+     * Suffixe d'un paramètre fichier passé par upload reprenable : ids.upload=uploadId (ou masseFile.upload).
+     */
+    public static final String UPLOAD_PARAM_SUFFIX = ".upload";
+
     /**
      * Chemin du répertoire où sont stockés les fichiers SQL générés.
      */
@@ -8,6 +8,8 @@ import org.springframework.stereotype.Service;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -21,14 +23,32 @@ import org.slf4j.LoggerFactory;
  * - -- @name: nom descriptif
  * - -- @description: description détaillée
  * - -- @tags: tags séparés par virgules
- * - -- @param: nom|type|label|required (paramètre normal)
- * - -- @param-file: nom|type|label|required (paramètre fichier pour IN)
+ * - -- @param: nom|type|label|required|contraintes (paramètre normal, contraintes optionnelles)
+ * - -- @param-file: nom|type|label|required|contraintes (paramètre fichier pour IN)
+ * - -- @dialect: oracle | postgresql | sqlserver (optionnel, défaut : oracle)
+ * - -- @batching: cross | zip (optionnel, défaut : cross) : lots de plusieurs @param-file
+ * - -- @rollback: (optionnel) : tout ce qui suit est le template du script de rollback
+ * - -- @namespace: équipe (optionnel) : catalogue de la requête, sinon le sous-répertoire de sql/ ou "default"
  */
 @Service
 public class QueryMetadataParser {
 
     private static final Logger logger = LoggerFactory.getLogger(QueryMetadataParser.class);
 
+    /**
+     * Début d'un bloc procédural ; BEGIN seul, BEGIN TRAN/TRANSACTION/WORK ou BEGIN; ouvrent une transaction.
+     */
+    private static final Pattern PROCEDURAL_START = Pattern.compile(
+            "(?i)(BEGIN\\b(?!\\s*;)(?!\\s+(TRAN|TRANSACTION|WORK)\\b)|DECLARE\\b|DO\\s"
+            + "|CREATE\\s+(OR\\s+REPLACE\\s+)?(PROCEDURE|FUNCTION|TRIGGER|PACKAGE)\\b)");
+    /**
+     * Mots qui suivent un END sans fermer de BEGIN/CASE (END IF, END LOOP...).
+     */
+    private static final Set<String> END_SUFFIXES = Set.of("IF", "LOOP", "WHILE", "REPEAT");
+    private static final Pattern DOLLAR_QUOTE = Pattern.compile("\\$[A-Za-z_]*\\$");
+    private static final Pattern ROLLBACK_MARKER = Pattern.compile("(?m)^[ \\t]*-- @rollback:");
+    private static final Pattern NAMESPACE_NAME = Pattern.compile("[a-z0-9][a-z0-9-]*");
+
     /**
      * Parse un fichier SQL et extrait les métadonnées pour créer une QueryDefinition.
      * 
@@ -43,15 +63,21 @@ public class QueryMetadataParser {
         
         ClassPathResource resource = new ClassPathResource("sql/" + filename);
         String sqlContent = new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-        
+        return parseSqlContent(filename, sqlContent, null);
+    }
+
+    /**
+     * Comme parseSqlFile, à partir du contenu déjà lu (le chargement du catalogue lit chaque fichier une fois).
+     *
+     * @param directoryNamespace Sous-répertoire de sql/ contenant le fichier, ou null à la racine
+     */
+    public QueryDefinition parseSqlContent(String filename, String sqlContent, String directoryNamespace) {
         Map<String, String> metadata = extractMetadata(sqlContent);
         List<ParameterDefinition> parameters = extractParameters(sqlContent);
         
         logger.debug("Fichier '{}' : {} métadonnée(s) et {} paramètre(s) trouvé(s)", 
                 filename, metadata.size(), parameters.size());
         
-        QueryDefinition query = new QueryDefinition();
-        
         // Valider que l'ID est présent
         String id = metadata.get("id");
         if (id == null || id.trim().isEmpty()) {
@@ -67,20 +93,64 @@ public class QueryMetadataParser {
             );
         }
         
-        query.setId(id);
-        query.setName(metadata.get("name"));
-        query.setDescription(metadata.get("description"));
+        QueryDefinition.QueryDefinitionBuilder query = QueryDefinition.builder()
+                .id(id)
+                .namespace(resolveNamespace(filename, metadata.get("namespace"), directoryNamespace))
+                .name(metadata.get("name"))
+                .description(metadata.get("description"))
+                .dialect(metadata.get("dialect"))
+                .batching(metadata.get("batching"))
+                .rollback(ROLLBACK_MARKER.matcher(sqlContent).find())
+                .sqlFile(filename)
+                .parameters(parameters);
         
         String tagsStr = metadata.get("tags");
         if (tagsStr != null && !tagsStr.trim().isEmpty()) {
             List<String> tags = Arrays.asList(tagsStr.split(","));
-            query.setTags(tags.stream().map(String::trim).collect(Collectors.toList()));
+            query.tags(tags.stream().map(String::trim).collect(Collectors.toList()));
         }
         
-        query.setSqlFile(filename);
-        query.setParameters(parameters != null ? parameters : new ArrayList<>());
-        
-        return query;
+        return query.build();
+    }
+
+    /**
+     * Namespace déclaré par -- @namespace: ou déduit du répertoire ; les deux doivent concorder s'ils sont présents.
+     */
+    private String resolveNamespace(String filename, String declared, String directoryNamespace) {
+        String namespace = declared != null && !declared.isEmpty() ? declared : directoryNamespace;
+        if (namespace == null) {
+            return QueryConstants.DEFAULT_NAMESPACE;
+        }
+        if (!NAMESPACE_NAME.matcher(namespace).matches()) {
+            throw new IllegalArgumentException("Fichier '" + filename + "' : namespace invalide '" + namespace
+                    + "' (minuscules, chiffres et tirets)");
+        }
+        if (directoryNamespace != null && !namespace.equals(directoryNamespace)) {
+            throw new IllegalArgumentException("Fichier '" + filename + "' : -- @namespace: " + namespace
+                    + " contredit son répertoire sql/" + directoryNamespace + "/");
+        }
+        return namespace;
+    }
+
+    /**
+     * Contenu du fichier sans la section -- @rollback: (inchangé s'il n'en a pas).
+     */
+    public String removeRollbackSection(String sqlContent) {
+        Matcher marker = ROLLBACK_MARKER.matcher(sqlContent);
+        return marker.find() ? sqlContent.substring(0, marker.start()) : sqlContent;
+    }
+
+    /**
+     * Template du rollback : le texte qui suit -- @rollback: (sur la même ligne puis jusqu'à la fin du fichier),
+     * ou null si le fichier n'a pas de section rollback.
+     * 
+     * Pourquoi dans le même fichier ?
+     * Le rollback utilise les mêmes paramètres (@param, @param-file, colonnes du fichier masse) :
+     * il est rendu dans la même passe que le patch, sans relire les fichiers envoyés.
+     */
+    public String extractRollbackSection(String sqlContent) {
+        Matcher marker = ROLLBACK_MARKER.matcher(sqlContent);
+        return marker.find() ? sqlContent.substring(marker.end()) : null;
     }
 
     private Map<String, String> extractMetadata(String sqlContent) {
@@ -132,23 +202,201 @@ public class QueryMetadataParser {
     }
 
     /**
-     * Parse une ligne de paramètre au format : nom|type|label|required
+     * Découpe le SQL d'un template (sans métadonnées) en instructions, au niveau des ';'.
+     * 
+     * Pourquoi découper ?
+     * Un template de plusieurs instructions partageant un @param-file était recopié en entier
+     * pour chaque lot. Découpé, le lotissement s'applique instruction par instruction
+     * (tous les lots de l'instruction 1, puis ceux de l'instruction 2...).
+     * 
+     * Les ';' situés dans une chaîne ('...', "...", $$...$$), un commentaire ou un bloc
+     * {{#if}}/{{#each}} ne coupent pas. Les morceaux ne contenant que des commentaires sont ignorés.
+     * 
+     * Chaque instruction qui commence par un bloc procédural (BEGIN, DECLARE, CREATE PROCEDURE, DO...)
+     * reste entière : ses ';' ne coupent qu'une fois son corps refermé, la profondeur BEGIN/CASE ... END
+     * étant suivie mot par mot (END IF, END LOOP ne ferment rien ; END_DATE n'est pas END). Un corps
+     * $$...$$ (PostgreSQL) compte comme refermé. Un '/' seul sur sa ligne après un bloc (SQL*Plus) est ignoré.
+     * Ainsi "UPDATE ...; BEGIN ... NULL; END;" donne deux instructions.
+     * 
+     * @return Les instructions sans leur ';' final (conservé après le END d'un bloc procédural),
+     *         dans l'ordre du fichier
+     */
+    public List<String> splitStatements(String sql) {
+        List<String> statements = new ArrayList<>();
+        if (sql == null || sql.trim().isEmpty()) {
+            return statements;
+        }
+
+        int start = 0;
+        int blockDepth = 0;
+        // Instruction en cours : bloc procédural, BEGIN/CASE ouverts, corps refermé
+        boolean procedural = isProceduralStart(sql, start);
+        Deque<String> openers = new ArrayDeque<>();
+        boolean bodyClosed = false;
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i, c);
+            } else if (sql.startsWith("--", i)) {
+                i = skipUntil(sql, i, "\n");
+            } else if (sql.startsWith("/*", i)) {
+                i = skipUntil(sql, i + 2, "*/");
+            } else if (c == '$') {
+                // Chaîne PostgreSQL $$...$$ ou $tag$...$tag$ (corps d'un DO ou d'une fonction)
+                Matcher tag = DOLLAR_QUOTE.matcher(sql).region(i, sql.length());
+                if (tag.lookingAt()) {
+                    i = skipUntil(sql, tag.end(), tag.group());
+                    bodyClosed |= procedural && openers.isEmpty();
+                } else {
+                    i++;
+                }
+            } else if (sql.startsWith("{{#", i)) {
+                blockDepth++;
+                i += 3;
+            } else if (sql.startsWith("{{/", i)) {
+                blockDepth = Math.max(0, blockDepth - 1);
+                i += 3;
+            } else if (c == ';' && blockDepth == 0 && (!procedural || (openers.isEmpty() && bodyClosed))) {
+                // Le ';' qui suit le END d'un bloc en fait partie
+                addStatement(statements, sql.substring(start, procedural ? i + 1 : i));
+                start = ++i;
+                procedural = isProceduralStart(sql, start);
+                openers.clear();
+                bodyClosed = false;
+            } else if (c == '/' && blockDepth == 0 && isAloneOnLine(sql, i)
+                    && stripLeadingComments(sql.substring(start, i)).isEmpty()) {
+                // Terminateur SQL*Plus d'un bloc déjà découpé
+                start = ++i;
+                procedural = isProceduralStart(sql, start);
+            } else if (procedural && isWordStart(sql, i)) {
+                int end = wordEnd(sql, i);
+                String word = sql.substring(i, end).toUpperCase(Locale.ROOT);
+                if ("BEGIN".equals(word) || "CASE".equals(word)) {
+                    openers.push(word);
+                } else if ("END".equals(word) && !END_SUFFIXES.contains(nextWord(sql, end))) {
+                    // END sans ouvrant : fin d'un bloc sans BEGIN (spécification de package)
+                    String opener = openers.poll();
+                    bodyClosed |= openers.isEmpty() && !"CASE".equals(opener);
+                }
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        addStatement(statements, sql.substring(start));
+        return statements;
+    }
+
+    private boolean isProceduralStart(String sql, int from) {
+        return PROCEDURAL_START.matcher(stripLeadingComments(sql.substring(from))).lookingAt();
+    }
+
+    private static boolean isWordStart(String sql, int i) {
+        return Character.isLetter(sql.charAt(i)) && (i == 0 || !isWordChar(sql.charAt(i - 1)));
+    }
+
+    private static int wordEnd(String sql, int from) {
+        int i = from;
+        while (i < sql.length() && isWordChar(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+    }
+
+    /**
+     * Mot suivant (en majuscules) après des blancs, ou "" s'il n'y en a pas.
+     */
+    private static String nextWord(String sql, int from) {
+        int i = from;
+        while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        return i < sql.length() && Character.isLetter(sql.charAt(i))
+                ? sql.substring(i, wordEnd(sql, i)).toUpperCase(Locale.ROOT) : "";
+    }
+
+    private static boolean isAloneOnLine(String sql, int i) {
+        int lineStart = sql.lastIndexOf('\n', i - 1) + 1;
+        int lineEnd = sql.indexOf('\n', i);
+        String line = sql.substring(lineStart, lineEnd < 0 ? sql.length() : lineEnd);
+        return line.trim().equals("/");
+    }
+
+    private void addStatement(List<String> statements, String statement) {
+        if (!stripLeadingComments(statement).isEmpty()) {
+            statements.add(statement.trim());
+        }
+    }
+
+    /**
+     * Texte sans les commentaires de tête (pour reconnaître le premier mot-clé ou un morceau vide).
+     */
+    private String stripLeadingComments(String sql) {
+        int i = 0;
+        while (i < sql.length()) {
+            if (Character.isWhitespace(sql.charAt(i))) {
+                i++;
+            } else if (sql.startsWith("--", i)) {
+                i = skipUntil(sql, i, "\n");
+            } else if (sql.startsWith("/*", i)) {
+                i = skipUntil(sql, i + 2, "*/");
+            } else {
+                break;
+            }
+        }
+        return sql.substring(Math.min(i, sql.length()));
+    }
+
+    /**
+     * Position juste après la chaîne fermante (quote doublée = quote échappée).
+     */
+    private int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+
+    private int skipUntil(String sql, int from, String end) {
+        int index = sql.indexOf(end, from);
+        return index < 0 ? sql.length() : index + end.length();
+    }
+
+    /**
+     * Parse une ligne de paramètre au format : nom|type|label|required|contraintes
      * 
      * Pourquoi utiliser le pipe (|) comme séparateur ?
      * Le pipe est rare dans les libellés et évite les conflits avec les virgules
      * utilisées dans les tags ou autres métadonnées.
+     * 
+     * Les contraintes (ex: min=0;max=100) sont le dernier segment, conservé tel quel :
+     * une regex peut donc contenir des pipes. Elles sont compilées au chargement par ParameterValidator.
      */
     private ParameterDefinition parseParameterLine(String paramLine, boolean isFile) {
-        String[] parts = paramLine.split("\\|");
+        String[] parts = paramLine.split("\\|", 5);
         
         if (parts.length >= 3) {
-            ParameterDefinition param = new ParameterDefinition();
-            param.setName(parts[0].trim());
-            param.setType(parts[1].trim());
-            param.setLabel(parts[2].trim());
-            param.setRequired(parts.length >= 4 && "true".equalsIgnoreCase(parts[3].trim()));
-            param.setFile(isFile);
-            return param;
+            return ParameterDefinition.builder()
+                    .name(parts[0].trim())
+                    .type(parts[1].trim())
+                    .label(parts[2].trim())
+                    .required(parts.length >= 4 && "true".equalsIgnoreCase(parts[3].trim()))
+                    .isFile(isFile)
+                    .constraints(parts.length == 5 && !parts[4].trim().isEmpty() ? parts[4].trim() : null)
+                    .build();
         }
         
         return null;
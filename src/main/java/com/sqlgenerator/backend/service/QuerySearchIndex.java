@@ -0,0 +1,221 @@
+package com.sqlgenerator.backend.service;
+
+import com.sqlgenerator.backend.model.QueryDefinition;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Index inversé du catalogue : mot → positions des requêtes (id, nom, description et tags), tag → positions,
+ * namespace → positions.
+ *
+ * Pourquoi un index inversé ?
+ * Avec des milliers de templates, filtrer en parcourant chaque description à chaque frappe de l'UI
+ * coûte un scan complet. Ici chaque mot renvoie directement la liste triée des requêtes qui le contiennent ;
+ * plusieurs mots se combinent par intersection de listes triées.
+ *
+ * Les mots sont comparés sans casse ni accents ("equipe" trouve "Équipe") et par préfixe
+ * ("pers" trouve "personne") : la recherche suit la saisie. Les tags sont comparés en entier, sans casse.
+ *
+ * Construit une fois avec son instantané de catalogue (QueryCatalog) puis immuable : lu sans verrou.
+ */
+final class QuerySearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+
+    private final int size;
+    private final String[] terms; // Triés : les mots d'un même préfixe sont contigus
+    private final int[][] termPositions;
+    private final Map<String, int[]> tagPositions;
+    private final Map<String, int[]> namespacePositions;
+
+    QuerySearchIndex(List<QueryDefinition> queries) {
+        this.size = queries.size();
+        Map<String, IntList> byTerm = new TreeMap<>();
+        Map<String, IntList> byTag = new HashMap<>();
+        Map<String, IntList> byNamespace = new HashMap<>();
+        for (int position = 0; position < queries.size(); position++) {
+            QueryDefinition query = queries.get(position);
+            addTerms(byTerm, query.getId(), position);
+            addTerms(byTerm, query.getName(), position);
+            addTerms(byTerm, query.getDescription(), position);
+            byNamespace.computeIfAbsent(String.valueOf(query.getNamespace()), n -> new IntList()).add(position);
+            if (query.getTags() != null) {
+                for (String tag : query.getTags()) {
+                    addTerms(byTerm, tag, position);
+                    byTag.computeIfAbsent(normalizeTag(tag), t -> new IntList()).add(position);
+                }
+            }
+        }
+
+        this.terms = byTerm.keySet().toArray(new String[0]);
+        this.termPositions = new int[terms.length][];
+        int i = 0;
+        for (IntList positions : byTerm.values()) {
+            termPositions[i++] = positions.toArray();
+        }
+        this.tagPositions = toArrays(byTag);
+        this.namespacePositions = toArrays(byNamespace);
+    }
+
+    /**
+     * Positions (croissantes) des requêtes du namespace (null : tous) qui contiennent tous les mots de text
+     * et portent tous les tags. Sans critère, toutes les positions.
+     */
+    int[] search(String namespace, String text, List<String> tags) {
+        int[] result = null;
+        if (namespace != null) {
+            result = namespacePositions.get(namespace);
+            if (result == null) {
+                return new int[0];
+            }
+        }
+        if (tags != null) {
+            for (String tag : tags) {
+                int[] positions = tagPositions.get(normalizeTag(tag));
+                if (positions == null) {
+                    return new int[0];
+                }
+                result = result == null ? positions : intersect(result, positions);
+            }
+        }
+        for (String word : tokenize(text)) {
+            int[] positions = prefixPositions(word);
+            result = result == null ? positions : intersect(result, positions);
+            if (result.length == 0) {
+                return result;
+            }
+        }
+        return result != null ? result : all();
+    }
+
+    /**
+     * Union des positions des mots commençant par prefix (plage contiguë du tableau trié).
+     */
+    private int[] prefixPositions(String prefix) {
+        int from = Arrays.binarySearch(terms, prefix);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        int to = from;
+        while (to < terms.length && terms[to].startsWith(prefix)) {
+            to++;
+        }
+        if (to == from) {
+            return new int[0];
+        }
+        if (to - from == 1) {
+            return termPositions[from];
+        }
+        boolean[] matched = new boolean[size];
+        int count = 0;
+        for (int t = from; t < to; t++) {
+            for (int position : termPositions[t]) {
+                if (!matched[position]) {
+                    matched[position] = true;
+                    count++;
+                }
+            }
+        }
+        int[] result = new int[count];
+        int n = 0;
+        for (int position = 0; position < size && n < count; position++) {
+            if (matched[position]) {
+                result[n++] = position;
+            }
+        }
+        return result;
+    }
+
+    private int[] all() {
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = i;
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, IntList> postings) {
+        Map<String, int[]> arrays = new HashMap<>();
+        for (Map.Entry<String, IntList> entry : postings.entrySet()) {
+            arrays.put(entry.getKey(), entry.getValue().toArray());
+        }
+        return arrays;
+    }
+
+    private static void addTerms(Map<String, IntList> byTerm, String text, int position) {
+        for (String term : tokenize(text)) {
+            byTerm.computeIfAbsent(term, t -> new IntList()).add(position);
+        }
+    }
+
+    /**
+     * Mots en minuscules, sans accents, découpés sur tout ce qui n'est ni lettre ni chiffre.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return words;
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String word : SEPARATORS.split(normalized.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static String normalizeTag(String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Liste de positions croissantes ; une requête n'y figure qu'une fois même si le mot revient.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
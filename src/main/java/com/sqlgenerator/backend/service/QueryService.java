@@ -2,20 +2,40 @@ package com.sqlgenerator.backend.service;
 
 import com.sqlgenerator.backend.model.QueryDefinition;
 import com.sqlgenerator.backend.model.ParameterDefinition;
+import com.sqlgenerator.backend.model.PatchRecord;
+import com.sqlgenerator.backend.service.batching.BatchingMode;
+import com.sqlgenerator.backend.service.batching.LotCombinations;
+import com.sqlgenerator.backend.service.dialect.BindScript;
+import com.sqlgenerator.backend.service.dialect.SqlDialect;
+import com.sqlgenerator.backend.service.dialect.SqlDialectRegistry;
+import com.sqlgenerator.backend.service.delta.PatchValuesStore;
+import com.sqlgenerator.backend.service.delta.ValueDelta;
+import com.sqlgenerator.backend.service.history.PatchHistoryService;
+import com.sqlgenerator.backend.service.input.MasseInput;
+import com.sqlgenerator.backend.service.input.MasseRowSource;
+import com.sqlgenerator.backend.service.template.CompiledTemplate;
+import com.sqlgenerator.backend.service.tracing.GenerationTracer;
+import com.sqlgenerator.backend.service.transaction.ForallScriptRenderer;
+import com.sqlgenerator.backend.service.transaction.TransactionChunker;
+import com.sqlgenerator.backend.service.transaction.TransactionMode;
+import com.sqlgenerator.backend.service.transaction.TransactionOptions;
+import com.sqlgenerator.backend.service.validation.ParameterValidator;
+import com.sqlgenerator.backend.service.validation.ValidatingRowSource;
+import com.sqlgenerator.backend.service.validation.ValidationErrors;
+import com.sqlgenerator.backend.service.validation.ValidationMode;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.Writer;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -26,6 +46,8 @@ import org.slf4j.LoggerFactory;
  * 
  * Responsabilités :
  * - Chargement et parsing des fichiers SQL au démarrage
+ * - Compilation des templates (une seule fois) et résolution du dialecte SQL cible
+ * - Validation des valeurs (validateurs compilés par paramètre) dans la même passe que le rendu
  * - Traitement des requêtes SQL (remplacement de placeholders, lotissement, mode masse)
  * - Délégation de la génération de fichiers à SqlFileBuilder
  */
@@ -34,41 +56,94 @@ public class QueryService {
 
     private static final Logger logger = LoggerFactory.getLogger(QueryService.class);
 
-    private List<QueryDefinition> queries;
+    /**
+     * Emplacement des requêtes (aussi déclaré comme ressource de l'image native).
+     */
+    public static final String SQL_FILES_PATTERN = "classpath:sql/*.sql";
+
+    /**
+     * Requêtes d'un namespace rangées dans leur sous-répertoire (sql/rh/*.sql → namespace "rh").
+     */
+    public static final String NAMESPACED_SQL_FILES_PATTERN = "classpath:sql/*/*.sql";
+
+    /**
+     * Instantané courant, remplacé d'un bloc au (re)chargement : les lectures ne prennent aucun verrou.
+     */
+    private volatile QueryCatalog catalog = QueryCatalog.empty();
 
     @Autowired
     private QueryMetadataParser metadataParser;
 
+    @Autowired
+    private SqlDialectRegistry dialectRegistry;
+
+    @Value("${patch.transaction.default-interval:1000}")
+    private int defaultCommitInterval;
+
+    @Value("${patch.validation.default-mode:failFast}")
+    private String defaultValidationMode;
+
+    @Value("${patch.output.part-max-statements:0}")
+    private long defaultPartMaxStatements;
+
+    @Value("${patch.output.part-max-bytes:0}")
+    private long defaultPartMaxBytes;
+
     @Autowired
     private SqlFileBuilder sqlFileBuilder;
 
+    @Autowired
+    private GenerationTracer tracer;
+
+    @Autowired
+    private PatchHistoryService historyService;
+
+    @Autowired
+    private PatchValuesStore valuesStore;
+
     /**
      * Initialise le service au démarrage de l'application.
      * 
      * Pourquoi cette méthode existe :
      * - Scanne automatiquement tous les fichiers SQL dans resources/sql/
      * - Parse les métadonnées pour créer les QueryDefinition
-     * - Crée le répertoire de sortie si nécessaire
+     * - Compile chaque template pour son dialecte (pas de relecture ni de re-parsing par requête)
      * 
      * Les erreurs de parsing sont loggées mais n'empêchent pas le démarrage
      * pour permettre à l'application de démarrer même si un fichier SQL est mal formé.
+     * 
+     * Le catalogue est construit à part puis publié en une seule écriture (voir QueryCatalog).
      */
     @PostConstruct
     public void init() throws IOException {
-        queries = new ArrayList<>();
+        List<CompiledQuery> loaded = new ArrayList<>();
         
-        List<String> sqlFiles = scanSqlFiles();
+        List<Resource> sqlFiles = scanSqlFiles();
         logger.info("Démarrage : {} fichier(s) SQL trouvé(s)", sqlFiles.size());
         
-        for (String filename : sqlFiles) {
+        Map<String, String> loadedIds = new HashMap<>();
+        for (Resource resource : sqlFiles) {
+            String directory = namespaceDirectory(resource);
+            String filename = directory != null ? directory + "/" + resource.getFilename() : resource.getFilename();
             try {
-                QueryDefinition query = loadQueryFromFile(filename);
+                // Lu une seule fois : le même contenu sert aux métadonnées et au template
+                String content = readSqlFile(resource);
+                QueryDefinition query = metadataParser.parseSqlContent(filename, content, directory);
+                // L'id reste unique tous namespaces confondus : noms de patchs et historique en dépendent
+                String previous = loadedIds.putIfAbsent(query.getId(), filename);
+                if (previous != null) {
+                    throw new IllegalArgumentException("ID '" + query.getId() + "' déjà utilisé par " + previous);
+                }
+                CompiledQuery compiled = compileQuery(query, content);
                 
-                // Valider les placeholders vs paramètres définis
-                String sqlContent = loadSqlFromFile(query);
-                validatePlaceholders(query, sqlContent, filename);
+                // Valider les placeholders vs paramètres définis (patch et rollback)
+                Set<String> placeholders = new LinkedHashSet<>(compiled.getTemplate().getPlaceholderNames());
+                if (compiled.getRollback() != null) {
+                    placeholders.addAll(compiled.getRollback().getTemplate().getPlaceholderNames());
+                }
+                validatePlaceholders(query, placeholders, filename);
                 
-                queries.add(query);
+                loaded.add(compiled);
                 logger.debug("Query chargée : {} ({})", query.getId(), query.getName());
             } catch (Exception e) {
                 // Log mais ne bloque pas le démarrage : un fichier mal formé ne doit pas empêcher l'app
@@ -76,69 +151,182 @@ public class QueryService {
             }
         }
         
-        logger.info("Initialisation terminée : {} query(s) chargée(s) avec succès", queries.size());
+        catalog = new QueryCatalog(loaded);
+        logger.info("Initialisation terminée : {} query(s) chargée(s) avec succès {}", loaded.size(),
+                loaded.stream().collect(Collectors.groupingBy(c -> c.getDefinition().getNamespace(),
+                        TreeMap::new, Collectors.counting())));
         
-        if (queries.isEmpty()) {
+        if (loaded.isEmpty()) {
             logger.warn("⚠️  Aucune query chargée. Vérifiez que les fichiers SQL sont dans src/main/resources/sql/");
         }
-        
-        Files.createDirectories(Paths.get("./svn_repo_mock/"));
     }
 
-    private List<String> scanSqlFiles() throws IOException {
-        List<String> filenames = new ArrayList<>();
+    /**
+     * Fichiers sql/*.sql et sql/{namespace}/*.sql du classpath. En image native, ils y sont inclus par NativeImageConfig.
+     */
+    private List<Resource> scanSqlFiles() throws IOException {
+        List<Resource> sqlFiles = new ArrayList<>();
         ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
-        Resource[] resources = resolver.getResources("classpath:sql/*.sql");
         
-        for (Resource resource : resources) {
-            String filename = resource.getFilename();
-            if (filename != null && filename.endsWith(".sql")) {
-                filenames.add(filename);
+        for (String pattern : List.of(SQL_FILES_PATTERN, NAMESPACED_SQL_FILES_PATTERN)) {
+            for (Resource resource : resolver.getResources(pattern)) {
+                String filename = resource.getFilename();
+                if (filename != null && filename.endsWith(".sql")) {
+                    sqlFiles.add(resource);
+                }
             }
         }
         
-        return filenames;
+        return sqlFiles;
+    }
+
+    /**
+     * Sous-répertoire de sql/ contenant le fichier, null s'il est directement dans sql/.
+     */
+    private static String namespaceDirectory(Resource resource) throws IOException {
+        String path = resource.getURL().getPath();
+        int fileStart = path.lastIndexOf('/');
+        int directoryStart = path.lastIndexOf('/', fileStart - 1);
+        if (directoryStart < 0) {
+            return null;
+        }
+        String directory = path.substring(directoryStart + 1, fileStart);
+        return "sql".equals(directory) ? null : directory;
+    }
+
+    private static String readSqlFile(Resource resource) throws IOException {
+        try (java.io.InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Compile le template d'une requête pour son dialecte cible.
+     * 
+     * Ordre : retrait des métadonnées, adaptation au dialecte (ex: IN → = ANY),
+     * terminateur d'instruction, puis découpage en segments.
+     * Le SQL est aussi découpé en instructions (chacune compilée et terminée) pour le lotissement.
+     * La section -- @rollback: éventuelle est compilée de la même façon, à part.
+     */
+    private CompiledQuery compileQuery(QueryDefinition query, String content) {
+        SqlDialect dialect = dialectRegistry.resolve(query.getDialect());
+        Set<String> listParameterNames = query.getParameters().stream()
+                .filter(ParameterDefinition::isFile)
+                .map(ParameterDefinition::getName)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        CompiledQuery rollback = null;
+        String rollbackSql = metadataParser.extractRollbackSection(content);
+        if (rollbackSql != null) {
+            rollbackSql = removeMetadataComments(rollbackSql);
+            if (rollbackSql.isEmpty()) {
+                throw new IllegalArgumentException("Section -- @rollback: vide dans " + query.getSqlFile());
+            }
+            rollback = compileTemplate(query, dialect, listParameterNames, rollbackSql, null);
+        }
+        String sql = removeMetadataComments(metadataParser.removeRollbackSection(content));
+        return compileTemplate(query, dialect, listParameterNames, sql, rollback);
+    }
+
+    private CompiledQuery compileTemplate(QueryDefinition query, SqlDialect dialect, Set<String> listParameterNames,
+                                          String sql, CompiledQuery rollback) {
+        sql = dialect.prepareTemplate(sql, listParameterNames);
+        List<String> statementTexts = metadataParser.splitStatements(sql);
+        boolean proceduralBlock = statementTexts.size() <= 1 && dialect.isProceduralBlock(sql);
+        List<CompiledTemplate> statements = new ArrayList<>();
+        List<String> terminated = new ArrayList<>();
+        boolean mixed = false;
+        for (String statement : statementTexts) {
+            String text = dialect.terminateStatement(statement);
+            statements.add(CompiledTemplate.compile(text));
+            terminated.add(text);
+            mixed |= statementTexts.size() > 1 && dialect.isProceduralBlock(statement);
+        }
+        // Instructions et blocs mêlés : chaque morceau porte son propre terminateur (ex: / après un bloc PL/SQL)
+        sql = mixed ? String.join("\n", terminated) : dialect.terminateStatement(sql);
+        CompiledTemplate template = CompiledTemplate.compile(sql);
+        return new CompiledQuery(query, template, statements.isEmpty() ? List.of(template) : statements,
+                dialect, proceduralBlock, rollback);
     }
 
-    private QueryDefinition loadQueryFromFile(String filename) throws IOException {
-        return metadataParser.parseSqlFile(filename);
+    /**
+     * Requête compilée (template, dialecte) ou null si inconnue.
+     */
+    public CompiledQuery getCompiledQuery(String id) {
+        return catalog.getCompiledQuery(id);
     }
 
     public QueryDefinition getQueryById(String id) {
-        return queries.stream()
-                .filter(q -> q.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        CompiledQuery compiled = catalog.getCompiledQuery(id);
+        return compiled != null ? compiled.getDefinition() : null;
     }
 
+    /**
+     * Requête du namespace donné, null si inconnue ou rangée dans un autre namespace
+     * (namespace null : n'importe lequel, pour les URL sans namespace).
+     */
+    public QueryDefinition getQueryById(String namespace, String id) {
+        QueryDefinition query = getQueryById(id);
+        if (query == null || namespace == null || namespace.equals(query.getNamespace())) {
+            return query;
+        }
+        return null;
+    }
+
+    /**
+     * Requêtes chargées (liste non modifiable, partagée : aucune copie nécessaire).
+     */
     public List<QueryDefinition> getAllQueries() {
-        return queries != null ? queries : Collections.emptyList();
+        return catalog.getQueries();
+    }
+
+    /**
+     * Instantané courant du catalogue : le garder pour plusieurs lectures cohérentes entre elles.
+     */
+    public QueryCatalog getCatalog() {
+        return catalog;
     }
 
     public String generatePatchFile(String queryId, String executionType, Map<String, Object> params)
             throws IOException {
-        QueryDefinition query = validateAndGetQuery(queryId);
-        String baseSql = loadSqlFromFile(query);
-        String sql = processSqlWithParams(query, baseSql, params, executionType);
-        return sqlFileBuilder.buildAndWriteFile(query, executionType, params, sql);
+        CompiledQuery compiled = validateAndGetQuery(queryId);
+        GenerationStats stats = new GenerationStats();
+        try (GenerationPlan plan = planGeneration(compiled, params, executionType)) {
+            String fileName = sqlFileBuilder.buildAndWriteFile(compiled, executionType, plan.params, stats,
+                    plan.parts,
+                    (sink, rollback) -> processSqlWithParams(compiled, plan.params, plan, stats, sink, rollback),
+                    null);
+            if (!plan.masse) {
+                keepFileValues(compiled, params, plan, fileName);
+            }
+            return fileName;
+        }
     }
 
-    private QueryDefinition validateAndGetQuery(String queryId) {
-        QueryDefinition query = getQueryById(queryId);
-        if (query == null) {
-            throw new IllegalArgumentException("Query not found: " + queryId);
-        }
-        if (query.getSqlFile() == null || query.getSqlFile().isEmpty()) {
-            throw new IllegalArgumentException("Query must have sqlFile defined: " + queryId);
+    /**
+     * Génère le patch comme generatePatchFile en l'envoyant au fur et à mesure dans out.
+     * 
+     * Les paramètres sont contrôlés avant la première écriture (une erreur de plan ne laisse rien
+     * dans out). Le patch est aussi stocké et historisé normalement, sous le nom retourné.
+     */
+    public String streamPatchFile(String queryId, String executionType, Map<String, Object> params, Writer out)
+            throws IOException {
+        CompiledQuery compiled = validateAndGetQuery(queryId);
+        GenerationStats stats = new GenerationStats();
+        try (GenerationPlan plan = planGeneration(compiled, params, executionType)) {
+            return sqlFileBuilder.buildAndWriteFile(compiled, executionType, plan.params, stats,
+                    plan.parts,
+                    (sink, rollback) -> processSqlWithParams(compiled, plan.params, plan, stats, sink, rollback),
+                    out);
         }
-        return query;
     }
 
-    private String loadSqlFromFile(QueryDefinition query) throws IOException {
-        ClassPathResource sqlResource = new ClassPathResource("sql/" + query.getSqlFile());
-        String sqlContent = new String(sqlResource.getInputStream().readAllBytes(), 
-                java.nio.charset.StandardCharsets.UTF_8);
-        return removeMetadataComments(sqlContent);
+    private CompiledQuery validateAndGetQuery(String queryId) {
+        CompiledQuery compiled = catalog.getCompiledQuery(queryId);
+        if (compiled == null) {
+            throw new IllegalArgumentException("Query not found: " + queryId);
+        }
+        return compiled;
     }
 
     /**
@@ -150,20 +338,11 @@ public class QueryService {
      * - Améliore la qualité du code SQL
      * 
      * @param query La définition de la query avec ses paramètres
-     * @param sqlContent Le contenu SQL (sans métadonnées)
+     * @param placeholders Les placeholders {{nom_param}} trouvés dans le template compilé
      * @param filename Le nom du fichier pour les messages d'erreur
      * @throws IllegalArgumentException Si des placeholders ne sont pas définis
      */
-    private void validatePlaceholders(QueryDefinition query, String sqlContent, String filename) {
-        // Extraire tous les placeholders du format {{nom_param}}
-        Pattern placeholderPattern = Pattern.compile("\\{\\{([^}]+)\\}\\}");
-        Matcher matcher = placeholderPattern.matcher(sqlContent);
-        Set<String> placeholders = new HashSet<>();
-        
-        while (matcher.find()) {
-            placeholders.add(matcher.group(1).trim());
-        }
-        
+    private void validatePlaceholders(QueryDefinition query, Set<String> placeholders, String filename) {
         // Si aucun placeholder, pas de validation nécessaire
         if (placeholders.isEmpty()) {
             return;
@@ -204,61 +383,495 @@ public class QueryService {
     }
 
     /**
-     * Traite le SQL selon le type d'exécution et les paramètres fournis.
+     * Options validées avant d'ouvrir le patch : une erreur de paramétrage ne crée aucun fichier.
+     * close() libère les fichiers de travail du delta, une fois le patch écrit.
+     */
+    private static final class GenerationPlan implements Closeable {
+        private final Map<String, Object> params; // Paramètres à rendre : copie avec le delta, sinon ceux reçus
+        private final boolean masse;
+        private final boolean bindOutput;
+        private final TransactionOptions transaction;
+        private final ValidationMode validationMode;
+        private final PartLimits parts;
+        private final String deltaParameter; // Paramètre fichier comparé (deltaFrom), ou null
+        private final ValueDelta delta;
+
+        private GenerationPlan(Map<String, Object> params, boolean masse, boolean bindOutput,
+                               TransactionOptions transaction, ValidationMode validationMode, PartLimits parts,
+                               String deltaParameter, ValueDelta delta) {
+            this.params = params;
+            this.masse = masse;
+            this.bindOutput = bindOutput;
+            this.transaction = transaction;
+            this.validationMode = validationMode;
+            this.parts = parts;
+            this.deltaParameter = deltaParameter;
+            this.delta = delta;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (delta != null) {
+                delta.close();
+            }
+        }
+    }
+
+    private GenerationPlan planGeneration(CompiledQuery compiled, Map<String, Object> params, String executionType)
+            throws IOException {
+        TransactionOptions transaction = resolveTransactionOptions(params);
+        boolean bindOutput = isBindOutput(params);
+        ValidationMode validationMode = resolveValidationMode(params);
+        PartLimits parts = resolvePartLimits(params);
+        boolean masse = QueryConstants.EXECUTION_TYPE_MASSE.equals(executionType) && params.containsKey("masseFile");
+
+        if (!masse && bindOutput) {
+            throw new IllegalArgumentException("outputMode bind n'est disponible qu'en mode masse");
+        }
+        if (!masse && transaction.getMode() == TransactionMode.FORALL) {
+            throw new IllegalArgumentException("commitMode forall n'est disponible qu'en mode masse");
+        }
+        if (bindOutput && (transaction.getMode() == TransactionMode.BLOCK
+                || transaction.getMode() == TransactionMode.FORALL)) {
+            throw new IllegalArgumentException("outputMode bind n'est compatible qu'avec commitMode none ou commit");
+        }
+        SqlDialect dialect = compiled.getDialect();
+        if (transaction.getMode() == TransactionMode.BLOCK && dialect.openTransactionBlock() == null) {
+            throw new IllegalArgumentException("commitMode block non supporté par le dialecte " + dialect.getName());
+        }
+        if (transaction.getMode() == TransactionMode.FORALL && !dialect.supportsArrayBinding()) {
+            throw new IllegalArgumentException("commitMode forall non supporté par le dialecte " + dialect.getName());
+        }
+        checkFixedStatement(compiled, bindOutput, transaction, "la requête");
+        if (compiled.getRollback() != null) {
+            checkFixedStatement(compiled.getRollback(), bindOutput, transaction, "le rollback de la requête");
+        }
+        if (!masse) {
+            // Saisie unitaire et fichiers IN déjà en mémoire : validés avant d'ouvrir le patch
+            validateUnitaire(compiled, params, validationMode);
+            validateZipLists(compiled, params);
+        }
+
+        String deltaFrom = stringParam(params, QueryConstants.PARAM_DELTA_FROM);
+        if (deltaFrom == null) {
+            return new GenerationPlan(params, masse, bindOutput, transaction, validationMode, parts, null, null);
+        }
+        if (masse) {
+            throw new IllegalArgumentException("deltaFrom n'est disponible qu'hors mode masse (paramètre fichier)");
+        }
+        String deltaParameter = resolveDeltaParameter(compiled, deltaFrom);
+        ValueDelta delta = computeDelta(compiled, params, deltaFrom, deltaParameter);
+        // Copie : la map de l'appelant garde la liste reçue
+        Map<String, Object> renderParams = new HashMap<>(params);
+        renderParams.put(deltaParameter, delta.getAdded());
+        return new GenerationPlan(renderParams, masse, bindOutput, transaction, validationMode, parts,
+                deltaParameter, delta);
+    }
+
+    private static String stringParam(Map<String, Object> params, String name) {
+        Object value = params.get(name);
+        return value != null && !value.toString().isBlank() ? value.toString().trim() : null;
+    }
+
+    /**
+     * deltaFrom : le patch précédent doit être connu de l'historique et venir de la même requête,
+     * qui ne doit avoir qu'un paramètre fichier (la différence d'un produit cartésien de listes
+     * n'est pas la différence de chaque liste).
+     */
+    private String resolveDeltaParameter(CompiledQuery compiled, String deltaFrom) {
+        String queryId = compiled.getDefinition().getId();
+        List<String> fileParameters = compiled.getDefinition().getParameters().stream()
+                .filter(ParameterDefinition::isFile)
+                .map(ParameterDefinition::getName)
+                .collect(Collectors.toList());
+        if (fileParameters.size() != 1) {
+            throw new IllegalArgumentException("deltaFrom exige une requête avec un seul paramètre fichier : "
+                    + queryId + " en a " + fileParameters.size());
+        }
+        PatchRecord previous = historyService.find(deltaFrom);
+        if (previous == null) {
+            throw new IllegalArgumentException("Patch précédent inconnu de l'historique : " + deltaFrom);
+        }
+        if (!queryId.equals(previous.getQueryId())) {
+            throw new IllegalArgumentException("Le patch " + deltaFrom + " vient de la requête "
+                    + previous.getQueryId() + ", pas de " + queryId);
+        }
+        return fileParameters.get(0);
+    }
+
+    /**
+     * Compare la liste envoyée aux valeurs conservées du patch précédent ; seules les valeurs ajoutées
+     * (getAdded) sont rendues par le patch delta, params n'est pas modifié.
+     */
+    private ValueDelta computeDelta(CompiledQuery compiled, Map<String, Object> params, String deltaFrom,
+                                    String parameter) throws IOException {
+        boolean keepRemoved = Boolean.parseBoolean(stringParam(params, QueryConstants.PARAM_DELTA_REMOVED));
+        if (keepRemoved && compiled.getRollback() == null) {
+            throw new IllegalArgumentException("deltaRemoved exige une section -- @rollback: dans la requête "
+                    + compiled.getDefinition().getId());
+        }
+        Object value = params.get(parameter);
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Fichier manquant pour le paramètre " + parameter);
+        }
+        @SuppressWarnings("unchecked")
+        List<String> values = (List<String>) value;
+        if (values.size() > valuesStore.getMaxValues()) {
+            throw new IllegalArgumentException("deltaFrom limité à " + valuesStore.getMaxValues()
+                    + " valeurs (patch.delta.max-values) : " + values.size() + " reçues");
+        }
+
+        ValueDelta delta;
+        try (BufferedReader previous = valuesStore.open(deltaFrom, parameter)) {
+            if (previous == null) {
+                throw new IllegalArgumentException("Valeurs du patch " + deltaFrom
+                        + " non conservées (patch.delta.keep-values, ou patch généré avant leur conservation)");
+            }
+            delta = ValueDelta.compute(deltaFrom, values, previous, keepRemoved,
+                    valuesStore.createWorkDirectory(), valuesStore.getSortRunBytes());
+        }
+        logger.info("Delta de {} contre {} : {} valeur(s) ajoutée(s), {} retirée(s)", parameter, deltaFrom,
+                delta.getAdded().size(), delta.getRemovedCount());
+        return delta;
+    }
+
+    /**
+     * Conserve les valeurs des paramètres fichier du patch publié, pour un futur deltaFrom contre lui.
+     * Un échec est loggé sans faire échouer la génération : le patch est déjà écrit.
+     */
+    private void keepFileValues(CompiledQuery compiled, Map<String, Object> params, GenerationPlan plan,
+                                String fileName) {
+        if (!valuesStore.isEnabled()) {
+            return;
+        }
+        for (ParameterDefinition param : compiled.getDefinition().getParameters()) {
+            if (!param.isFile()) {
+                continue;
+            }
+            try {
+                if (param.getName().equals(plan.deltaParameter)) {
+                    // Toute la liste reçue, pas seulement le delta : le prochain delta part de cet état
+                    valuesStore.saveSorted(fileName, param.getName(), plan.delta.getCurrentSorted());
+                    continue;
+                }
+                Object value = params.get(param.getName());
+                if (!(value instanceof List) || ((List<?>) value).size() > valuesStore.getMaxValues()) {
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                List<String> values = (List<String>) value;
+                valuesStore.save(fileName, param.getName(), values);
+            } catch (IOException e) {
+                logger.error("Impossible de conserver les valeurs de {} pour le patch {} : {}",
+                        param.getName(), fileName, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * bind et forall rejouent une même instruction : une seule instruction (un PREPARE ou un FORALL
+     * n'en porte qu'une), pas de blocs, et pour forall (donc aussi bind en Oracle) pas de bloc PL/SQL.
+     * Vérifié aussi sur le rollback, rendu dans le même mode que le patch.
+     */
+    private void checkFixedStatement(CompiledQuery compiled, boolean bindOutput, TransactionOptions transaction,
+                                     String label) {
+        boolean fixed = bindOutput || transaction.getMode() == TransactionMode.FORALL;
+        if (fixed && compiled.getStatements().size() > 1) {
+            throw new IllegalArgumentException("outputMode bind et commitMode forall exigent une instruction unique : "
+                    + label + " " + compiled.getDefinition().getId() + " en contient "
+                    + compiled.getStatements().size());
+        }
+        if (fixed && compiled.getTemplate().hasBlocks()) {
+            throw new IllegalArgumentException("outputMode bind et commitMode forall exigent une instruction fixe : "
+                    + label + " " + compiled.getDefinition().getId() + " contient des blocs {{#if}}/{{#each}}");
+        }
+        if (transaction.getMode() == TransactionMode.FORALL && compiled.isProceduralBlock()) {
+            throw new IllegalArgumentException("commitMode forall impossible : " + label + " "
+                    + compiled.getDefinition().getId() + " est un bloc PL/SQL, pas une instruction SQL");
+        }
+        if (bindOutput && compiled.getDialect().supportsArrayBinding() && compiled.isProceduralBlock()) {
+            // Le bind Oracle est rendu en FORALL, qui n'exécute qu'une instruction SQL
+            throw new IllegalArgumentException("outputMode bind impossible : " + label + " "
+                    + compiled.getDefinition().getId() + " est un bloc PL/SQL, pas une instruction SQL");
+        }
+    }
+
+    /**
+     * @batching: zip aligne les fichiers valeur à valeur : ils doivent avoir la même taille.
+     */
+    private void validateZipLists(CompiledQuery compiled, Map<String, Object> params) {
+        if (compiled.getBatchingMode() != BatchingMode.ZIP) {
+            return;
+        }
+        Map<String, List<String>> lists = fileLists(compiled.getDefinition(), params);
+        // Le constructeur vérifie les tailles sans rien découper
+        new LotCombinations(lists, compiled.getDialect().getMaxInListSize(), BatchingMode.ZIP);
+    }
+
+    /**
+     * validationMode : failFast (arrêt à la première erreur) ou collect (toutes les erreurs en une fois).
+     * Sans valeur, patch.validation.default-mode s'applique.
+     */
+    private ValidationMode resolveValidationMode(Map<String, Object> params) {
+        ValidationMode defaultMode = ValidationMode.fromParameter(defaultValidationMode, ValidationMode.FAIL_FAST);
+        Object value = params.get(QueryConstants.PARAM_VALIDATION_MODE);
+        return ValidationMode.fromParameter(value != null ? value.toString() : null, defaultMode);
+    }
+
+    /**
+     * Valide les paramètres simples, puis chaque valeur des fichiers IN (les valeurs vides,
+     * ignorées au rendu, le sont aussi ici ; un fichier obligatoire doit contenir au moins une valeur).
+     */
+    private void validateUnitaire(CompiledQuery compiled, Map<String, Object> params, ValidationMode mode) {
+        ValidationErrors errors = new ValidationErrors(mode);
+        for (ParameterDefinition paramDef : compiled.getDefinition().getParameters()) {
+            ParameterValidator validator = compiled.getValidator(paramDef.getName());
+            if (validator == null) {
+                continue;
+            }
+            Object value = params.get(paramDef.getName());
+            if (!paramDef.isFile() || !(value instanceof List)) {
+                errors.check(validator, value, "Valeur", 0);
+                continue;
+            }
+            List<?> values = (List<?>) value;
+            long position = 0;
+            boolean empty = true;
+            for (Object item : values) {
+                position++;
+                if (!isNullValue(item)) {
+                    empty = false;
+                    errors.check(validator, item, "Valeur", position);
+                }
+            }
+            if (empty) {
+                errors.check(validator, null, "Valeur", 0);
+            }
+        }
+        errors.throwIfAny();
+    }
+
+    /**
+     * Traite le SQL selon le type d'exécution et les paramètres fournis, en écrivant au fil de l'eau dans sink.
      * 
      * Ordre de traitement (important) :
-     * 1. Mode masse : priorité si fichier CSV fourni (génère n requêtes)
-     * 2. Lotissement : si clause IN > 999 valeurs (limite Oracle)
+     * 1. Mode masse : priorité si fichier fourni (génère n requêtes, lues en flux)
+     * 2. Lotissement : si une liste dépasse la taille de lot du dialecte (999 pour Oracle)
      * 3. Mode unitaire : traitement standard avec remplacement simple
+     * 
+     * Les compteurs (lignes, lots) sont reportés dans stats pour l'historique.
+     * Les options transactionnelles (commitMode, commitInterval) s'appliquent aux modes masse et lotis.
+     * Le rendu est tracé comme phase "render" (JFR, patch.phase) avec le temps passé à écrire.
+     * 
+     * rollbackSink (section -- @rollback:, sinon null) est rempli dans la même passe : en mode masse
+     * chaque ligne lue est rendue dans le patch puis dans le rollback ; sinon le rollback est rendu
+     * après le patch à partir des mêmes listes déjà lues.
      */
-    private String processSqlWithParams(QueryDefinition query, String baseSql, Map<String, Object> params, String executionType) {
-        // Mode masse : générer n requêtes (une par ligne du fichier CSV)
-        if (QueryConstants.EXECUTION_TYPE_MASSE.equals(executionType) && params.containsKey("masseFile")) {
-            return generateMasseSql(query, baseSql, params);
+    private void processSqlWithParams(CompiledQuery compiled, Map<String, Object> params, GenerationPlan plan,
+                                      GenerationStats stats, SqlSink sink, SqlSink rollbackSink) throws IOException {
+        String executionType = plan.masse ? QueryConstants.EXECUTION_TYPE_MASSE : QueryConstants.EXECUTION_TYPE_UNITAIRE;
+        try (GenerationTracer.Phase phase = tracer.start(GenerationTracer.PHASE_RENDER,
+                compiled.getDefinition().getId(), executionType)) {
+            try {
+                if (plan.masse) {
+                    generateMasseSql(compiled, params, plan, stats, sink, rollbackSink);
+                } else if (plan.delta != null) {
+                    renderDelta(compiled, params, plan, stats, sink, rollbackSink);
+                } else {
+                    renderSql(compiled, params, plan, stats, sink);
+                    if (rollbackSink != null) {
+                        // Compteurs du rollback non historisés : le rollback reprend ceux du patch
+                        renderSql(compiled.getRollback(), params, plan, new GenerationStats(), rollbackSink);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                phase.error(e);
+                throw e;
+            } finally {
+                long writeNanos = sink.getWriteNanos() + (rollbackSink != null ? rollbackSink.getWriteNanos() : 0);
+                phase.rows(stats.getRowCount()).lots(stats.getLotCount()).ioNanos(writeNanos);
+            }
         }
-        
-        // Lotissement pour clauses IN > 999 valeurs (limite Oracle)
-        if (requiresBatching(query, params)) {
-            return generateBatchedSql(query, baseSql, params);
+    }
+
+    /**
+     * Patch delta : la requête pour les valeurs ajoutées depuis le patch précédent puis, avec deltaRemoved,
+     * son rollback pour les valeurs retirées. Le script de rollback fait l'inverse (rollback des ajouts,
+     * requête pour les retraits).
+     */
+    private void renderDelta(CompiledQuery compiled, Map<String, Object> params, GenerationPlan plan,
+                             GenerationStats stats, SqlSink sink, SqlSink rollbackSink) throws IOException {
+        ValueDelta delta = plan.delta;
+        Map<String, Object> removedParams = null;
+        if (delta.getRemoved() != null && !delta.getRemoved().isEmpty()) {
+            removedParams = new HashMap<>(params);
+            removedParams.put(plan.deltaParameter, delta.getRemoved());
+        }
+
+        sink.buffer().append("-- Delta depuis ").append(delta.getPreviousFileName()).append(" : ")
+                .append(delta.getAdded().size()).append(" valeur(s) ajoutée(s), ")
+                .append(delta.getRemovedCount()).append(" retirée(s)\n");
+        renderDeltaSides(compiled, compiled.getRollback(), params, removedParams, plan, stats, sink);
+        if (rollbackSink != null) {
+            renderDeltaSides(compiled.getRollback(), compiled, params, removedParams, plan,
+                    new GenerationStats(), rollbackSink);
+        }
+    }
+
+    private void renderDeltaSides(CompiledQuery forAdded, CompiledQuery forRemoved, Map<String, Object> params,
+                                  Map<String, Object> removedParams, GenerationPlan plan, GenerationStats stats,
+                                  SqlSink sink) throws IOException {
+        boolean hasAdded = !plan.delta.getAdded().isEmpty();
+        if (hasAdded) {
+            renderSql(forAdded, params, plan, stats, sink);
+        }
+        if (removedParams != null) {
+            sink.buffer().append(hasAdded ? "\n\n" : "").append("-- Valeurs retirées depuis ")
+                    .append(plan.delta.getPreviousFileName()).append("\n");
+            renderSql(forRemoved, removedParams, plan, stats, sink);
+        }
+    }
+
+    /**
+     * Rendu hors mode masse (le mode masse, prioritaire, est traité par generateMasseSql).
+     */
+    private void renderSql(CompiledQuery compiled, Map<String, Object> params,
+                           GenerationPlan plan, GenerationStats stats, SqlSink sink) throws IOException {
+        // Lotissement pour les listes plus longues que la taille de lot du dialecte
+        if (requiresBatching(compiled, params)) {
+            generateBatchedSql(compiled, params, plan.transaction, stats, sink);
+            return;
         }
         
         // Mode unitaire standard : remplacement simple des placeholders
-        return replacePlaceholders(query, baseSql, params);
+        countUnitaire(compiled.getDefinition(), params, stats);
+        replacePlaceholders(compiled, params, sink.buffer());
+    }
+
+    /**
+     * Lit commitMode / commitInterval depuis les paramètres de la requête.
+     * Sans commitInterval, l'intervalle par défaut (patch.transaction.default-interval) s'applique.
+     */
+    private TransactionOptions resolveTransactionOptions(Map<String, Object> params) {
+        Object modeValue = params.get(QueryConstants.PARAM_COMMIT_MODE);
+        TransactionMode mode = TransactionMode.fromParameter(modeValue != null ? modeValue.toString() : null);
+        if (mode == TransactionMode.NONE) {
+            return TransactionOptions.none();
+        }
+
+        Object intervalValue = params.get(QueryConstants.PARAM_COMMIT_INTERVAL);
+        if (intervalValue == null || intervalValue.toString().trim().isEmpty()) {
+            return new TransactionOptions(mode, defaultCommitInterval);
+        }
+        try {
+            return new TransactionOptions(mode, Integer.parseInt(intervalValue.toString().trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("commitInterval doit être un entier : " + intervalValue);
+        }
+    }
+
+    /**
+     * partMaxStatements / partMaxBytes : découpage du patch en parties (défauts patch.output.part-max-*).
+     */
+    private PartLimits resolvePartLimits(Map<String, Object> params) {
+        long maxStatements = parseLimit(params, QueryConstants.PARAM_PART_MAX_STATEMENTS, defaultPartMaxStatements);
+        long maxBytes = parseLimit(params, QueryConstants.PARAM_PART_MAX_BYTES, defaultPartMaxBytes);
+        return maxStatements == 0 && maxBytes == 0 ? PartLimits.none() : new PartLimits(maxStatements, maxBytes);
+    }
+
+    private long parseLimit(Map<String, Object> params, String name, long defaultValue) {
+        Object value = params.get(name);
+        if (value == null || value.toString().trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " doit être un entier : " + value);
+        }
+    }
+
+    /**
+     * outputMode : literal (défaut, une instruction littérale par ligne) ou bind (instruction paramétrée).
+     */
+    private boolean isBindOutput(Map<String, Object> params) {
+        Object value = params.get(QueryConstants.PARAM_OUTPUT_MODE);
+        String mode = value != null ? value.toString().trim() : "";
+        if (mode.isEmpty() || QueryConstants.OUTPUT_MODE_LITERAL.equalsIgnoreCase(mode)) {
+            return false;
+        }
+        if (QueryConstants.OUTPUT_MODE_BIND.equalsIgnoreCase(mode)) {
+            return true;
+        }
+        throw new IllegalArgumentException("outputMode inconnu : " + value + " (valeurs possibles : "
+                + QueryConstants.OUTPUT_MODE_LITERAL + ", " + QueryConstants.OUTPUT_MODE_BIND + ")");
+    }
+
+    /**
+     * En unitaire : 1 ligne, ou le nombre de valeurs des fichiers IN (qui tiennent alors en un seul lot).
+     */
+    private void countUnitaire(QueryDefinition query, Map<String, Object> params, GenerationStats stats) {
+        Map<String, List<String>> lists = fileLists(query, params);
+        if (lists.isEmpty()) {
+            stats.addRows(1);
+            return;
+        }
+        lists.values().forEach(values -> stats.addRows(values.size()));
+        stats.addLots(1);
     }
 
     /**
-     * Vérifie si un lotissement est nécessaire pour une clause IN.
+     * Vérifie si un lotissement est nécessaire pour une liste de valeurs.
      * 
-     * Pourquoi 999 et pas 1000 ?
-     * Oracle limite les clauses IN à 1000 éléments. On utilise 999 pour éviter
-     * les erreurs de dépassement et laisser une marge de sécurité.
+     * Pourquoi une taille par dialecte ?
+     * Oracle limite les clauses IN à 1000 éléments (on utilise 999 pour garder une marge).
+     * PostgreSQL et SQL Server n'ont pas cette limite mais des lots trop gros pénalisent
+     * le parsing côté serveur : chaque dialecte fixe sa propre taille.
      */
-    private boolean requiresBatching(QueryDefinition query, Map<String, Object> params) {
-        return query.getParameters().stream()
+    private boolean requiresBatching(CompiledQuery compiled, Map<String, Object> params) {
+        int maxSize = compiled.getDialect().getMaxInListSize();
+        return compiled.getDefinition().getParameters().stream()
                 .anyMatch(p -> p.isFile() 
                         && params.get(p.getName()) instanceof List 
-                        && ((List<?>) params.get(p.getName())).size() > QueryConstants.ORACLE_IN_MAX_SIZE);
+                        && ((List<?>) params.get(p.getName())).size() > maxSize);
     }
 
-    private String replacePlaceholders(QueryDefinition query, String sql, Map<String, Object> params) {
-        String result = sql;
-        for (ParameterDefinition paramDef : query.getParameters()) {
-            String replacement = buildParameterReplacement(paramDef, params.get(paramDef.getName()));
-            result = result.replace("{{" + paramDef.getName() + "}}", replacement);
+    private void replacePlaceholders(CompiledQuery compiled, Map<String, Object> params, StringBuilder out) {
+        SqlDialect dialect = compiled.getDialect();
+        compiled.getTemplate().renderTo(out, name -> {
+            ParameterDefinition paramDef = compiled.getParameter(name);
+            return buildParameterReplacement(dialect, paramDef, params.get(name));
+        }, name -> listItems(compiled, name, params.get(name)));
+    }
+
+    /**
+     * Valeurs d'une liste pour un bloc {{#each}} : chaque valeur formatée comme un littéral simple
+     * du type du paramètre (les valeurs vides sont ignorées, comme dans une clause IN).
+     */
+    private List<String> listItems(CompiledQuery compiled, String name, Object value) {
+        if (!(value instanceof List)) {
+            return null;
         }
-        return result;
+        ParameterDefinition paramDef = compiled.getParameter(name);
+        List<String> items = new ArrayList<>();
+        for (Object item : (List<?>) value) {
+            if (!isNullValue(item)) {
+                items.add(buildSimpleParameterReplacement(compiled.getDialect(), paramDef.getType(), item));
+            }
+        }
+        return items;
     }
 
-    private String buildParameterReplacement(ParameterDefinition paramDef, Object value) {
+    private String buildParameterReplacement(SqlDialect dialect, ParameterDefinition paramDef, Object value) {
         if (value == null || isNullValue(value)) {
             return "NULL";
         }
 
         if (paramDef.isFile()) {
-            return buildFileParameterReplacement(value);
+            return buildFileParameterReplacement(dialect, value);
         }
 
-        return buildSimpleParameterReplacement(paramDef.getType(), value);
+        return buildSimpleParameterReplacement(dialect, paramDef.getType(), value);
     }
 
     /**
@@ -280,7 +893,7 @@ public class QueryService {
         return str.isEmpty() || "null".equalsIgnoreCase(str) || "NULL".equalsIgnoreCase(str);
     }
 
-    private String buildFileParameterReplacement(Object value) {
+    private String buildFileParameterReplacement(SqlDialect dialect, Object value) {
         if (value == null || isNullValue(value)) {
             return "NULL";
         }
@@ -296,7 +909,7 @@ public class QueryService {
             if (filteredValues.isEmpty()) {
                 return "NULL";
             }
-            return formatSingleInClause(filteredValues);
+            return dialect.formatInList(filteredValues);
         }
         
         if (value instanceof String) {
@@ -304,13 +917,17 @@ public class QueryService {
             if (strValue.isEmpty() || isNullValue(strValue)) {
                 return "NULL";
             }
-            return formatSingleInClause(Collections.singletonList(strValue));
+            return dialect.formatInList(Collections.singletonList(strValue));
         }
         
         return "NULL";
     }
 
-    private String buildSimpleParameterReplacement(String type, Object value) {
+    /**
+     * Littéraux simples : texte et date sont formatés par le dialecte
+     * (ex: DD/MM/YY pour Oracle, ISO pour PostgreSQL), les nombres sont repris tels quels.
+     */
+    private String buildSimpleParameterReplacement(SqlDialect dialect, String type, Object value) {
         if (value == null || isNullValue(value)) {
             return "NULL";
         }
@@ -318,61 +935,16 @@ public class QueryService {
         String valueStr = value.toString().trim();
         
         if ("date".equals(type)) {
-            return formatDate(valueStr);
+            return dialect.formatDate(valueStr);
         }
         
         if ("text".equals(type)) {
-            return "'" + escapeSqlString(valueStr) + "'";
+            return dialect.formatText(valueStr);
         }
         
         return valueStr;
     }
 
-    /**
-     * Formate une date au format DD/MM/YY (ex: 30/11/25).
-     * 
-     * Pourquoi ce format spécifique ?
-     * Les dates sont souvent stockées en CHAR dans Oracle, pas en DATE.
-     * Le format DD/MM/YY est le format standard utilisé dans ce contexte métier.
-     * 
-     * Si la date est déjà au bon format, la retourne telle quelle.
-     * Sinon, tente de convertir depuis d'autres formats (ex: YYYY-MM-DD).
-     * Si aucun format reconnu, retourne tel quel (responsabilité du dev SQL).
-     */
-    private String formatDate(String dateValue) {
-        if (dateValue == null || dateValue.trim().isEmpty() || isNullValue(dateValue)) {
-            return "NULL";
-        }
-        
-        String trimmed = dateValue.trim();
-        
-        // Si déjà au format DD/MM/YY, retourner tel quel
-        if (trimmed.matches("\\d{2}/\\d{2}/\\d{2}")) {
-            return "'" + trimmed + "'";
-        }
-        
-        // Si format YYYY-MM-DD, convertir en DD/MM/YY
-        if (trimmed.matches("\\d{4}-\\d{2}-\\d{2}")) {
-            String[] parts = trimmed.split("-");
-            String year = parts[0];
-            String month = parts[1];
-            String day = parts[2];
-            // Prendre les 2 derniers chiffres de l'année
-            String shortYear = year.length() >= 2 ? year.substring(year.length() - 2) : year;
-            return "'" + day + "/" + month + "/" + shortYear + "'";
-        }
-        
-        // Sinon, retourner tel quel (responsabilité du dev SQL)
-        return "'" + escapeSqlString(trimmed) + "'";
-    }
-
-    /**
-     * Échappe les apostrophes dans les chaînes SQL.
-     */
-    private String escapeSqlString(String value) {
-        return value.replace("'", "''");
-    }
-
 
     private String removeMetadataComments(String sqlContent) {
         StringBuilder sql = new StringBuilder();
@@ -398,189 +970,454 @@ public class QueryService {
     }
 
     /**
-     * Génère du SQL avec lotissement si nécessaire (> 999 valeurs dans un IN).
+     * Génère du SQL avec lotissement (au moins une liste plus longue que la taille de lot du dialecte).
+     * 
+     * Pourquoi diviser en lots ?
+     * Oracle ne supporte pas plus de 1000 éléments dans une clause IN, et les autres bases
+     * parsent mal les listes géantes. On génère donc plusieurs requêtes SQL séparées
+     * avec des commentaires pour identifier chaque lot (suivis du séparateur du dialecte, ex: GO).
+     * Les lots sont regroupés selon le mode transactionnel demandé (commit ou bloc tous les N lots).
+     * 
+     * Toutes les listes sont découpées, combinées selon -- @batching: (cross ou zip) ;
+     * les lots sont produits au fil de l'eau par LotCombinations, jamais matérialisés.
+     * 
+     * Template de plusieurs instructions : le lotissement s'applique instruction par instruction
+     * (tous les lots de l'instruction 1, puis ceux de l'instruction 2...), chacune ne combinant que
+     * les listes qu'elle utilise. Une instruction qui n'utilise aucune liste n'est écrite qu'une fois.
      */
-    private String generateBatchedSql(QueryDefinition query, String baseSql, Map<String, Object> params) {
-        ParameterDefinition fileParam = findFileParameterForBatching(query, params);
-        if (fileParam == null) {
-            return baseSql;
-        }
+    private void generateBatchedSql(CompiledQuery compiled, Map<String, Object> params,
+                                    TransactionOptions transaction, GenerationStats stats,
+                                    SqlSink sink) throws IOException {
+        Map<String, List<String>> lists = fileLists(compiled.getDefinition(), params);
+        lists.values().forEach(values -> stats.addRows(values.size()));
 
-        @SuppressWarnings("unchecked")
-        List<String> values = (List<String>) params.get(fileParam.getName());
-        if (values == null || values.isEmpty()) {
-            return baseSql;
-        }
+        SqlDialect dialect = compiled.getDialect();
+        List<CompiledTemplate> statements = compiled.getStatements();
+        StringBuilder out = sink.buffer();
+        TransactionChunker chunker = new TransactionChunker(out, dialect, transaction, true);
+        long maxLots = 0;
+        boolean first = true;
+        for (int s = 0; s < statements.size(); s++) {
+            CompiledTemplate statement = statements.get(s);
+            Map<String, List<String>> statementLists = new LinkedHashMap<>();
+            lists.forEach((name, values) -> {
+                if (statement.getPlaceholderNames().contains(name)) {
+                    statementLists.put(name, values);
+                }
+            });
+            CompiledTemplate lotTemplate = bindNonBatchedParameters(compiled, statement, params, statementLists.keySet());
+            String label = statements.size() > 1 ? "Instruction " + (s + 1) + "/" + statements.size() : null;
+
+            if (statementLists.isEmpty()) {
+                first = appendUnit(out, first, chunker, () -> {
+                    if (label != null) {
+                        out.append("-- ").append(label).append("\n");
+                    }
+                    lotTemplate.renderTo(out, name -> "NULL");
+                });
+                sink.endStatement(chunker.isAtBoundary());
+                continue;
+            }
 
-        String sqlTemplate = replaceNonFileParameters(query, baseSql, params, fileParam);
-        return generateBatches(fileParam, values, sqlTemplate);
+            LotCombinations lots = new LotCombinations(statementLists, dialect.getMaxInListSize(),
+                    compiled.getBatchingMode());
+            maxLots = Math.max(maxLots, lots.getLotCount());
+            for (long index = 1; lots.hasNext(); index++) {
+                Map<String, List<String>> lot = lots.next();
+                long lotIndex = index;
+                first = appendUnit(out, first, chunker, () -> appendLot(out, label, lotIndex, lots.getLotCount(), lot,
+                        compiled, lotTemplate, params));
+                sink.endStatement(chunker.isAtBoundary());
+            }
+        }
+        chunker.finish();
+        stats.addLots((int) Math.min(maxLots, Integer.MAX_VALUE));
     }
 
-    private ParameterDefinition findFileParameterForBatching(QueryDefinition query, Map<String, Object> params) {
-        return query.getParameters().stream()
-                .filter(p -> p.isFile() && params.get(p.getName()) instanceof List)
-                .findFirst()
-                .orElse(null);
+    /**
+     * Une unité transactionnelle (lot ou instruction), séparée de la précédente par une ligne vide.
+     *
+     * @return false : les unités suivantes ne sont plus les premières
+     */
+    private boolean appendUnit(StringBuilder out, boolean first, TransactionChunker chunker, Runnable body) {
+        if (!first) {
+            out.append("\n\n");
+        }
+        chunker.beginUnit();
+        body.run();
+        chunker.endUnit();
+        return false;
     }
 
-    private String replaceNonFileParameters(QueryDefinition query, String sql, 
-                                           Map<String, Object> params, ParameterDefinition fileParam) {
-        String result = sql;
+    /**
+     * Listes (paramètres fichier déjà lus) par nom, dans l'ordre des métadonnées.
+     */
+    private Map<String, List<String>> fileLists(QueryDefinition query, Map<String, Object> params) {
+        Map<String, List<String>> lists = new LinkedHashMap<>();
         for (ParameterDefinition paramDef : query.getParameters()) {
-            if (!paramDef.isFile() && !paramDef.getName().equals(fileParam.getName())) {
-                String replacement = buildSimpleParameterReplacement(paramDef.getType(), params.get(paramDef.getName()));
-                result = result.replace("{{" + paramDef.getName() + "}}", replacement);
+            Object value = params.get(paramDef.getName());
+            if (paramDef.isFile() && value instanceof List) {
+                @SuppressWarnings("unchecked")
+                List<String> values = (List<String>) value;
+                lists.put(paramDef.getName(), values);
             }
         }
-        return result;
+        return lists;
     }
 
     /**
-     * Génère plusieurs lots de SQL pour gérer les clauses IN > 999 valeurs.
+     * Fige une seule fois tous les paramètres autres que les listes loties.
      * 
-     * Pourquoi diviser en lots ?
-     * Oracle ne supporte pas plus de 1000 éléments dans une clause IN.
-     * On génère donc plusieurs requêtes SQL séparées avec des commentaires
-     * pour identifier chaque lot.
+     * Seules les listes loties restent à remplacer à chaque lot : le reste du SQL
+     * n'est ni re-parcouru ni re-formaté n fois.
      */
-    private String generateBatches(ParameterDefinition fileParam, List<String> values, String sqlTemplate) {
-        StringBuilder result = new StringBuilder();
-        int batchSize = QueryConstants.ORACLE_IN_MAX_SIZE;
-        int totalBatches = (int) Math.ceil((double) values.size() / batchSize);
+    private CompiledTemplate bindNonBatchedParameters(CompiledQuery compiled, CompiledTemplate statement,
+                                                      Map<String, Object> params, Set<String> batchedNames) {
+        Map<String, String> bound = new HashMap<>();
+        for (ParameterDefinition paramDef : compiled.getDefinition().getParameters()) {
+            if (!batchedNames.contains(paramDef.getName())) {
+                bound.put(paramDef.getName(),
+                        buildParameterReplacement(compiled.getDialect(), paramDef, params.get(paramDef.getName())));
+            }
+        }
+        return statement.bind(bound);
+    }
 
-        for (int i = 0; i < totalBatches; i++) {
-            List<String> batch = extractBatch(values, i, batchSize);
-            appendBatch(result, i, totalBatches, batch, fileParam, sqlTemplate);
+    /**
+     * En-tête du lot puis l'instruction avec la tranche de chaque liste.
+     * Un {{#each}} sur une liste lotie n'itère que sur les valeurs du lot.
+     */
+    private void appendLot(StringBuilder result, String statementLabel, long lotIndex, long totalLots,
+                           Map<String, List<String>> lot, CompiledQuery compiled, CompiledTemplate lotTemplate,
+                           Map<String, Object> params) {
+        result.append("-- ");
+        if (statementLabel != null) {
+            result.append(statementLabel).append(", ");
+        }
+        result.append("Lot ").append(lotIndex).append("/").append(totalLots).append(" (");
+        if (lot.size() == 1) {
+            result.append(lot.values().iterator().next().size()).append(" valeurs)\n");
+        } else {
+            String separator = "";
+            for (Map.Entry<String, List<String>> slice : lot.entrySet()) {
+                result.append(separator).append(slice.getKey()).append(" : ")
+                      .append(slice.getValue().size()).append(" valeurs");
+                separator = ", ";
+            }
+            result.append(")\n");
         }
 
-        return result.toString();
+        SqlDialect dialect = compiled.getDialect();
+        Map<String, String> inClauses = new HashMap<>();
+        lot.forEach((name, slice) -> inClauses.put(name, slice.isEmpty() ? "NULL" : dialect.formatInList(slice)));
+        lotTemplate.renderTo(result, name -> inClauses.getOrDefault(name, "NULL"),
+                name -> listItems(compiled, name, lot.containsKey(name) ? lot.get(name) : params.get(name)));
     }
 
-    private List<String> extractBatch(List<String> values, int batchIndex, int batchSize) {
-        int start = batchIndex * batchSize;
-        int end = Math.min(start + batchSize, values.size());
-        return values.subList(start, end);
+
+    /**
+     * Génère du SQL en mode masse : n lignes dans le fichier = n requêtes SQL dans un seul fichier.
+     * 
+     * Formats acceptés (MasseInput) : CSV positionnel (valeurs dans l'ordre des paramètres)
+     * ou NDJSON / tableau JSON (valeurs par nom de paramètre).
+     * 
+     * Le fichier est lu en flux et le SQL écrit au fil de l'eau : seule la ligne en cours
+     * (ou le groupe FORALL en cours) est en mémoire, quelle que soit la taille du fichier.
+     * Le nombre total de lignes n'étant pas connu à l'avance, chaque requête est numérotée sans total.
+     * 
+     * Avec un rollback, chaque ligne est rendue dans les deux sorties avant de lire la suivante :
+     * le fichier n'est lu (et validé) qu'une fois.
+     */
+    private void generateMasseSql(CompiledQuery compiled, Map<String, Object> params, GenerationPlan plan,
+                                  GenerationStats stats, SqlSink sink, SqlSink rollbackSink) throws IOException {
+        // Extraire l'ordre des paramètres (tous les paramètres non-fichier dans l'ordre)
+        List<ParameterDefinition> orderedParams = compiled.getDefinition().getParameters().stream()
+                .filter(p -> !p.isFile())
+                .collect(java.util.stream.Collectors.toList());
+
+        ValidationErrors errors = new ValidationErrors(plan.validationMode);
+        try (MasseRowSource rows = openMasseRows(compiled, params, orderedParams, errors)) {
+            Map<String, Object> lineParams = rows.next();
+            if (lineParams == null) {
+                replacePlaceholders(compiled, params, sink.buffer());
+                if (rollbackSink != null) {
+                    replacePlaceholders(compiled.getRollback(), params, rollbackSink.buffer());
+                }
+                return;
+            }
+
+            MasseRenderer patch = masseRenderer(compiled, params, plan, sink);
+            MasseRenderer rollback = rollbackSink != null
+                    ? masseRenderer(compiled.getRollback(), params, plan, rollbackSink)
+                    : null;
+            for (; lineParams != null; lineParams = rows.next()) {
+                patch.row(lineParams, rows.getRowNumber());
+                if (rollback != null) {
+                    rollback.row(lineParams, rows.getRowNumber());
+                }
+                stats.addRows(1);
+            }
+            patch.finish();
+            if (rollback != null) {
+                rollback.finish();
+            }
+        }
+        // En mode collect : toutes les lignes ont été lues, le patch est abandonné s'il y a des erreurs
+        errors.throwIfAny();
     }
 
-    private void appendBatch(StringBuilder result, int batchIndex, int totalBatches, 
-                             List<String> batch, ParameterDefinition fileParam, String sqlTemplate) {
-        if (batchIndex > 0) {
-            result.append("\n\n");
+    /**
+     * Ouvre le fichier masse ; si des paramètres de ligne ont des règles, chaque ligne est validée à la lecture.
+     */
+    private MasseRowSource openMasseRows(CompiledQuery compiled, Map<String, Object> params,
+                                         List<ParameterDefinition> orderedParams, ValidationErrors errors)
+            throws IOException {
+        Object masseFile = params.get("masseFile");
+        if (!(masseFile instanceof MasseInput)) {
+            throw new IllegalArgumentException("Fichier masse invalide");
+        }
+        MasseRowSource rows = MasseRowSource.open((MasseInput) masseFile, orderedParams);
+
+        List<ParameterValidator> validators = new ArrayList<>();
+        for (ParameterDefinition paramDef : orderedParams) {
+            ParameterValidator validator = compiled.getValidator(paramDef.getName());
+            if (validator != null) {
+                validators.add(validator);
+            }
         }
+        return validators.isEmpty() ? rows : new ValidatingRowSource(rows, validators, params, errors);
+    }
 
-        result.append("-- Lot ").append(batchIndex + 1).append("/").append(totalBatches)
-               .append(" (").append(batch.size()).append(" valeurs)\n");
+    /**
+     * Rendu masse ligne à ligne dans une sortie. Le patch et son rollback ont chacun le leur,
+     * alimentés par la même lecture du fichier masse.
+     */
+    private interface MasseRenderer {
+        void row(Map<String, Object> lineParams, long rowNumber) throws IOException;
 
-        String inClause = formatSingleInClause(batch);
-        String sqlForBatch = sqlTemplate.replace("{{" + fileParam.getName() + "}}", inClause);
-        result.append(sqlForBatch);
+        void finish() throws IOException;
+    }
+
+    private MasseRenderer masseRenderer(CompiledQuery compiled, Map<String, Object> params, GenerationPlan plan,
+                                        SqlSink sink) {
+        if (plan.transaction.getMode() == TransactionMode.FORALL) {
+            return new ForallMasseRenderer(compiled, params, plan.transaction.getInterval(), true, sink);
+        }
+        if (plan.bindOutput && compiled.getDialect().supportsArrayBinding()) {
+            // Oracle : des EXEC SQL*Plus seraient autant de blocs anonymes au texte distinct (un hard parse
+            // par ligne) ; les collections d'un FORALL gardent une seule instruction liée par groupe
+            boolean commit = plan.transaction.getMode() == TransactionMode.COMMIT;
+            return new ForallMasseRenderer(compiled, params,
+                    commit ? plan.transaction.getInterval() : defaultCommitInterval, commit, sink);
+        }
+        if (plan.bindOutput) {
+            return new BindMasseRenderer(compiled, params, plan.transaction, sink);
+        }
+        return new LiteralMasseRenderer(compiled, params, plan.transaction, sink);
     }
 
     /**
-     * Formate une liste de valeurs pour une clause IN simple (<= 999 valeurs).
+     * Une instruction littérale par ligne (mode historique).
      */
-    private String formatSingleInClause(List<String> values) {
-        if (values == null || values.isEmpty()) {
-            return "NULL";
+    private final class LiteralMasseRenderer implements MasseRenderer {
+        private final CompiledQuery compiled;
+        private final Map<String, Object> params;
+        private final SqlSink sink;
+        private final TransactionChunker chunker;
+
+        private LiteralMasseRenderer(CompiledQuery compiled, Map<String, Object> params,
+                                     TransactionOptions transaction, SqlSink sink) {
+            this.compiled = compiled;
+            this.params = params;
+            this.sink = sink;
+            this.chunker = new TransactionChunker(sink.buffer(), compiled.getDialect(), transaction, false);
         }
-        
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < values.size(); i++) {
-            if (i > 0) {
-                sb.append(", ");
-            }
-            String value = values.get(i).trim();
-            // Filtrer les valeurs NULL/vides
-            if (value.isEmpty() || isNullValue(value)) {
-                sb.append("NULL");
-            } else {
-                // Entourer de guillemets simples pour les valeurs texte
-                sb.append("'").append(escapeSqlString(value)).append("'");
+
+        @Override
+        public void row(Map<String, Object> lineParams, long rowNumber) throws IOException {
+            StringBuilder out = sink.buffer();
+            if (rowNumber > 1) {
+                out.append("\n\n");
             }
+            chunker.beginUnit();
+
+            out.append("-- Requête ").append(rowNumber).append("\n");
+
+            // Remplacer les placeholders avec les valeurs de la ligne
+            renderLine(compiled, out, lineParams, params);
+            chunker.endUnit();
+            sink.endStatement(chunker.isAtBoundary());
+        }
+
+        @Override
+        public void finish() {
+            chunker.finish();
         }
-        return sb.toString();
     }
 
+    /**
+     * Mode masse FORALL (Oracle) : les valeurs de chaque groupe de lignes sont chargées dans des
+     * collections PL/SQL et l'instruction du template est exécutée une fois par groupe.
+     * Utilisé par commitMode=forall et par outputMode=bind en Oracle (COMMIT seulement en commitMode=commit).
+     * 
+     * Le template doit être une instruction SQL simple (pas un bloc PL/SQL), vérifié par planGeneration.
+     */
+    private final class ForallMasseRenderer implements MasseRenderer {
+        private final CompiledQuery compiled;
+        private final Map<String, Object> params;
+        private final SqlSink sink;
+        private final CompiledTemplate rowTemplate;
+        private final ForallScriptRenderer renderer;
+        private final Map<String, String> literals = new HashMap<>();
+
+        private ForallMasseRenderer(CompiledQuery compiled, Map<String, Object> params,
+                                    int interval, boolean commit, SqlSink sink) {
+            this.compiled = compiled;
+            this.params = params;
+            this.sink = sink;
+            this.rowTemplate = bindFileParametersToNull(compiled);
+            Map<String, String> parameterTypes = new HashMap<>();
+            for (String name : rowTemplate.getPlaceholderNames()) {
+                parameterTypes.put(name, compiled.getParameter(name).getType());
+            }
+            this.renderer = new ForallScriptRenderer(sink.buffer(), rowTemplate, parameterTypes,
+                    interval, commit);
+        }
+
+        @Override
+        public void row(Map<String, Object> lineParams, long rowNumber) throws IOException {
+            for (String name : rowTemplate.getPlaceholderNames()) {
+                literals.put(name, buildRowLiteral(compiled, name, lineParams, params));
+            }
+            renderer.addRow(literals);
+            sink.endStatement(renderer.isAtBoundary());
+        }
+
+        @Override
+        public void finish() {
+            renderer.finish();
+        }
+    }
 
     /**
-     * Génère du SQL en mode masse : n lignes dans le fichier CSV = n requêtes SQL dans un seul fichier.
-     * Format du fichier : CSV avec une ligne par requête, valeurs séparées par virgule dans l'ordre des paramètres.
+     * Mode masse "bind" : une instruction paramétrée (variables de liaison) exécutée pour chaque ligne.
+     * 
+     * Pourquoi ?
+     * En mode littéral chaque ligne produit un texte SQL unique : hard parse à chaque instruction
+     * et cache de curseurs saturé. Ici le texte de l'instruction est constant, seules les valeurs
+     * changent : parsé une fois, exécuté N fois (PREPARE/EXECUTE PostgreSQL, sp_executesql SQL Server ;
+     * Oracle passe par ForallMasseRenderer). Compatible avec commitMode=commit.
      */
-    private String generateMasseSql(QueryDefinition query, String baseSql, Map<String, Object> params) {
-        // Récupérer les lignes du fichier CSV uploadé
-        @SuppressWarnings("unchecked")
-        List<String> fileLines = (List<String>) params.get("masseFile");
-        if (fileLines == null || fileLines.isEmpty()) {
-            return baseSql;
+    private final class BindMasseRenderer implements MasseRenderer {
+        private final CompiledQuery compiled;
+        private final Map<String, Object> params;
+        private final SqlSink sink;
+        private final List<String> names;
+        private final BindScript script;
+        private final boolean hasPrologue;
+        private final TransactionChunker chunker;
+        private final List<String> literals;
+
+        private BindMasseRenderer(CompiledQuery compiled, Map<String, Object> params,
+                                  TransactionOptions transaction, SqlSink sink) {
+            this.compiled = compiled;
+            this.params = params;
+            this.sink = sink;
+            SqlDialect dialect = compiled.getDialect();
+            CompiledTemplate rowTemplate = bindFileParametersToNull(compiled);
+            this.names = new ArrayList<>(rowTemplate.getPlaceholderNames());
+            List<String> types = names.stream()
+                    .map(name -> compiled.getParameter(name).getType())
+                    .collect(Collectors.toList());
+            this.script = dialect.createBindScript(rowTemplate, types);
+            if (script == null) {
+                throw new IllegalArgumentException("outputMode bind non supporté par le dialecte " + dialect.getName());
+            }
+
+            StringBuilder out = sink.buffer();
+            script.appendPrologue(out);
+            this.hasPrologue = out.length() > 0;
+            this.chunker = new TransactionChunker(out, dialect, transaction, false);
+            this.literals = new ArrayList<>(names.size());
         }
 
-        // Extraire l'ordre des paramètres (tous les paramètres non-fichier dans l'ordre)
-        List<ParameterDefinition> orderedParams = query.getParameters().stream()
-                .filter(p -> !p.isFile())
-                .collect(java.util.stream.Collectors.toList());
+        @Override
+        public void row(Map<String, Object> lineParams, long rowNumber) throws IOException {
+            literals.clear();
+            for (String name : names) {
+                literals.add(buildRowLiteral(compiled, name, lineParams, params));
+            }
 
-        // Générer une requête par ligne
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < fileLines.size(); i++) {
-            String line = fileLines.get(i);
-            Map<String, Object> lineParams = parseCsvLine(line, orderedParams);
-            
-            if (i > 0) {
-                result.append("\n\n");
+            StringBuilder out = sink.buffer();
+            if (hasPrologue || rowNumber > 1) {
+                out.append("\n\n");
             }
-            
-            result.append("-- Requête ").append(i + 1).append("/").append(fileLines.size()).append("\n");
-            
-            // Remplacer les placeholders avec les valeurs de la ligne
-            String sqlForLine = replacePlaceholdersForLine(query, baseSql, lineParams, params);
-            result.append(sqlForLine);
+            chunker.beginUnit();
+            out.append("-- Requête ").append(rowNumber).append("\n");
+            script.appendRow(out, literals);
+            chunker.endUnit();
+            sink.endStatement(chunker.isAtBoundary());
         }
 
-        return result.toString();
+        @Override
+        public void finish() {
+            chunker.finish();
+
+            StringBuilder epilogue = new StringBuilder();
+            script.appendEpilogue(epilogue);
+            if (epilogue.length() > 0) {
+                sink.buffer().append("\n\n").append(epilogue);
+            }
+        }
     }
 
+    /**
+     * Template d'une ligne masse : les paramètres fichier ne sont pas alimentés par le fichier masse,
+     * ils sont figés à NULL (comme dans renderLine) ; il ne reste que les paramètres de ligne.
+     */
+    private CompiledTemplate bindFileParametersToNull(CompiledQuery compiled) {
+        Map<String, String> fileParamsAsNull = new HashMap<>();
+        for (ParameterDefinition paramDef : compiled.getDefinition().getParameters()) {
+            if (paramDef.isFile()) {
+                fileParamsAsNull.put(paramDef.getName(), "NULL");
+            }
+        }
+        return compiled.getTemplate().bind(fileParamsAsNull);
+    }
 
     /**
-     * Parse une ligne CSV et crée un Map avec les valeurs dans l'ordre des paramètres.
-     * Gère les valeurs NULL/vides.
+     * Littéral d'un paramètre pour une ligne masse : valeur de la ligne, sinon paramètre global (ex: ticket).
      */
-    private Map<String, Object> parseCsvLine(String line, List<ParameterDefinition> orderedParams) {
-        Map<String, Object> lineParams = new HashMap<>();
-        String[] values = line.split(",");
-        
-        for (int i = 0; i < Math.min(values.length, orderedParams.size()); i++) {
-            ParameterDefinition param = orderedParams.get(i);
-            String value = values[i].trim();
-            // Stocker même si vide (sera géré comme NULL dans buildSimpleParameterReplacement)
-            lineParams.put(param.getName(), value.isEmpty() ? null : value);
+    private String buildRowLiteral(CompiledQuery compiled, String name,
+                                   Map<String, Object> lineParams, Map<String, Object> globalParams) {
+        Object value = lineParams.get(name);
+        if (value == null) {
+            value = globalParams.get(name);
         }
-        
-        return lineParams;
+        return buildSimpleParameterReplacement(compiled.getDialect(), compiled.getParameter(name).getType(), value);
     }
 
     /**
-     * Remplace les placeholders pour une ligne spécifique (mode masse).
+     * Rend le template pour une ligne spécifique (mode masse).
+     * 
+     * Les paramètres fichier ne sont pas alimentés par le fichier masse : ils restent à NULL.
      */
-    private String replacePlaceholdersForLine(QueryDefinition query, String sql, 
-                                              Map<String, Object> lineParams, Map<String, Object> globalParams) {
-        String result = sql;
-        
-        // Remplacer avec les paramètres de la ligne
-        for (ParameterDefinition paramDef : query.getParameters()) {
-            if (!paramDef.isFile()) {
-                Object value = lineParams.get(paramDef.getName());
-                if (value == null) {
-                    // Si pas dans la ligne, chercher dans les paramètres globaux (ex: ticket)
-                    value = globalParams.get(paramDef.getName());
-                }
-                
-                // Gérer NULL/absence de valeur
-                String replacement = buildSimpleParameterReplacement(paramDef.getType(), value);
-                result = result.replace("{{" + paramDef.getName() + "}}", replacement);
+    private void renderLine(CompiledQuery compiled, StringBuilder out,
+                            Map<String, Object> lineParams, Map<String, Object> globalParams) {
+        SqlDialect dialect = compiled.getDialect();
+        compiled.getTemplate().renderTo(out, name -> {
+            ParameterDefinition paramDef = compiled.getParameter(name);
+            if (paramDef.isFile()) {
+                return "NULL";
             }
-        }
-        
-        return result;
+            Object value = lineParams.get(name);
+            if (value == null) {
+                // Si pas dans la ligne, chercher dans les paramètres globaux (ex: ticket)
+                value = globalParams.get(name);
+            }
+            // Gérer NULL/absence de valeur
+            return buildSimpleParameterReplacement(dialect, paramDef.getType(), value);
+        });
     }
 
 }
@@ -1,14 +1,20 @@
 package com.sqlgenerator.backend.service;
 
-import com.sqlgenerator.backend.model.QueryDefinition;
+import com.sqlgenerator.backend.model.PatchRecord;
+import com.sqlgenerator.backend.service.estimate.GenerationThroughput;
+import com.sqlgenerator.backend.service.history.PatchHistoryService;
+import com.sqlgenerator.backend.service.storage.PatchOutput;
+import com.sqlgenerator.backend.service.storage.PatchStore;
+import com.sqlgenerator.backend.service.tracing.GenerationTracer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.Writer;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -17,6 +23,7 @@ import java.util.Map;
  * Séparation des responsabilités :
  * - QueryService : logique métier (parsing, remplacement placeholders)
  * - SqlFileBuilder : génération de fichiers (en-tête, nommage, écriture)
+ * - PatchStore : stockage physique (répertoire simple ou segments indexés)
  * 
  * Pourquoi cette séparation ?
  * - Facilite la modification du format d'en-tête sans toucher à la logique métier
@@ -26,23 +33,30 @@ import java.util.Map;
 @Service
 public class SqlFileBuilder {
 
-    private static final String REPO_PATH = "./svn_repo_mock/";
+    @Autowired
+    private PatchStore patchStore;
+
+    @Autowired
+    private PatchHistoryService historyService;
+
+    @Autowired
+    private GenerationThroughput throughput;
+
+    @Autowired
+    private GenerationTracer tracer;
+
+    @Autowired
+    private NamespaceQuotas namespaceQuotas;
 
     /**
-     * Construit le contenu complet du fichier SQL (en-tête + SQL).
+     * Corps SQL écrit en flux dans le patch, après l'en-tête.
      * 
-     * Structure du fichier généré :
-     * 1. En-tête avec métadonnées (date, ticket, type, etc.)
-     * 2. Ligne vide
-     * 3. SQL traité (avec placeholders remplacés)
+     * rollback : sortie du script de rollback (section -- @rollback: de la requête), null si la requête
+     * n'en a pas. Les deux sorties sont alimentées dans la même passe de rendu.
      */
-    public String buildCompleteFile(QueryDefinition query, String executionType, 
-                                    Map<String, Object> params, String sql) {
-        StringBuilder content = new StringBuilder();
-        content.append(buildHeader(query, executionType, params));
-        content.append("\n");
-        content.append(sql);
-        return content.toString();
+    @FunctionalInterface
+    public interface SqlBodyWriter {
+        void writeTo(SqlSink sink, SqlSink rollback) throws IOException;
     }
 
     /**
@@ -53,16 +67,16 @@ public class SqlFileBuilder {
      * - Identification : retrouver facilement la requête source
      * - Audit : historique des générations
      * 
-     * Format modifiable ici sans impact sur la logique métier.
+     * Le format est défini par PatchHeader : la partie fixe (nom, ID) est préparée au chargement
+     * de la requête, seuls la date, le ticket et le type sont rendus ici.
      */
-    public String buildHeader(QueryDefinition query, String executionType, Map<String, Object> params) {
-        StringBuilder header = new StringBuilder();
-        header.append("-- Fichier de Patch Généré le ").append(LocalDateTime.now()).append("\n");
-        header.append("-- Requête: ").append(query.getName()).append("\n");
-        header.append("-- ID: ").append(query.getId()).append("\n");
-        header.append("-- Ticket: ").append(params.get("ticket")).append("\n");
-        header.append("-- Type: ").append(executionType).append("\n");
-        return header.toString();
+    public String buildHeader(CompiledQuery compiled, String executionType, Map<String, Object> params) {
+        return buildHeader(compiled, executionType, params, LocalDateTime.now());
+    }
+
+    private String buildHeader(CompiledQuery compiled, String executionType, Map<String, Object> params,
+                               LocalDateTime generatedAt) {
+        return compiled.getHeader().render(generatedAt, params.get("ticket"), executionType);
     }
 
     /**
@@ -71,33 +85,264 @@ public class SqlFileBuilder {
      * Format : {queryId}_{executionType}_{timestamp}.sql
      * 
      * Pourquoi inclure le timestamp ?
-     * - Évite les collisions si plusieurs fichiers sont générés rapidement
      * - Permet de retrouver facilement un fichier par date
      * - Facilite le tri chronologique
+     * 
+     * Le timestamp est à la milliseconde ; l'unicité finale est garantie par le PatchStore
+     * (suffixe -1, -2... si deux générations tombent sur le même nom).
+     */
+    public String generateFileName(CompiledQuery compiled, String executionType, LocalDateTime generatedAt) {
+        return compiled.getHeader().fileName(executionType, generatedAt);
+    }
+
+    /**
+     * Construit et écrit le fichier SQL en flux : l'en-tête puis le corps produit par body,
+     * sans jamais matérialiser le fichier complet en mémoire.
+     * 
+     * Les compteurs (lignes, lots) ne sont connus qu'à la fin du rendu : ils sont reportés
+     * sur l'enregistrement juste avant la publication. Une exception pendant le rendu
+     * abandonne le patch (rien n'est publié ni historisé).
+     * 
+     * parts : découpage en parties (voir PatchFile), PartLimits.none() pour un fichier unique.
+     * mirror : si non null, reçoit une copie de chaque bloc écrit (réponse streamée) ; si le rendu
+     * échoue, mirror a déjà reçu le début du fichier mais rien n'est stocké ni historisé.
+     * 
+     * Si la requête a une section -- @rollback:, le script de rollback est écrit dans la même passe
+     * ({nom}_rollback.sql, mêmes en-tête et découpage) : patch et rollback sont publiés et historisés
+     * ensemble, ou pas du tout. Le nom retourné est celui du patch.
+     * 
+     * Le nom du patch est réservé dans le store avant tout le reste : le rollback et les parties sont
+     * nommés d'après le nom réservé (suffixe -1, -2... en cas de collision), jamais d'après le nom proposé.
+     */
+    public String buildAndWriteFile(CompiledQuery compiled, String executionType, Map<String, Object> params,
+                                    GenerationStats stats, PartLimits parts, SqlBodyWriter body,
+                                    Writer mirror) throws IOException {
+        LocalDateTime generatedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        String fileName = generateFileName(compiled, executionType, generatedAt);
+        PatchFile patch = new PatchFile(compiled, executionType, params, generatedAt, fileName, null, parts);
+        PatchFile rollback = null;
+
+        try {
+            SqlSink sink = patch.open(mirror);
+            SqlSink rollbackSink = null;
+            if (compiled.getRollback() != null) {
+                rollback = new PatchFile(compiled, executionType, params, generatedAt,
+                        rollbackFileName(patch.fileName), "-- Rollback du patch " + patch.fileName + "\n", parts);
+                rollbackSink = rollback.open(null);
+            }
+            body.writeTo(sink, rollbackSink);
+
+            // Phase "write" : dernier bloc, publication dans le store et historique (le rendu trace ses propres écritures)
+            try (GenerationTracer.Phase phase = tracer.start(GenerationTracer.PHASE_WRITE,
+                    compiled.getDefinition().getId(), executionType)) {
+                long flushStart = System.nanoTime();
+                PatchRecord committed = patch.commit(sink, stats);
+                PatchRecord committedRollback = rollback != null ? rollback.commit(rollbackSink, stats) : null;
+                historyService.record(committed);
+                long sizeBytes = patch.sizeBytes;
+                if (committedRollback != null) {
+                    historyService.record(committedRollback);
+                    sizeBytes += rollback.sizeBytes;
+                }
+                phase.rows(committed.getRowCount()).lots(committed.getLotCount()).bytes(sizeBytes)
+                        .ioNanos(System.nanoTime() - flushStart);
+                // Débit réel, utilisé par l'estimation (POST /{id}/estimate)
+                throughput.record(sizeBytes, System.nanoTime() - start);
+                return committed.getFileName();
+            }
+        } catch (IOException | RuntimeException e) {
+            patch.abort(e);
+            if (rollback != null) {
+                rollback.abort(e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Nom du script de rollback d'un patch : {nom du patch sans .sql}_rollback.sql.
      */
-    public String generateFileName(String queryId, String executionType) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        return String.format("%s_%s_%s.sql", queryId, executionType, timestamp);
+    public static String rollbackFileName(String fileName) {
+        return baseName(fileName) + "_rollback.sql";
     }
 
     /**
-     * Écrit le fichier SQL sur le disque.
+     * Nom d'une partie : {nom du patch sans .sql}_partNNN.sql.
      */
-    public void writeFile(String fileName, String content) throws IOException {
-        Path path = Paths.get(REPO_PATH, fileName);
-        Files.write(path, content.getBytes());
+    static String partFileName(String fileName, int part) {
+        return String.format("%s_part%03d.sql", baseName(fileName), part);
+    }
+
+    private static String baseName(String fileName) {
+        return fileName.endsWith(".sql") ? fileName.substring(0, fileName.length() - 4) : fileName;
     }
 
     /**
-     * Construit et écrit le fichier SQL complet.
-     * Retourne le nom du fichier généré.
+     * Script maître : en-tête puis un appel par partie, dans l'ordre, avec la syntaxe du client du dialecte.
      */
-    public String buildAndWriteFile(QueryDefinition query, String executionType, 
-                                    Map<String, Object> params, String sql) throws IOException {
-        String fileContent = buildCompleteFile(query, executionType, params, sql);
-        String fileName = generateFileName(query.getId(), executionType);
-        writeFile(fileName, fileContent);
-        return fileName;
+    private String buildMasterScript(CompiledQuery compiled, String executionType, Map<String, Object> params,
+                                     LocalDateTime generatedAt, String note, List<String> partFileNames) {
+        StringBuilder script = new StringBuilder(buildHeader(compiled, executionType, params, generatedAt));
+        if (note != null) {
+            script.append(note);
+        }
+        script.append("-- Parties: ").append(partFileNames.size())
+              .append(" (à exécuter dans l'ordre, dans une même session)\n\n");
+        for (String fileName : partFileNames) {
+            script.append(compiled.getDialect().includeScript(fileName)).append("\n");
+        }
+        return script.toString();
+    }
+
+    /**
+     * Un fichier généré (patch ou rollback) en cours d'écriture : fichier unique, ou parties et script maître.
+     * 
+     * Écriture en parties : le corps est réparti dans des fichiers {nom}_part001.sql, _part002.sql...
+     * (chacun avec son en-tête), puis un script maître les appelle dans l'ordre.
+     * 
+     * Pourquoi un script maître ?
+     * Le DBA lance toujours un seul script (celui dont le nom est retourné et historisé) ;
+     * les parties se relisent, se transfèrent et se rejouent séparément après une erreur.
+     * Le maître doit être exécuté dans une seule session : les variables de liaison (mode bind)
+     * et les transactions ouvertes ne sont déclarées qu'une fois, dans la première partie.
+     * 
+     * Chaque partie est publiée dès qu'elle est pleine (une seule partie ouverte à la fois) ;
+     * abort() supprime tout ce qui a déjà été publié. La sortie du script maître est ouverte dès open() :
+     * le store y réserve le nom définitif, dont dérivent les noms des parties.
+     */
+    private final class PatchFile implements SqlSink.PartRoller {
+        private final CompiledQuery compiled;
+        private final String executionType;
+        private final Map<String, Object> params;
+        private final LocalDateTime generatedAt;
+        private String fileName;
+        private final String note;
+        private final PartLimits limits;
+        private final List<String> partFileNames = new ArrayList<>();
+        private final List<String> published = new ArrayList<>();
+        private PatchRecord record;
+        private PatchOutput master;
+        private PatchOutput current;
+        private long sizeBytes;
+
+        /**
+         * @param note Ligne ajoutée après l'en-tête (ex: rollback), ou null
+         */
+        private PatchFile(CompiledQuery compiled, String executionType, Map<String, Object> params,
+                          LocalDateTime generatedAt, String fileName, String note, PartLimits limits) {
+            this.compiled = compiled;
+            this.executionType = executionType;
+            this.params = params;
+            this.generatedAt = generatedAt;
+            this.fileName = fileName;
+            this.note = note;
+            this.limits = limits;
+        }
+
+        SqlSink open(Writer mirror) throws IOException {
+            String namespace = compiled.getDefinition().getNamespace();
+            long maxOutputBytes = namespaceQuotas.getMaxOutputBytes(namespace);
+            record = newRecord(compiled, executionType, params, generatedAt, fileName);
+            if (limits.isEnabled()) {
+                master = patchStore.create(record);
+                fileName = record.getFileName();
+                SqlSink sink = new SqlSink(nextPart(), mirror);
+                sink.limitOutput(maxOutputBytes, namespace);
+                sink.rollParts(limits, this);
+                // Les parties suivantes commencent par le séparateur de l'instruction suivante
+                sink.buffer().append("\n");
+                return sink;
+            }
+            current = patchStore.create(record);
+            fileName = record.getFileName();
+            SqlSink sink = new SqlSink(current.writer(), mirror);
+            sink.limitOutput(maxOutputBytes, namespace);
+            compiled.getHeader().renderTo(sink.buffer(), generatedAt, params.get("ticket"), executionType);
+            if (note != null) {
+                sink.buffer().append(note);
+            }
+            sink.buffer().append("\n");
+            return sink;
+        }
+
+        @Override
+        public Writer nextPart() throws IOException {
+            if (current != null) {
+                partFileNames.add(publish().getFileName());
+            }
+            int part = partFileNames.size() + 1;
+            current = patchStore.create(newRecord(compiled, executionType, params, generatedAt,
+                    partFileName(fileName, part)));
+            Writer writer = current.writer();
+            writer.append(buildHeader(compiled, executionType, params, generatedAt));
+            if (note != null) {
+                writer.append(note);
+            }
+            writer.append("-- Partie: ").append(Integer.toString(part)).append("\n");
+            return writer;
+        }
+
+        /**
+         * Dernier bloc puis publication : le fichier, ou la dernière partie et le script maître.
+         */
+        PatchRecord commit(SqlSink sink, GenerationStats stats) throws IOException {
+            sink.flush();
+            if (limits.isEnabled()) {
+                partFileNames.add(publish().getFileName());
+                current = master;
+                master = null;
+                current.writer().write(buildMasterScript(compiled, executionType, params, generatedAt, note,
+                        partFileNames));
+            }
+            record.setRowCount(stats.getRowCount());
+            record.setLotCount(stats.getLotCount());
+            return publish();
+        }
+
+        private PatchRecord publish() throws IOException {
+            try (PatchOutput output = current) {
+                PatchRecord committed = output.commit();
+                published.add(committed.getFileName());
+                sizeBytes += committed.getSizeBytes();
+                return committed;
+            } finally {
+                current = null;
+            }
+        }
+
+        /**
+         * Abandonne la sortie en cours et supprime les fichiers déjà publiés (best effort).
+         */
+        void abort(Exception cause) {
+            try {
+                try {
+                    if (current != null) {
+                        current.close();
+                    }
+                } finally {
+                    if (master != null) {
+                        master.close();
+                    }
+                }
+                for (String name : published) {
+                    patchStore.delete(name);
+                }
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    private PatchRecord newRecord(CompiledQuery compiled, String executionType, Map<String, Object> params,
+                                  LocalDateTime generatedAt, String fileName) {
+        PatchRecord record = new PatchRecord();
+        record.setFileName(fileName);
+        record.setQueryId(compiled.getDefinition().getId());
+        record.setTicket(params.get("ticket") != null ? params.get("ticket").toString() : null);
+        record.setExecutionType(executionType);
+        record.setCreatedAt(generatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        return record;
     }
 }
 
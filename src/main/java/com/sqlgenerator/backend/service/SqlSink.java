@@ -0,0 +1,169 @@
+package com.sqlgenerator.backend.service;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Sortie du SQL en cours de rendu : un tampon vidé vers le Writer du patch par blocs.
+ *
+ * Pourquoi un tampon et pas le Writer directement ?
+ * Les rendus (lots, lignes masse, groupes transactionnels) ajoutent beaucoup de petits morceaux ;
+ * ils restent dans un StringBuilder réutilisé, vidé uniquement entre deux instructions complètes.
+ * La mémoire est bornée par la taille du tampon au lieu de la taille du fichier généré,
+ * et une instruction n'est jamais coupée (TransactionChunker peut encore en retoucher la fin).
+ *
+ * Un second Writer (miroir) peut recevoir les mêmes blocs : c'est la réponse HTTP en génération
+ * streamée. Il est vidé à chaque bloc, donc un client lent bloque l'écriture et suspend le rendu
+ * (et la lecture du fichier d'entrée) au lieu de laisser le patch s'accumuler en mémoire.
+ *
+ * Avec des PartLimits, le Writer change en cours de route : quand la partie courante est pleine,
+ * endStatement() vide le tampon et demande la partie suivante au PartRoller (SqlFileBuilder).
+ * La coupure n'a lieu qu'entre deux instructions, hors de tout groupe transactionnel ouvert.
+ *
+ * Avec limitOutput, chaque bloc est compté avant d'être écrit : dès que le total dépasserait
+ * le quota du namespace, le rendu s'arrête (IllegalArgumentException) et rien n'est publié.
+ */
+public class SqlSink {
+
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+    /**
+     * Fournit le Writer de la partie suivante (la partie courante est publiée au passage).
+     */
+    @FunctionalInterface
+    public interface PartRoller {
+        Writer nextPart() throws IOException;
+    }
+
+    private Writer writer;
+    private final Writer mirror;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 8 * 1024);
+    private long writeNanos;
+
+    private PartLimits partLimits = PartLimits.none();
+    private PartRoller roller;
+    private long partStatements;
+    private long partBytes;
+
+    private long maxOutputBytes;
+    private String outputNamespace;
+    private long outputBytes;
+
+    public SqlSink(Writer writer) {
+        this(writer, null);
+    }
+
+    /**
+     * @param mirror Destination supplémentaire des blocs (null si aucune)
+     */
+    public SqlSink(Writer writer, Writer mirror) {
+        this.writer = writer;
+        this.mirror = mirror;
+    }
+
+    /**
+     * Active le découpage en parties : writer est alors la première partie.
+     */
+    public void rollParts(PartLimits limits, PartRoller roller) {
+        this.partLimits = limits;
+        this.roller = roller;
+    }
+
+    /**
+     * Borne la taille totale écrite (toutes parties confondues) au quota du namespace ; 0 désactive.
+     */
+    public void limitOutput(long maxBytes, String namespace) {
+        this.maxOutputBytes = maxBytes;
+        this.outputNamespace = namespace;
+    }
+
+    /**
+     * Tampon dans lequel écrire l'instruction en cours.
+     */
+    public StringBuilder buffer() {
+        return buffer;
+    }
+
+    /**
+     * À appeler entre deux instructions : vide le tampon s'il dépasse le seuil.
+     */
+    public void flushIfFull() throws IOException {
+        if (buffer.length() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    /**
+     * À appeler après chaque instruction complète (ligne masse, lot) à la place de flushIfFull.
+     *
+     * @param boundary true si aucun groupe transactionnel n'est ouvert : une nouvelle partie peut commencer ici
+     */
+    public void endStatement(boolean boundary) throws IOException {
+        partStatements++;
+        // Taille de la partie : octets déjà écrits + tampon en attente (compté en caractères)
+        if (boundary && roller != null && partLimits.isReached(partStatements, partBytes + buffer.length())) {
+            flush();
+            long start = System.nanoTime();
+            writer = roller.nextPart();
+            writeNanos += System.nanoTime() - start;
+            partStatements = 0;
+            partBytes = 0;
+        } else {
+            flushIfFull();
+        }
+    }
+
+    public void flush() throws IOException {
+        if (buffer.length() > 0) {
+            long start = System.nanoTime();
+            if (roller != null || maxOutputBytes > 0) {
+                long bytes = utf8Length(buffer);
+                checkOutputQuota(bytes);
+                partBytes += bytes;
+            }
+            writer.append(buffer);
+            if (mirror != null) {
+                mirror.append(buffer);
+                mirror.flush();
+            }
+            buffer.setLength(0);
+            writeNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void checkOutputQuota(long bytes) {
+        if (maxOutputBytes <= 0) {
+            return;
+        }
+        outputBytes += bytes;
+        if (outputBytes > maxOutputBytes) {
+            throw new IllegalArgumentException("Quota de sortie du namespace '" + outputNamespace + "' dépassé : "
+                    + "le patch dépasse " + maxOutputBytes + " octets");
+        }
+    }
+
+    private static long utf8Length(CharSequence chars) {
+        long bytes = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Temps cumulé passé à écrire les blocs (store et miroir), pour le traçage des phases.
+     */
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+}
@@ -0,0 +1,28 @@
+package com.sqlgenerator.backend.service.batching;
+
+/**
+ * Combinaison des lots quand plusieurs paramètres fichier dépassent la taille de lot (-- @batching:).
+ *
+ * - CROSS (défaut) : produit cartésien des tranches, pour des filtres indépendants
+ *   (a IN (...) AND b IN (...)) : chaque couple de valeurs est couvert par exactement un lot
+ * - ZIP : les listes sont alignées (i-ème valeur de chaque fichier ensemble), une tranche de chaque par lot
+ */
+public enum BatchingMode {
+    CROSS,
+    ZIP;
+
+    /**
+     * @param value cross | zip (insensible à la casse), null ou vide : CROSS
+     */
+    public static BatchingMode fromMetadata(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return CROSS;
+        }
+        for (BatchingMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("@batching inconnu : " + value + " (valeurs possibles : cross, zip)");
+    }
+}
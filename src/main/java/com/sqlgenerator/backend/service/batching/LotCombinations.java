@@ -0,0 +1,108 @@
+package com.sqlgenerator.backend.service.batching;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Parcours paresseux des lots de plusieurs listes : chaque lot associe à chaque liste une tranche
+ * d'au plus lotSize valeurs (vue subList, sans copie).
+ *
+ * Pourquoi paresseux ?
+ * En CROSS le nombre de lots est le produit des nombres de tranches (3 fichiers de 10 000 valeurs
+ * sur Oracle : 11 × 11 × 11 lots). Seuls les indices de tranche du lot courant sont en mémoire
+ * (compteur à la manière d'un odomètre) : jamais la liste des combinaisons.
+ */
+public final class LotCombinations implements Iterator<Map<String, List<String>>> {
+
+    private final List<String> names;
+    private final List<List<String>> lists;
+    private final int lotSize;
+    private final BatchingMode mode;
+    private final int[] chunkCounts;
+    private final int[] indexes;
+    private final long lotCount;
+    private long produced;
+
+    /**
+     * @param lists Listes par nom de paramètre, dans l'ordre des métadonnées
+     * @throws IllegalArgumentException En ZIP, si les listes n'ont pas toutes la même taille
+     */
+    public LotCombinations(Map<String, List<String>> lists, int lotSize, BatchingMode mode) {
+        this.names = new ArrayList<>(lists.keySet());
+        this.lists = new ArrayList<>(lists.values());
+        this.lotSize = lotSize;
+        this.mode = mode;
+        this.chunkCounts = new int[names.size()];
+        this.indexes = new int[names.size()];
+
+        long count = names.isEmpty() ? 0 : 1;
+        for (int i = 0; i < names.size(); i++) {
+            chunkCounts[i] = Math.max(1, (this.lists.get(i).size() + lotSize - 1) / lotSize);
+            if (mode == BatchingMode.CROSS) {
+                count = Math.multiplyExact(count, chunkCounts[i]);
+            } else {
+                if (this.lists.get(i).size() != this.lists.get(0).size()) {
+                    throw new IllegalArgumentException("@batching zip : les fichiers " + names.get(0) + " et "
+                            + names.get(i) + " doivent avoir le même nombre de valeurs ("
+                            + this.lists.get(0).size() + " / " + this.lists.get(i).size() + ")");
+                }
+                count = chunkCounts[i];
+            }
+        }
+        this.lotCount = count;
+    }
+
+    public long getLotCount() {
+        return lotCount;
+    }
+
+    /**
+     * Nombre de tranches de la liste (1 si elle tient dans un lot).
+     */
+    public int getChunkCount(String name) {
+        return chunkCounts[names.indexOf(name)];
+    }
+
+    @Override
+    public boolean hasNext() {
+        return produced < lotCount;
+    }
+
+    @Override
+    public Map<String, List<String>> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Map<String, List<String>> lot = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            List<String> values = lists.get(i);
+            int start = Math.min(indexes[i] * lotSize, values.size());
+            lot.put(names.get(i), values.subList(start, Math.min(start + lotSize, values.size())));
+        }
+        produced++;
+        advance();
+        return lot;
+    }
+
+    /**
+     * ZIP : toutes les listes avancent ensemble. CROSS : odomètre, la dernière liste tourne le plus vite.
+     */
+    private void advance() {
+        if (mode == BatchingMode.ZIP) {
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i]++;
+            }
+            return;
+        }
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            if (++indexes[i] < chunkCounts[i]) {
+                return;
+            }
+            indexes[i] = 0;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.sqlgenerator.backend.service.delta;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Tri externe d'une liste de valeurs vers un fichier trié (String.compareTo), sans doublon, une valeur par ligne.
+ *
+ * Pourquoi un tri externe ?
+ * Une liste IN uploadée (SpooledValueList) peut compter des millions de valeurs qui ne sont pas en heap :
+ * la trier en mémoire matérialiserait toutes les chaînes d'un coup. Ici les valeurs sont lues dans l'ordre,
+ * triées par paquets bornés en octets (runBytes), chaque paquet écrit dans un fichier, puis les fichiers
+ * sont fusionnés en un seul parcours. Une liste qui tient dans un paquet est écrite directement.
+ */
+public final class ExternalSort {
+
+    /**
+     * Coût estimé d'une valeur en heap : en-têtes de String et du tableau, plus les caractères.
+     */
+    private static final int VALUE_OVERHEAD_BYTES = 48;
+
+    private ExternalSort() {
+    }
+
+    /**
+     * @param workDir  Répertoire des paquets intermédiaires (supprimés à la fin, même en cas d'erreur)
+     * @param runBytes Taille estimée maximale d'un paquet trié en mémoire
+     */
+    public static void sortDistinct(List<String> values, Path output, Path workDir, long runBytes)
+            throws IOException {
+        List<Path> runs = new ArrayList<>();
+        try {
+            List<String> run = new ArrayList<>();
+            long bytes = 0;
+            for (String value : values) {
+                run.add(value);
+                bytes += VALUE_OVERHEAD_BYTES + 2L * value.length();
+                if (bytes >= runBytes) {
+                    Path runFile = Files.createTempFile(workDir, "run", ".txt");
+                    runs.add(runFile);
+                    writeSorted(run, runFile);
+                    run.clear();
+                    bytes = 0;
+                }
+            }
+            if (runs.isEmpty()) {
+                writeSorted(run, output);
+                return;
+            }
+            if (!run.isEmpty()) {
+                Path runFile = Files.createTempFile(workDir, "run", ".txt");
+                runs.add(runFile);
+                writeSorted(run, runFile);
+                run.clear();
+            }
+            merge(runs, output);
+        } finally {
+            for (Path runFile : runs) {
+                Files.deleteIfExists(runFile);
+            }
+        }
+    }
+
+    private static void writeSorted(List<String> run, Path file) throws IOException {
+        run.sort(null);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            String last = null;
+            for (String value : run) {
+                if (!value.equals(last)) {
+                    writer.write(value);
+                    writer.newLine();
+                    last = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fusion des paquets triés : la plus petite tête est écrite, les doublons entre paquets sautés.
+     */
+    private static void merge(List<Path> runs, Path output) throws IOException {
+        PriorityQueue<RunReader> heads = new PriorityQueue<>((a, b) -> a.head.compareTo(b.head));
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            for (Path runFile : runs) {
+                RunReader reader = new RunReader(Files.newBufferedReader(runFile, StandardCharsets.UTF_8));
+                if (reader.advance()) {
+                    heads.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            String last = null;
+            while (!heads.isEmpty()) {
+                RunReader reader = heads.poll();
+                if (!reader.head.equals(last)) {
+                    writer.write(reader.head);
+                    writer.newLine();
+                    last = reader.head;
+                }
+                if (reader.advance()) {
+                    heads.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } finally {
+            for (RunReader reader : heads) {
+                reader.close();
+            }
+        }
+    }
+
+    private static final class RunReader {
+        private final BufferedReader reader;
+        private String head;
+
+        private RunReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        boolean advance() throws IOException {
+            head = reader.readLine();
+            return head != null;
+        }
+
+        void close() throws IOException {
+            reader.close();
+        }
+    }
+}
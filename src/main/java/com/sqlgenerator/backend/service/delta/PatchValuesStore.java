@@ -0,0 +1,159 @@
+package com.sqlgenerator.backend.service.delta;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Valeurs des paramètres fichier (@param-file) de chaque patch généré, conservées pour les deltas.
+ *
+ * Un fichier par patch et par paramètre : {values-path}/{nom du patch}/{paramètre}.txt, une valeur
+ * par ligne, triées (String.compareTo) et sans doublon. Un delta contre ce patch lit le fichier
+ * en flux, sans le charger (ValueDelta).
+ *
+ * Indépendant du PatchStore : seuls des patchs connus de l'historique sont consultés,
+ * et delete(nom) les retire avec le patch.
+ *
+ * Les tris (ExternalSort) et les deltas en cours travaillent dans {values-path}/.work/ : jamais
+ * confondu avec un patch (un nom de patch ne commence pas par un point), vidé au démarrage.
+ */
+@Service
+public class PatchValuesStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatchValuesStore.class);
+
+    private static final String EXTENSION = ".txt";
+    private static final String WORK_DIRECTORY = ".work";
+
+    @Value("${patch.delta.values-path:./svn_repo_mock/values/}")
+    private String valuesPath;
+
+    @Value("${patch.delta.keep-values:true}")
+    private boolean keepValues;
+
+    /**
+     * Au-delà, les valeurs ne sont ni conservées ni comparées (place disque et durée du tri).
+     */
+    @Value("${patch.delta.max-values:5000000}")
+    private int maxValues;
+
+    /**
+     * Taille estimée d'un paquet du tri externe, trié en mémoire avant d'être écrit sur disque.
+     */
+    @Value("${patch.delta.sort-run-bytes:67108864}")
+    private long sortRunBytes;
+
+    private Path root;
+    private Path workRoot;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(valuesPath);
+        workRoot = root.resolve(WORK_DIRECTORY);
+        // Restes d'un arrêt brutal pendant un tri ou un delta
+        ValueDelta.deleteRecursively(workRoot);
+        if (keepValues) {
+            Files.createDirectories(root);
+        }
+    }
+
+    /**
+     * Les valeurs des nouveaux patchs sont-elles conservées (patch.delta.keep-values) ?
+     */
+    public boolean isEnabled() {
+        return keepValues;
+    }
+
+    public int getMaxValues() {
+        return maxValues;
+    }
+
+    public long getSortRunBytes() {
+        return sortRunBytes;
+    }
+
+    /**
+     * Nouveau répertoire de travail (tri, delta) : à supprimer par l'appelant (ValueDelta.close).
+     */
+    public Path createWorkDirectory() throws IOException {
+        Files.createDirectories(workRoot);
+        return Files.createTempDirectory(workRoot, "delta");
+    }
+
+    /**
+     * Trie les valeurs (ExternalSort) dans un fichier temporaire puis le renomme :
+     * un delta ne lit jamais un fichier à moitié écrit.
+     */
+    public void save(String fileName, String parameter, List<String> values) throws IOException {
+        Path directory = root.resolve(checkName(fileName));
+        Files.createDirectories(directory);
+        Path target = directory.resolve(checkName(parameter) + EXTENSION);
+        Path temp = Files.createTempFile(directory, parameter, ".tmp");
+        Path workDir = createWorkDirectory();
+        try {
+            ExternalSort.sortDistinct(values, temp, workDir, sortRunBytes);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+            ValueDelta.deleteRecursively(workDir);
+        }
+    }
+
+    /**
+     * Conserve un fichier de valeurs déjà triées et sans doublon (ValueDelta.getCurrentSorted), par copie.
+     */
+    public void saveSorted(String fileName, String parameter, Path sortedValues) throws IOException {
+        Path directory = root.resolve(checkName(fileName));
+        Files.createDirectories(directory);
+        Path target = directory.resolve(checkName(parameter) + EXTENSION);
+        Path temp = Files.createTempFile(directory, parameter, ".tmp");
+        try {
+            Files.copy(sortedValues, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Valeurs triées d'un patch pour un paramètre, ou null si elles n'ont pas été conservées.
+     */
+    public BufferedReader open(String fileName, String parameter) throws IOException {
+        Path path = root.resolve(checkName(fileName)).resolve(checkName(parameter) + EXTENSION);
+        return Files.exists(path) ? Files.newBufferedReader(path, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Supprime les valeurs d'un patch (patch supprimé du store) ; sans effet si aucune n'est conservée.
+     */
+    public void delete(String fileName) throws IOException {
+        Path directory = root.resolve(checkName(fileName));
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        ValueDelta.deleteRecursively(directory);
+        logger.debug("Valeurs du patch {} supprimées", fileName);
+    }
+
+    /**
+     * Un nom de patch ou de paramètre devient un nom de fichier : pas de séparateur ni de remontée.
+     */
+    private static String checkName(String name) {
+        if (name == null || name.isEmpty() || name.contains("/") || name.contains("\\") || name.startsWith(".")) {
+            throw new IllegalArgumentException("Nom invalide : " + name);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,147 @@
+package com.sqlgenerator.backend.service.delta;
+
+import com.sqlgenerator.backend.service.upload.SpooledValueList;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Différence entre les valeurs d'un paramètre fichier et celles d'un patch précédent.
+ *
+ * Pourquoi une fusion triée ?
+ * Les deux côtés peuvent compter des millions de valeurs. Les valeurs précédentes sont déjà triées
+ * sur disque (PatchValuesStore) ; les nouvelles sont triées par ExternalSort dans un fichier de travail,
+ * sans être toutes chargées en heap. Un seul parcours simultané des deux fichiers donne les ajouts
+ * et les retraits, écrits à leur tour sur disque et relus comme des listes (SpooledValueList).
+ *
+ * Les fichiers vivent dans un répertoire de travail propre au delta : close() le supprime,
+ * une fois le patch rendu et les valeurs courantes conservées.
+ */
+public final class ValueDelta implements Closeable {
+
+    private final String previousFileName;
+    private final Path workDir;
+    private final Path currentSorted;
+    private final List<String> added;
+    private final List<String> removed;
+    private final long removedCount;
+
+    private ValueDelta(String previousFileName, Path workDir, Path currentSorted, List<String> added,
+                       List<String> removed, long removedCount) {
+        this.previousFileName = previousFileName;
+        this.workDir = workDir;
+        this.currentSorted = currentSorted;
+        this.added = added;
+        this.removed = removed;
+        this.removedCount = removedCount;
+    }
+
+    /**
+     * @param previous    Valeurs triées du patch précédent, lues en flux
+     * @param keepRemoved Conserver les valeurs retirées (sinon elles sont seulement comptées)
+     * @param workDir     Répertoire de travail, supprimé par close() (ou tout de suite en cas d'erreur)
+     * @param runBytes    Taille d'un paquet du tri externe (PatchValuesStore.getSortRunBytes)
+     */
+    public static ValueDelta compute(String previousFileName, List<String> current, BufferedReader previous,
+                                     boolean keepRemoved, Path workDir, long runBytes) throws IOException {
+        try {
+            Path currentSorted = workDir.resolve("current.txt");
+            ExternalSort.sortDistinct(current, currentSorted, workDir, runBytes);
+            Path addedFile = workDir.resolve("added.txt");
+            Path removedFile = keepRemoved ? workDir.resolve("removed.txt") : null;
+            long removedCount = merge(currentSorted, previous, addedFile, removedFile);
+            return new ValueDelta(previousFileName, workDir, currentSorted, SpooledValueList.index(addedFile),
+                    removedFile != null ? SpooledValueList.index(removedFile) : null, removedCount);
+        } catch (IOException | RuntimeException e) {
+            deleteRecursively(workDir);
+            throw e;
+        }
+    }
+
+    /**
+     * Écrit les ajouts (et les retraits si removedFile n'est pas null) ; retourne le nombre de retraits.
+     */
+    private static long merge(Path currentSorted, BufferedReader previous, Path addedFile, Path removedFile)
+            throws IOException {
+        long removedCount = 0;
+        try (BufferedReader current = Files.newBufferedReader(currentSorted, StandardCharsets.UTF_8);
+             BufferedWriter added = Files.newBufferedWriter(addedFile, StandardCharsets.UTF_8);
+             BufferedWriter removed = removedFile != null
+                     ? Files.newBufferedWriter(removedFile, StandardCharsets.UTF_8) : null) {
+            String value = current.readLine();
+            String old = previous.readLine();
+            while (value != null || old != null) {
+                int cmp = old == null ? -1 : value == null ? 1 : value.compareTo(old);
+                if (cmp < 0) {
+                    added.write(value);
+                    added.newLine();
+                    value = current.readLine();
+                } else if (cmp > 0) {
+                    removedCount++;
+                    if (removed != null) {
+                        removed.write(old);
+                        removed.newLine();
+                    }
+                    old = previous.readLine();
+                } else {
+                    value = current.readLine();
+                    old = previous.readLine();
+                }
+            }
+        }
+        return removedCount;
+    }
+
+    public String getPreviousFileName() {
+        return previousFileName;
+    }
+
+    /**
+     * Fichier de toutes les valeurs courantes, triées : conservé pour un prochain delta.
+     */
+    public Path getCurrentSorted() {
+        return currentSorted;
+    }
+
+    /**
+     * Valeurs absentes du patch précédent (ordre trié).
+     */
+    public List<String> getAdded() {
+        return added;
+    }
+
+    /**
+     * Valeurs du patch précédent absentes de la nouvelle liste, ou null si non demandées.
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public long getRemovedCount() {
+        return removedCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        deleteRecursively(workDir);
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
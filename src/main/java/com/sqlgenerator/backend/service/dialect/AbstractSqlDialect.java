@@ -0,0 +1,81 @@
+package com.sqlgenerator.backend.service.dialect;
+
+import com.sqlgenerator.backend.service.template.CompiledTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Comportements communs aux dialectes : littéraux texte standard SQL, listes IN, terminateur ";".
+ */
+public abstract class AbstractSqlDialect implements SqlDialect {
+
+    protected static final String NULL_LITERAL = "NULL";
+
+    @Override
+    public String formatText(String value) {
+        return "'" + escape(value) + "'";
+    }
+
+    @Override
+    public String formatInList(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return NULL_LITERAL;
+        }
+
+        StringBuilder sb = new StringBuilder(values.size() * 12);
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            String value = values.get(i);
+            if (isNullValue(value)) {
+                sb.append(NULL_LITERAL);
+            } else {
+                // Entourer de guillemets simples pour les valeurs texte
+                sb.append('\'').append(escape(value.trim())).append('\'');
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String terminateStatement(String statement) {
+        String trimmed = statement.stripTrailing();
+        return trimmed.endsWith(";") ? trimmed : trimmed + ";";
+    }
+
+    /**
+     * Rend le template en remplaçant chaque placeholder par sa référence de liaison
+     * (position 1..n dans l'ordre du template), ex: ":b_1", "$1", "@p1".
+     */
+    protected static String renderWithBindReferences(CompiledTemplate template, IntFunction<String> reference) {
+        List<String> names = new ArrayList<>(template.getPlaceholderNames());
+        Map<String, String> references = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            references.put(names.get(i), reference.apply(i + 1));
+        }
+        return template.render(references::get);
+    }
+
+    /**
+     * Échappe les apostrophes dans les chaînes SQL.
+     */
+    protected static String escape(String value) {
+        return value.replace("'", "''");
+    }
+
+    /**
+     * Vide, "null" ou "NULL" : même convention que QueryService pour les valeurs saisies.
+     */
+    protected static boolean isNullValue(String value) {
+        if (value == null) {
+            return true;
+        }
+        String str = value.trim();
+        return str.isEmpty() || "null".equalsIgnoreCase(str);
+    }
+}
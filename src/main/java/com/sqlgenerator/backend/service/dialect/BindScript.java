@@ -0,0 +1,35 @@
+package com.sqlgenerator.backend.service.dialect;
+
+import java.util.List;
+
+/**
+ * Script "bind" du mode masse : une seule instruction paramétrée, exécutée une fois par ligne.
+ *
+ * Pourquoi ?
+ * En mode littéral, chaque ligne du CSV produit un texte SQL différent : la base le parse
+ * entièrement à chaque fois (hard parse, pas de partage du curseur). Avec des variables de
+ * liaison, le texte de l'instruction est identique pour toutes les lignes : parsé une fois,
+ * exécuté N fois ; seules les valeurs changent.
+ *
+ * Créé par SqlDialect.createBindScript pour une génération ; les littéraux de chaque ligne
+ * sont fournis dans l'ordre des paramètres passés à la création.
+ */
+public interface BindScript {
+
+    /**
+     * Déclarations à écrire une fois avant les lignes (variables, PREPARE...).
+     */
+    void appendPrologue(StringBuilder out);
+
+    /**
+     * Exécution de l'instruction pour une ligne.
+     *
+     * @param literals Littéraux SQL déjà formatés (ou NULL), dans l'ordre des paramètres
+     */
+    void appendRow(StringBuilder out, List<String> literals);
+
+    /**
+     * Nettoyage à écrire une fois après les lignes (ex: DEALLOCATE), éventuellement rien.
+     */
+    void appendEpilogue(StringBuilder out);
+}
@@ -0,0 +1,113 @@
+package com.sqlgenerator.backend.service.dialect;
+
+import com.sqlgenerator.backend.service.QueryConstants;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Dialecte Oracle (défaut).
+ *
+ * - Clauses IN limitées à 999 valeurs par lot (limite Oracle de 1000 éléments)
+ * - Dates au format DD/MM/YY (souvent stockées en CHAR dans ce contexte métier)
+ * - Blocs PL/SQL terminés par "/" pour SQL*Plus
+ */
+@Component
+public class OracleDialect extends AbstractSqlDialect {
+
+    public static final String NAME = "oracle";
+
+    private static final Pattern PLSQL_BLOCK_START = Pattern.compile("(?is)^\\s*(DECLARE|BEGIN)\\b.*");
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Set<String> getAliases() {
+        return Set.of("ora");
+    }
+
+    @Override
+    public int getMaxInListSize() {
+        return QueryConstants.ORACLE_IN_MAX_SIZE;
+    }
+
+    /**
+     * Formate une date au format DD/MM/YY (ex: 30/11/25).
+     * 
+     * Pourquoi ce format spécifique ?
+     * Les dates sont souvent stockées en CHAR dans Oracle, pas en DATE.
+     * Le format DD/MM/YY est le format standard utilisé dans ce contexte métier.
+     * 
+     * Si la date est déjà au bon format, la retourne telle quelle.
+     * Sinon, tente de convertir depuis d'autres formats (ex: YYYY-MM-DD).
+     * Si aucun format reconnu, retourne tel quel (responsabilité du dev SQL).
+     */
+    @Override
+    public String formatDate(String dateValue) {
+        if (isNullValue(dateValue)) {
+            return NULL_LITERAL;
+        }
+        
+        String trimmed = dateValue.trim();
+        
+        // Si déjà au format DD/MM/YY, retourner tel quel
+        if (trimmed.matches("\\d{2}/\\d{2}/\\d{2}")) {
+            return "'" + trimmed + "'";
+        }
+        
+        // Si format YYYY-MM-DD, convertir en DD/MM/YY
+        if (trimmed.matches("\\d{4}-\\d{2}-\\d{2}")) {
+            String[] parts = trimmed.split("-");
+            // Prendre les 2 derniers chiffres de l'année
+            String shortYear = parts[0].substring(2);
+            return "'" + parts[2] + "/" + parts[1] + "/" + shortYear + "'";
+        }
+        
+        // Sinon, retourner tel quel (responsabilité du dev SQL)
+        return formatText(trimmed);
+    }
+
+    /**
+     * Un bloc PL/SQL (DECLARE/BEGIN ... END;) doit être suivi d'un "/" pour être exécuté par SQL*Plus.
+     */
+    @Override
+    public String terminateStatement(String statement) {
+        String trimmed = statement.stripTrailing();
+        if (PLSQL_BLOCK_START.matcher(trimmed).matches()) {
+            return trimmed.endsWith("/") ? trimmed : trimmed + "\n/";
+        }
+        return super.terminateStatement(trimmed);
+    }
+
+    @Override
+    public boolean isProceduralBlock(String sql) {
+        return PLSQL_BLOCK_START.matcher(sql).matches();
+    }
+
+    /**
+     * Chaque groupe d'instructions devient un bloc anonyme terminé par son COMMIT :
+     * un seul aller-retour SQL*Plus par groupe et un undo borné à la taille du groupe.
+     */
+    @Override
+    public String openTransactionBlock() {
+        return "BEGIN";
+    }
+
+    @Override
+    public String closeTransactionBlock() {
+        return "COMMIT;\nEND;\n/";
+    }
+
+    /**
+     * FORALL sert aussi à outputMode=bind : pas de createBindScript, chaque EXEC SQL*Plus serait un bloc
+     * anonyme au texte distinct, donc un hard parse par ligne.
+     */
+    @Override
+    public boolean supportsArrayBinding() {
+        return true;
+    }
+}
@@ -0,0 +1,180 @@
+package com.sqlgenerator.backend.service.dialect;
+
+import com.sqlgenerator.backend.service.template.CompiledTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Dialecte PostgreSQL.
+ *
+ * Pourquoi = ANY('{...}') plutôt que IN (...) ?
+ * PostgreSQL n'a pas de limite de taille sur IN, mais chaque élément d'une liste IN est un
+ * littéral à parser et à typer. Un littéral tableau unique est parsé en une fois puis
+ * converti vers le type de la colonne : parsing plus court et plan identique (ScalarArrayOp).
+ *
+ * Les clauses "col IN ({{param}})" des templates sont réécrites au chargement en
+ * "col = ANY({{param}})" (et NOT IN en "<> ALL"), les templates restent donc portables.
+ * Les lots restent bornés pour limiter la durée des verrous par instruction.
+ */
+@Component
+public class PostgreSqlDialect extends AbstractSqlDialect {
+
+    public static final String NAME = "postgresql";
+
+    private static final int MAX_ARRAY_SIZE = 10000;
+
+    private static final String PREPARED_STATEMENT_NAME = "patch_stmt";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Set<String> getAliases() {
+        return Set.of("postgres", "pg");
+    }
+
+    @Override
+    public int getMaxInListSize() {
+        return MAX_ARRAY_SIZE;
+    }
+
+    /**
+     * Une liste est rendue en littéral tableau : elle n'a de sens que dans "= ANY(...)" ou "<> ALL(...)".
+     * Un placeholder de liste resté ailleurs (ex: "IN ({{ids}}, 0)") produirait un SQL invalide :
+     * il est refusé au chargement de la requête.
+     */
+    @Override
+    public String prepareTemplate(String sql, Set<String> listParameterNames) {
+        String result = sql;
+        for (String name : listParameterNames) {
+            String placeholder = "\\{\\{\\s*" + Pattern.quote(name) + "\\s*\\}\\}";
+            String replacement = Matcher.quoteReplacement("{{" + name + "}}");
+            result = result.replaceAll("(?i)\\bNOT\\s+IN\\s*\\(\\s*" + placeholder + "\\s*\\)",
+                    "<> ALL(" + replacement + ")");
+            result = result.replaceAll("(?i)\\bIN\\s*\\(\\s*" + placeholder + "\\s*\\)",
+                    "= ANY(" + replacement + ")");
+            String outsideArrayForms = result.replaceAll("(?i)\\b(ANY|ALL)\\s*\\(\\s*" + placeholder + "\\s*\\)", "");
+            if (Pattern.compile(placeholder).matcher(outsideArrayForms).find()) {
+                throw new IllegalArgumentException("Paramètre fichier {{" + name + "}} hors d'une clause "
+                        + "[NOT] IN ({{" + name + "}}) : non supporté par le dialecte " + NAME);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * \ir de psql : chemin relatif au script maître, pas au répertoire courant.
+     */
+    @Override
+    public String includeScript(String fileName) {
+        return "\\ir " + fileName;
+    }
+
+    /**
+     * ON_ERROR_STOP : psql sort en échec (code 3) à l'erreur au lieu de passer à la suite ;
+     * la transaction en cours est annulée avec la connexion.
+     */
+    @Override
+    public String abortScript(String message) {
+        return "\\set ON_ERROR_STOP on\nDO $abort$\nBEGIN\n  RAISE EXCEPTION '%', " + formatText(message)
+                + ";\nEND\n$abort$;";
+    }
+
+    @Override
+    public String beginTransaction() {
+        return "BEGIN;";
+    }
+
+    /**
+     * Bloc DO : exécuté en une seule transaction (autocommit psql), donc un commit par groupe.
+     * Délimiteur $patch$ pour ne pas entrer en conflit avec un $$ présent dans une valeur.
+     */
+    @Override
+    public String openTransactionBlock() {
+        return "DO $patch$\nBEGIN";
+    }
+
+    @Override
+    public String closeTransactionBlock() {
+        return "END\n$patch$;";
+    }
+
+    /**
+     * PREPARE une fois, EXECUTE par ligne, DEALLOCATE à la fin.
+     * Les types des paramètres ne sont pas déclarés : PostgreSQL les déduit des colonnes comparées,
+     * ce qui évite les erreurs text = date et les conversions sur la colonne.
+     */
+    @Override
+    public BindScript createBindScript(CompiledTemplate template, List<String> parameterTypes) {
+        String statement = renderWithBindReferences(template, position -> "$" + position);
+        return new BindScript() {
+            @Override
+            public void appendPrologue(StringBuilder out) {
+                out.append("PREPARE ").append(PREPARED_STATEMENT_NAME).append(" AS\n").append(statement);
+            }
+
+            @Override
+            public void appendRow(StringBuilder out, List<String> literals) {
+                out.append("EXECUTE ").append(PREPARED_STATEMENT_NAME);
+                if (!literals.isEmpty()) {
+                    out.append('(').append(String.join(", ", literals)).append(')');
+                }
+                out.append(';');
+            }
+
+            @Override
+            public void appendEpilogue(StringBuilder out) {
+                out.append("DEALLOCATE ").append(PREPARED_STATEMENT_NAME).append(';');
+            }
+        };
+    }
+
+    /**
+     * Date ISO YYYY-MM-DD, interprétée sans ambiguïté quel que soit DateStyle.
+     * Les dates DD/MM/YYYY sont converties ; les autres formats sont laissés tels quels.
+     */
+    @Override
+    public String formatDate(String dateValue) {
+        if (isNullValue(dateValue)) {
+            return NULL_LITERAL;
+        }
+        String trimmed = dateValue.trim();
+        if (trimmed.matches("\\d{2}/\\d{2}/\\d{4}")) {
+            String[] parts = trimmed.split("/");
+            return "'" + parts[2] + "-" + parts[1] + "-" + parts[0] + "'";
+        }
+        return formatText(trimmed);
+    }
+
+    /**
+     * Littéral tableau '{a,b,"c d"}' : éléments entre guillemets doubles (échappés) et NULL natif.
+     */
+    @Override
+    public String formatInList(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return NULL_LITERAL;
+        }
+        StringBuilder sb = new StringBuilder(values.size() * 12);
+        sb.append("'{");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String value = values.get(i);
+            if (isNullValue(value)) {
+                sb.append(NULL_LITERAL);
+            } else {
+                String element = value.trim().replace("\\", "\\\\").replace("\"", "\\\"");
+                sb.append('"').append(escape(element)).append('"');
+            }
+        }
+        sb.append("}'");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,148 @@
+package com.sqlgenerator.backend.service.dialect;
+
+import com.sqlgenerator.backend.service.template.CompiledTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dialecte SQL cible d'un patch.
+ *
+ * Sélectionné par requête via la métadonnée -- @dialect: (oracle par défaut).
+ * Contrôle tout ce qui dépend de la base cible :
+ * - Stratégie et taille des lots pour les listes de valeurs (clauses IN)
+ * - Format des littéraux (texte, date)
+ * - Terminateurs d'instruction et séparateurs de lots
+ *
+ * Pourquoi une abstraction ?
+ * La limite de 1000 éléments IN et le format DD/MM/YY sont propres à Oracle. Sur PostgreSQL
+ * ou SQL Server, la forme de patch la plus rapide à exécuter n'est pas la même.
+ */
+public interface SqlDialect {
+
+    /**
+     * Nom principal du dialecte (valeur de -- @dialect:).
+     */
+    String getName();
+
+    /**
+     * Noms alternatifs acceptés dans -- @dialect: (ex: "postgres", "pg").
+     */
+    default Set<String> getAliases() {
+        return Set.of();
+    }
+
+    /**
+     * Nombre maximum de valeurs par lot pour un paramètre fichier.
+     */
+    int getMaxInListSize();
+
+    /**
+     * Adapte le SQL du template au chargement (ex: réécriture IN → = ANY pour PostgreSQL).
+     *
+     * @param sql SQL du template sans métadonnées
+     * @param listParameterNames Noms des paramètres fichier (listes de valeurs)
+     */
+    default String prepareTemplate(String sql, Set<String> listParameterNames) {
+        return sql;
+    }
+
+    /**
+     * Littéral texte, apostrophes échappées.
+     */
+    String formatText(String value);
+
+    /**
+     * Littéral date dans le format attendu par la base cible.
+     */
+    String formatDate(String value);
+
+    /**
+     * Remplacement d'un paramètre fichier pour un lot de valeurs.
+     */
+    String formatInList(List<String> values);
+
+    /**
+     * Garantit que l'instruction se termine par le terminateur du dialecte.
+     */
+    String terminateStatement(String statement);
+
+    /**
+     * Séparateur à insérer après chaque lot (ex: GO pour SQL Server), ou null.
+     */
+    default String getBatchSeparator() {
+        return null;
+    }
+
+    /**
+     * Appel d'un autre script depuis le script maître d'un patch découpé en parties
+     * (@@ de SQL*Plus par défaut : chemin relatif au script appelant).
+     */
+    default String includeScript(String fileName) {
+        return "@@" + fileName;
+    }
+
+    /**
+     * Fin d'un script tronqué (génération streamée interrompue après le début de l'envoi) : une erreur
+     * qui arrête le client SQL avec un code d'échec, là où un commentaire passerait inaperçu.
+     * SQL*Plus par défaut : WHENEVER SQLERROR annule la transaction en cours et sort en échec.
+     */
+    default String abortScript(String message) {
+        return "WHENEVER SQLERROR EXIT FAILURE ROLLBACK\nBEGIN\n  RAISE_APPLICATION_ERROR(-20000, "
+                + formatText(message) + ");\nEND;\n/";
+    }
+
+    /**
+     * Ouverture explicite de transaction avant un groupe d'instructions, ou null si implicite (Oracle).
+     */
+    default String beginTransaction() {
+        return null;
+    }
+
+    /**
+     * Validation d'un groupe d'instructions (mode commit).
+     */
+    default String commitTransaction() {
+        return "COMMIT;";
+    }
+
+    /**
+     * Ouverture d'un bloc transactionnel (mode block), ou null si le dialecte ne le supporte pas.
+     */
+    default String openTransactionBlock() {
+        return null;
+    }
+
+    /**
+     * Fermeture d'un bloc transactionnel ouvert par openTransactionBlock (commit inclus).
+     */
+    default String closeTransactionBlock() {
+        return null;
+    }
+
+    /**
+     * Le dialecte sait-il exécuter une instruction pour un tableau de valeurs (FORALL Oracle) ?
+     * Si oui, outputMode=bind est rendu de cette façon plutôt que par createBindScript.
+     */
+    default boolean supportsArrayBinding() {
+        return false;
+    }
+
+    /**
+     * Le SQL est-il un bloc procédural (ex: DECLARE/BEGIN ... END; en PL/SQL) plutôt qu'une instruction ?
+     */
+    default boolean isProceduralBlock(String sql) {
+        return false;
+    }
+
+    /**
+     * Script à variables de liaison pour le mode masse, ou null si le dialecte ne le supporte pas
+     * (ou le rend par tableaux de valeurs : voir supportsArrayBinding).
+     *
+     * @param template Template dont tous les placeholders restants sont des paramètres de ligne
+     * @param parameterTypes Type (text, number, date) de chaque placeholder, dans l'ordre du template
+     */
+    default BindScript createBindScript(CompiledTemplate template, List<String> parameterTypes) {
+        return null;
+    }
+}
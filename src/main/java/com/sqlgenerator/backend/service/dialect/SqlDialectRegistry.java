@@ -0,0 +1,55 @@
+package com.sqlgenerator.backend.service.dialect;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Registre des dialectes SQL disponibles, résolus par nom ou alias (insensible à la casse).
+ */
+@Service
+public class SqlDialectRegistry {
+
+    @Value("${patch.dialect.default:oracle}")
+    private String defaultDialectName;
+
+    @Autowired
+    private List<SqlDialect> dialects;
+
+    private final Map<String, SqlDialect> byName = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (SqlDialect dialect : dialects) {
+            byName.put(dialect.getName().toLowerCase(Locale.ROOT), dialect);
+            for (String alias : dialect.getAliases()) {
+                byName.put(alias.toLowerCase(Locale.ROOT), dialect);
+            }
+        }
+        if (!byName.containsKey(defaultDialectName.toLowerCase(Locale.ROOT))) {
+            throw new IllegalStateException("Dialecte par défaut inconnu : " + defaultDialectName
+                    + " (disponibles : " + byName.keySet() + ")");
+        }
+    }
+
+    /**
+     * Résout le dialecte d'une requête ; null ou vide = dialecte par défaut.
+     *
+     * @throws IllegalArgumentException Si le nom ne correspond à aucun dialecte
+     */
+    public SqlDialect resolve(String name) {
+        String key = (name == null || name.isBlank() ? defaultDialectName : name.trim()).toLowerCase(Locale.ROOT);
+        SqlDialect dialect = byName.get(key);
+        if (dialect == null) {
+            throw new IllegalArgumentException("Dialecte SQL inconnu : '" + name + "'. Valeurs possibles : "
+                    + String.join(", ", byName.keySet()));
+        }
+        return dialect;
+    }
+}
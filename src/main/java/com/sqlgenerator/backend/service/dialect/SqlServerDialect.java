@@ -0,0 +1,145 @@
+package com.sqlgenerator.backend.service.dialect;
+
+import com.sqlgenerator.backend.service.template.CompiledTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dialecte SQL Server.
+ *
+ * - Lots de 2000 valeurs : sous la limite de 2100 paramètres, atteinte quand la base
+ *   paramètre les littéraux (PARAMETERIZATION FORCED) ; au-delà, les très longues listes IN
+ *   dégradent fortement la compilation
+ * - Dates au format YYYYMMDD, indépendant de SET DATEFORMAT et de la langue de session
+ * - Chaque lot suivi de GO : batchs courts, compilés et exécutés séparément
+ */
+@Component
+public class SqlServerDialect extends AbstractSqlDialect {
+
+    public static final String NAME = "sqlserver";
+
+    private static final int MAX_IN_LIST_SIZE = 2000;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Set<String> getAliases() {
+        return Set.of("mssql", "tsql");
+    }
+
+    @Override
+    public int getMaxInListSize() {
+        return MAX_IN_LIST_SIZE;
+    }
+
+    @Override
+    public String formatDate(String dateValue) {
+        if (isNullValue(dateValue)) {
+            return NULL_LITERAL;
+        }
+        String trimmed = dateValue.trim();
+        if (trimmed.matches("\\d{4}-\\d{2}-\\d{2}")) {
+            return "'" + trimmed.replace("-", "") + "'";
+        }
+        if (trimmed.matches("\\d{2}/\\d{2}/\\d{4}")) {
+            String[] parts = trimmed.split("/");
+            return "'" + parts[2] + parts[1] + parts[0] + "'";
+        }
+        return formatText(trimmed);
+    }
+
+    @Override
+    public String getBatchSeparator() {
+        return "GO";
+    }
+
+    /**
+     * :r de sqlcmd : le contenu de la partie est inséré tel quel dans le script maître.
+     */
+    @Override
+    public String includeScript(String fileName) {
+        return ":r " + fileName;
+    }
+
+    /**
+     * :on error exit : sqlcmd sort en échec à l'erreur du lot, la transaction en cours est annulée
+     * avec la connexion. Message passé en argument de %s : un % dans le texte n'est pas interprété.
+     */
+    @Override
+    public String abortScript(String message) {
+        return ":on error exit\nRAISERROR(N'%s', 16, 1, N" + formatText(message) + ");\nGO";
+    }
+
+    @Override
+    public String beginTransaction() {
+        return "BEGIN TRANSACTION;";
+    }
+
+    @Override
+    public String commitTransaction() {
+        return "COMMIT TRANSACTION;";
+    }
+
+    /**
+     * XACT_ABORT : toute erreur annule le groupe entier au lieu de laisser une transaction ouverte.
+     */
+    @Override
+    public String openTransactionBlock() {
+        return "SET XACT_ABORT ON;\nBEGIN TRANSACTION;";
+    }
+
+    @Override
+    public String closeTransactionBlock() {
+        return "COMMIT TRANSACTION;";
+    }
+
+    /**
+     * sp_executesql : le texte de l'instruction (avec @p1, @p2...) est le même pour chaque ligne,
+     * son plan est donc compilé une fois et réutilisé.
+     *
+     * Paramètres en varchar (comme les littéraux '...' du mode classique) : un nvarchar comparé
+     * à une colonne varchar forcerait la conversion de la colonne et empêcherait l'usage des index.
+     */
+    @Override
+    public BindScript createBindScript(CompiledTemplate template, List<String> parameterTypes) {
+        String statement = "N'" + escape(renderWithBindReferences(template, position -> "@p" + position)) + "'";
+        StringBuilder declarations = new StringBuilder("N'");
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            if (i > 0) {
+                declarations.append(", ");
+            }
+            declarations.append("@p").append(i + 1).append(' ')
+                        .append("number".equals(parameterTypes.get(i)) ? "decimal(38, 10)" : "varchar(8000)");
+        }
+        String parameterDeclarations = declarations.append('\'').toString();
+
+        return new BindScript() {
+            @Override
+            public void appendPrologue(StringBuilder out) {
+                out.append("-- Instruction paramétrée exécutée via sp_executesql (plan réutilisé)");
+            }
+
+            @Override
+            public void appendRow(StringBuilder out, List<String> literals) {
+                out.append("EXEC sp_executesql ").append(statement);
+                if (!literals.isEmpty()) {
+                    out.append(", ").append(parameterDeclarations);
+                    for (int i = 0; i < literals.size(); i++) {
+                        out.append(", @p").append(i + 1).append(" = ").append(literals.get(i));
+                    }
+                }
+                out.append(';');
+            }
+
+            @Override
+            public void appendEpilogue(StringBuilder out) {
+                // Rien à libérer
+            }
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.sqlgenerator.backend.service.estimate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Débit de génération observé (octets de patch écrits par milliseconde), moyenne mobile exponentielle.
+ *
+ * Alimenté par SqlFileBuilder après chaque génération significative ; utilisé par l'estimation
+ * pour prédire la durée d'une génération à partir de sa taille prévue.
+ */
+@Component
+public class GenerationThroughput {
+
+    /**
+     * En dessous, la durée est dominée par les coûts fixes (store, historique) : mesure ignorée.
+     */
+    private static final long MIN_SAMPLE_BYTES = 64 * 1024;
+    private static final double SMOOTHING = 0.2;
+
+    private volatile double bytesPerMillis;
+
+    public GenerationThroughput(@Value("${patch.estimate.default-throughput-kb-per-ms:20}") long defaultKbPerMillis) {
+        this.bytesPerMillis = defaultKbPerMillis * 1024.0;
+    }
+
+    public synchronized void record(long bytes, long elapsedNanos) {
+        if (bytes < MIN_SAMPLE_BYTES || elapsedNanos <= 0) {
+            return;
+        }
+        double sample = bytes / (elapsedNanos / 1_000_000.0);
+        bytesPerMillis = bytesPerMillis + SMOOTHING * (sample - bytesPerMillis);
+    }
+
+    public long estimateMillis(long bytes) {
+        return (long) Math.ceil(bytes / bytesPerMillis);
+    }
+}
@@ -0,0 +1,62 @@
+package com.sqlgenerator.backend.service.estimate;
+
+/**
+ * Estimation du nombre de valeurs distinctes en mémoire constante (HyperLogLog, précision 14).
+ *
+ * Pourquoi pas un HashSet ?
+ * Sur 5 millions de valeurs, un HashSet<String> occupe plusieurs centaines de Mo. Ici 16 Ko
+ * par paramètre suffisent, pour une erreur type d'environ 0,8 %.
+ */
+public class HyperLogLog {
+
+    private static final int PRECISION = 14;
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+    private final byte[] registers = new byte[REGISTER_COUNT];
+
+    public void add(String value) {
+        long hash = hash64(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Rang du premier bit à 1 dans les bits restants (bit sentinelle pour borner le résultat)
+        long remaining = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        // Petites cardinalités : le comptage linéaire des registres vides est plus précis
+        if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * FNV-1a 64 bits suivi du mélange final de MurmurHash3 (bits de poids fort bien répartis).
+     */
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,298 @@
+package com.sqlgenerator.backend.service.estimate;
+
+import com.sqlgenerator.backend.model.ParameterDefinition;
+import com.sqlgenerator.backend.model.PatchEstimate;
+import com.sqlgenerator.backend.service.CompiledQuery;
+import com.sqlgenerator.backend.service.QueryService;
+import com.sqlgenerator.backend.service.SqlFileBuilder;
+import com.sqlgenerator.backend.service.batching.BatchingMode;
+import com.sqlgenerator.backend.service.dialect.SqlDialect;
+import com.sqlgenerator.backend.service.input.MasseInput;
+import com.sqlgenerator.backend.service.input.MasseRowSource;
+import com.sqlgenerator.backend.service.validation.ParameterValidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Estimation d'une génération sans la réaliser (POST /api/patch/{id}/estimate).
+ *
+ * Le fichier envoyé est lu une seule fois, en flux : lignes, valeurs invalides (mêmes validateurs
+ * compilés qu'à la génération), valeurs distinctes (HyperLogLog). La taille du patch est calculée à partir du template compilé (texte fixe +
+ * longueur de chaque littéral formaté par le dialecte) sans rien concaténer ni écrire dans le store.
+ *
+ * Les tailles sont en octets UTF-8 (comme le fichier écrit) et supposent la sortie par défaut
+ * (littérale, sans commitMode).
+ */
+@Service
+public class PatchEstimator {
+
+    private static final int NULL_LENGTH = 4;
+    private static final int ROW_COMMENT_LENGTH = utf8Length("-- Requête \n");
+    private static final int LOT_COMMENT_LENGTH = utf8Length("\n\n-- Lot 1/1 (999 valeurs)\n");
+    private static final int LOT_NAME_SEPARATORS_LENGTH = " : , ".length();
+    private static final int IN_SEPARATOR_LENGTH = ", ".length();
+    private static final int UNIT_SEPARATOR_LENGTH = "\n\n".length();
+
+    @Autowired
+    private QueryService queryService;
+
+    @Autowired
+    private SqlFileBuilder sqlFileBuilder;
+
+    @Autowired
+    private GenerationThroughput throughput;
+
+    /**
+     * @param params Paramètres simples (String), masseFile (MasseInput) ou paramètres fichier (InputStream)
+     * @throws IllegalArgumentException Si la requête est inconnue ou le fichier mal formé
+     */
+    public PatchEstimate estimate(String queryId, String executionType, Map<String, Object> params)
+            throws IOException {
+        CompiledQuery compiled = queryService.getCompiledQuery(queryId);
+        if (compiled == null) {
+            throw new IllegalArgumentException("Query not found: " + queryId);
+        }
+
+        PatchEstimate estimate = new PatchEstimate();
+        estimate.setQueryId(queryId);
+        estimate.setDialect(compiled.getDialect().getName());
+        estimate.setExecutionType(executionType);
+        estimate.setDistinctValues(new LinkedHashMap<>());
+
+        long bytes = utf8Length(sqlFileBuilder.buildHeader(compiled, executionType, params)) + 1;
+        if (params.get("masseFile") instanceof MasseInput) {
+            bytes += estimateMasse(compiled, params, estimate);
+        } else {
+            bytes += estimateUnitaire(compiled, params, estimate);
+        }
+
+        estimate.setEstimatedBytes(bytes);
+        estimate.setEstimatedMillis(throughput.estimateMillis(bytes));
+        return estimate;
+    }
+
+    /**
+     * Une instruction par ligne : "-- Requête n" + template avec les littéraux de la ligne.
+     */
+    private long estimateMasse(CompiledQuery compiled, Map<String, Object> params, PatchEstimate estimate)
+            throws IOException {
+        SqlDialect dialect = compiled.getDialect();
+        List<ParameterDefinition> rowParams = compiled.getDefinition().getParameters().stream()
+                .filter(p -> !p.isFile())
+                .collect(Collectors.toList());
+        Map<String, Integer> occurrences = compiled.getTemplate().getPlaceholderOccurrences();
+        Map<String, HyperLogLog> distinct = new LinkedHashMap<>();
+        for (ParameterDefinition param : rowParams) {
+            distinct.put(param.getName(), new HyperLogLog());
+        }
+
+        // Texte fixe + paramètres fichier, rendus NULL en mode masse
+        long fixedBytes = templateTextLength(compiled);
+        for (ParameterDefinition param : compiled.getDefinition().getParameters()) {
+            if (param.isFile()) {
+                fixedBytes += (long) NULL_LENGTH * occurrences.getOrDefault(param.getName(), 0);
+            }
+        }
+
+        long bytes = 0;
+        try (MasseRowSource rows = MasseRowSource.open((MasseInput) params.get("masseFile"), rowParams)) {
+            for (Map<String, Object> row = rows.next(); row != null; row = rows.next()) {
+                long rowNumber = rows.getRowNumber();
+                bytes += fixedBytes + ROW_COMMENT_LENGTH + Long.toString(rowNumber).length()
+                        + (rowNumber > 1 ? 2 : 0);
+
+                boolean valid = true;
+                for (ParameterDefinition param : rowParams) {
+                    Object value = row.get(param.getName());
+                    if (value == null) {
+                        value = params.get(param.getName());
+                    }
+                    bytes += (long) literalLength(dialect, param.getType(), value)
+                            * occurrences.getOrDefault(param.getName(), 0);
+                    if (!isNullValue(value)) {
+                        distinct.get(param.getName()).add(value.toString().trim());
+                    }
+                    ParameterValidator validator = compiled.getValidator(param.getName());
+                    valid &= validator == null || validator.validate(value) == null;
+                }
+                if (!valid) {
+                    estimate.setInvalidRowCount(estimate.getInvalidRowCount() + 1);
+                }
+            }
+            estimate.setRowCount(rows.getRowNumber());
+        }
+
+        estimate.setStatementCount(estimate.getRowCount());
+        distinct.forEach((name, hll) -> estimate.getDistinctValues().put(name, hll.estimate()));
+        return estimate.getRowCount() == 0 ? fixedBytes : bytes;
+    }
+
+    /**
+     * Unitaire : une instruction, ou un lot par combinaison de tranches de getMaxInListSize() valeurs
+     * des fichiers IN (produit des tranches en cross, tranches alignées en zip, comme LotCombinations).
+     */
+    private long estimateUnitaire(CompiledQuery compiled, Map<String, Object> params, PatchEstimate estimate)
+            throws IOException {
+        SqlDialect dialect = compiled.getDialect();
+        Map<String, Integer> occurrences = compiled.getTemplate().getPlaceholderOccurrences();
+        long fixedBytes = templateTextLength(compiled);
+        Map<String, ListScan> lists = new LinkedHashMap<>();
+
+        for (ParameterDefinition param : compiled.getDefinition().getParameters()) {
+            int count = occurrences.getOrDefault(param.getName(), 0);
+            Object value = params.get(param.getName());
+            if (!param.isFile()) {
+                fixedBytes += (long) literalLength(dialect, param.getType(), value) * count;
+                continue;
+            }
+            if (!(value instanceof InputStream)) {
+                fixedBytes += (long) NULL_LENGTH * count;
+                continue;
+            }
+
+            ListScan scan = scanList(dialect, compiled.getValidator(param.getName()), (InputStream) value);
+            scan.occurrences = count;
+            lists.put(param.getName(), scan);
+            estimate.getDistinctValues().put(param.getName(), scan.distinct.estimate());
+            estimate.setInvalidRowCount(estimate.getInvalidRowCount() + scan.invalid);
+            estimate.setRowCount(estimate.getRowCount() + scan.rows);
+        }
+
+        int maxSize = dialect.getMaxInListSize();
+        boolean cross = compiled.getBatchingMode() == BatchingMode.CROSS;
+        long lots = 1;
+        for (ListScan scan : lists.values()) {
+            long chunks = Math.max(1, (scan.rows + maxSize - 1) / maxSize);
+            lots = cross ? Math.multiplyExact(lots, chunks) : Math.max(lots, chunks);
+        }
+
+        // En cross, chaque tranche d'un fichier est répétée dans les lots de toutes les tranches des autres
+        long valueBytes = 0;
+        long lotHeaderBytes = LOT_COMMENT_LENGTH;
+        for (Map.Entry<String, ListScan> entry : lists.entrySet()) {
+            ListScan scan = entry.getValue();
+            long chunks = Math.max(1, (scan.rows + maxSize - 1) / maxSize);
+            long repeat = cross ? lots / chunks : 1;
+            valueBytes += scan.bytes * scan.occurrences * repeat;
+            if (scan.rows > 0) {
+                // Pas de séparateur après la dernière valeur de chaque tranche
+                valueBytes -= (long) IN_SEPARATOR_LENGTH * scan.occurrences * chunks * repeat;
+            }
+            if (lists.size() > 1) {
+                lotHeaderBytes += utf8Length(entry.getKey()) + LOT_NAME_SEPARATORS_LENGTH;
+            }
+        }
+
+        if (estimate.getRowCount() == 0 || lots == 1) {
+            estimate.setStatementCount(1);
+            estimate.setLotCount(lists.isEmpty() || estimate.getRowCount() == 0 ? 0 : 1);
+            estimate.setRowCount(Math.max(estimate.getRowCount(), 1));
+            return fixedBytes + valueBytes;
+        }
+
+        estimate.setLotCount(Math.toIntExact(lots));
+        estimate.setStatementCount(lots);
+        // Les lots sont séparés par une ligne vide : aucune avant le premier
+        return lots * (fixedBytes + lotHeaderBytes) - UNIT_SEPARATOR_LENGTH + valueBytes;
+    }
+
+    /**
+     * Lecture en flux d'un fichier de valeurs (une par ligne, lignes vides ignorées comme à la génération).
+     */
+    private ListScan scanList(SqlDialect dialect, ParameterValidator validator, InputStream stream)
+            throws IOException {
+        ListScan scan = new ListScan();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                scan.rows++;
+                if (isNullValue(line)) {
+                    scan.invalid++;
+                    scan.bytes += NULL_LENGTH + IN_SEPARATOR_LENGTH;
+                } else {
+                    if (validator != null && validator.validate(line) != null) {
+                        scan.invalid++;
+                    }
+                    scan.distinct.add(line);
+                    scan.bytes += utf8Length(dialect.formatText(line)) + IN_SEPARATOR_LENGTH;
+                }
+            }
+        }
+        return scan;
+    }
+
+    private static final class ListScan {
+        private long rows;
+        private long invalid;
+        private long bytes;
+        private int occurrences;
+        private final HyperLogLog distinct = new HyperLogLog();
+    }
+
+    /**
+     * Longueur du littéral produit à la génération (mêmes règles que QueryService).
+     */
+    private static int literalLength(SqlDialect dialect, String type, Object value) {
+        if (isNullValue(value)) {
+            return NULL_LENGTH;
+        }
+        String trimmed = value.toString().trim();
+        if ("date".equals(type)) {
+            return utf8Length(dialect.formatDate(trimmed));
+        }
+        if ("text".equals(type)) {
+            return utf8Length(dialect.formatText(trimmed));
+        }
+        return utf8Length(trimmed);
+    }
+
+    /**
+     * Texte fixe du template (sans les placeholders), en octets.
+     */
+    private static long templateTextLength(CompiledQuery compiled) {
+        return utf8Length(compiled.getTemplate().render(name -> ""));
+    }
+
+    /**
+     * Taille UTF-8 sans allouer de tableau d'octets.
+     */
+    private static int utf8Length(CharSequence text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static boolean isNullValue(Object value) {
+        if (value == null) {
+            return true;
+        }
+        String str = value.toString().trim();
+        return str.isEmpty() || "null".equalsIgnoreCase(str);
+    }
+}
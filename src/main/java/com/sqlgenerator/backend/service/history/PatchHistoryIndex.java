@@ -0,0 +1,257 @@
+package com.sqlgenerator.backend.service.history;
+
+import com.sqlgenerator.backend.model.PatchHistoryPage;
+import com.sqlgenerator.backend.model.PatchRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index en colonnes de l'historique des patchs générés.
+ *
+ * Pourquoi un stockage en colonnes ?
+ * Avec des millions d'entrées, des objets PatchRecord en mémoire coûtent cher et se parcourent lentement.
+ * Ici chaque champ est un tableau primitif, les chaînes répétées (query, ticket, type) sont
+ * dictionnarisées en entiers : filtrer un million d'entrées revient à comparer des int/long contigus.
+ *
+ * Les positions sont attribuées dans l'ordre d'enregistrement : la pagination va du plus récent
+ * (position la plus haute) au plus ancien. Les listes de positions par ticket et par query
+ * permettent de ne parcourir que les candidats quand ces critères sont fournis.
+ *
+ * Une suppression ne fait que marquer la position : PatchHistoryService reconstruit l'index
+ * (liveRecords) quand les positions mortes deviennent trop nombreuses.
+ *
+ * Non thread-safe : PatchHistoryService protège les accès.
+ */
+public class PatchHistoryIndex {
+
+    private static final int NO_VALUE = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int size;
+    private String[] fileNames = new String[INITIAL_CAPACITY];
+    private int[] queryCodes = new int[INITIAL_CAPACITY];
+    private int[] ticketCodes = new int[INITIAL_CAPACITY];
+    private int[] typeCodes = new int[INITIAL_CAPACITY];
+    private long[] createdAt = new long[INITIAL_CAPACITY];
+    private long[] sizeBytes = new long[INITIAL_CAPACITY];
+    private long[] rowCounts = new long[INITIAL_CAPACITY];
+    private int[] lotCounts = new int[INITIAL_CAPACITY];
+
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+    private final Map<String, Integer> positionsByFileName = new HashMap<>();
+
+    private final Dictionary queries = new Dictionary();
+    private final Dictionary tickets = new Dictionary();
+    private final Dictionary types = new Dictionary();
+    private final List<IntList> positionsByQuery = new ArrayList<>();
+    private final List<IntList> positionsByTicket = new ArrayList<>();
+
+    public void add(PatchRecord record) {
+        remove(record.getFileName());
+        ensureCapacity(size + 1);
+        int position = size++;
+
+        fileNames[position] = record.getFileName();
+        queryCodes[position] = queries.encode(record.getQueryId());
+        ticketCodes[position] = tickets.encode(record.getTicket());
+        typeCodes[position] = types.encode(record.getExecutionType());
+        createdAt[position] = record.getCreatedAt();
+        sizeBytes[position] = record.getSizeBytes();
+        rowCounts[position] = record.getRowCount();
+        lotCounts[position] = record.getLotCount();
+
+        positionsByFileName.put(record.getFileName(), position);
+        postingList(positionsByQuery, queryCodes[position]).add(position);
+        postingList(positionsByTicket, ticketCodes[position]).add(position);
+    }
+
+    /**
+     * Marque une entrée comme supprimée (les positions restent stables pour les listes secondaires).
+     */
+    public boolean remove(String fileName) {
+        Integer position = positionsByFileName.remove(fileName);
+        if (position == null) {
+            return false;
+        }
+        deleted.set(position);
+        deletedCount++;
+        return true;
+    }
+
+    /**
+     * Entrée d'un patch par son nom de fichier, ou null s'il est inconnu ou supprimé.
+     */
+    public PatchRecord get(String fileName) {
+        Integer position = positionsByFileName.get(fileName);
+        return position != null ? toRecord(position) : null;
+    }
+
+    public int liveCount() {
+        return size - deletedCount;
+    }
+
+    /**
+     * Entrées supprimées ou remplacées dont la position n'est pas encore récupérée.
+     */
+    public int deletedCount() {
+        return deletedCount;
+    }
+
+    /**
+     * Entrées vivantes dans l'ordre d'enregistrement : de quoi reconstruire un index compact.
+     */
+    public List<PatchRecord> liveRecords() {
+        List<PatchRecord> records = new ArrayList<>(liveCount());
+        for (int position = deleted.nextClearBit(0); position < size; position = deleted.nextClearBit(position + 1)) {
+            records.add(toRecord(position));
+        }
+        return records;
+    }
+
+    /**
+     * Recherche paginée, du plus récent au plus ancien (critères null = ignorés).
+     */
+    public PatchHistoryPage search(String queryId, String ticket, String executionType,
+                                   Long fromMillis, Long toMillis, int page, int pageSize) {
+        int queryCode = queryId != null ? queries.lookup(queryId) : NO_VALUE;
+        int ticketCode = ticket != null ? tickets.lookup(ticket) : NO_VALUE;
+        int typeCode = executionType != null ? types.lookup(executionType) : NO_VALUE;
+
+        PatchHistoryPage result = new PatchHistoryPage();
+        result.setPage(page);
+        result.setSize(pageSize);
+        result.setItems(new ArrayList<>());
+
+        // Valeur jamais enregistrée : aucun résultat possible
+        if ((queryId != null && queryCode == NO_VALUE) || (ticket != null && ticketCode == NO_VALUE)
+                || (executionType != null && typeCode == NO_VALUE)) {
+            return result;
+        }
+
+        IntList candidates = smallestPostingList(queryCode, ticketCode);
+        int candidateCount = candidates != null ? candidates.size : size;
+        long skip = (long) page * pageSize;
+        long total = 0;
+        boolean unfiltered = candidates == null && typeCode == NO_VALUE && fromMillis == null && toMillis == null;
+
+        for (int i = candidateCount - 1; i >= 0; i--) {
+            int position = candidates != null ? candidates.values[i] : i;
+            if (deleted.get(position)
+                    || (queryCode != NO_VALUE && queryCodes[position] != queryCode)
+                    || (ticketCode != NO_VALUE && ticketCodes[position] != ticketCode)
+                    || (typeCode != NO_VALUE && typeCodes[position] != typeCode)
+                    || (fromMillis != null && createdAt[position] < fromMillis)
+                    || (toMillis != null && createdAt[position] >= toMillis)) {
+                continue;
+            }
+            if (total >= skip && result.getItems().size() < pageSize) {
+                result.getItems().add(toRecord(position));
+            }
+            total++;
+            // Sans critère, le total est connu : inutile de parcourir la suite une fois la page remplie
+            if (unfiltered && result.getItems().size() == pageSize) {
+                break;
+            }
+        }
+
+        result.setTotal(unfiltered ? liveCount() : total);
+        return result;
+    }
+
+    private IntList smallestPostingList(int queryCode, int ticketCode) {
+        IntList byQuery = queryCode != NO_VALUE ? positionsByQuery.get(queryCode) : null;
+        IntList byTicket = ticketCode != NO_VALUE ? positionsByTicket.get(ticketCode) : null;
+        if (byQuery == null) {
+            return byTicket;
+        }
+        if (byTicket == null) {
+            return byQuery;
+        }
+        return byQuery.size <= byTicket.size ? byQuery : byTicket;
+    }
+
+    private PatchRecord toRecord(int position) {
+        PatchRecord record = new PatchRecord();
+        record.setFileName(fileNames[position]);
+        record.setQueryId(queries.decode(queryCodes[position]));
+        record.setTicket(tickets.decode(ticketCodes[position]));
+        record.setExecutionType(types.decode(typeCodes[position]));
+        record.setCreatedAt(createdAt[position]);
+        record.setSizeBytes(sizeBytes[position]);
+        record.setRowCount(rowCounts[position]);
+        record.setLotCount(lotCounts[position]);
+        return record;
+    }
+
+    private IntList postingList(List<IntList> lists, int code) {
+        if (code == NO_VALUE) {
+            return new IntList(); // Valeur absente : pas de liste secondaire
+        }
+        while (lists.size() <= code) {
+            lists.add(new IntList());
+        }
+        return lists.get(code);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= fileNames.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, fileNames.length * 2);
+        fileNames = Arrays.copyOf(fileNames, newCapacity);
+        queryCodes = Arrays.copyOf(queryCodes, newCapacity);
+        ticketCodes = Arrays.copyOf(ticketCodes, newCapacity);
+        typeCodes = Arrays.copyOf(typeCodes, newCapacity);
+        createdAt = Arrays.copyOf(createdAt, newCapacity);
+        sizeBytes = Arrays.copyOf(sizeBytes, newCapacity);
+        rowCounts = Arrays.copyOf(rowCounts, newCapacity);
+        lotCounts = Arrays.copyOf(lotCounts, newCapacity);
+    }
+
+    /**
+     * Dictionnaire chaîne ↔ code entier (null ↔ NO_VALUE).
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return NO_VALUE;
+            }
+            return codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        int lookup(String value) {
+            return codes.getOrDefault(value, NO_VALUE);
+        }
+
+        String decode(int code) {
+            return code == NO_VALUE ? null : values.get(code);
+        }
+    }
+
+    /**
+     * Liste d'int croissante sans boxing.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
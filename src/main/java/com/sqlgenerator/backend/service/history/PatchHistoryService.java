@@ -0,0 +1,263 @@
+package com.sqlgenerator.backend.service.history;
+
+import com.sqlgenerator.backend.model.PatchHistoryPage;
+import com.sqlgenerator.backend.model.PatchRecord;
+import com.sqlgenerator.backend.service.storage.PatchStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Historique des patchs générés : qui a généré quoi, pour quel ticket, avec quel volume.
+ *
+ * Pourquoi un historique séparé du store ?
+ * - Il est indépendant du backend de stockage (répertoire ou segments)
+ * - Il porte des informations absentes des fichiers (nombre de lignes, de lots)
+ * - Il évite de relire les en-têtes écrits par SqlFileBuilder.buildHeader pour retrouver un ticket
+ *
+ * L'index est alimenté au moment de l'écriture (SqlFileBuilder), gardé en mémoire et persisté
+ * dans un journal en ajout seul (history.log) rejoué au démarrage. Au premier démarrage sans
+ * journal, il est initialisé depuis le contenu du store (sans compteurs).
+ *
+ * Le journal et l'index ne font que grossir (lignes D, positions marquées supprimées) : au démarrage,
+ * puis dès que les entrées mortes dépassent compaction-dead-ratio de l'index, le journal est réécrit
+ * avec les seules entrées vivantes et l'index reconstruit. La rétention supprime beaucoup d'un coup ;
+ * sans cela, mémoire et temps de rejeu croîtraient avec tout ce qui a jamais été généré.
+ */
+@Service
+public class PatchHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatchHistoryService.class);
+
+    private static final int MIN_COMPACTION_DELETED = 1024;
+
+    @Value("${patch.history.path:./svn_repo_mock/history.log}")
+    private String historyPath;
+
+    @Value("${patch.history.compaction-dead-ratio:0.5}")
+    private double compactionDeadRatio;
+
+    @Autowired
+    private PatchStore patchStore;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private PatchHistoryIndex index = new PatchHistoryIndex();
+    private Path journalPath;
+    private BufferedWriter journal;
+
+    @PostConstruct
+    public void init() throws IOException {
+        journalPath = Paths.get(historyPath);
+        if (journalPath.getParent() != null) {
+            Files.createDirectories(journalPath.getParent());
+        }
+
+        boolean bootstrap = !Files.exists(journalPath);
+        if (!bootstrap) {
+            replay(journalPath);
+        }
+        journal = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (index.deletedCount() > 0) {
+            compact();
+        }
+        if (bootstrap) {
+            for (PatchRecord record : patchStore.list()) {
+                record(record);
+            }
+        }
+        logger.info("Historique des patchs : {} entrée(s) chargée(s)", index.liveCount());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Enregistre un patch qui vient d'être publié dans le store.
+     *
+     * Une erreur d'écriture du journal est loggée sans faire échouer la génération :
+     * le patch est déjà écrit, seul l'historique persistant est incomplet.
+     */
+    public void record(PatchRecord record) {
+        lock.writeLock().lock();
+        try {
+            index.add(record);
+            journal.write(encode(record));
+            journal.newLine();
+            journal.flush();
+        } catch (IOException e) {
+            logger.error("Impossible de journaliser le patch '{}' dans l'historique : {}",
+                    record.getFileName(), e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retire un patch de l'historique (patch supprimé du store).
+     */
+    public void remove(String fileName) {
+        lock.writeLock().lock();
+        try {
+            if (index.remove(fileName)) {
+                journal.write("D\t" + fileName);
+                journal.newLine();
+                journal.flush();
+                if (isSparse()) {
+                    compact();
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Impossible de journaliser la suppression de '{}' : {}", fileName, e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isSparse() {
+        int deleted = index.deletedCount();
+        return deleted >= MIN_COMPACTION_DELETED && deleted > compactionDeadRatio * (index.liveCount() + deleted);
+    }
+
+    /**
+     * Réécrit le journal avec les seules entrées vivantes (fichier temporaire puis remplacement atomique)
+     * et reconstruit l'index sans les positions mortes. Sous le verrou en écriture, ou à l'initialisation.
+     *
+     * Un échec est loggé : le journal complet reste en place et sera compacté plus tard.
+     */
+    private void compact() {
+        int deleted = index.deletedCount();
+        List<PatchRecord> live = index.liveRecords();
+        Path tmp = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (PatchRecord record : live) {
+                    writer.write(encode(record));
+                    writer.newLine();
+                }
+            }
+            journal.close();
+            try {
+                Files.move(tmp, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                journal = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            logger.error("Compaction de l'historique impossible, journal conservé : {}", e.getMessage(), e);
+            return;
+        }
+
+        PatchHistoryIndex compacted = new PatchHistoryIndex();
+        for (PatchRecord record : live) {
+            compacted.add(record);
+        }
+        index = compacted;
+        logger.info("Historique compacté : {} entrée(s) morte(s) retirée(s), {} entrée(s) vivante(s)",
+                deleted, live.size());
+    }
+
+    /**
+     * Patch de l'historique par son nom de fichier (identifiant), ou null s'il est inconnu ou supprimé.
+     */
+    public PatchRecord find(String fileName) {
+        lock.readLock().lock();
+        try {
+            return index.get(fileName);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public PatchHistoryPage search(String queryId, String ticket, String executionType,
+                                   Long fromMillis, Long toMillis, int page, int size) {
+        lock.readLock().lock();
+        try {
+            return index.search(queryId, ticket, executionType, fromMillis, toMillis, page, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void replay(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("A\t")) {
+                    PatchRecord record = decode(line);
+                    if (record != null) {
+                        index.add(record);
+                    }
+                } else if (line.startsWith("D\t")) {
+                    index.remove(line.substring(2));
+                }
+            }
+        }
+    }
+
+    /**
+     * Format TSV : A, fileName, queryId, ticket, executionType, createdAt, sizeBytes, rowCount, lotCount
+     */
+    private static String encode(PatchRecord record) {
+        return "A\t" + sanitize(record.getFileName()) + "\t" + sanitize(record.getQueryId()) + "\t"
+                + sanitize(record.getTicket()) + "\t" + sanitize(record.getExecutionType()) + "\t"
+                + record.getCreatedAt() + "\t" + record.getSizeBytes() + "\t"
+                + record.getRowCount() + "\t" + record.getLotCount();
+    }
+
+    private static PatchRecord decode(String line) {
+        String[] parts = line.split("\t", -1);
+        if (parts.length < 9) {
+            return null; // Ligne tronquée (arrêt brutal pendant l'écriture)
+        }
+        try {
+            PatchRecord record = new PatchRecord();
+            record.setFileName(parts[1]);
+            record.setQueryId(emptyToNull(parts[2]));
+            record.setTicket(emptyToNull(parts[3]));
+            record.setExecutionType(emptyToNull(parts[4]));
+            record.setCreatedAt(Long.parseLong(parts[5]));
+            record.setSizeBytes(Long.parseLong(parts[6]));
+            record.setRowCount(Long.parseLong(parts[7]));
+            record.setLotCount(Integer.parseInt(parts[8]));
+            return record;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String sanitize(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,68 @@
+package com.sqlgenerator.backend.service.input;
+
+import com.sqlgenerator.backend.model.ParameterDefinition;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CSV positionnel : valeurs séparées par virgule dans l'ordre des paramètres. Lignes vides ignorées.
+ */
+public class CsvMasseRowSource implements MasseRowSource {
+
+    private final BufferedReader reader;
+    private final List<ParameterDefinition> rowParameters;
+    private long rowNumber;
+
+    public CsvMasseRowSource(InputStream stream, List<ParameterDefinition> rowParameters) {
+        this.reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        this.rowParameters = rowParameters;
+    }
+
+    @Override
+    public Map<String, Object> next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                rowNumber++;
+                return parseCsvLine(line);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    /**
+     * Parse une ligne CSV et crée un Map avec les valeurs dans l'ordre des paramètres.
+     * Gère les valeurs NULL/vides.
+     */
+    private Map<String, Object> parseCsvLine(String line) {
+        Map<String, Object> lineParams = new HashMap<>();
+        String[] values = line.split(",");
+
+        for (int i = 0; i < Math.min(values.length, rowParameters.size()); i++) {
+            ParameterDefinition param = rowParameters.get(i);
+            String value = values[i].trim();
+            // Stocker même si vide (sera géré comme NULL dans buildSimpleParameterReplacement)
+            lineParams.put(param.getName(), value.isEmpty() ? null : value);
+        }
+
+        return lineParams;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,96 @@
+package com.sqlgenerator.backend.service.input;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sqlgenerator.backend.model.ParameterDefinition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * NDJSON ou tableau JSON d'objets, lus jeton par jeton avec le JsonParser de Jackson.
+ *
+ * Pourquoi le parser en flux et pas ObjectMapper ?
+ * readTree / readValue construisent tout le document en mémoire. Ici aucun arbre n'est construit :
+ * chaque objet est converti directement en Map des seuls champs correspondant à un paramètre,
+ * les autres champs (et leurs sous-objets) sont sautés.
+ *
+ * Les valeurs scalaires sont converties en texte (nombre, booléen) ; null reste null.
+ */
+public class JsonMasseRowSource implements MasseRowSource {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private final Set<String> parameterNames = new HashSet<>();
+    private boolean started;
+    private boolean inArray;
+    private long rowNumber;
+
+    public JsonMasseRowSource(InputStream stream, List<ParameterDefinition> rowParameters) throws IOException {
+        this.parser = JSON_FACTORY.createParser(stream);
+        for (ParameterDefinition param : rowParameters) {
+            parameterNames.add(param.getName());
+        }
+    }
+
+    @Override
+    public Map<String, Object> next() throws IOException {
+        try {
+            JsonToken token = parser.nextToken();
+            if (!started) {
+                started = true;
+                if (token == JsonToken.START_ARRAY) {
+                    inArray = true;
+                    token = parser.nextToken();
+                }
+            }
+            if (token == null || (inArray && token == JsonToken.END_ARRAY)) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Ligne " + (rowNumber + 1) + " : objet JSON attendu, trouvé " + token);
+            }
+            rowNumber++;
+            return readObject();
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("JSON invalide (ligne " + e.getLocation().getLineNr()
+                    + ", colonne " + e.getLocation().getColumnNr() + ") : " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private Map<String, Object> readObject() throws IOException {
+        Map<String, Object> row = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (!parameterNames.contains(field)) {
+                parser.skipChildren();
+                continue;
+            }
+            if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Ligne " + rowNumber + " : valeur imbriquée non supportée pour '"
+                        + field + "'");
+            }
+            row.put(field, value == JsonToken.VALUE_NULL ? null : parser.getText());
+        }
+        return row;
+    }
+
+    @Override
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,31 @@
+package com.sqlgenerator.backend.service.input;
+
+import java.util.Locale;
+
+/**
+ * Format du fichier d'entrée du mode masse.
+ *
+ * - CSV  : une ligne par requête, valeurs positionnelles séparées par virgule (format historique)
+ * - JSON : NDJSON (un objet par ligne) ou tableau JSON d'objets, valeurs associées par nom de paramètre
+ */
+public enum MasseFormat {
+    CSV,
+    JSON;
+
+    /**
+     * Déduit le format du type de contenu (application/x-ndjson, application/json...)
+     * ou, à défaut, de l'extension du fichier (.ndjson, .jsonl, .json). CSV sinon.
+     */
+    public static MasseFormat detect(String contentType, String fileName) {
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json")) {
+            return JSON;
+        }
+        if (fileName != null) {
+            String lower = fileName.toLowerCase(Locale.ROOT);
+            if (lower.endsWith(".json") || lower.endsWith(".ndjson") || lower.endsWith(".jsonl")) {
+                return JSON;
+            }
+        }
+        return CSV;
+    }
+}
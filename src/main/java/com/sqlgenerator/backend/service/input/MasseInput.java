@@ -0,0 +1,30 @@
+package com.sqlgenerator.backend.service.input;
+
+import java.io.InputStream;
+
+/**
+ * Fichier d'entrée du mode masse, transmis sans être lu : le flux est consommé ligne à ligne
+ * pendant le rendu (paramètre "masseFile").
+ *
+ * Pourquoi ne pas le lire dans le contrôleur ?
+ * Un export de plusieurs millions de lignes chargé en List<String> occupe des centaines de Mo
+ * avant même la génération. Ici seule la ligne en cours est en mémoire.
+ */
+public final class MasseInput {
+
+    private final MasseFormat format;
+    private final InputStream stream;
+
+    public MasseInput(MasseFormat format, InputStream stream) {
+        this.format = format;
+        this.stream = stream;
+    }
+
+    public MasseFormat getFormat() {
+        return format;
+    }
+
+    public InputStream getStream() {
+        return stream;
+    }
+}
@@ -0,0 +1,40 @@
+package com.sqlgenerator.backend.service.input;
+
+import com.sqlgenerator.backend.model.ParameterDefinition;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lecture en flux des lignes du mode masse : une ligne = les valeurs des paramètres d'une requête.
+ *
+ * Une valeur absente ou vide est null (rendue NULL, ou complétée par les paramètres globaux comme le ticket).
+ */
+public interface MasseRowSource extends Closeable {
+
+    /**
+     * Ligne suivante (nom du paramètre → valeur), ou null en fin de fichier.
+     *
+     * @throws IllegalArgumentException Si la ligne est mal formée
+     */
+    Map<String, Object> next() throws IOException;
+
+    /**
+     * Numéro (1..n) de la dernière ligne retournée, pour les messages d'erreur.
+     */
+    long getRowNumber();
+
+    /**
+     * Ouvre la source adaptée au format.
+     *
+     * @param rowParameters Paramètres alimentés par le fichier (non-fichier), dans l'ordre des métadonnées
+     */
+    static MasseRowSource open(MasseInput input, List<ParameterDefinition> rowParameters) throws IOException {
+        if (input.getFormat() == MasseFormat.JSON) {
+            return new JsonMasseRowSource(input.getStream(), rowParameters);
+        }
+        return new CsvMasseRowSource(input.getStream(), rowParameters);
+    }
+}
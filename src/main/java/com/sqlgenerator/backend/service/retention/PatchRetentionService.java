@@ -0,0 +1,347 @@
+package com.sqlgenerator.backend.service.retention;
+
+import com.sqlgenerator.backend.model.PatchRecord;
+import com.sqlgenerator.backend.service.delta.PatchValuesStore;
+import com.sqlgenerator.backend.service.history.PatchHistoryService;
+import com.sqlgenerator.backend.service.storage.PatchStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rétention des patchs générés : suppression planifiée selon l'âge, le nombre et la taille, par requête.
+ *
+ * Pourquoi une rétention ?
+ * Rien ne supprimait les patchs : ./svn_repo_mock/ grossit sans fin, et un répertoire de centaines
+ * de milliers de fichiers ralentit les créations et les listings (historique au premier démarrage,
+ * recherche par ticket). Chaque requête garde ici ses patchs récents, dans les limites configurées.
+ *
+ * Politiques (0 = désactivée), patch.retention.max-age-days, max-count et max-bytes, surchargeables
+ * par requête : patch.retention.query.{id}.max-age-days, etc. Pour chaque requête, du plus récent
+ * au plus ancien, un patch est supprimé s'il est trop vieux, au-delà des max-count plus récents, ou
+ * si le cumul des plus récents dépasserait max-bytes (le plus récent est toujours gardé pour la taille).
+ *
+ * Un patch est supprimé avec ses compagnons : parties (_partNNN), script de rollback et ses parties,
+ * entrées d'historique et valeurs conservées pour les deltas. Les compagnons partent d'abord : une passe
+ * interrompue laisse le patch principal, repris à la passe suivante.
+ *
+ * Hors du chemin des requêtes (tâche planifiée) et à débit borné (max-deletes-per-second) pour ne pas
+ * concurrencer les générations sur le disque. Les patchs de moins de GRACE ne sont jamais touchés :
+ * leur rollback ou leurs dernières parties peuvent être en cours de publication. Un groupe dont une sortie
+ * est encore ouverte (PatchStore.pendingFileNames) ne l'est pas non plus, même pour une génération
+ * ralentie par un client lent au-delà de GRACE. Des parties sans
+ * patch principal (génération interrompue par un arrêt brutal) ne sont supprimées qu'après ORPHAN_GRACE,
+ * bien au-delà de la durée d'une génération masse.
+ */
+@Service
+public class PatchRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatchRetentionService.class);
+
+    private static final Duration GRACE = Duration.ofMinutes(5);
+    private static final Duration ORPHAN_GRACE = Duration.ofDays(1);
+
+    /**
+     * {base}.sql, {base}_partNNN.sql, {base}_rollback.sql, {base}_rollback_partNNN.sql → {base}.
+     */
+    private static final Pattern COMPANION = Pattern.compile("^(.*?)(?:_rollback)?(?:_part\\d+)?\\.sql$");
+
+    private static final String POLICY_AGE = "age";
+    private static final String POLICY_COUNT = "count";
+    private static final String POLICY_SIZE = "size";
+    private static final String POLICY_ORPHAN = "orphan";
+
+    @Value("${patch.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${patch.retention.max-age-days:0}")
+    private int defaultMaxAgeDays;
+
+    @Value("${patch.retention.max-count:0}")
+    private int defaultMaxCount;
+
+    @Value("${patch.retention.max-bytes:0}")
+    private long defaultMaxBytes;
+
+    @Value("${patch.retention.max-deletes-per-second:20}")
+    private int maxDeletesPerSecond;
+
+    @Autowired
+    private PatchStore patchStore;
+
+    @Autowired
+    private PatchHistoryService historyService;
+
+    @Autowired
+    private PatchValuesStore valuesStore;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Counter> reclaimedCounters = new HashMap<>();
+    private final Map<String, Counter> deletedCounters = new HashMap<>();
+    private long nextDeleteNanos;
+
+    /**
+     * Une passe de rétention. Les erreurs sont loggées : la passe suivante reprendra.
+     */
+    @Scheduled(fixedDelayString = "${patch.retention.interval-ms:3600000}",
+            initialDelayString = "${patch.retention.initial-delay-ms:300000}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            Map<String, Long> reclaimed = new LinkedHashMap<>();
+            int deleted = 0;
+            Set<String> pending = patchStore.pendingFileNames();
+            for (Expired expired : selectExpired(patchStore.list(), pending, System.currentTimeMillis())) {
+                long bytes = delete(expired.group);
+                deleted++;
+                reclaimed.merge(expired.policy, bytes, Long::sum);
+                deletedCounters.computeIfAbsent(expired.policy, this::deletedCounter).increment();
+                reclaimedCounters.computeIfAbsent(expired.policy, this::reclaimedCounter).increment(bytes);
+            }
+            if (deleted > 0) {
+                logger.info("Rétention : {} patch(s) supprimé(s) en {} ms, octets libérés par politique {}",
+                        deleted, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), reclaimed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Rétention interrompue");
+        } catch (IOException e) {
+            logger.error("Erreur lors de la rétention des patchs : {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Patchs à supprimer, avec la politique qui les expire ; records est le listing complet du store,
+     * pending les noms des générations en cours (dont les groupes sont gardés).
+     */
+    List<Expired> selectExpired(List<PatchRecord> records, Set<String> pending, long now) {
+        long graceLimit = now - GRACE.toMillis();
+        long orphanLimit = now - ORPHAN_GRACE.toMillis();
+        Set<String> pendingBases = new HashSet<>();
+        for (String fileName : pending) {
+            String base = baseName(fileName);
+            if (base != null) {
+                pendingBases.add(base);
+            }
+        }
+        Map<String, Group> groups = new LinkedHashMap<>();
+        for (PatchRecord record : records) {
+            String base = baseName(record.getFileName());
+            if (base == null) {
+                continue;
+            }
+            Group group = groups.computeIfAbsent(base, Group::new);
+            group.files.add(record);
+            group.bytes += record.getSizeBytes();
+            group.newest = Math.max(group.newest, record.getCreatedAt());
+            if (record.getFileName().equals(base + ".sql")) {
+                group.primary = record;
+            }
+        }
+
+        List<Expired> expired = new ArrayList<>();
+        Map<String, List<Group>> byQuery = new HashMap<>();
+        for (Group group : groups.values()) {
+            if (group.primary == null) {
+                // Parties ou rollback d'un patch déjà supprimé (passe interrompue) ou d'une génération avortée
+                if (group.newest < orphanLimit && !pendingBases.contains(group.base)) {
+                    expired.add(new Expired(group, POLICY_ORPHAN));
+                }
+            } else {
+                byQuery.computeIfAbsent(group.primary.getQueryId(), q -> new ArrayList<>()).add(group);
+            }
+        }
+
+        for (Map.Entry<String, List<Group>> entry : byQuery.entrySet()) {
+            Policy policy = policyFor(entry.getKey());
+            if (!policy.isEnabled()) {
+                continue;
+            }
+            List<Group> newestFirst = entry.getValue();
+            newestFirst.sort(Comparator.comparingLong((Group g) -> g.primary.getCreatedAt()).reversed());
+            long ageLimit = policy.maxAgeDays > 0
+                    ? now - Duration.ofDays(policy.maxAgeDays).toMillis() : Long.MIN_VALUE;
+            int keptCount = 0;
+            long keptBytes = 0;
+            for (Group group : newestFirst) {
+                // Un patch trop récent ou en cours de génération n'est jamais supprimé,
+                // mais compte parmi les patchs gardés
+                String reason = group.newest > graceLimit || pendingBases.contains(group.base) ? null
+                        : expiredBy(policy, group, ageLimit, keptCount, keptBytes);
+                if (reason != null) {
+                    expired.add(new Expired(group, reason));
+                } else {
+                    keptCount++;
+                    keptBytes += group.bytes;
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Politique qui expire le groupe, ou null s'il est gardé.
+     */
+    private static String expiredBy(Policy policy, Group group, long ageLimit, int keptCount, long keptBytes) {
+        if (group.primary.getCreatedAt() < ageLimit) {
+            return POLICY_AGE;
+        }
+        if (policy.maxCount > 0 && keptCount >= policy.maxCount) {
+            return POLICY_COUNT;
+        }
+        if (policy.maxBytes > 0 && keptCount > 0 && keptBytes + group.bytes > policy.maxBytes) {
+            return POLICY_SIZE;
+        }
+        return null;
+    }
+
+    /**
+     * Supprime le groupe (compagnons puis patch principal) ; retourne les octets libérés.
+     */
+    private long delete(Group group) throws IOException, InterruptedException {
+        long reclaimed = 0;
+        List<PatchRecord> ordered = new ArrayList<>(group.files);
+        if (group.primary != null) {
+            ordered.remove(group.primary);
+            ordered.add(group.primary);
+        }
+        for (PatchRecord record : ordered) {
+            throttle();
+            if (patchStore.delete(record.getFileName())) {
+                reclaimed += record.getSizeBytes();
+            }
+            historyService.remove(record.getFileName());
+        }
+        valuesStore.delete(group.base + ".sql");
+        logger.debug("Rétention : {} supprimé ({} fichier(s), {} octet(s))", group.base, ordered.size(), reclaimed);
+        return reclaimed;
+    }
+
+    /**
+     * Espace les suppressions d'au moins 1 / max-deletes-per-second (0 = sans limite).
+     */
+    private void throttle() throws InterruptedException {
+        if (maxDeletesPerSecond <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (nextDeleteNanos - now > 0) {
+            TimeUnit.NANOSECONDS.sleep(nextDeleteNanos - now);
+            now = nextDeleteNanos;
+        }
+        nextDeleteNanos = now + TimeUnit.SECONDS.toNanos(1) / maxDeletesPerSecond;
+    }
+
+    private Policy policyFor(String queryId) {
+        String prefix = "patch.retention.query." + queryId + ".";
+        return new Policy(
+                environment.getProperty(prefix + "max-age-days", Integer.class, defaultMaxAgeDays),
+                environment.getProperty(prefix + "max-count", Integer.class, defaultMaxCount),
+                environment.getProperty(prefix + "max-bytes", Long.class, defaultMaxBytes));
+    }
+
+    private Counter deletedCounter(String policy) {
+        return Counter.builder("patch.retention.deleted")
+                .description("Patchs supprimés par la rétention")
+                .tag("policy", policy)
+                .register(meterRegistry);
+    }
+
+    private Counter reclaimedCounter(String policy) {
+        return Counter.builder("patch.retention.reclaimed")
+                .description("Octets libérés par la rétention")
+                .baseUnit("bytes")
+                .tag("policy", policy)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Nom du patch principal d'un fichier (sans .sql), ou null si ce n'est pas un fichier .sql.
+     */
+    static String baseName(String fileName) {
+        Matcher matcher = COMPANION.matcher(fileName);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    private static final class Policy {
+        private final int maxAgeDays;
+        private final int maxCount;
+        private final long maxBytes;
+
+        private Policy(int maxAgeDays, int maxCount, long maxBytes) {
+            this.maxAgeDays = maxAgeDays;
+            this.maxCount = maxCount;
+            this.maxBytes = maxBytes;
+        }
+
+        boolean isEnabled() {
+            return maxAgeDays > 0 || maxCount > 0 || maxBytes > 0;
+        }
+    }
+
+    /**
+     * Un patch et ses compagnons présents dans le store.
+     */
+    static final class Group {
+        private final String base;
+        private final List<PatchRecord> files = new ArrayList<>();
+        private PatchRecord primary;
+        private long bytes;
+        private long newest;
+
+        private Group(String base) {
+            this.base = base;
+        }
+
+        String getBase() {
+            return base;
+        }
+    }
+
+    static final class Expired {
+        private final Group group;
+        private final String policy;
+
+        private Expired(Group group, String policy) {
+            this.group = group;
+            this.policy = policy;
+        }
+
+        Group getGroup() {
+            return group;
+        }
+
+        String getPolicy() {
+            return policy;
+        }
+    }
+}
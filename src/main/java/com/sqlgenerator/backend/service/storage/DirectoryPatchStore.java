@@ -0,0 +1,273 @@
+package com.sqlgenerator.backend.service.storage;
+
+import com.sqlgenerator.backend.model.PatchRecord;
+import com.sqlgenerator.backend.service.PatchHeader;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Store par défaut : un fichier par patch dans le répertoire de sortie (./svn_repo_mock/).
+ *
+ * Le fichier est créé avec CREATE_NEW : si deux générations produisent le même nom,
+ * la seconde prend un suffixe (-1, -2...) au lieu d'écraser la première.
+ *
+ * Pourquoi un fichier temporaire ?
+ * Le patch est écrit sous un nom caché (.{nom}.tmp) et renommé atomiquement au commit() : un patch
+ * à moitié écrit n'est jamais visible (open, list, historique, rétention), et une génération
+ * interrompue ne laisse pas un fichier tronqué qui ressemble à un vrai patch.
+ */
+@Service
+@ConditionalOnProperty(name = "patch.store.type", havingValue = "directory", matchIfMissing = true)
+public class DirectoryPatchStore implements PatchStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryPatchStore.class);
+
+    private static final String SQL_EXTENSION = ".sql";
+    private static final String TEMP_PREFIX = ".";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String TICKET_HEADER_PREFIX = "-- Ticket: ";
+    private static final int HEADER_MAX_LINES = 10;
+
+    @Value("${patch.store.path:./svn_repo_mock/}")
+    private String storePath;
+
+    private Path root;
+    /** Noms réservés dont la sortie est encore ouverte */
+    private final Set<String> pendingNames = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(storePath);
+        Files.createDirectories(root);
+        deleteStaleTempFiles();
+        logger.info("Store de patchs : répertoire {}", root.toAbsolutePath());
+    }
+
+    /**
+     * Fichiers temporaires laissés par un arrêt brutal pendant une génération : jamais publiés.
+     */
+    private void deleteStaleTempFiles() throws IOException {
+        List<Path> stale;
+        try (Stream<Path> files = Files.list(root)) {
+            stale = files.filter(p -> isTempName(p.getFileName().toString())).collect(Collectors.toList());
+        }
+        for (Path path : stale) {
+            Files.deleteIfExists(path);
+        }
+        if (!stale.isEmpty()) {
+            logger.warn("{} génération(s) interrompue(s) : fichier(s) temporaire(s) supprimé(s)", stale.size());
+        }
+    }
+
+    @Override
+    public PatchOutput create(PatchRecord record) throws IOException {
+        Path path = reserveUniquePath(record.getFileName());
+        record.setFileName(path.getFileName().toString());
+        pendingNames.add(record.getFileName());
+        try {
+            return new FileOutput(record, path, tempPath(path));
+        } catch (IOException e) {
+            pendingNames.remove(record.getFileName());
+            Files.deleteIfExists(tempPath(path));
+            throw e;
+        }
+    }
+
+    @Override
+    public Set<String> pendingFileNames() {
+        return new HashSet<>(pendingNames);
+    }
+
+    /**
+     * Réserve un nom libre en ajoutant un suffixe si besoin. La réservation est le fichier temporaire,
+     * créé de manière atomique (CREATE_NEW) : le nom est pris s'il n'existe ni publié ni en cours d'écriture.
+     * Un patch publié entre-temps l'a été par renommage de son temporaire, déjà présent avant le nôtre.
+     */
+    private Path reserveUniquePath(String fileName) throws IOException {
+        String base = fileName.endsWith(SQL_EXTENSION)
+                ? fileName.substring(0, fileName.length() - SQL_EXTENSION.length())
+                : fileName;
+        for (int attempt = 0; ; attempt++) {
+            String candidate = attempt == 0 ? base + SQL_EXTENSION : base + "-" + attempt + SQL_EXTENSION;
+            Path path = root.resolve(candidate);
+            Path temp = tempPath(path);
+            try {
+                Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                // Collision avec une génération en cours : on essaie le suffixe suivant
+                continue;
+            }
+            if (!Files.exists(path)) {
+                return path;
+            }
+            // Collision avec un patch publié
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Path tempPath(Path path) {
+        return path.resolveSibling(TEMP_PREFIX + path.getFileName() + TEMP_SUFFIX);
+    }
+
+    private static boolean isTempName(String fileName) {
+        return fileName.startsWith(TEMP_PREFIX) && fileName.endsWith(SQL_EXTENSION + TEMP_SUFFIX);
+    }
+
+    @Override
+    public Resource open(String fileName) {
+        Path path = resolve(fileName);
+        return path != null && Files.isRegularFile(path) ? new FileSystemResource(path) : null;
+    }
+
+    @Override
+    public boolean delete(String fileName) throws IOException {
+        Path path = resolve(fileName);
+        return path != null && Files.deleteIfExists(path);
+    }
+
+    @Override
+    public List<PatchRecord> list() throws IOException {
+        try (Stream<Path> files = Files.list(root)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SQL_EXTENSION))
+                    .map(this::toRecord)
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparingLong(PatchRecord::getCreatedAt))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Le ticket n'est pas dans le nom de fichier : il n'est lu dans l'en-tête
+     * que si la recherche porte dessus.
+     */
+    @Override
+    public List<PatchRecord> find(String queryId, String ticket, Long fromMillis, Long toMillis)
+            throws IOException {
+        List<PatchRecord> result = new ArrayList<>();
+        for (PatchRecord record : PatchStore.super.find(queryId, null, fromMillis, toMillis)) {
+            if (ticket != null) {
+                record.setTicket(readTicket(root.resolve(record.getFileName())));
+                if (!ticket.equals(record.getTicket())) {
+                    continue;
+                }
+            }
+            result.add(record);
+        }
+        return result;
+    }
+
+    /**
+     * Protège contre les noms contenant des chemins (../) : seuls les fichiers du répertoire sont accessibles,
+     * hors fichiers temporaires des générations en cours.
+     */
+    private Path resolve(String fileName) {
+        if (fileName == null || fileName.isEmpty() || fileName.startsWith(TEMP_PREFIX)) {
+            return null;
+        }
+        Path path = root.resolve(fileName).normalize();
+        return root.equals(path.getParent()) ? path : null;
+    }
+
+    /**
+     * Reconstruit l'enregistrement depuis le nom (PatchHeader.parseFileName) : requête, type et date
+     * de génération. Les fichiers au nom non reconnu sont ignorés.
+     */
+    private PatchRecord toRecord(Path path) {
+        PatchRecord record = PatchHeader.parseFileName(path.getFileName().toString());
+        if (record == null) {
+            return null;
+        }
+        try {
+            record.setSizeBytes(Files.size(path));
+            return record;
+        } catch (IOException e) {
+            // Fichier supprimé entre le listing et la lecture de sa taille
+            return null;
+        }
+    }
+
+    private String readTicket(Path path) {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            for (int i = 0; i < HEADER_MAX_LINES && (line = reader.readLine()) != null; i++) {
+                if (line.startsWith(TICKET_HEADER_PREFIX)) {
+                    return line.substring(TICKET_HEADER_PREFIX.length()).trim();
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Lecture de l'en-tête impossible pour {} : {}", path, e.getMessage());
+        }
+        return null;
+    }
+
+    private final class FileOutput implements PatchOutput {
+
+        private final PatchRecord record;
+        private final Path path;
+        private final Path temp;
+        private final Writer writer;
+        private boolean committed;
+
+        private FileOutput(PatchRecord record, Path path, Path temp) throws IOException {
+            this.record = record;
+            this.path = path;
+            this.temp = temp;
+            this.writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        @Override
+        public Writer writer() {
+            return writer;
+        }
+
+        @Override
+        public PatchRecord commit() throws IOException {
+            writer.close();
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            pendingNames.remove(record.getFileName());
+            record.setSizeBytes(Files.size(path));
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                try {
+                    writer.close();
+                    Files.deleteIfExists(temp);
+                } finally {
+                    pendingNames.remove(record.getFileName());
+                }
+            }
+        }
+    }
+}
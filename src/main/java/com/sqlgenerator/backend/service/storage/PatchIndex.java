@@ -0,0 +1,136 @@
+package com.sqlgenerator.backend.service.storage;
+
+import com.sqlgenerator.backend.model.PatchRecord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Index en mémoire des patchs stockés : par nom, par query, par ticket et par date.
+ *
+ * Pourquoi des index secondaires ?
+ * Avec des centaines de milliers de patchs, parcourir tous les enregistrements pour
+ * retrouver ceux d'un ticket devient coûteux. On part du plus petit ensemble candidat
+ * (ticket ou query) et on ne filtre que celui-ci.
+ *
+ * Non thread-safe : l'appelant protège les accès (verrou lecture/écriture).
+ * Les enregistrements indexés ne doivent plus être modifiés (la date sert de clé de tri).
+ */
+public class PatchIndex {
+
+    private static final Comparator<PatchRecord> BY_TIME =
+            Comparator.comparingLong(PatchRecord::getCreatedAt).thenComparing(PatchRecord::getFileName);
+
+    private final Map<String, PatchRecord> byFileName = new HashMap<>();
+    private final Map<String, Set<String>> byQueryId = new HashMap<>();
+    private final Map<String, Set<String>> byTicket = new HashMap<>();
+    private final NavigableSet<PatchRecord> byTime = new TreeSet<>(BY_TIME);
+
+    public void put(PatchRecord record) {
+        remove(record.getFileName());
+        byFileName.put(record.getFileName(), record);
+        byTime.add(record);
+        addTo(byQueryId, record.getQueryId(), record.getFileName());
+        addTo(byTicket, record.getTicket(), record.getFileName());
+    }
+
+    public PatchRecord remove(String fileName) {
+        PatchRecord record = byFileName.remove(fileName);
+        if (record != null) {
+            byTime.remove(record);
+            removeFrom(byQueryId, record.getQueryId(), fileName);
+            removeFrom(byTicket, record.getTicket(), fileName);
+        }
+        return record;
+    }
+
+    public PatchRecord get(String fileName) {
+        return byFileName.get(fileName);
+    }
+
+    public boolean contains(String fileName) {
+        return byFileName.containsKey(fileName);
+    }
+
+    public int size() {
+        return byFileName.size();
+    }
+
+    /**
+     * Tous les enregistrements, du plus ancien au plus récent.
+     */
+    public List<PatchRecord> all() {
+        return new ArrayList<>(byTime);
+    }
+
+    /**
+     * Recherche multi-critères (null = critère ignoré), résultat trié par date croissante.
+     */
+    public List<PatchRecord> find(String queryId, String ticket, Long fromMillis, Long toMillis) {
+        Set<String> candidates = smallestCandidateSet(queryId, ticket);
+        Iterable<PatchRecord> records = candidates == null
+                ? byTime
+                : () -> candidates.stream().map(byFileName::get).iterator();
+
+        List<PatchRecord> result = new ArrayList<>();
+        for (PatchRecord record : records) {
+            if (queryId != null && !queryId.equals(record.getQueryId())) {
+                continue;
+            }
+            if (ticket != null && !ticket.equals(record.getTicket())) {
+                continue;
+            }
+            if (fromMillis != null && record.getCreatedAt() < fromMillis) {
+                continue;
+            }
+            if (toMillis != null && record.getCreatedAt() >= toMillis) {
+                continue;
+            }
+            result.add(record);
+        }
+        // Les ensembles secondaires sont en ordre d'insertion : on retrie par date
+        if (candidates != null) {
+            result.sort(BY_TIME);
+        }
+        return result;
+    }
+
+    private Set<String> smallestCandidateSet(String queryId, String ticket) {
+        Set<String> forQuery = queryId != null ? byQueryId.getOrDefault(queryId, Collections.emptySet()) : null;
+        Set<String> forTicket = ticket != null ? byTicket.getOrDefault(ticket, Collections.emptySet()) : null;
+        if (forQuery == null) {
+            return forTicket;
+        }
+        if (forTicket == null) {
+            return forQuery;
+        }
+        return forQuery.size() <= forTicket.size() ? forQuery : forTicket;
+    }
+
+    private static void addTo(Map<String, Set<String>> map, String key, String fileName) {
+        if (key != null) {
+            map.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(fileName);
+        }
+    }
+
+    private static void removeFrom(Map<String, Set<String>> map, String key, String fileName) {
+        if (key == null) {
+            return;
+        }
+        Set<String> set = map.get(key);
+        if (set != null) {
+            set.remove(fileName);
+            if (set.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.sqlgenerator.backend.service.storage;
+
+import com.sqlgenerator.backend.model.PatchRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Sortie d'écriture d'un patch en cours de génération.
+ *
+ * Usage :
+ * <pre>
+ * try (PatchOutput output = store.create(record)) {
+ *     output.writer().write(...);
+ *     record = output.commit();
+ * }
+ * </pre>
+ * Fermer la sortie sans commit() abandonne le patch (rien n'est publié).
+ */
+public interface PatchOutput extends Closeable {
+
+    Writer writer();
+
+    /**
+     * Publie le patch et retourne son enregistrement définitif (nom unique, taille).
+     */
+    PatchRecord commit() throws IOException;
+}
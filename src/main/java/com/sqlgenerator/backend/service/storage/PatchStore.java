@@ -0,0 +1,65 @@
+package com.sqlgenerator.backend.service.storage;
+
+import com.sqlgenerator.backend.model.PatchRecord;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Stockage des fichiers de patch générés.
+ *
+ * Implémentations disponibles (propriété patch.store.type) :
+ * - directory (défaut) : un fichier par patch dans ./svn_repo_mock/
+ * - segment : fichiers segments en ajout seul + index, pour les gros volumes
+ *
+ * Le nom de fichier fourni dans le PatchRecord est une proposition : create() réserve un nom unique
+ * (suffixe ajouté en cas de collision) et le reporte dans le PatchRecord. Les fichiers compagnons
+ * (rollback, parties) sont nommés d'après ce nom réservé, avant même la publication du patch.
+ */
+public interface PatchStore {
+
+    /**
+     * Ouvre une sortie pour un nouveau patch et réserve son nom définitif (record.getFileName() au retour).
+     * Le contenu n'est visible qu'après commit().
+     */
+    PatchOutput create(PatchRecord record) throws IOException;
+
+    /**
+     * Noms réservés par create() dont la sortie n'est encore ni publiée ni abandonnée (générations en cours).
+     */
+    Set<String> pendingFileNames();
+
+    /**
+     * Ouvre un patch existant en lecture, ou null s'il n'existe pas.
+     */
+    Resource open(String fileName) throws IOException;
+
+    /**
+     * Supprime un patch. Retourne false s'il n'existait pas.
+     */
+    boolean delete(String fileName) throws IOException;
+
+    /**
+     * Liste tous les patchs stockés, du plus ancien au plus récent.
+     */
+    List<PatchRecord> list() throws IOException;
+
+    /**
+     * Recherche par query, ticket et intervalle de dates (critères null = ignorés).
+     *
+     * Implémentation par défaut : parcours complet de list(). Les stores indexés la surchargent.
+     */
+    default List<PatchRecord> find(String queryId, String ticket, Long fromMillis, Long toMillis)
+            throws IOException {
+        return list().stream()
+                .filter(r -> queryId == null || queryId.equals(r.getQueryId()))
+                .filter(r -> ticket == null || Objects.equals(ticket, r.getTicket()))
+                .filter(r -> fromMillis == null || r.getCreatedAt() >= fromMillis)
+                .filter(r -> toMillis == null || r.getCreatedAt() < toMillis)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,766 @@
+package com.sqlgenerator.backend.service.storage;
+
+import com.sqlgenerator.backend.model.PatchRecord;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Store en ajout seul : les patchs sont concaténés dans des fichiers segments, avec un index.
+ *
+ * Pourquoi ce store ?
+ * Avec des centaines de milliers de fichiers dans ./svn_repo_mock/, le simple listing du
+ * répertoire devient lent. Ici le répertoire ne contient que quelques segments de taille bornée.
+ *
+ * Organisation sur disque (patch.store.path/segments/) :
+ * - segment-000001.seg ... : enregistrements [magic][taille méta][taille contenu][méta][contenu]
+ * - index.log : journal en ajout seul (A = ajout avec position, D = suppression)
+ * - spool/ : fichiers temporaires des générations en cours
+ *
+ * Chaque génération écrit d'abord dans un fichier spool (pas d'entrelacement entre générations
+ * concurrentes), puis le commit l'ajoute au segment actif en une copie séquentielle.
+ * La compaction périodique réécrit les segments majoritairement supprimés. La rétention (âge, nombre,
+ * taille) n'est pas faite ici mais par PatchRetentionService, qui supprime aussi historique et valeurs.
+ */
+@Service
+@ConditionalOnProperty(name = "patch.store.type", havingValue = "segment")
+public class SegmentPatchStore implements PatchStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentPatchStore.class);
+
+    private static final int RECORD_MAGIC = 0x50415443; // "PATC"
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{6})\\.seg");
+    private static final String INDEX_FILE = "index.log";
+    private static final String SQL_EXTENSION = ".sql";
+
+    @Value("${patch.store.path:./svn_repo_mock/}")
+    private String storePath;
+
+    @Value("${patch.store.segment.max-bytes:268435456}")
+    private long maxSegmentBytes;
+
+    @Value("${patch.store.segment.fsync:false}")
+    private boolean fsync;
+
+    @Value("${patch.store.segment.compaction-dead-ratio:0.5}")
+    private double compactionDeadRatio;
+
+    private Path segmentDir;
+    private Path spoolDir;
+    private Path indexPath;
+
+    /** Sérialise toutes les écritures disque : ajout au segment, journal, compaction */
+    private final Object appendLock = new Object();
+    /** Protège les structures en mémoire ; les lectures ne bloquent pas pendant les copies disque */
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+
+    private final PatchIndex index = new PatchIndex();
+    private final Map<String, Location> locations = new HashMap<>();
+    /** Noms réservés par create() et pas encore publiés (générations en cours) */
+    private final Set<String> reservedNames = new HashSet<>();
+    private final Map<Integer, SegmentStats> segmentStats = new TreeMap<>();
+
+    private int activeSegmentId;
+    private FileChannel activeChannel;
+    private BufferedWriter indexLog;
+
+    @PostConstruct
+    public void init() throws IOException {
+        segmentDir = Paths.get(storePath, "segments");
+        spoolDir = segmentDir.resolve("spool");
+        indexPath = segmentDir.resolve(INDEX_FILE);
+        Files.createDirectories(spoolDir);
+        cleanSpool();
+
+        List<Integer> segmentIds = listSegmentIds();
+        boolean rebuilt = !Files.exists(indexPath);
+        if (rebuilt) {
+            for (int segmentId : segmentIds) {
+                scanSegment(segmentId, 0);
+            }
+        } else {
+            replayIndexLog();
+        }
+
+        activeSegmentId = segmentIds.isEmpty() ? 1 : segmentIds.get(segmentIds.size() - 1);
+        openActiveSegment();
+        boolean recovered = recoverActiveSegmentTail();
+        indexLog = Files.newBufferedWriter(indexPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (rebuilt || recovered) {
+            // Les patchs retrouvés par parcours des segments ne sont pas dans le journal : sans réécriture,
+            // ils seraient perdus au redémarrage suivant (le parcours ne reprend qu'après la dernière entrée)
+            rewriteIndexLog();
+        }
+
+        logger.info("Store segmenté {} : {} patch(s) dans {} segment(s)",
+                segmentDir.toAbsolutePath(), index.size(), segmentStats.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (indexLog != null) {
+                indexLog.close();
+            }
+            if (activeChannel != null) {
+                activeChannel.close();
+            }
+        }
+    }
+
+    @Override
+    public PatchOutput create(PatchRecord record) throws IOException {
+        synchronized (reservedNames) {
+            record.setFileName(uniqueFileName(record.getFileName()));
+            reservedNames.add(record.getFileName());
+        }
+        Path spool = spoolDir.resolve(UUID.randomUUID() + ".tmp");
+        return new SpoolOutput(record, spool);
+    }
+
+    @Override
+    public Set<String> pendingFileNames() {
+        synchronized (reservedNames) {
+            return new HashSet<>(reservedNames);
+        }
+    }
+
+    @Override
+    public Resource open(String fileName) {
+        indexLock.readLock().lock();
+        try {
+            Location location = locations.get(fileName);
+            return location != null ? new SegmentSliceResource(fileName, location) : null;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(String fileName) throws IOException {
+        synchronized (appendLock) {
+            return deleteLocked(fileName);
+        }
+    }
+
+    @Override
+    public List<PatchRecord> list() {
+        indexLock.readLock().lock();
+        try {
+            return index.all();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<PatchRecord> find(String queryId, String ticket, Long fromMillis, Long toMillis) {
+        indexLock.readLock().lock();
+        try {
+            return index.find(queryId, ticket, fromMillis, toMillis);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Compaction périodique, hors du chemin des requêtes.
+     *
+     * 1. Réécriture des segments dont la part supprimée dépasse compaction-dead-ratio
+     * 2. Réécriture du journal d'index (il ne contient plus que les patchs vivants)
+     */
+    @Scheduled(fixedDelayString = "${patch.store.segment.compaction-interval-ms:3600000}",
+            initialDelayString = "${patch.store.segment.compaction-interval-ms:3600000}")
+    public void compact() {
+        synchronized (appendLock) {
+            try {
+                int rewritten = rewriteSparseSegments();
+                rewriteIndexLog();
+                if (rewritten > 0) {
+                    logger.info("Compaction : {} segment(s) réécrit(s)", rewritten);
+                }
+            } catch (IOException e) {
+                logger.error("Erreur lors de la compaction du store segmenté : {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private int rewriteSparseSegments() throws IOException {
+        List<Integer> candidates = new ArrayList<>();
+        for (Map.Entry<Integer, SegmentStats> entry : segmentStats.entrySet()) {
+            if (entry.getKey() != activeSegmentId && entry.getValue().deadRatio() >= compactionDeadRatio) {
+                candidates.add(entry.getKey());
+            }
+        }
+
+        for (int segmentId : candidates) {
+            List<Location> live = new ArrayList<>();
+            indexLock.readLock().lock();
+            try {
+                for (Location location : locations.values()) {
+                    if (location.segmentId == segmentId) {
+                        live.add(location);
+                    }
+                }
+            } finally {
+                indexLock.readLock().unlock();
+            }
+
+            try (FileChannel source = FileChannel.open(segmentPath(segmentId), StandardOpenOption.READ)) {
+                for (Location location : live) {
+                    Location moved = appendRecord(location.record, source, location.offset, location.length);
+                    // La nouvelle position est journalisée : au rejeu, elle remplace l'ancienne
+                    indexLog.write(addEntry(moved));
+                    indexLog.newLine();
+                    indexLock.writeLock().lock();
+                    try {
+                        locations.put(location.record.getFileName(), moved);
+                    } finally {
+                        indexLock.writeLock().unlock();
+                    }
+                }
+            }
+            // Copies et journal sur disque avant de supprimer l'original : un arrêt brutal entre les deux
+            // laisse au pire deux copies, jamais un index pointant vers un segment disparu
+            indexLog.flush();
+            activeChannel.force(false);
+            segmentStats.remove(segmentId);
+            // Les lectures déjà ouvertes sur ce segment continuent de fonctionner (descripteur ouvert) ;
+            // une Resource obtenue avant la compaction lira la copie (position relue à l'ouverture)
+            Files.deleteIfExists(segmentPath(segmentId));
+        }
+        return candidates.size();
+    }
+
+    /**
+     * Réécrit le journal d'index avec uniquement les patchs vivants, puis le remplace atomiquement.
+     */
+    private void rewriteIndexLog() throws IOException {
+        Path tmp = segmentDir.resolve(INDEX_FILE + ".tmp");
+        indexLock.readLock().lock();
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (PatchRecord record : index.all()) {
+                writer.write(addEntry(locations.get(record.getFileName())));
+                writer.newLine();
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        indexLog.close();
+        Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexLog = Files.newBufferedWriter(indexPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Publie un fichier spool : ajout au segment actif puis journalisation dans l'index.
+     */
+    private PatchRecord publish(PatchRecord record, Path spool) throws IOException {
+        synchronized (appendLock) {
+            try (FileChannel source = FileChannel.open(spool, StandardOpenOption.READ)) {
+                record.setSizeBytes(source.size());
+                Location location = appendRecord(record, source, 0, source.size());
+                indexLog.write(addEntry(location));
+                indexLog.newLine();
+                indexLog.flush();
+                indexLock.writeLock().lock();
+                try {
+                    locations.put(record.getFileName(), location);
+                    index.put(record);
+                } finally {
+                    indexLock.writeLock().unlock();
+                }
+            }
+            release(record.getFileName());
+            return record;
+        }
+    }
+
+    /**
+     * Ajoute un enregistrement (en-tête + contenu copié depuis source) au segment actif.
+     * Doit être appelé sous appendLock.
+     */
+    private Location appendRecord(PatchRecord record, FileChannel source, long sourceOffset, long length)
+            throws IOException {
+        byte[] meta = encodeMeta(record).getBytes(StandardCharsets.UTF_8);
+        long recordBytes = RECORD_HEADER_BYTES + meta.length + length;
+        if (activeChannel.size() > 0 && activeChannel.size() + recordBytes > maxSegmentBytes) {
+            rollSegment();
+        }
+
+        long recordStart = activeChannel.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES + meta.length);
+        header.putInt(RECORD_MAGIC).putInt(meta.length).putLong(length).put(meta).flip();
+        writeFully(activeChannel, header, recordStart);
+
+        long contentOffset = recordStart + RECORD_HEADER_BYTES + meta.length;
+        long copied = 0;
+        while (copied < length) {
+            long n = activeChannel.transferFrom(source.position(sourceOffset + copied),
+                    contentOffset + copied, length - copied);
+            if (n <= 0) {
+                throw new IOException("Copie interrompue vers le segment " + activeSegmentId);
+            }
+            copied += n;
+        }
+        if (fsync) {
+            activeChannel.force(false);
+        }
+
+        SegmentStats stats = segmentStats.computeIfAbsent(activeSegmentId, id -> new SegmentStats());
+        stats.liveBytes += length;
+        stats.end = contentOffset + length;
+        return new Location(record, activeSegmentId, contentOffset, length);
+    }
+
+    private boolean deleteLocked(String fileName) throws IOException {
+        Location location;
+        indexLock.writeLock().lock();
+        try {
+            location = locations.remove(fileName);
+            if (location == null) {
+                return false;
+            }
+            index.remove(fileName);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        SegmentStats stats = segmentStats.get(location.segmentId);
+        if (stats != null) {
+            stats.liveBytes -= location.length;
+            stats.deadBytes += location.length;
+        }
+        indexLog.write("D\t" + fileName);
+        indexLog.newLine();
+        indexLog.flush();
+        return true;
+    }
+
+    /**
+     * Garantit l'unicité du nom : suffixe -1, -2... si le nom est déjà pris ou réservé.
+     * Doit être appelé sous le moniteur de reservedNames.
+     */
+    private String uniqueFileName(String fileName) {
+        String base = fileName.endsWith(SQL_EXTENSION)
+                ? fileName.substring(0, fileName.length() - SQL_EXTENSION.length())
+                : fileName;
+        indexLock.readLock().lock();
+        try {
+            String candidate = base + SQL_EXTENSION;
+            for (int attempt = 1; locations.containsKey(candidate) || reservedNames.contains(candidate); attempt++) {
+                candidate = base + "-" + attempt + SQL_EXTENSION;
+            }
+            return candidate;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    private void release(String fileName) {
+        synchronized (reservedNames) {
+            reservedNames.remove(fileName);
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        activeChannel.close();
+        activeSegmentId++;
+        openActiveSegment();
+        logger.debug("Nouveau segment actif : {}", activeSegmentId);
+    }
+
+    private void openActiveSegment() throws IOException {
+        activeChannel = FileChannel.open(segmentPath(activeSegmentId),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Après un arrêt brutal, le segment actif peut contenir des enregistrements ajoutés
+     * mais non journalisés, ou un dernier enregistrement tronqué : on réindexe les premiers
+     * et on tronque le second. Retourne true si des enregistrements ont été réindexés.
+     */
+    private boolean recoverActiveSegmentTail() throws IOException {
+        SegmentStats stats = segmentStats.get(activeSegmentId);
+        long indexedEnd = stats != null ? stats.end : 0;
+        if (activeChannel.size() <= indexedEnd) {
+            return false;
+        }
+        long validEnd = scanSegment(activeSegmentId, indexedEnd);
+        if (validEnd < activeChannel.size()) {
+            logger.warn("Segment {} tronqué à {} octet(s) (enregistrement incomplet)", activeSegmentId, validEnd);
+            activeChannel.truncate(validEnd);
+        }
+        return validEnd > indexedEnd;
+    }
+
+    /**
+     * Parcourt un segment à partir d'une position et indexe les enregistrements complets.
+     * Retourne la position de fin du dernier enregistrement valide.
+     */
+    private long scanSegment(int segmentId, long from) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segmentId), StandardOpenOption.READ)) {
+            long position = from;
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+            while (position + RECORD_HEADER_BYTES <= channel.size()) {
+                header.clear();
+                readFully(channel, header, position);
+                header.flip();
+                int magic = header.getInt();
+                int metaLength = header.getInt();
+                long contentLength = header.getLong();
+                long contentOffset = position + RECORD_HEADER_BYTES + metaLength;
+                if (magic != RECORD_MAGIC || metaLength < 0 || contentLength < 0
+                        || contentOffset + contentLength > channel.size()) {
+                    break;
+                }
+                ByteBuffer meta = ByteBuffer.allocate(metaLength);
+                readFully(channel, meta, position + RECORD_HEADER_BYTES);
+                PatchRecord record = decodeMeta(new String(meta.array(), StandardCharsets.UTF_8));
+                record.setSizeBytes(contentLength);
+                registerLocation(new Location(record, segmentId, contentOffset, contentLength));
+                position = contentOffset + contentLength;
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Rejoue le journal d'index. Une entrée illisible est ignorée : l'enregistrement qu'elle décrivait,
+     * s'il est en fin de segment actif, est retrouvé par recoverActiveSegmentTail.
+     */
+    private void replayIndexLog() throws IOException {
+        truncateTornIndexLine();
+        try (BufferedReader reader = Files.newBufferedReader(indexPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    replayIndexEntry(line);
+                } catch (RuntimeException e) {
+                    logger.warn("Entrée illisible ignorée dans le journal d'index : {}", line);
+                }
+            }
+        }
+    }
+
+    private void replayIndexEntry(String line) {
+        if (line.startsWith("A\t")) {
+            String[] parts = line.split("\t", 5);
+            if (parts.length < 5) {
+                throw new IllegalArgumentException("Entrée incomplète");
+            }
+            int segmentId = Integer.parseInt(parts[1]);
+            if (!Files.exists(segmentPath(segmentId))) {
+                return;
+            }
+            PatchRecord record = decodeMeta(parts[4]);
+            long length = Long.parseLong(parts[3]);
+            record.setSizeBytes(length);
+            registerLocation(new Location(record, segmentId, Long.parseLong(parts[2]), length));
+        } else if (line.startsWith("D\t")) {
+            Location location = locations.remove(line.substring(2));
+            if (location != null) {
+                index.remove(location.record.getFileName());
+                SegmentStats stats = segmentStats.get(location.segmentId);
+                stats.liveBytes -= location.length;
+                stats.deadBytes += location.length;
+            }
+        }
+    }
+
+    /**
+     * Un arrêt brutal pendant une journalisation peut laisser une dernière ligne sans fin de ligne :
+     * elle est retirée, sinon l'entrée suivante (ouverture en APPEND) lui serait collée et perdue.
+     */
+    private void truncateTornIndexLine() throws IOException {
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = channel.size();
+            long validEnd = end;
+            ByteBuffer last = ByteBuffer.allocate(1);
+            while (validEnd > 0) {
+                last.clear();
+                readFully(channel, last, validEnd - 1);
+                if (last.get(0) == '\n') {
+                    break;
+                }
+                validEnd--;
+            }
+            if (validEnd < end) {
+                logger.warn("Journal d'index tronqué à {} octet(s) (dernière entrée incomplète)", validEnd);
+                channel.truncate(validEnd);
+            }
+        }
+    }
+
+    private void registerLocation(Location location) {
+        Location previous = locations.put(location.record.getFileName(), location);
+        if (previous != null) {
+            // Enregistrement déplacé par une compaction : l'ancienne copie est morte
+            SegmentStats old = segmentStats.get(previous.segmentId);
+            if (old != null) {
+                old.liveBytes -= previous.length;
+                old.deadBytes += previous.length;
+            }
+        }
+        index.put(location.record);
+        SegmentStats stats = segmentStats.computeIfAbsent(location.segmentId, id -> new SegmentStats());
+        stats.liveBytes += location.length;
+        stats.end = Math.max(stats.end, location.offset + location.length);
+    }
+
+    private List<Integer> listSegmentIds() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(segmentDir)) {
+            files.forEach(p -> {
+                Matcher matcher = SEGMENT_NAME.matcher(p.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private void cleanSpool() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private Path segmentPath(int segmentId) {
+        return segmentDir.resolve(String.format("segment-%06d.seg", segmentId));
+    }
+
+    private static String addEntry(Location location) {
+        return "A\t" + location.segmentId + "\t" + location.offset + "\t" + location.length
+                + "\t" + encodeMeta(location.record);
+    }
+
+    /**
+     * Métadonnées au format TSV : fileName, queryId, ticket, executionType, createdAt.
+     */
+    private static String encodeMeta(PatchRecord record) {
+        return sanitize(record.getFileName()) + "\t" + sanitize(record.getQueryId()) + "\t"
+                + sanitize(record.getTicket()) + "\t" + sanitize(record.getExecutionType()) + "\t"
+                + record.getCreatedAt();
+    }
+
+    private static PatchRecord decodeMeta(String meta) {
+        String[] parts = meta.split("\t", -1);
+        PatchRecord record = new PatchRecord();
+        record.setFileName(parts[0]);
+        record.setQueryId(emptyToNull(parts[1]));
+        record.setTicket(emptyToNull(parts[2]));
+        record.setExecutionType(emptyToNull(parts[3]));
+        record.setCreatedAt(Long.parseLong(parts[4]));
+        return record;
+    }
+
+    private static String sanitize(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("Fin de segment inattendue");
+            }
+            position += n;
+        }
+    }
+
+    private static final class Location {
+        private final PatchRecord record;
+        private final int segmentId;
+        private final long offset;
+        private final long length;
+
+        private Location(PatchRecord record, int segmentId, long offset, long length) {
+            this.record = record;
+            this.segmentId = segmentId;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final class SegmentStats {
+        private long liveBytes;
+        private long deadBytes;
+        private long end;
+
+        private double deadRatio() {
+            long total = liveBytes + deadBytes;
+            return total == 0 ? 1.0 : (double) deadBytes / total;
+        }
+    }
+
+    private final class SpoolOutput implements PatchOutput {
+
+        private final PatchRecord record;
+        private final Path spool;
+        private final Writer writer;
+        private boolean committed;
+
+        private SpoolOutput(PatchRecord record, Path spool) throws IOException {
+            this.record = record;
+            this.spool = spool;
+            this.writer = Files.newBufferedWriter(spool, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
+        }
+
+        @Override
+        public Writer writer() {
+            return writer;
+        }
+
+        @Override
+        public PatchRecord commit() throws IOException {
+            writer.close();
+            try {
+                PatchRecord published = publish(record, spool);
+                committed = true;
+                return published;
+            } finally {
+                Files.deleteIfExists(spool);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                writer.close();
+                Files.deleteIfExists(spool);
+                release(record.getFileName());
+            }
+        }
+    }
+
+    /**
+     * Vue en lecture sur la portion d'un segment contenant un patch.
+     * Les lectures sont positionnelles : plusieurs téléchargements peuvent lire le même segment.
+     *
+     * La position est relue dans l'index à chaque getInputStream() : entre open() et la lecture,
+     * une compaction a pu recopier le patch et supprimer son segment d'origine.
+     */
+    private final class SegmentSliceResource extends AbstractResource {
+
+        private final String fileName;
+        private final Location location;
+
+        private SegmentSliceResource(String fileName, Location location) {
+            this.fileName = fileName;
+            this.location = location;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            Location current;
+            FileChannel channel;
+            indexLock.readLock().lock();
+            try {
+                current = locations.get(fileName);
+                if (current == null) {
+                    throw new FileNotFoundException("Patch supprimé : " + fileName);
+                }
+                // Ouvert sous le verrou : la compaction ne supprime un segment qu'après avoir
+                // déplacé ses positions (verrou en écriture), le descripteur reste valable ensuite
+                channel = FileChannel.open(segmentPath(current.segmentId), StandardOpenOption.READ);
+            } finally {
+                indexLock.readLock().unlock();
+            }
+            return new InputStream() {
+                private long position = current.offset;
+                private final long end = current.offset + current.length;
+
+                @Override
+                public int read() throws IOException {
+                    byte[] one = new byte[1];
+                    return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (position >= end) {
+                        return -1;
+                    }
+                    int toRead = (int) Math.min(len, end - position);
+                    int n = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+                    if (n > 0) {
+                        position += n;
+                    }
+                    return n;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    channel.close();
+                }
+            };
+        }
+
+        @Override
+        public long contentLength() {
+            return location.length;
+        }
+
+        @Override
+        public String getFilename() {
+            return fileName;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Patch " + fileName + " (segment " + location.segmentId + ")";
+        }
+    }
+}
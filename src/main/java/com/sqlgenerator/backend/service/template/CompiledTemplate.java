@@ -0,0 +1,382 @@
+package com.sqlgenerator.backend.service.template;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Template SQL compilé une seule fois au chargement : arbre de segments texte / placeholder / bloc.
+ *
+ * Pourquoi compiler ?
+ * Le rendu par String.replace parcourt et recopie tout le SQL une fois par paramètre,
+ * et ce pour chaque ligne en mode masse. Ici le rendu est une seule passe qui concatène
+ * des morceaux déjà découpés : coût proportionnel à la taille du résultat, pas au nombre de paramètres.
+ *
+ * Blocs supportés (évite un fichier SQL par combinaison de filtres optionnels) :
+ * - {{#if param}} ... {{else}} ... {{/if}} : rendu si le paramètre est renseigné (littéral différent de NULL)
+ * - {{#each param}} ... {{this}} ... {{/each}} : répété pour chaque valeur d'une liste (paramètre fichier),
+ *   avec séparateur optionnel : {{#each ids separator=" OR "}}
+ *
+ * Immuable : partagé sans verrou entre les threads de requêtes.
+ */
+public final class CompiledTemplate {
+
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{([^}]+)\\}\\}");
+    private static final Pattern EACH_PATTERN = Pattern.compile("#each\\s+(\\S+)(?:\\s+separator=\"([^\"]*)\")?");
+    private static final String NULL_LITERAL = "NULL";
+    private static final String CURRENT_ITEM = "this";
+
+    private final List<Node> nodes;
+    private final Set<String> placeholderNames;
+    private final int literalLength;
+    private final boolean hasBlocks;
+
+    private CompiledTemplate(List<Node> nodes) {
+        this.nodes = Collections.unmodifiableList(nodes);
+        Set<String> names = new LinkedHashSet<>();
+        int[] length = new int[1];
+        boolean[] blocks = new boolean[1];
+        visit(nodes, node -> {
+            if (node instanceof Placeholder) {
+                String name = ((Placeholder) node).name;
+                if (!CURRENT_ITEM.equals(name)) {
+                    names.add(name);
+                }
+            } else if (node instanceof Text) {
+                length[0] += ((Text) node).text.length();
+            } else {
+                names.add(((Block) node).name);
+                blocks[0] = true;
+            }
+        });
+        this.placeholderNames = Collections.unmodifiableSet(names);
+        this.literalLength = length[0];
+        this.hasBlocks = blocks[0];
+    }
+
+    /**
+     * Découpe le SQL en segments. Les noms de placeholders sont trimés ({{ name }} == {{name}}).
+     *
+     * @throws IllegalArgumentException Si un bloc est mal imbriqué ou non fermé
+     */
+    public static CompiledTemplate compile(String sql) {
+        Deque<Block> open = new ArrayDeque<>();
+        List<Node> root = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(sql);
+        int last = 0;
+        while (matcher.find()) {
+            List<Node> current = open.isEmpty() ? root : open.peek().current();
+            if (matcher.start() > last) {
+                current.add(new Text(sql.substring(last, matcher.start())));
+            }
+            last = matcher.end();
+
+            String tag = matcher.group(1).trim();
+            if (tag.startsWith("#if ")) {
+                Conditional block = new Conditional(tag.substring(4).trim());
+                current.add(block);
+                open.push(block);
+            } else if (tag.startsWith("#each ")) {
+                Matcher each = EACH_PATTERN.matcher(tag);
+                if (!each.matches()) {
+                    throw new IllegalArgumentException("Bloc invalide : {{" + tag + "}}");
+                }
+                Repeat block = new Repeat(each.group(1), each.group(2) != null ? each.group(2) : "");
+                current.add(block);
+                open.push(block);
+            } else if (tag.equals("else")) {
+                if (!(open.peek() instanceof Conditional) || ((Conditional) open.peek()).inElse) {
+                    throw new IllegalArgumentException("{{else}} hors d'un bloc {{#if}}");
+                }
+                ((Conditional) open.peek()).inElse = true;
+            } else if (tag.equals("/if") || tag.equals("/each")) {
+                Block block = open.poll();
+                if (block == null || !tag.substring(1).equals(block.keyword())) {
+                    throw new IllegalArgumentException("{{" + tag + "}} sans bloc ouvrant correspondant");
+                }
+            } else if (tag.startsWith("#") || tag.startsWith("/")) {
+                throw new IllegalArgumentException("Bloc inconnu : {{" + tag + "}}");
+            } else if (tag.equals(CURRENT_ITEM) && open.stream().noneMatch(b -> b instanceof Repeat)) {
+                throw new IllegalArgumentException("{{this}} hors d'un bloc {{#each}}");
+            } else {
+                current.add(new Placeholder(tag));
+            }
+        }
+        if (!open.isEmpty()) {
+            throw new IllegalArgumentException("Bloc {{#" + open.peek().keyword() + " " + open.peek().name
+                    + "}} non fermé");
+        }
+        if (last < sql.length()) {
+            root.add(new Text(sql.substring(last)));
+        }
+        return new CompiledTemplate(root);
+    }
+
+    /**
+     * Noms des paramètres référencés (placeholders et blocs), dans l'ordre d'apparition.
+     */
+    public Set<String> getPlaceholderNames() {
+        return placeholderNames;
+    }
+
+    /**
+     * Nombre d'occurrences de chaque placeholder (un même paramètre peut apparaître plusieurs fois).
+     * Les blocs sont comptés comme s'ils étaient rendus une fois.
+     */
+    public Map<String, Integer> getPlaceholderOccurrences() {
+        Map<String, Integer> occurrences = new LinkedHashMap<>();
+        visit(nodes, node -> {
+            if (node instanceof Placeholder && !CURRENT_ITEM.equals(((Placeholder) node).name)) {
+                occurrences.merge(((Placeholder) node).name, 1, Integer::sum);
+            }
+        });
+        return occurrences;
+    }
+
+    /**
+     * Taille du texte fixe (hors valeurs, blocs compris), utile pour pré-dimensionner les buffers.
+     */
+    public int getLiteralLength() {
+        return literalLength;
+    }
+
+    /**
+     * Contient des blocs {{#if}} / {{#each}} : le texte rendu varie selon les valeurs
+     * (incompatible avec une instruction paramétrée unique : modes bind et FORALL).
+     */
+    public boolean hasBlocks() {
+        return hasBlocks;
+    }
+
+    /**
+     * Rendu en une passe.
+     *
+     * @param values Fournit le texte SQL de chaque placeholder (littéral déjà formaté, "NULL" si absent)
+     */
+    public void renderTo(StringBuilder out, Function<String, String> values) {
+        renderTo(out, values, name -> null);
+    }
+
+    /**
+     * Rendu en une passe avec les listes des blocs {{#each}}.
+     *
+     * @param items Littéraux formatés de chaque valeur d'une liste, ou null (aucune itération)
+     */
+    public void renderTo(StringBuilder out, Function<String, String> values, Function<String, List<String>> items) {
+        renderNodes(nodes, out, values, items, null);
+    }
+
+    public String render(Function<String, String> values) {
+        StringBuilder out = new StringBuilder(literalLength + 16 * nodes.size());
+        renderTo(out, values);
+        return out.toString();
+    }
+
+    /**
+     * Évaluation partielle : remplace une partie des placeholders par leur valeur, une seule fois.
+     *
+     * Utilisé par le lotissement : les paramètres simples sont figés avant de boucler
+     * sur les lots, seul le paramètre fichier reste à remplacer à chaque lot.
+     * Un bloc {{#if}} dont le paramètre est fourni est résolu ici : la branche retenue est inlinée.
+     */
+    public CompiledTemplate bind(Map<String, String> values) {
+        List<Node> bound = new ArrayList<>();
+        bindNodes(nodes, values, bound, false);
+        return new CompiledTemplate(mergeText(bound));
+    }
+
+    private static void renderNodes(List<Node> nodes, StringBuilder out, Function<String, String> values,
+                                    Function<String, List<String>> items, String currentItem) {
+        for (Node node : nodes) {
+            if (node instanceof Text) {
+                out.append(((Text) node).text);
+            } else if (node instanceof Placeholder) {
+                String name = ((Placeholder) node).name;
+                out.append(currentItem != null && CURRENT_ITEM.equals(name) ? currentItem : values.apply(name));
+            } else if (node instanceof Conditional) {
+                Conditional conditional = (Conditional) node;
+                boolean present = isPresent(values.apply(conditional.name));
+                renderNodes(present ? conditional.then : conditional.otherwise, out, values, items, currentItem);
+            } else {
+                Repeat repeat = (Repeat) node;
+                List<String> list = items.apply(repeat.name);
+                if (list == null) {
+                    continue;
+                }
+                for (int i = 0; i < list.size(); i++) {
+                    if (i > 0) {
+                        out.append(repeat.separator);
+                    }
+                    renderNodes(repeat.body, out, values, items, list.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param inRepeat Dans un {{#each}}, {{this}} reste un placeholder
+     */
+    private static void bindNodes(List<Node> nodes, Map<String, String> values, List<Node> out, boolean inRepeat) {
+        for (Node node : nodes) {
+            if (node instanceof Text) {
+                out.add(node);
+            } else if (node instanceof Placeholder) {
+                String name = ((Placeholder) node).name;
+                String text = inRepeat && CURRENT_ITEM.equals(name) ? null : values.get(name);
+                out.add(text != null ? new Text(text) : node);
+            } else if (node instanceof Conditional) {
+                Conditional conditional = (Conditional) node;
+                String value = values.get(conditional.name);
+                if (value != null) {
+                    bindNodes(isPresent(value) ? conditional.then : conditional.otherwise, values, out, inRepeat);
+                } else {
+                    Conditional copy = new Conditional(conditional.name);
+                    bindNodes(conditional.then, values, copy.then, inRepeat);
+                    bindNodes(conditional.otherwise, values, copy.otherwise, inRepeat);
+                    out.add(copy.withMergedText());
+                }
+            } else {
+                Repeat repeat = (Repeat) node;
+                Repeat copy = new Repeat(repeat.name, repeat.separator);
+                bindNodes(repeat.body, values, copy.body, true);
+                out.add(copy.withMergedText());
+            }
+        }
+    }
+
+    /**
+     * Fusionne les textes consécutifs (après évaluation partielle) pour garder un rendu minimal.
+     */
+    private static List<Node> mergeText(List<Node> nodes) {
+        List<Node> merged = new ArrayList<>();
+        StringBuilder pendingText = new StringBuilder();
+        for (Node node : nodes) {
+            if (node instanceof Text) {
+                pendingText.append(((Text) node).text);
+                continue;
+            }
+            if (pendingText.length() > 0) {
+                merged.add(new Text(pendingText.toString()));
+                pendingText.setLength(0);
+            }
+            merged.add(node);
+        }
+        if (pendingText.length() > 0) {
+            merged.add(new Text(pendingText.toString()));
+        }
+        return merged;
+    }
+
+    private static boolean isPresent(String literal) {
+        return literal != null && !NULL_LITERAL.equals(literal);
+    }
+
+    private static void visit(List<Node> nodes, Consumer<Node> visitor) {
+        for (Node node : nodes) {
+            visitor.accept(node);
+            if (node instanceof Conditional) {
+                visit(((Conditional) node).then, visitor);
+                visit(((Conditional) node).otherwise, visitor);
+            } else if (node instanceof Repeat) {
+                visit(((Repeat) node).body, visitor);
+            }
+        }
+    }
+
+    private interface Node {
+    }
+
+    private static final class Text implements Node {
+        private final String text;
+
+        private Text(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Placeholder implements Node {
+        private final String name;
+
+        private Placeholder(String name) {
+            this.name = name;
+        }
+    }
+
+    private abstract static class Block implements Node {
+        final String name;
+
+        Block(String name) {
+            this.name = name;
+        }
+
+        abstract String keyword();
+
+        /**
+         * Liste qui reçoit les segments pendant le parsing.
+         */
+        abstract List<Node> current();
+    }
+
+    private static final class Conditional extends Block {
+        private final List<Node> then = new ArrayList<>();
+        private final List<Node> otherwise = new ArrayList<>();
+        private boolean inElse;
+
+        private Conditional(String name) {
+            super(name);
+        }
+
+        @Override
+        String keyword() {
+            return "if";
+        }
+
+        @Override
+        List<Node> current() {
+            return inElse ? otherwise : then;
+        }
+
+        private Conditional withMergedText() {
+            Conditional merged = new Conditional(name);
+            merged.then.addAll(mergeText(then));
+            merged.otherwise.addAll(mergeText(otherwise));
+            return merged;
+        }
+    }
+
+    private static final class Repeat extends Block {
+        private final String separator;
+        private final List<Node> body = new ArrayList<>();
+
+        private Repeat(String name, String separator) {
+            super(name);
+            this.separator = separator;
+        }
+
+        @Override
+        String keyword() {
+            return "each";
+        }
+
+        @Override
+        List<Node> current() {
+            return body;
+        }
+
+        private Repeat withMergedText() {
+            Repeat merged = new Repeat(name, separator);
+            merged.body.addAll(mergeText(body));
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.sqlgenerator.backend.service.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Traçage des phases d'une génération : un événement JFR (PatchPhaseEvent) et une observation
+ * Micrometer "patch.phase" par phase.
+ *
+ * Pourquoi par phase ?
+ * Sur une requête lente, on ne savait pas si le temps partait dans la lecture de l'upload,
+ * le rendu du SQL ou l'écriture sur disque. Chaque phase porte la requête, les lignes, les lots et les octets.
+ *
+ * L'observation alimente le timer patch.phase (/actuator/metrics, tags phase, queryId, executionType)
+ * et, avec patch.tracing.log-spans=true, un span par phase dans les logs (SpanLogHandler).
+ */
+@Component
+public class GenerationTracer {
+
+    public static final String OBSERVATION_NAME = "patch.phase";
+
+    public static final String PHASE_UPLOAD = "upload";
+    public static final String PHASE_RENDER = "render";
+    public static final String PHASE_WRITE = "write";
+
+    @Autowired(required = false)
+    private ObservationRegistry observationRegistry;
+
+    public Phase start(String phase, String queryId, String executionType) {
+        PatchPhaseEvent event = new PatchPhaseEvent();
+        event.begin();
+        event.phase = phase;
+        event.queryId = queryId;
+        event.executionType = executionType;
+
+        Observation observation = Observation
+                .createNotStarted(OBSERVATION_NAME, observationRegistry != null ? observationRegistry : ObservationRegistry.NOOP)
+                .contextualName(OBSERVATION_NAME + " " + phase)
+                .lowCardinalityKeyValue("phase", phase)
+                .lowCardinalityKeyValue("queryId", queryId)
+                .lowCardinalityKeyValue("executionType", executionType != null ? executionType : "")
+                .start();
+        return new Phase(event, observation);
+    }
+
+    /**
+     * Phase en cours : compteurs à renseigner avant close().
+     */
+    public static final class Phase implements AutoCloseable {
+
+        private final PatchPhaseEvent event;
+        private final Observation observation;
+
+        private Phase(PatchPhaseEvent event, Observation observation) {
+            this.event = event;
+            this.observation = observation;
+        }
+
+        public Phase rows(long rows) {
+            event.rows = rows;
+            return this;
+        }
+
+        public Phase lots(long lots) {
+            event.lots = lots;
+            return this;
+        }
+
+        public Phase bytes(long bytes) {
+            event.bytes = bytes;
+            return this;
+        }
+
+        public Phase ioNanos(long ioNanos) {
+            event.ioTime = ioNanos;
+            return this;
+        }
+
+        public void error(Throwable error) {
+            observation.error(error);
+        }
+
+        @Override
+        public void close() {
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+            observation.highCardinalityKeyValue("rows", Long.toString(event.rows))
+                    .highCardinalityKeyValue("lots", Long.toString(event.lots))
+                    .highCardinalityKeyValue("bytes", Long.toString(event.bytes))
+                    .highCardinalityKeyValue("ioMillis", Long.toString(event.ioTime / 1_000_000));
+            observation.stop();
+        }
+    }
+}
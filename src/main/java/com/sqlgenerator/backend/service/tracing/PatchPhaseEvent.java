@@ -0,0 +1,50 @@
+package com.sqlgenerator.backend.service.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Événement JFR d'une phase de génération (upload, render, write).
+ *
+ * Pourquoi JFR ?
+ * Les événements ne coûtent presque rien hors enregistrement et se lisent dans JDK Mission Control
+ * ou avec `jfr print --events com.sqlgenerator.PatchPhase` : une requête lente s'analyse en production
+ * (jcmd PID JFR.start) sans profiler attaché. La durée de l'événement est celle de la phase.
+ */
+@Name("com.sqlgenerator.PatchPhase")
+@Label("Phase de génération de patch")
+@Category({"SQL Generator", "Patch"})
+@Description("Durée d'une phase (upload, render, write) avec requête, lignes, lots et octets")
+@StackTrace(false)
+class PatchPhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Requête")
+    String queryId;
+
+    @Label("Type d'exécution")
+    String executionType;
+
+    @Label("Lignes")
+    long rows;
+
+    @Label("Lots")
+    long lots;
+
+    @Label("Octets")
+    @DataAmount
+    long bytes;
+
+    @Label("Temps d'écriture")
+    @Description("Part de la phase passée à écrire (store, client en streaming)")
+    @Timespan(Timespan.NANOSECONDS)
+    long ioTime;
+}
@@ -0,0 +1,52 @@
+package com.sqlgenerator.backend.service.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exportateur local des phases : un span par ligne de log (patch.tracing.log-spans=true).
+ *
+ * Pourquoi dans les logs ?
+ * Pas de collecteur de traces sur nos serveurs : la ligne (phase, durée, requête, lignes, lots, octets)
+ * suffit à reconstituer une génération lente. Avec un pont de tracing Micrometer (OpenTelemetry...),
+ * les mêmes observations deviennent de vrais spans sans changer le code instrumenté.
+ */
+@Component
+@ConditionalOnProperty(name = "patch.tracing.log-spans", havingValue = "true")
+public class SpanLogHandler implements ObservationHandler<Observation.Context> {
+
+    private static final Logger logger = LoggerFactory.getLogger("patch.spans");
+
+    private static final String START_KEY = SpanLogHandler.class.getName() + ".start";
+
+    @Override
+    public void onStart(Observation.Context context) {
+        context.put(START_KEY, System.nanoTime());
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        Long start = context.get(START_KEY);
+        long millis = start != null ? (System.nanoTime() - start) / 1_000_000 : -1;
+        String attributes = context.getLowCardinalityKeyValues().stream()
+                .map(keyValue -> keyValue.getKey() + "=" + keyValue.getValue())
+                .collect(Collectors.joining(" "));
+        String counters = context.getHighCardinalityKeyValues().stream()
+                .map(keyValue -> keyValue.getKey() + "=" + keyValue.getValue())
+                .collect(Collectors.joining(" "));
+        logger.info("span {} {} ms {} {}{}", context.getContextualName(), millis, attributes, counters,
+                context.getError() != null ? " erreur=" + context.getError().getMessage() : "");
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return GenerationTracer.OBSERVATION_NAME.equals(context.getName());
+    }
+}
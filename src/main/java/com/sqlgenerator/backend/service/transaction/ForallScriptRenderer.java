@@ -0,0 +1,114 @@
+package com.sqlgenerator.backend.service.transaction;
+
+import com.sqlgenerator.backend.service.template.CompiledTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rendu masse en blocs PL/SQL FORALL (Oracle) : une instruction exécutée pour N lignes à la fois.
+ *
+ * Pourquoi FORALL ?
+ * En mode masse classique, chaque ligne du CSV produit une instruction littérale distincte :
+ * N parsings et N changements de contexte PL/SQL ↔ SQL. Ici les valeurs de chaque paramètre
+ * sont chargées dans une collection et l'instruction est envoyée une fois par groupe,
+ * suivie d'un COMMIT (undo borné à la taille du groupe).
+ *
+ * Sert aussi au mode bind Oracle : l'instruction statique du FORALL est parsée une fois
+ * (curseur partagé) et les COMMIT ne sont écrits qu'en commitMode=commit.
+ *
+ * Les collections sont nommées par position (v_1, v_2...) pour ne pas dépendre de la
+ * validité des noms de paramètres comme identifiants PL/SQL ; le nom figure en commentaire.
+ */
+public class ForallScriptRenderer {
+
+    private final StringBuilder out;
+    private final CompiledTemplate template;
+    private final List<String> parameterNames;
+    private final List<String> collectionTypes;
+    private final Map<String, String> elementReferences = new HashMap<>();
+    private final int interval;
+    private final boolean commit;
+    private final List<StringBuilder> columns = new ArrayList<>();
+    private int rowsInChunk;
+    private long firstRowOfChunk = 1;
+
+    /**
+     * @param template Template dont tous les placeholders restants sont des paramètres de ligne
+     * @param parameterTypes Type de chaque paramètre de ligne (text, number, date)
+     * @param commit COMMIT à la fin de chaque groupe
+     */
+    public ForallScriptRenderer(StringBuilder out, CompiledTemplate template, Map<String, String> parameterTypes,
+                                int interval, boolean commit) {
+        this.out = out;
+        this.template = template;
+        this.interval = interval;
+        this.commit = commit;
+        this.parameterNames = new ArrayList<>(template.getPlaceholderNames());
+        this.collectionTypes = new ArrayList<>();
+        for (int i = 0; i < parameterNames.size(); i++) {
+            String name = parameterNames.get(i);
+            collectionTypes.add("number".equals(parameterTypes.get(name)) ? "NUMBER" : "VARCHAR2(4000)");
+            elementReferences.put(name, "v_" + (i + 1) + "(i)");
+            columns.add(new StringBuilder());
+        }
+    }
+
+    /**
+     * Ajoute une ligne.
+     *
+     * @param literals Littéral SQL déjà formaté (ou NULL) de chaque paramètre de ligne, par nom
+     */
+    public void addRow(Map<String, String> literals) {
+        for (int i = 0; i < parameterNames.size(); i++) {
+            StringBuilder column = columns.get(i);
+            if (rowsInChunk > 0) {
+                column.append(", ");
+            }
+            column.append(literals.get(parameterNames.get(i)));
+        }
+        rowsInChunk++;
+        if (rowsInChunk == interval) {
+            flushChunk();
+        }
+    }
+
+    /**
+     * Le dernier groupe a été écrit : le patch peut être coupé ici (découpage en parties).
+     */
+    public boolean isAtBoundary() {
+        return rowsInChunk == 0;
+    }
+
+    public void finish() {
+        if (rowsInChunk > 0) {
+            flushChunk();
+        }
+    }
+
+    private void flushChunk() {
+        long lastRow = firstRowOfChunk + rowsInChunk - 1;
+        if (firstRowOfChunk > 1) {
+            out.append("\n\n");
+        }
+        out.append("-- Lignes ").append(firstRowOfChunk).append(" à ").append(lastRow).append(" (FORALL)\n");
+        out.append("DECLARE\n");
+        for (int i = 0; i < parameterNames.size(); i++) {
+            String type = "t_" + (i + 1);
+            out.append("  TYPE ").append(type).append(" IS TABLE OF ").append(collectionTypes.get(i))
+               .append("; -- ").append(parameterNames.get(i)).append("\n");
+            out.append("  v_").append(i + 1).append(' ').append(type).append(" := ").append(type)
+               .append('(').append(columns.get(i)).append(");\n");
+            columns.get(i).setLength(0);
+        }
+        out.append("BEGIN\n");
+        out.append("  FORALL i IN 1 .. ").append(rowsInChunk).append("\n    ");
+        template.renderTo(out, elementReferences::get);
+        out.append(commit ? "\n  COMMIT;\nEND;\n/" : "\nEND;\n/");
+
+        firstRowOfChunk = lastRow + 1;
+        rowsInChunk = 0;
+    }
+}
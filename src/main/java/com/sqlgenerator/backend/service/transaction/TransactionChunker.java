@@ -0,0 +1,110 @@
+package com.sqlgenerator.backend.service.transaction;
+
+import com.sqlgenerator.backend.service.dialect.SqlDialect;
+
+/**
+ * Découpe un flux d'instructions (lignes masse ou lots) en groupes transactionnels.
+ *
+ * Pourquoi découper ?
+ * Un patch masse sans commit accumule tout son undo jusqu'à la fin (ou est commité à la main
+ * par le DBA). Un commit toutes les N instructions borne l'undo et les verrous ; un bloc par groupe
+ * évite en plus un aller-retour client/serveur par instruction.
+ *
+ * Utilisation : beginUnit() avant d'écrire une instruction, endUnit() après, finish() à la fin.
+ */
+public class TransactionChunker {
+
+    private final StringBuilder out;
+    private final SqlDialect dialect;
+    private final TransactionOptions options;
+    private final boolean separatorPerUnit;
+    private int unitsInChunk;
+
+    /**
+     * @param separatorPerUnit Séparateur du dialecte (ex: GO) après chaque instruction en mode none
+     *                         (lots) ; dans les autres modes il suit chaque groupe
+     */
+    public TransactionChunker(StringBuilder out, SqlDialect dialect, TransactionOptions options,
+                              boolean separatorPerUnit) {
+        if (options.getMode() == TransactionMode.BLOCK && dialect.openTransactionBlock() == null) {
+            throw new IllegalArgumentException("commitMode block non supporté par le dialecte " + dialect.getName());
+        }
+        if (options.getMode() == TransactionMode.FORALL) {
+            throw new IllegalArgumentException("commitMode forall : rendu dédié (ForallScriptRenderer)");
+        }
+        this.out = out;
+        this.dialect = dialect;
+        this.options = options;
+        this.separatorPerUnit = separatorPerUnit;
+    }
+
+    public void beginUnit() {
+        if (unitsInChunk > 0 || options.getMode() == TransactionMode.NONE) {
+            return;
+        }
+        String opening = options.getMode() == TransactionMode.BLOCK
+                ? dialect.openTransactionBlock()
+                : dialect.beginTransaction();
+        if (opening != null) {
+            out.append(opening).append("\n");
+        }
+    }
+
+    public void endUnit() {
+        if (options.getMode() == TransactionMode.NONE) {
+            if (separatorPerUnit) {
+                appendSeparator();
+            }
+            return;
+        }
+        if (options.getMode() == TransactionMode.BLOCK) {
+            stripScriptDelimiter();
+        }
+        unitsInChunk++;
+        if (unitsInChunk == options.getInterval()) {
+            closeChunk();
+        }
+    }
+
+    /**
+     * Aucun groupe n'est ouvert : le patch peut être coupé ici (découpage en parties).
+     */
+    public boolean isAtBoundary() {
+        return unitsInChunk == 0;
+    }
+
+    /**
+     * Ferme le dernier groupe s'il est incomplet.
+     */
+    public void finish() {
+        if (unitsInChunk > 0) {
+            closeChunk();
+        }
+    }
+
+    private void closeChunk() {
+        out.append("\n");
+        out.append(options.getMode() == TransactionMode.BLOCK
+                ? dialect.closeTransactionBlock()
+                : dialect.commitTransaction());
+        appendSeparator();
+        unitsInChunk = 0;
+    }
+
+    private void appendSeparator() {
+        if (dialect.getBatchSeparator() != null) {
+            out.append("\n").append(dialect.getBatchSeparator());
+        }
+    }
+
+    /**
+     * Un bloc PL/SQL imbriqué dans le bloc du groupe ne doit pas porter le "/" de SQL*Plus :
+     * seul le bloc englobant est exécuté.
+     */
+    private void stripScriptDelimiter() {
+        int length = out.length();
+        if (length >= 2 && out.charAt(length - 1) == '/' && out.charAt(length - 2) == '\n') {
+            out.setLength(length - 2);
+        }
+    }
+}
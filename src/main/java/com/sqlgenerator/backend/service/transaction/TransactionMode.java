@@ -0,0 +1,38 @@
+package com.sqlgenerator.backend.service.transaction;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Stratégie transactionnelle des patchs masse et lotis (paramètre commitMode de la requête).
+ *
+ * - none   : instructions à plat, aucun commit (comportement historique)
+ * - commit : un COMMIT toutes les N instructions / lots
+ * - block  : groupes de N instructions dans un bloc (BEGIN ... COMMIT; END; en PL/SQL)
+ * - forall : Oracle, mode masse uniquement : une instruction FORALL par groupe de N lignes
+ */
+public enum TransactionMode {
+    NONE,
+    COMMIT,
+    BLOCK,
+    FORALL;
+
+    /**
+     * Valeur du paramètre de requête ; absente ou vide = NONE.
+     *
+     * @throws IllegalArgumentException Si la valeur n'est pas reconnue
+     */
+    public static TransactionMode fromParameter(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return NONE;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("commitMode inconnu : " + value + " (valeurs possibles : "
+                    + Arrays.stream(values()).map(m -> m.name().toLowerCase(Locale.ROOT))
+                            .collect(Collectors.joining(", ")) + ")");
+        }
+    }
+}
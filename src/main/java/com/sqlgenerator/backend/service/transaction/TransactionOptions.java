@@ -0,0 +1,35 @@
+package com.sqlgenerator.backend.service.transaction;
+
+/**
+ * Options transactionnelles d'une génération : mode et taille des groupes (intervalle de commit).
+ */
+public final class TransactionOptions {
+
+    private static final TransactionOptions NONE = new TransactionOptions(TransactionMode.NONE, 1);
+
+    private final TransactionMode mode;
+    private final int interval;
+
+    public TransactionOptions(TransactionMode mode, int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("commitInterval doit être strictement positif : " + interval);
+        }
+        this.mode = mode;
+        this.interval = interval;
+    }
+
+    public static TransactionOptions none() {
+        return NONE;
+    }
+
+    public TransactionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Nombre d'instructions (lignes masse ou lots) par groupe.
+     */
+    public int getInterval() {
+        return interval;
+    }
+}
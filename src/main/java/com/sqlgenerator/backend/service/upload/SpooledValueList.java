@@ -0,0 +1,148 @@
+package com.sqlgenerator.backend.service.upload;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Valeurs d'un fichier IN spoolé sur disque (une par ligne, lignes vides ignorées, valeurs trimées),
+ * vues comme une List<String> sans être chargées en mémoire.
+ *
+ * Pourquoi une liste adossée au fichier ?
+ * Le lotissement (LotCombinations, subList) et la validation parcourent les valeurs comme une liste.
+ * Un fichier de plusieurs Go chargé en List<String> ne tient pas en heap : ici seul un index creux
+ * (position d'une ligne sur BLOCK_SIZE) et le bloc en cours de lecture sont en mémoire.
+ * Les lots étant lus dans l'ordre, chaque bloc n'est décodé qu'une fois par parcours.
+ *
+ * L'index est partagé (immuable) ; chaque génération utilise sa propre instance (bloc en cache non partagé).
+ */
+public final class SpooledValueList extends AbstractList<String> implements RandomAccess {
+
+    static final int BLOCK_SIZE = 1024;
+
+    private final Path file;
+    private final long[] blockOffsets;
+    private final int size;
+
+    private int cachedBlock = -1;
+    private final String[] cache = new String[BLOCK_SIZE];
+
+    SpooledValueList(Path file, long[] blockOffsets, int size) {
+        this.file = file;
+        this.blockOffsets = blockOffsets;
+        this.size = size;
+    }
+
+    /**
+     * Parcourt le fichier une fois pour compter les valeurs et noter la position du début de chaque bloc.
+     *
+     * Les fins de ligne \r et \n sont toutes deux des séparateurs : les lignes vides qu'elles créent
+     * sont ignorées, comme à la lecture d'un upload multipart (BufferedReader.readLine + trim).
+     */
+    public static SpooledValueList index(Path file) throws IOException {
+        long[] offsets = new long[64];
+        long count = 0;
+        long position = 0;
+        long lineStart = 0;
+        boolean blank = true;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    if (b == '\n' || b == '\r') {
+                        if (!blank) {
+                            offsets = addOffset(offsets, count, lineStart);
+                            count++;
+                        }
+                        blank = true;
+                        lineStart = position + 1;
+                    } else if ((b & 0xFF) > ' ') {
+                        blank = false;
+                    }
+                    position++;
+                }
+                buffer.clear();
+            }
+        }
+        if (!blank) {
+            offsets = addOffset(offsets, count, lineStart);
+            count++;
+        }
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Fichier " + file.getFileName() + " : trop de valeurs (" + count + ")");
+        }
+        int blocks = (int) ((count + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        return new SpooledValueList(file, Arrays.copyOf(offsets, blocks), (int) count);
+    }
+
+    private static long[] addOffset(long[] offsets, long index, long lineStart) {
+        if (index % BLOCK_SIZE != 0) {
+            return offsets;
+        }
+        int block = (int) (index / BLOCK_SIZE);
+        long[] result = block < offsets.length ? offsets : Arrays.copyOf(offsets, offsets.length * 2);
+        result[block] = lineStart;
+        return result;
+    }
+
+    /**
+     * Nouvelle vue sur le même fichier et le même index (bloc en cache propre).
+     */
+    SpooledValueList copy() {
+        return new SpooledValueList(file, blockOffsets, size);
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " hors de [0, " + size + ")");
+        }
+        int block = index / BLOCK_SIZE;
+        if (block != cachedBlock) {
+            loadBlock(block);
+        }
+        return cache[index % BLOCK_SIZE];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void loadBlock(int block) {
+        int expected = Math.min(BLOCK_SIZE, size - block * BLOCK_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(blockOffsets[block]);
+            InputStream stream = Channels.newInputStream(channel);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+            int loaded = 0;
+            String line;
+            while (loaded < expected && (line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    cache[loaded++] = line;
+                }
+            }
+            if (loaded < expected) {
+                throw new IllegalStateException("Fichier " + file.getFileName() + " modifié depuis son indexation");
+            }
+            cachedBlock = block;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture du fichier " + file.getFileName() + " impossible", e);
+        }
+    }
+}
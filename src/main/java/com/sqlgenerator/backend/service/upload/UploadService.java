@@ -0,0 +1,411 @@
+package com.sqlgenerator.backend.service.upload;
+
+import com.sqlgenerator.backend.model.UploadStatus;
+import com.sqlgenerator.backend.service.input.MasseFormat;
+import com.sqlgenerator.backend.service.input.MasseInput;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Uploads reprenables par morceaux : les gros fichiers (IN ou masse) sont envoyés en plusieurs PUT
+ * ajoutés à un fichier de spool, puis référencés par leur identifiant à la génération.
+ *
+ * Pourquoi ?
+ * Un POST multipart de plusieurs Go échoue en entier à la moindre coupure réseau, et le résolveur
+ * multipart le recopie avant que la génération ne commence. Ici chaque morceau est écrit directement
+ * dans le spool à l'offset attendu ; après une coupure, le client relit l'offset reçu (GET) et reprend.
+ *
+ * Intégrité : SHA-256 optionnel par morceau (le morceau est annulé s'il ne correspond pas) et pour le
+ * fichier complet, calculé au fil des morceaux (pas de relecture du spool à la fin).
+ *
+ * Les sessions sont en mémoire : après un redémarrage, les spools restants sont supprimés et les uploads
+ * inachevés doivent être recommencés. Un upload inactif depuis patch.upload.ttl-minutes est purgé.
+ */
+@Service
+public class UploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadService.class);
+
+    private static final String SPOOL_SUFFIX = ".part";
+
+    @Value("${patch.upload.path:./svn_repo_mock/uploads/}")
+    private String uploadPath;
+
+    @Value("${patch.upload.max-bytes:10737418240}")
+    private long maxBytes;
+
+    @Value("${patch.upload.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    private Path directory;
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Paths.get(uploadPath);
+        Files.createDirectories(directory);
+        int removed = 0;
+        try (DirectoryStream<Path> spools = Files.newDirectoryStream(directory, "*" + SPOOL_SUFFIX)) {
+            for (Path spool : spools) {
+                Files.deleteIfExists(spool);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            logger.info("Uploads : {} spool(s) d'une exécution précédente supprimé(s)", removed);
+        }
+    }
+
+    /**
+     * Ouvre un upload vide.
+     *
+     * @param expectedBytes Taille totale annoncée (null si inconnue), vérifiée à chaque morceau et à la fin
+     * @param sha256 Empreinte attendue du fichier complet (null pour ne vérifier qu'à la demande)
+     */
+    public UploadStatus create(String fileName, Long expectedBytes, String sha256) throws IOException {
+        if (expectedBytes != null && (expectedBytes < 0 || expectedBytes > maxBytes)) {
+            throw new IllegalArgumentException("Taille annoncée invalide : " + expectedBytes
+                    + " (maximum " + maxBytes + " octets)");
+        }
+        String id = UUID.randomUUID().toString();
+        Path spool = directory.resolve(id + SPOOL_SUFFIX);
+        Files.createFile(spool);
+        UploadSession session = new UploadSession(id, fileName, expectedBytes, normalizeSha256(sha256), spool, newDigest());
+        sessions.put(id, session);
+        logger.info("Upload {} ouvert ({}, {} octets annoncés)", id, fileName, expectedBytes);
+        return session.status();
+    }
+
+    /**
+     * État de l'upload, ou null s'il est inconnu (jamais ouvert, supprimé ou expiré).
+     */
+    public UploadStatus status(String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null) {
+            return null;
+        }
+        synchronized (session) {
+            return session.status();
+        }
+    }
+
+    /**
+     * Ajoute un morceau à l'offset donné, lu en flux depuis body.
+     *
+     * Sans sha256, un morceau interrompu est conservé jusqu'au dernier octet reçu (le client reprend
+     * à l'offset renvoyé par status). Avec sha256, le morceau est tout ou rien.
+     *
+     * @throws IllegalStateException Si offset ne correspond pas aux octets déjà reçus, ou si l'upload est terminé
+     * @throws IllegalArgumentException Si l'empreinte du morceau ne correspond pas ou si la taille est dépassée
+     */
+    public UploadStatus append(String uploadId, long offset, InputStream body, String sha256) throws IOException {
+        UploadSession session = requireSession(uploadId);
+        String expectedChunkSha256 = normalizeSha256(sha256);
+
+        // Le verrou n'est pris que pour réserver et libérer la session : la lecture du corps se fait sans lui,
+        // sinon un PUT à moitié ouvert bloquerait le GET de reprise jusqu'au timeout de la socket
+        MessageDigest fileDigestBefore;
+        synchronized (session) {
+            if (session.complete) {
+                throw new IllegalStateException("Upload " + uploadId + " déjà terminé");
+            }
+            if (session.chunkInProgress) {
+                throw new IllegalStateException("Upload " + uploadId + " : un morceau est déjà en cours de réception ("
+                        + session.received + " octet(s) reçu(s))");
+            }
+            if (offset != session.received) {
+                throw new IllegalStateException("Offset " + offset + " inattendu pour l'upload " + uploadId
+                        + " : " + session.received + " octet(s) déjà reçu(s)");
+            }
+            session.chunkInProgress = true;
+            fileDigestBefore = cloneDigest(session.digest);
+        }
+
+        long limit = session.expectedBytes != null ? session.expectedBytes : maxBytes;
+        MessageDigest chunkDigest = newDigest();
+        long written = 0;
+        boolean keep = false;
+
+        try (FileChannel channel = FileChannel.open(session.spool, StandardOpenOption.WRITE)) {
+            channel.position(offset);
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = body.read(buffer)) >= 0) {
+                if (offset + written + read > limit) {
+                    throw new IllegalArgumentException("Upload " + uploadId + " : taille maximale dépassée ("
+                            + limit + " octets)");
+                }
+                channel.write(ByteBuffer.wrap(buffer, 0, read));
+                session.digest.update(buffer, 0, read);
+                chunkDigest.update(buffer, 0, read);
+                written += read;
+                session.received = offset + written;
+            }
+
+            if (expectedChunkSha256 != null && !expectedChunkSha256.equals(hex(chunkDigest))) {
+                throw new IllegalArgumentException("Empreinte SHA-256 du morceau incorrecte (offset " + offset + ")");
+            }
+            keep = true;
+        } catch (IOException e) {
+            // Client coupé en cours de morceau : on garde ce qui est arrivé, sauf morceau à vérifier
+            keep = expectedChunkSha256 == null;
+            throw e;
+        } finally {
+            synchronized (session) {
+                try {
+                    if (!keep && !session.deleted) {
+                        truncate(session, offset, fileDigestBefore);
+                    }
+                } finally {
+                    session.chunkInProgress = false;
+                    session.touch();
+                }
+            }
+        }
+        synchronized (session) {
+            return session.status();
+        }
+    }
+
+    /**
+     * Termine l'upload : taille annoncée atteinte et empreinte(s) SHA-256 vérifiée(s).
+     * Le fichier devient utilisable en génération (paramètre nom.upload=uploadId).
+     */
+    public UploadStatus complete(String uploadId, String sha256) throws IOException {
+        UploadSession session = requireSession(uploadId);
+        String expected = normalizeSha256(sha256);
+
+        synchronized (session) {
+            if (session.chunkInProgress) {
+                throw new IllegalStateException("Upload " + uploadId + " : un morceau est encore en cours de réception");
+            }
+            if (!session.complete) {
+                if (session.expectedBytes != null && session.received != session.expectedBytes) {
+                    throw new IllegalArgumentException("Upload " + uploadId + " incomplet : " + session.received
+                            + " / " + session.expectedBytes + " octets");
+                }
+                String actual = hex(session.digest);
+                for (String declared : new String[]{session.expectedSha256, expected}) {
+                    if (declared != null && !declared.equals(actual)) {
+                        throw new IllegalArgumentException("Empreinte SHA-256 du fichier incorrecte pour l'upload "
+                                + uploadId + " (reçu " + actual + ")");
+                    }
+                }
+                session.sha256 = actual;
+                session.complete = true;
+                logger.info("Upload {} terminé : {} octets, sha256 {}", uploadId, session.received, actual);
+            }
+            session.touch();
+            return session.status();
+        }
+    }
+
+    public boolean delete(String uploadId) throws IOException {
+        UploadSession session = sessions.remove(uploadId);
+        if (session == null) {
+            return false;
+        }
+        synchronized (session) {
+            // Un morceau en cours écrit alors dans un fichier supprimé et ne le recrée pas
+            session.deleted = true;
+            Files.deleteIfExists(session.spool);
+        }
+        return true;
+    }
+
+    /**
+     * Valeurs d'un upload terminé, pour un paramètre fichier IN (indexées au premier usage).
+     *
+     * @throws IllegalArgumentException Si l'upload est inconnu ou pas terminé
+     */
+    public SpooledValueList openValues(String uploadId) throws IOException {
+        UploadSession session = requireCompleted(uploadId);
+        synchronized (session) {
+            if (session.values == null) {
+                long start = System.nanoTime();
+                session.values = SpooledValueList.index(session.spool);
+                logger.info("Upload {} indexé : {} valeur(s) en {} ms", uploadId, session.values.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            session.touch();
+            return session.values.copy();
+        }
+    }
+
+    /**
+     * Fichier masse d'un upload terminé, lu en flux (format déduit du nom donné à l'ouverture).
+     */
+    public MasseInput openMasse(String uploadId) throws IOException {
+        UploadSession session = requireCompleted(uploadId);
+        synchronized (session) {
+            session.touch();
+            return new MasseInput(MasseFormat.detect(null, session.fileName), Files.newInputStream(session.spool));
+        }
+    }
+
+    /**
+     * Flux brut d'un upload terminé (estimation).
+     */
+    public InputStream openStream(String uploadId) throws IOException {
+        UploadSession session = requireCompleted(uploadId);
+        synchronized (session) {
+            session.touch();
+            return Files.newInputStream(session.spool);
+        }
+    }
+
+    /**
+     * Supprime les uploads inactifs depuis plus de patch.upload.ttl-minutes (terminés ou non).
+     */
+    @Scheduled(fixedDelayString = "${patch.upload.cleanup-interval-ms:600000}",
+            initialDelayString = "${patch.upload.cleanup-interval-ms:600000}")
+    public void purgeExpired() {
+        long limit = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(ttlMinutes);
+        int purged = 0;
+        for (UploadSession session : sessions.values()) {
+            if (session.lastActivity < limit && !session.chunkInProgress) {
+                try {
+                    if (delete(session.id)) {
+                        purged++;
+                    }
+                } catch (IOException e) {
+                    logger.warn("Purge de l'upload {} impossible : {}", session.id, e.getMessage());
+                }
+            }
+        }
+        if (purged > 0) {
+            logger.info("Uploads : {} upload(s) expiré(s) supprimé(s)", purged);
+        }
+    }
+
+    private UploadSession requireSession(String uploadId) {
+        UploadSession session = uploadId != null ? sessions.get(uploadId) : null;
+        if (session == null) {
+            throw new IllegalArgumentException("Upload inconnu ou expiré : " + uploadId);
+        }
+        return session;
+    }
+
+    private UploadSession requireCompleted(String uploadId) {
+        UploadSession session = requireSession(uploadId);
+        synchronized (session) {
+            if (!session.complete) {
+                throw new IllegalArgumentException("Upload " + uploadId + " non terminé (POST /api/uploads/"
+                        + uploadId + "/complete)");
+            }
+        }
+        return session;
+    }
+
+    private void truncate(UploadSession session, long offset, MessageDigest digestAtOffset) throws IOException {
+        try (FileChannel channel = FileChannel.open(session.spool, StandardOpenOption.WRITE)) {
+            channel.truncate(offset);
+        }
+        session.received = offset;
+        session.digest = digestAtOffset;
+    }
+
+    private static String normalizeSha256(String sha256) {
+        if (sha256 == null || sha256.isBlank()) {
+            return null;
+        }
+        String value = sha256.trim().toLowerCase(Locale.ROOT);
+        if (!value.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Empreinte SHA-256 invalide (64 caractères hexadécimaux attendus) : " + sha256);
+        }
+        return value;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    private static MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Empreinte SHA-256 non clonable", e);
+        }
+    }
+
+    /**
+     * Empreinte courante sans la réinitialiser (l'empreinte du fichier continue au morceau suivant).
+     */
+    private static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(cloneDigest(digest).digest());
+    }
+
+    /**
+     * État d'un upload ; accès sous le verrou de l'instance, sauf pendant un morceau (chunkInProgress) :
+     * seul le thread qui le reçoit modifie alors digest et received (volatile, lisible par status).
+     */
+    private static final class UploadSession {
+
+        private final String id;
+        private final String fileName;
+        private final Long expectedBytes;
+        private final String expectedSha256;
+        private final Path spool;
+        private MessageDigest digest;
+        private volatile long received;
+        private volatile boolean chunkInProgress;
+        private boolean deleted;
+        private boolean complete;
+        private String sha256;
+        private SpooledValueList values;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        private UploadSession(String id, String fileName, Long expectedBytes, String expectedSha256, Path spool,
+                              MessageDigest digest) {
+            this.id = id;
+            this.fileName = fileName;
+            this.expectedBytes = expectedBytes;
+            this.expectedSha256 = expectedSha256;
+            this.spool = spool;
+            this.digest = digest;
+        }
+
+        private void touch() {
+            lastActivity = System.currentTimeMillis();
+        }
+
+        private UploadStatus status() {
+            UploadStatus status = new UploadStatus();
+            status.setUploadId(id);
+            status.setFileName(fileName);
+            status.setReceivedBytes(received);
+            status.setExpectedBytes(expectedBytes);
+            status.setComplete(complete);
+            status.setSha256(sha256);
+            return status;
+        }
+    }
+}
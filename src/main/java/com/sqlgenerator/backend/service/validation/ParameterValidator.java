@@ -0,0 +1,251 @@
+package com.sqlgenerator.backend.service.validation;
+
+import com.sqlgenerator.backend.model.ParameterDefinition;
+
+import java.math.BigDecimal;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Validateur d'un paramètre, compilé une seule fois au chargement du catalogue.
+ *
+ * Règles implicites selon le type :
+ * - number : nombre décimal (-12, 3.5), repris tel quel dans le SQL ; integer : entier
+ * - date : date réelle au format AAAA-MM-JJ, JJ/MM/AAAA ou JJ/MM/AA (formats reconnus par les dialectes)
+ * - required : valeur non vide
+ *
+ * Contraintes explicites (5e segment de -- @param, séparées par des points-virgules) :
+ * min=0;max=100 (number, integer), minLength=2;maxLength=10, format=dd/MM/yyyy (date), regex=^[A-Z]{3}$
+ * (toujours en dernier : la regex s'étend jusqu'à la fin de la ligne).
+ *
+ * Pourquoi compiler ?
+ * Regex et formats de date sont construits une fois : en mode masse la validation d'une ligne
+ * ne coûte que quelques comparaisons, dans la même passe que le rendu.
+ * Une contrainte mal écrite fait échouer le chargement de la requête, pas la génération.
+ */
+public final class ParameterValidator {
+
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("-?\\d+(\\.\\d+)?");
+    private static final Pattern INTEGER_PATTERN = Pattern.compile("-?\\d+");
+    private static final List<DateTimeFormatter> DEFAULT_DATE_FORMATS = List.of(
+            strict("uuuu-MM-dd"), strict("dd/MM/uuuu"), strict("dd/MM/uu"));
+
+    private final String name;
+    private final boolean required;
+    private final List<Rule> rules;
+
+    /**
+     * Règle élémentaire : message d'erreur, ou null si la valeur est acceptée.
+     */
+    @FunctionalInterface
+    private interface Rule {
+        String check(String value);
+    }
+
+    private ParameterValidator(String name, boolean required, List<Rule> rules) {
+        this.name = name;
+        this.required = required;
+        this.rules = rules;
+    }
+
+    /**
+     * @throws IllegalArgumentException Si une contrainte est inconnue ou mal formée
+     */
+    public static ParameterValidator compile(ParameterDefinition param) {
+        List<Rule> rules = new ArrayList<>();
+        String type = param.getType();
+        String dateFormat = null;
+        BigDecimal min = null;
+        BigDecimal max = null;
+
+        for (String constraint : splitConstraints(param.getConstraints())) {
+            String[] parts = constraint.split("=", 2);
+            if (parts.length != 2 || parts[1].trim().isEmpty()) {
+                throw invalidConstraint(param, constraint, "format attendu cle=valeur");
+            }
+            String key = parts[0].trim();
+            String value = parts[1].trim();
+            switch (key) {
+                case "min":
+                    min = parseBound(param, constraint, value);
+                    break;
+                case "max":
+                    max = parseBound(param, constraint, value);
+                    break;
+                case "minLength": {
+                    int minLength = parseLength(param, constraint, value);
+                    rules.add(v -> v.length() < minLength ? "longueur inférieure à " + minLength : null);
+                    break;
+                }
+                case "maxLength": {
+                    int maxLength = parseLength(param, constraint, value);
+                    rules.add(v -> v.length() > maxLength ? "longueur supérieure à " + maxLength : null);
+                    break;
+                }
+                case "regex": {
+                    Pattern pattern = compilePattern(param, constraint, value);
+                    rules.add(v -> pattern.matcher(v).matches() ? null : "ne respecte pas " + value);
+                    break;
+                }
+                case "format":
+                    dateFormat = value;
+                    break;
+                default:
+                    throw invalidConstraint(param, constraint, "contrainte inconnue");
+            }
+        }
+
+        if ("number".equals(type) || "integer".equals(type)) {
+            boolean integer = "integer".equals(type);
+            Pattern numberPattern = integer ? INTEGER_PATTERN : NUMBER_PATTERN;
+            String expected = integer ? "entier attendu" : "nombre attendu";
+            rules.add(0, v -> numberPattern.matcher(v).matches() ? null : expected);
+            if (min != null || max != null) {
+                BigDecimal lower = min;
+                BigDecimal upper = max;
+                // Après la règle de format : la valeur est un nombre valide
+                rules.add(1, v -> {
+                    BigDecimal number = new BigDecimal(v);
+                    if (lower != null && number.compareTo(lower) < 0) {
+                        return "inférieur au minimum " + lower.toPlainString();
+                    }
+                    if (upper != null && number.compareTo(upper) > 0) {
+                        return "supérieur au maximum " + upper.toPlainString();
+                    }
+                    return null;
+                });
+            }
+        } else if (min != null || max != null) {
+            throw invalidConstraint(param, "min/max", "réservé aux paramètres de type number ou integer");
+        }
+
+        if ("date".equals(type)) {
+            rules.add(0, dateRule(param, dateFormat));
+        } else if (dateFormat != null) {
+            throw invalidConstraint(param, "format=" + dateFormat, "réservé aux paramètres de type date");
+        }
+
+        return new ParameterValidator(param.getName(), param.isRequired(), List.copyOf(rules));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Aucune règle à vérifier : évite tout travail sur les paramètres libres.
+     */
+    public boolean isTrivial() {
+        return !required && rules.isEmpty();
+    }
+
+    /**
+     * Valide une valeur saisie (trimée comme au rendu).
+     *
+     * @return Le message d'erreur, ou null si la valeur est valide.
+     *         Une valeur vide ou "null" n'est refusée que si le paramètre est obligatoire.
+     */
+    public String validate(Object value) {
+        String str = value != null ? value.toString().trim() : "";
+        if (str.isEmpty() || "null".equalsIgnoreCase(str)) {
+            return required ? "valeur obligatoire" : null;
+        }
+        for (Rule rule : rules) {
+            String error = rule.check(str);
+            if (error != null) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    private static Rule dateRule(ParameterDefinition param, String format) {
+        if (format != null) {
+            DateTimeFormatter formatter;
+            try {
+                formatter = strict(format.replace("yyyy", "uuuu").replace("yy", "uu"));
+            } catch (IllegalArgumentException e) {
+                throw invalidConstraint(param, "format=" + format, e.getMessage());
+            }
+            return v -> parses(formatter, v) ? null : "date attendue au format " + format;
+        }
+        return v -> {
+            for (DateTimeFormatter formatter : DEFAULT_DATE_FORMATS) {
+                if (parses(formatter, v)) {
+                    return null;
+                }
+            }
+            return "date attendue (AAAA-MM-JJ, JJ/MM/AAAA ou JJ/MM/AA)";
+        };
+    }
+
+    private static boolean parses(DateTimeFormatter formatter, String value) {
+        try {
+            formatter.parse(value);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static DateTimeFormatter strict(String pattern) {
+        return DateTimeFormatter.ofPattern(pattern).withResolverStyle(ResolverStyle.STRICT);
+    }
+
+    private static List<String> splitConstraints(String constraints) {
+        List<String> result = new ArrayList<>();
+        if (constraints == null || constraints.trim().isEmpty()) {
+            return result;
+        }
+        String remaining = constraints.trim();
+        while (!remaining.isEmpty()) {
+            // Une regex peut contenir des ';' : elle s'étend jusqu'à la fin de la ligne
+            int end = remaining.startsWith("regex=") ? -1 : remaining.indexOf(';');
+            String constraint = end < 0 ? remaining : remaining.substring(0, end);
+            if (!constraint.trim().isEmpty()) {
+                result.add(constraint.trim());
+            }
+            remaining = end < 0 ? "" : remaining.substring(end + 1).trim();
+        }
+        return result;
+    }
+
+    private static BigDecimal parseBound(ParameterDefinition param, String constraint, String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw invalidConstraint(param, constraint, "nombre attendu");
+        }
+    }
+
+    private static int parseLength(ParameterDefinition param, String constraint, String value) {
+        try {
+            int length = Integer.parseInt(value);
+            if (length >= 0) {
+                return length;
+            }
+        } catch (NumberFormatException e) {
+            // message commun ci-dessous
+        }
+        throw invalidConstraint(param, constraint, "entier positif attendu");
+    }
+
+    private static Pattern compilePattern(ParameterDefinition param, String constraint, String value) {
+        try {
+            return Pattern.compile(value);
+        } catch (PatternSyntaxException e) {
+            throw invalidConstraint(param, constraint, "expression régulière invalide");
+        }
+    }
+
+    private static IllegalArgumentException invalidConstraint(ParameterDefinition param, String constraint,
+                                                              String reason) {
+        return new IllegalArgumentException("Contrainte invalide pour le paramètre '" + param.getName()
+                + "' (" + constraint + ") : " + reason);
+    }
+}
@@ -0,0 +1,57 @@
+package com.sqlgenerator.backend.service.validation;
+
+import com.sqlgenerator.backend.service.input.MasseRowSource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Source masse qui valide chaque ligne au moment où elle est lue.
+ *
+ * Pourquoi un décorateur ?
+ * Tous les modes masse (littéral, bind, FORALL) lisent les lignes par next() : la validation
+ * se fait dans la même passe que le rendu, sans relire le fichier ni modifier chaque boucle.
+ * Une valeur absente de la ligne est validée avec sa valeur globale (ex: ticket), comme au rendu.
+ */
+public final class ValidatingRowSource implements MasseRowSource {
+
+    private final MasseRowSource delegate;
+    private final List<ParameterValidator> validators;
+    private final Map<String, Object> globalParams;
+    private final ValidationErrors errors;
+
+    public ValidatingRowSource(MasseRowSource delegate, List<ParameterValidator> validators,
+                               Map<String, Object> globalParams, ValidationErrors errors) {
+        this.delegate = delegate;
+        this.validators = validators;
+        this.globalParams = globalParams;
+        this.errors = errors;
+    }
+
+    @Override
+    public Map<String, Object> next() throws IOException {
+        Map<String, Object> row = delegate.next();
+        if (row == null) {
+            return null;
+        }
+        for (ParameterValidator validator : validators) {
+            Object value = row.get(validator.getName());
+            if (value == null) {
+                value = globalParams.get(validator.getName());
+            }
+            errors.check(validator, value, "Ligne", delegate.getRowNumber());
+        }
+        return row;
+    }
+
+    @Override
+    public long getRowNumber() {
+        return delegate.getRowNumber();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
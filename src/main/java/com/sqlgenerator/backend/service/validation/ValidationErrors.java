@@ -0,0 +1,74 @@
+package com.sqlgenerator.backend.service.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Erreurs de validation d'une génération.
+ *
+ * En FAIL_FAST la première erreur lève immédiatement l'exception ; en COLLECT les erreurs
+ * sont comptées jusqu'à la fin du fichier et seules les premières sont détaillées
+ * (un fichier entièrement faux ne doit pas produire un message de plusieurs Mo).
+ */
+public final class ValidationErrors {
+
+    private static final int MAX_REPORTED = 50;
+
+    private final ValidationMode mode;
+    private final List<String> messages = new ArrayList<>();
+    private long count;
+
+    public ValidationErrors(ValidationMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Valide une valeur ; unit et position situent l'erreur dans le message (ex: "ligne", 12).
+     * Le message n'est construit qu'en cas d'erreur : rien n'est alloué pour une valeur valide.
+     *
+     * @param position 1..n, ou 0 pour une saisie unitaire (pas de position dans le message)
+     * @throws IllegalArgumentException En FAIL_FAST, dès la première valeur invalide
+     */
+    public void check(ParameterValidator validator, Object value, String unit, long position) {
+        String error = validator.validate(value);
+        if (error == null) {
+            return;
+        }
+        String message = (position > 0 ? unit + " " + position + ", " : "")
+                + "paramètre '" + validator.getName() + "' (" + format(value) + ") : " + error;
+        if (mode == ValidationMode.FAIL_FAST) {
+            throw new IllegalArgumentException("Valeur invalide : " + message);
+        }
+        count++;
+        if (messages.size() < MAX_REPORTED) {
+            messages.add(message);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * En COLLECT, à appeler en fin de lecture : lève l'exception si au moins une erreur a été vue.
+     */
+    public void throwIfAny() {
+        if (count == 0) {
+            return;
+        }
+        StringBuilder message = new StringBuilder();
+        message.append(count).append(" valeur(s) invalide(s)");
+        for (String error : messages) {
+            message.append("\n - ").append(error);
+        }
+        if (count > messages.size()) {
+            message.append("\n - ... ").append(count - messages.size()).append(" autre(s)");
+        }
+        throw new IllegalArgumentException(message.toString());
+    }
+
+    private static String format(Object value) {
+        String str = value != null ? value.toString().trim() : "";
+        return str.length() > 40 ? "'" + str.substring(0, 40) + "...'" : "'" + str + "'";
+    }
+}
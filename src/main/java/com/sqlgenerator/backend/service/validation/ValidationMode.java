@@ -0,0 +1,32 @@
+package com.sqlgenerator.backend.service.validation;
+
+/**
+ * Comportement face à une valeur invalide pendant la génération.
+ *
+ * - FAIL_FAST : arrêt à la première erreur (défaut)
+ * - COLLECT : le fichier est lu jusqu'au bout et toutes les erreurs sont remontées ensemble,
+ *   pour corriger le fichier en une fois
+ *
+ * Dans les deux cas aucun patch n'est publié.
+ */
+public enum ValidationMode {
+    FAIL_FAST,
+    COLLECT;
+
+    /**
+     * @param value failFast | collect (insensible à la casse), null ou vide : defaultMode
+     */
+    public static ValidationMode fromParameter(String value, ValidationMode defaultMode) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultMode;
+        }
+        String normalized = value.trim().replace("-", "").replace("_", "");
+        for (ValidationMode mode : values()) {
+            if (mode.name().replace("_", "").equalsIgnoreCase(normalized)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("validationMode inconnu : " + value
+                + " (valeurs possibles : failFast, collect)");
+    }
+}
@@ -0,0 +1,286 @@
+package com.sqlgenerator.backend.load;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de charge de bout en bout : application démarrée sur un port local, catalogue et fichiers
+ * synthétiques (SyntheticWorkload), appels concurrents de POST /api/patch/{id} et /masse.
+ *
+ * Exclu du build par défaut (tag "load") ; lancé par le profil Maven load-test :
+ *   mvn -B test -Pload-test -Dload.templates=300 -Dload.sizes=1000,100000,10000000
+ *
+ * Pourquoi dans le dépôt ?
+ * Les micro-benchmarks ne voient ni l'upload multipart, ni le store, ni le contrôle d'admission.
+ * Ce test rejoue la même charge, hors ligne, sur une seule machine : le rapport
+ * (target/load-test/report-*.csv) se compare d'une version à l'autre.
+ *
+ * Réglages (propriétés système) :
+ * - load.templates : nombre de templates générés (défaut 300)
+ * - load.sizes : lignes des fichiers envoyés, une passe par taille (défaut 1000,100000,1000000)
+ * - load.requests : requêtes par passe (défaut 60)
+ * - load.concurrency : clients simultanés (défaut 8)
+ *
+ * Le catalogue est écrit dans target/test-classes/sql/ : ce répertoire passe avant celui de
+ * l'application sur le classpath, seuls les templates synthétiques sont donc chargés.
+ * Les limites d'admission restent celles de application.properties (surchargeables en -D) :
+ * les 429 sont comptés à part, pas comme des erreurs.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class PatchLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatchLoadTest.class);
+
+    private static final int TEMPLATES = Integer.getInteger("load.templates", 300);
+    private static final int REQUESTS = Integer.getInteger("load.requests", 60);
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 8);
+    private static final long[] SIZES = Arrays.stream(System.getProperty("load.sizes", "1000,100000,1000000").split(","))
+            .map(String::trim).mapToLong(Long::parseLong).toArray();
+
+    private static Path workDirectory;
+    private static Path catalogDirectory;
+    private static List<SyntheticWorkload.Template> templates;
+
+    @LocalServerPort
+    private int port;
+
+    /**
+     * Exécuté avant le démarrage du contexte : le catalogue doit exister quand QueryService s'initialise.
+     */
+    @DynamicPropertySource
+    static void workload(DynamicPropertyRegistry registry) throws IOException, URISyntaxException {
+        Path testClasses = Path.of(PatchLoadTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        workDirectory = testClasses.getParent().resolve("load-test");
+        catalogDirectory = testClasses.resolve("sql");
+        templates = SyntheticWorkload.writeCatalog(catalogDirectory, TEMPLATES);
+
+        Path store = Files.createDirectories(workDirectory.resolve("store"));
+        registry.add("patch.store.path", () -> store.toString() + "/");
+        registry.add("patch.history.path", () -> store.resolve("history.log").toString());
+        registry.add("spring.servlet.multipart.max-file-size", () -> "-1");
+        registry.add("spring.servlet.multipart.max-request-size", () -> "-1");
+        registry.add("spring.servlet.multipart.file-size-threshold", () -> "1MB");
+    }
+
+    @AfterAll
+    static void removeCatalog() throws IOException {
+        if (catalogDirectory != null && Files.isDirectory(catalogDirectory)) {
+            try (Stream<Path> files = Files.list(catalogDirectory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(catalogDirectory);
+        }
+    }
+
+    @Test
+    void loadPatchEndpoints() throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        Path inputs = Files.createDirectories(workDirectory.resolve("inputs"));
+        Path report = workDirectory.resolve("report-" + LocalDateTime.now().toString().replace(':', '-') + ".csv");
+        List<String> lines = new ArrayList<>();
+        lines.add("size,endpoint,requests,ok,rejected,errors,p50_ms,p99_ms,max_ms,req_per_s,mb_per_s,heap_peak_mb,store_mb");
+
+        long errors = 0;
+        for (long size : SIZES) {
+            Path masseFile = SyntheticWorkload.writeMasseFile(inputs, size);
+            Path inFile = SyntheticWorkload.writeInFile(inputs, size);
+            long storeBefore = directorySize(workDirectory.resolve("store"));
+            resetHeapPeak();
+
+            Pass masse = new Pass();
+            Pass unitaire = new Pass();
+            Random random = new Random(size);
+            ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+            List<Future<?>> calls = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < REQUESTS; i++) {
+                SyntheticWorkload.Template template = templates.get(random.nextInt(templates.size()));
+                if (template.kind == SyntheticWorkload.Kind.IN) {
+                    calls.add(clients.submit(() -> unitaire.call(client, unitaireRequest(template, inFile))));
+                } else {
+                    calls.add(clients.submit(() -> masse.call(client, masseRequest(template, masseFile))));
+                }
+            }
+            for (Future<?> call : calls) {
+                call.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            clients.shutdown();
+
+            long heapPeakMb = heapPeak() / (1024 * 1024);
+            long storeMb = (directorySize(workDirectory.resolve("store")) - storeBefore) / (1024 * 1024);
+            lines.add(masse.summary(size, "masse", seconds, heapPeakMb, storeMb));
+            lines.add(unitaire.summary(size, "unitaire", seconds, heapPeakMb, storeMb));
+            errors += masse.errors.get() + unitaire.errors.get();
+        }
+
+        Files.write(report, lines, StandardCharsets.UTF_8);
+        logger.info("Charge terminée, rapport : {}\n{}", report, String.join("\n", lines));
+        assertEquals(0, errors, "Réponses en erreur (hors 429), voir " + report);
+    }
+
+    private HttpRequest masseRequest(SyntheticWorkload.Template template, Path masseFile) {
+        try {
+            return HttpRequest.newBuilder(uri("/api/patch/" + template.id + "/masse?ticket=LOAD"))
+                    .header("Content-Type", "application/x-ndjson")
+                    .POST(HttpRequest.BodyPublishers.ofFile(masseFile))
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Multipart construit à la main (ticket, status, fichier ids) : pas de client HTTP supplémentaire.
+     */
+    private HttpRequest unitaireRequest(SyntheticWorkload.Template template, Path inFile) {
+        String boundary = "load-" + Long.toHexString(System.nanoTime());
+        String fields = part(boundary, "ticket", "LOAD") + part(boundary, "status", "OBSOLETE")
+                + "--" + boundary + "\r\nContent-Disposition: form-data; name=\"ids\"; filename=\"ids.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n";
+        try {
+            return HttpRequest.newBuilder(uri("/api/patch/" + template.id))
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.concat(
+                            HttpRequest.BodyPublishers.ofString(fields),
+                            HttpRequest.BodyPublishers.ofFile(inFile),
+                            HttpRequest.BodyPublishers.ofString("\r\n--" + boundary + "--\r\n")))
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String part(String boundary, String name, String value) {
+        return "--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value + "\r\n";
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    /**
+     * Pic de heap : somme des pics des pools de heap depuis le dernier resetHeapPeak (majorant du pic réel).
+     */
+    private static long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static void resetHeapPeak() {
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    private static long directorySize(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    /**
+     * Mesures d'un endpoint pour une passe : latences (ms), réponses et octets reçus.
+     */
+    private static final class Pass {
+
+        private final List<Double> latencies = new ArrayList<>();
+        private final AtomicLong ok = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        void call(HttpClient client, HttpRequest request) {
+            long start = System.nanoTime();
+            try {
+                HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                long received = 0;
+                try (InputStream body = response.body()) {
+                    byte[] buffer = new byte[64 * 1024];
+                    int read;
+                    while ((read = body.read(buffer)) >= 0) {
+                        received += read;
+                    }
+                }
+                if (response.statusCode() == 200) {
+                    ok.incrementAndGet();
+                    bytes.addAndGet(received);
+                } else if (response.statusCode() == 429) {
+                    rejected.incrementAndGet();
+                } else {
+                    errors.incrementAndGet();
+                }
+            } catch (IOException | InterruptedException e) {
+                errors.incrementAndGet();
+            }
+            synchronized (latencies) {
+                latencies.add((System.nanoTime() - start) / 1e6);
+            }
+        }
+
+        String summary(long size, String endpoint, double seconds, long heapPeakMb, long storeMb) {
+            List<Double> sorted = new ArrayList<>(latencies);
+            sorted.sort(Comparator.naturalOrder());
+            return String.format(Locale.ROOT, "%d,%s,%d,%d,%d,%d,%.1f,%.1f,%.1f,%.2f,%.2f,%d,%d",
+                    size, endpoint, sorted.size(), ok.get(), rejected.get(), errors.get(),
+                    percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    sorted.isEmpty() ? 0.0 : sorted.get(sorted.size() - 1),
+                    ok.get() / seconds, bytes.get() / seconds / (1024 * 1024), heapPeakMb, storeMb);
+        }
+
+        private static double percentile(List<Double> sorted, double p) {
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(p * sorted.size()) - 1));
+        }
+    }
+}
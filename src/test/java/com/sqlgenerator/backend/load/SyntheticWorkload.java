@@ -0,0 +1,119 @@
+package com.sqlgenerator.backend.load;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Générateur de charge synthétique : catalogue de templates SQL et fichiers d'upload.
+ *
+ * Pourquoi synthétique ?
+ * Le test de charge doit tourner hors ligne, sur une seule machine, et donner des résultats
+ * comparables d'une version à l'autre : le catalogue et les fichiers sont déterministes
+ * (mêmes contenus pour mêmes paramètres) et écrits sur disque, jamais gardés en mémoire.
+ *
+ * Trois formes de templates, réparties sur les trois dialectes :
+ * - MASSE : UPDATE à paramètres simples (nombre, texte, date), pour /masse
+ * - IN : DELETE ... IN ({{ids}}) avec @param-file, loti au-delà de la taille de lot du dialecte
+ * - MULTI : deux instructions (INSERT puis UPDATE), pour /masse
+ */
+final class SyntheticWorkload {
+
+    enum Kind { MASSE, IN, MULTI }
+
+    private static final String[] DIALECTS = {"oracle", "postgresql", "sqlserver"};
+
+    /**
+     * Template généré : identifiant et forme (pour choisir l'endpoint et le fichier à envoyer).
+     */
+    static final class Template {
+        final String id;
+        final Kind kind;
+
+        Template(String id, Kind kind) {
+            this.id = id;
+            this.kind = kind;
+        }
+    }
+
+    private SyntheticWorkload() {
+    }
+
+    /**
+     * Écrit count templates load-000.sql, load-001.sql... dans directory.
+     */
+    static List<Template> writeCatalog(Path directory, int count) throws IOException {
+        Files.createDirectories(directory);
+        List<Template> templates = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Kind kind = Kind.values()[i % Kind.values().length];
+            String id = String.format("load-%03d", i);
+            String dialect = DIALECTS[(i / Kind.values().length) % DIALECTS.length];
+            String table = "LOAD_T" + (i % 17);
+
+            StringBuilder sql = new StringBuilder()
+                    .append("-- @id: ").append(id).append("\n")
+                    .append("-- @name: Charge ").append(kind).append(" ").append(i).append("\n")
+                    .append("-- @description: Template synthétique du test de charge\n")
+                    .append("-- @tags: load,").append(kind.name().toLowerCase()).append("\n")
+                    .append("-- @dialect: ").append(dialect).append("\n");
+            if (kind == Kind.IN) {
+                sql.append("-- @param-file: ids|text|Identifiants (1 par ligne)|true\n")
+                        .append("-- @param: status|text|Statut|true\n\n")
+                        .append("DELETE FROM ").append(table)
+                        .append(" WHERE STATUS = {{status}} AND ID IN ({{ids}});\n");
+            } else {
+                sql.append("-- @param: id|number|Identifiant|true\n")
+                        .append("-- @param: name|text|Nom|true|maxLength=64\n")
+                        .append("-- @param: d|date|Date d'effet|false\n\n");
+                if (kind == Kind.MULTI) {
+                    sql.append("INSERT INTO ").append(table).append("_AUDIT (ID, NAME) VALUES ({{id}}, {{name}});\n");
+                }
+                sql.append("UPDATE ").append(table)
+                        .append(" SET NAME = {{name}}, UPDATED_AT = {{d}} WHERE ID = {{id}};\n");
+            }
+            Files.writeString(directory.resolve(id + ".sql"), sql, StandardCharsets.UTF_8);
+            templates.add(new Template(id, kind));
+        }
+        return templates;
+    }
+
+    /**
+     * Fichier NDJSON de lines lignes {"id":..,"name":..,"d":..} (paramètres des templates MASSE et MULTI).
+     */
+    static Path writeMasseFile(Path directory, long lines) throws IOException {
+        Path file = directory.resolve("masse-" + lines + ".ndjson");
+        if (Files.exists(file)) {
+            return file;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (long i = 0; i < lines; i++) {
+                writer.append("{\"id\":").append(Long.toString(i))
+                        .append(",\"name\":\"nom-").append(Long.toString(i % 100_000))
+                        .append("\",\"d\":\"2025-").append(String.format("%02d-%02d", 1 + i % 12, 1 + i % 28))
+                        .append("\"}\n");
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Fichier de lines identifiants, un par ligne (paramètre fichier des templates IN).
+     */
+    static Path writeInFile(Path directory, long lines) throws IOException {
+        Path file = directory.resolve("ids-" + lines + ".txt");
+        if (Files.exists(file)) {
+            return file;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (long i = 0; i < lines; i++) {
+                writer.append("ID").append(Long.toString(i)).append('\n');
+            }
+        }
+        return file;
+    }
+}
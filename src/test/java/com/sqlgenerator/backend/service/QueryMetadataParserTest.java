@@ -6,6 +6,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -184,5 +185,69 @@ class QueryMetadataParserTest {
         assertTrue(param.isRequired());
         assertEquals("Fichier contenant les IDs contrats (1 par ligne)", param.getLabel());
     }
-}
 
+    @Test
+    void testSplitStatements_IgnoresSemicolonsInStringsAndComments() {
+        // Given: Trois instructions, des ';' dans une chaîne, un commentaire et un commentaire final seul
+        String sql = "UPDATE a SET x = 'a;b' WHERE id IN ({{ids}});\n"
+                + "/* étape 2; */ DELETE FROM b WHERE id IN ({{ids}});\n"
+                + "INSERT INTO audit VALUES ({{note}});\n"
+                + "-- fin;";
+
+        // When
+        List<String> statements = parser.splitStatements(sql);
+
+        // Then
+        assertEquals(3, statements.size());
+        assertEquals("UPDATE a SET x = 'a;b' WHERE id IN ({{ids}})", statements.get(0));
+        assertEquals("/* étape 2; */ DELETE FROM b WHERE id IN ({{ids}})", statements.get(1));
+        assertEquals("INSERT INTO audit VALUES ({{note}})", statements.get(2));
+    }
+
+    @Test
+    void testSplitStatements_ProceduralBlockKeptWhole() {
+        // Given: Bloc PL/SQL et bloc PostgreSQL avec des ';' internes
+        // When / Then
+        assertEquals(1, parser.splitStatements("DECLARE\n  n NUMBER;\nBEGIN\n  NULL;\nEND;").size());
+        assertEquals(2, parser.splitStatements("SELECT '$$;' FROM dual; SELECT $q$ a; b $q$;").size());
+        assertTrue(parser.splitStatements("  ").isEmpty());
+    }
+
+    @Test
+    void testSplitStatements_ProceduralBlockAfterStatement() {
+        // Given: Une instruction puis un bloc PL/SQL avec END IF, CASE ... END et un '/' SQL*Plus
+        String sql = "UPDATE a SET end_date = SYSDATE WHERE id IN ({{ids}});\n"
+                + "BEGIN\n  IF 1 = 1 THEN\n    NULL;\n  END IF;\n"
+                + "  UPDATE b SET x = CASE WHEN y > 0 THEN 1 ELSE 0 END;\nEND;\n/\n"
+                + "DELETE FROM c WHERE id IN ({{ids}});";
+
+        // When
+        List<String> statements = parser.splitStatements(sql);
+
+        // Then: Le bloc reste entier avec son ';' final, le '/' n'est pas une instruction
+        assertEquals(3, statements.size());
+        assertEquals("UPDATE a SET end_date = SYSDATE WHERE id IN ({{ids}})", statements.get(0));
+        assertTrue(statements.get(1).startsWith("BEGIN"));
+        assertTrue(statements.get(1).endsWith("END;"));
+        assertEquals("DELETE FROM c WHERE id IN ({{ids}})", statements.get(2));
+        assertEquals(2, parser.splitStatements("UPDATE a SET x = 1; BEGIN NULL; END;").size());
+        assertEquals(2, parser.splitStatements("DO $$ BEGIN PERFORM 1; END $$; DELETE FROM t").size());
+    }
+
+    @Test
+    void testParseSqlContent_Namespace() {
+        // Given: Même requête à la racine, sous sql/rh/ et avec -- @namespace:
+        String sql = "-- @id: renommer\nUPDATE personne SET nom = 'x';";
+        String tagged = "-- @id: renommer\n-- @namespace: rh\nUPDATE personne SET nom = 'x';";
+
+        // When / Then
+        assertEquals(QueryConstants.DEFAULT_NAMESPACE, parser.parseSqlContent("renommer.sql", sql, null).getNamespace());
+        assertEquals("rh", parser.parseSqlContent("rh/renommer.sql", sql, "rh").getNamespace());
+        assertEquals("rh", parser.parseSqlContent("renommer.sql", tagged, null).getNamespace());
+        assertEquals("rh", parser.parseSqlContent("rh/renommer.sql", tagged, "rh").getNamespace());
+        assertThrows(IllegalArgumentException.class,
+                () -> parser.parseSqlContent("compta/renommer.sql", tagged, "compta"));
+        assertThrows(IllegalArgumentException.class,
+                () -> parser.parseSqlContent("RH/renommer.sql", sql, "RH"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.sqlgenerator.backend.service;
+
+import com.sqlgenerator.backend.model.QueryDefinition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires de l'index de recherche du catalogue.
+ *
+ * Pourquoi tester l'index ?
+ * - La recherche suit la saisie de l'UI : un préfixe ou un accent mal géré masque des requêtes
+ * - Les critères (mots, tags, namespace) se combinent par intersection : une requête de trop
+ *   ou en moins ne se voit pas sur un petit catalogue
+ */
+class QuerySearchIndexTest {
+
+    private QuerySearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new QuerySearchIndex(List.of(
+                query("update-person-name", "rh", "Mise à jour du nom", "Met à jour le nom d'une personne",
+                        List.of("person", "update")),
+                query("activate-contrats", "default", "Activation de contrats", "Active des contrats en masse",
+                        List.of("contrat", "Update")),
+                query("purge-equipe", "rh", "Purge de l'Équipe", "Supprime les personnes d'une équipe",
+                        List.of("person", "delete")),
+                query("no-tags", "default", "Requête sans tags", null, null)));
+    }
+
+    @Test
+    void testSearch_PrefixMatchesEveryWordStartingWithIt() {
+        // "pers" : "person" (tags), "personne" et "personnes" (descriptions)
+        assertArrayEquals(new int[]{0, 2}, index.search(null, "pers", null));
+        assertArrayEquals(new int[]{1}, index.search(null, "contr", null));
+        assertArrayEquals(new int[0], index.search(null, "personnel", null));
+    }
+
+    @Test
+    void testSearch_CaseAndAccentInsensitive() {
+        assertArrayEquals(new int[]{2}, index.search(null, "equipe", null));
+        assertArrayEquals(new int[]{2}, index.search(null, "ÉQUIPE", null));
+        assertArrayEquals(new int[]{3}, index.search(null, "requete", null));
+        assertArrayEquals(new int[]{0}, index.search(null, "MISE À JOUR", null));
+        assertEquals(List.of("d", "l", "equipe", "a", "b2"), QuerySearchIndex.tokenize("d'l'Équipe -- à_b2"));
+    }
+
+    @Test
+    void testSearch_WordsAreIntersected() {
+        assertArrayEquals(new int[]{0}, index.search(null, "nom personne", null));
+        assertArrayEquals(new int[0], index.search(null, "nom contrats", null));
+    }
+
+    @Test
+    void testSearch_TagsAreIntersectedAndMatchedWhole() {
+        assertArrayEquals(new int[]{0, 2}, index.search(null, null, List.of("person")));
+        assertArrayEquals(new int[]{0}, index.search(null, null, List.of("Person", " update ")));
+        assertArrayEquals(new int[]{0, 1}, index.search(null, null, List.of("UPDATE")));
+        assertArrayEquals(new int[0], index.search(null, null, List.of("pers")));
+        assertArrayEquals(new int[0], index.search(null, null, List.of("person", "unknown")));
+    }
+
+    @Test
+    void testSearch_NamespaceFilter() {
+        assertArrayEquals(new int[]{0, 2}, index.search("rh", null, null));
+        assertArrayEquals(new int[]{2}, index.search("rh", "supprime", List.of("person")));
+        assertArrayEquals(new int[0], index.search("rh", "contrats", null));
+        assertArrayEquals(new int[0], index.search("finance", null, null));
+    }
+
+    @Test
+    void testSearch_NoCriteriaReturnsEverything() {
+        assertArrayEquals(new int[]{0, 1, 2, 3}, index.search(null, null, null));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, index.search(null, "  -- ", List.of()));
+    }
+
+    private QueryDefinition query(String id, String namespace, String name, String description, List<String> tags) {
+        return QueryDefinition.builder()
+                .id(id)
+                .namespace(namespace)
+                .name(name)
+                .description(description)
+                .tags(tags)
+                .build();
+    }
+}
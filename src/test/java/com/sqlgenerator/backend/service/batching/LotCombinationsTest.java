@@ -0,0 +1,65 @@
+package com.sqlgenerator.backend.service.batching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires de la combinaison des lots de plusieurs paramètres fichier.
+ *
+ * Pourquoi tester les combinaisons ?
+ * - Un lot oublié laisse des lignes non traitées par le patch
+ * - En zip, des tranches décalées associent des valeurs qui ne vont pas ensemble
+ */
+class LotCombinationsTest {
+
+    @Test
+    void testCross_EveryChunkPairIsGenerated() {
+        Map<String, List<String>> lists = new LinkedHashMap<>();
+        lists.put("ids", values("i", 5));
+        lists.put("codes", values("c", 3));
+
+        LotCombinations lots = new LotCombinations(lists, 2, BatchingMode.CROSS);
+        assertEquals(6, lots.getLotCount());
+
+        List<String> seen = new ArrayList<>();
+        while (lots.hasNext()) {
+            Map<String, List<String>> lot = lots.next();
+            seen.add(lot.get("ids").get(0) + "/" + lot.get("codes").get(0));
+        }
+        assertEquals(List.of("i0/c0", "i0/c2", "i2/c0", "i2/c2", "i4/c0", "i4/c2"), seen);
+    }
+
+    @Test
+    void testZip_AlignedChunksAndSizeMismatch() {
+        Map<String, List<String>> lists = new LinkedHashMap<>();
+        lists.put("ids", values("i", 5));
+        lists.put("codes", values("c", 5));
+
+        LotCombinations lots = new LotCombinations(lists, 2, BatchingMode.ZIP);
+        assertEquals(3, lots.getLotCount());
+        lots.next();
+        Map<String, List<String>> second = lots.next();
+        assertEquals(List.of("i2", "i3"), second.get("ids"));
+        assertEquals(List.of("c2", "c3"), second.get("codes"));
+        assertEquals(List.of("i4"), lots.next().get("ids"));
+        assertFalse(lots.hasNext());
+
+        lists.put("codes", values("c", 4));
+        assertThrows(IllegalArgumentException.class, () -> new LotCombinations(lists, 2, BatchingMode.ZIP));
+        assertThrows(IllegalArgumentException.class, () -> BatchingMode.fromMetadata("diagonal"));
+    }
+
+    private List<String> values(String prefix, int count) {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(prefix + i);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,76 @@
+package com.sqlgenerator.backend.service.dialect;
+
+import com.sqlgenerator.backend.service.template.CompiledTemplate;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires des dialectes SQL.
+ *
+ * Pourquoi tester les dialectes ?
+ * - Un littéral mal formé produit un patch qui échoue à l'exécution, pas à la génération
+ * - Les réécritures (IN → = ANY) et les terminateurs changent la forme du SQL livré
+ */
+class SqlDialectTest {
+
+    @Test
+    void testOracle_DateAndPlsqlTerminator() {
+        SqlDialect oracle = new OracleDialect();
+
+        assertEquals(999, oracle.getMaxInListSize());
+        assertEquals("'30/11/25'", oracle.formatDate("2025-11-30"));
+        assertEquals("'30/11/25'", oracle.formatDate("30/11/25"));
+        assertEquals("UPDATE t SET a = 1;", oracle.terminateStatement("UPDATE t SET a = 1"));
+        assertEquals("BEGIN\n  NULL;\nEND;\n/", oracle.terminateStatement("BEGIN\n  NULL;\nEND;"));
+    }
+
+    @Test
+    void testPostgreSql_RewritesInListToArray() {
+        SqlDialect postgres = new PostgreSqlDialect();
+        String sql = postgres.prepareTemplate("DELETE FROM t WHERE id IN ({{ids}}) AND code NOT IN ({{ids}})",
+                Set.of("ids"));
+
+        String rendered = CompiledTemplate.compile(sql)
+                .render(name -> postgres.formatInList(List.of("a", "O'b", "null")));
+
+        assertEquals("DELETE FROM t WHERE id = ANY('{\"a\",\"O''b\",NULL}') AND code <> ALL('{\"a\",\"O''b\",NULL}')",
+                rendered);
+        assertEquals("'2025-11-30'", postgres.formatDate("2025-11-30"));
+    }
+
+    @Test
+    void testPostgreSql_ListOutsideInRejected() {
+        SqlDialect postgres = new PostgreSqlDialect();
+
+        // Liste mêlée à d'autres valeurs ou hors d'un IN : le littéral tableau n'y a pas de sens
+        assertThrows(IllegalArgumentException.class,
+                () -> postgres.prepareTemplate("DELETE FROM t WHERE id IN ({{ids}}, 0)", Set.of("ids")));
+        assertThrows(IllegalArgumentException.class,
+                () -> postgres.prepareTemplate("UPDATE t SET note = {{ids}} WHERE id IN ({{ids}})", Set.of("ids")));
+        assertEquals("SELECT 1 FROM t WHERE id = ANY({{ids}})",
+                postgres.prepareTemplate("SELECT 1 FROM t WHERE id = ANY({{ids}})", Set.of("ids")));
+    }
+
+    @Test
+    void testSqlServer_BatchSeparatorAndDate() {
+        SqlDialect sqlServer = new SqlServerDialect();
+
+        assertEquals("GO", sqlServer.getBatchSeparator());
+        assertEquals("'20251130'", sqlServer.formatDate("2025-11-30"));
+        assertTrue(sqlServer.getMaxInListSize() < 2100);
+    }
+
+    @Test
+    void testAbortScript_FailsTheRunWithEscapedMessage() {
+        assertEquals("WHENEVER SQLERROR EXIT FAILURE ROLLBACK\nBEGIN\n  RAISE_APPLICATION_ERROR(-20000, 'Patch d''essai');"
+                + "\nEND;\n/", new OracleDialect().abortScript("Patch d'essai"));
+        assertEquals("\\set ON_ERROR_STOP on\nDO $abort$\nBEGIN\n  RAISE EXCEPTION '%', 'Patch d''essai 100%';"
+                + "\nEND\n$abort$;", new PostgreSqlDialect().abortScript("Patch d'essai 100%"));
+        assertEquals(":on error exit\nRAISERROR(N'%s', 16, 1, N'Patch d''essai 100%');\nGO",
+                new SqlServerDialect().abortScript("Patch d'essai 100%"));
+    }
+}
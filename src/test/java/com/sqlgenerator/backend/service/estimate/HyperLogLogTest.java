@@ -0,0 +1,64 @@
+package com.sqlgenerator.backend.service.estimate;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires de l'estimation du nombre de valeurs distinctes.
+ *
+ * Pourquoi tester la précision ?
+ * - L'estimation est affichée avant une génération : une erreur de plusieurs % trompe l'utilisateur
+ * - Un hachage mal réparti dégrade l'erreur sans rien casser de visible
+ */
+class HyperLogLogTest {
+
+    @Test
+    void testEstimate_WithinTwoPercentAtTenThousand() {
+        assertWithinTwoPercent(10_000);
+    }
+
+    @Test
+    void testEstimate_WithinTwoPercentAtOneMillion() {
+        assertWithinTwoPercent(1_000_000);
+    }
+
+    @Test
+    void testEstimate_DuplicatesNotCounted() {
+        // Given : 5 000 valeurs distinctes ajoutées 20 fois chacune
+        HyperLogLog hll = new HyperLogLog();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 5_000; i++) {
+                hll.add("CTR-" + i);
+            }
+        }
+
+        // When / Then
+        assertEquals(5_000, hll.estimate(), 5_000 * 0.02);
+    }
+
+    @Test
+    void testEstimate_SmallAndEmpty() {
+        HyperLogLog hll = new HyperLogLog();
+        assertEquals(0, hll.estimate());
+        for (int i = 0; i < 10; i++) {
+            hll.add(Integer.toString(i));
+        }
+        assertEquals(10, hll.estimate());
+    }
+
+    private void assertWithinTwoPercent(int distinct) {
+        // Given : identifiants séquentiels, comme un fichier de contrats
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < distinct; i++) {
+            hll.add("CTR-" + i);
+        }
+
+        // When
+        long estimate = hll.estimate();
+
+        // Then
+        double error = Math.abs(estimate - distinct) / (double) distinct;
+        assertTrue(error <= 0.02, "Erreur de " + error * 100 + " % pour " + distinct + " valeurs (" + estimate + ")");
+    }
+}
@@ -0,0 +1,168 @@
+package com.sqlgenerator.backend.service.estimate;
+
+import com.sqlgenerator.backend.model.PatchEstimate;
+import com.sqlgenerator.backend.service.NamespaceQuotas;
+import com.sqlgenerator.backend.service.QueryMetadataParser;
+import com.sqlgenerator.backend.service.QueryService;
+import com.sqlgenerator.backend.service.SqlFileBuilder;
+import com.sqlgenerator.backend.service.delta.PatchValuesStore;
+import com.sqlgenerator.backend.service.dialect.OracleDialect;
+import com.sqlgenerator.backend.service.dialect.PostgreSqlDialect;
+import com.sqlgenerator.backend.service.dialect.SqlDialectRegistry;
+import com.sqlgenerator.backend.service.dialect.SqlServerDialect;
+import com.sqlgenerator.backend.service.history.PatchHistoryService;
+import com.sqlgenerator.backend.service.input.MasseFormat;
+import com.sqlgenerator.backend.service.input.MasseInput;
+import com.sqlgenerator.backend.service.storage.DirectoryPatchStore;
+import com.sqlgenerator.backend.service.tracing.GenerationTracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de l'estimation d'un patch, comparée au patch réellement généré.
+ *
+ * Pourquoi comparer à une vraie génération ?
+ * - L'estimation recalcule la taille sans rien écrire : un commentaire ou un séparateur oublié
+ *   dans le calcul ne se voit qu'en la confrontant au fichier produit
+ * - Les requêtes de src/main/resources/sql/ sont chargées comme au démarrage de l'application
+ */
+class PatchEstimatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private QueryService queryService;
+    private PatchEstimator estimator;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DirectoryPatchStore store = new DirectoryPatchStore();
+        ReflectionTestUtils.setField(store, "storePath", tempDir.toString());
+        store.init();
+
+        PatchHistoryService historyService = new PatchHistoryService();
+        ReflectionTestUtils.setField(historyService, "historyPath", tempDir.resolve("history.log").toString());
+        ReflectionTestUtils.setField(historyService, "compactionDeadRatio", 0.5);
+        ReflectionTestUtils.setField(historyService, "patchStore", store);
+        historyService.init();
+
+        NamespaceQuotas namespaceQuotas = new NamespaceQuotas();
+        ReflectionTestUtils.setField(namespaceQuotas, "environment", new MockEnvironment());
+        ReflectionTestUtils.setField(namespaceQuotas, "meterRegistry", new SimpleMeterRegistry());
+
+        GenerationTracer tracer = new GenerationTracer();
+        GenerationThroughput throughput = new GenerationThroughput(20);
+        SqlFileBuilder sqlFileBuilder = new SqlFileBuilder();
+        ReflectionTestUtils.setField(sqlFileBuilder, "patchStore", store);
+        ReflectionTestUtils.setField(sqlFileBuilder, "historyService", historyService);
+        ReflectionTestUtils.setField(sqlFileBuilder, "throughput", throughput);
+        ReflectionTestUtils.setField(sqlFileBuilder, "tracer", tracer);
+        ReflectionTestUtils.setField(sqlFileBuilder, "namespaceQuotas", namespaceQuotas);
+
+        SqlDialectRegistry dialectRegistry = new SqlDialectRegistry();
+        ReflectionTestUtils.setField(dialectRegistry, "defaultDialectName", "oracle");
+        ReflectionTestUtils.setField(dialectRegistry, "dialects",
+                List.of(new OracleDialect(), new PostgreSqlDialect(), new SqlServerDialect()));
+        dialectRegistry.init();
+
+        queryService = new QueryService();
+        ReflectionTestUtils.setField(queryService, "metadataParser", new QueryMetadataParser());
+        ReflectionTestUtils.setField(queryService, "dialectRegistry", dialectRegistry);
+        ReflectionTestUtils.setField(queryService, "defaultCommitInterval", 1000);
+        ReflectionTestUtils.setField(queryService, "defaultValidationMode", "failFast");
+        ReflectionTestUtils.setField(queryService, "sqlFileBuilder", sqlFileBuilder);
+        ReflectionTestUtils.setField(queryService, "tracer", tracer);
+        ReflectionTestUtils.setField(queryService, "historyService", historyService);
+        ReflectionTestUtils.setField(queryService, "valuesStore", new PatchValuesStore());
+        queryService.init();
+
+        estimator = new PatchEstimator();
+        ReflectionTestUtils.setField(estimator, "queryService", queryService);
+        ReflectionTestUtils.setField(estimator, "sqlFileBuilder", sqlFileBuilder);
+        ReflectionTestUtils.setField(estimator, "throughput", throughput);
+    }
+
+    @Test
+    void testEstimateMasse_MatchesGeneratedPatchSize() throws IOException {
+        // Given : 2 500 lignes, dont des noms avec apostrophe et accents, et des doublons
+        StringBuilder csv = new StringBuilder();
+        for (int i = 1; i <= 2_500; i++) {
+            csv.append("P").append(i).append(',').append(i % 3 == 0 ? "D'Hérouville" : "Nom" + (i % 500)).append('\n');
+        }
+
+        // When
+        PatchEstimate estimate = estimator.estimate("update-person-name", "masse",
+                masseParams(csv.toString()));
+        String fileName = queryService.generatePatchFile("update-person-name", "masse",
+                masseParams(csv.toString()));
+
+        // Then
+        assertSameSize(tempDir.resolve(fileName), estimate.getEstimatedBytes());
+        assertEquals(2_500, estimate.getRowCount());
+        assertEquals(2_500, estimate.getStatementCount());
+        assertEquals(2_500, estimate.getDistinctValues().get("person_id"), 2_500 * 0.02);
+        assertEquals(501, estimate.getDistinctValues().get("name"), 501 * 0.02);
+    }
+
+    @Test
+    void testEstimateUnitaire_InListLotsMatchGeneratedPatchSize() throws IOException {
+        // Given : 2 500 identifiants, soit 3 lots de 1 000 valeurs au plus en Oracle
+        List<String> ids = new ArrayList<>();
+        StringBuilder file = new StringBuilder();
+        for (int i = 1; i <= 2_500; i++) {
+            ids.add("CTR-" + i);
+            file.append("CTR-").append(i).append("\r\n");
+        }
+        Map<String, Object> estimateParams = new HashMap<>();
+        estimateParams.put("ticket", "T-1");
+        estimateParams.put("contrat_iide", new ByteArrayInputStream(file.toString().getBytes(StandardCharsets.UTF_8)));
+        Map<String, Object> generateParams = new HashMap<>();
+        generateParams.put("ticket", "T-1");
+        generateParams.put("contrat_iide", ids);
+
+        // When
+        PatchEstimate estimate = estimator.estimate("activate-contrats", "unitaire", estimateParams);
+        String fileName = queryService.generatePatchFile("activate-contrats", "unitaire", generateParams);
+
+        // Then
+        assertSameSize(tempDir.resolve(fileName), estimate.getEstimatedBytes());
+        assertEquals(3, estimate.getLotCount());
+        assertEquals(2_500, estimate.getRowCount());
+    }
+
+    /**
+     * Taille exacte, à l'horodatage de l'en-tête près : LocalDateTime.toString() omet les secondes et
+     * fractions nulles, celui de l'estimation (16, 19, 23, 26 ou 29 caractères) peut différer du patch.
+     */
+    private void assertSameSize(Path patch, long estimatedBytes) throws IOException {
+        String firstLine = Files.readAllLines(patch, StandardCharsets.UTF_8).get(0);
+        int generatedTimestamp = firstLine.length() - firstLine.lastIndexOf(' ') - 1;
+        long estimatedTimestamp = estimatedBytes - Files.size(patch) + generatedTimestamp;
+        assertTrue(List.of(16L, 19L, 23L, 26L, 29L).contains(estimatedTimestamp),
+                "Estimation " + estimatedBytes + " pour un patch de " + Files.size(patch) + " octets");
+    }
+
+    private Map<String, Object> masseParams(String csv) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ticket", "T-1");
+        params.put("masseFile", new MasseInput(MasseFormat.CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+        return params;
+    }
+}
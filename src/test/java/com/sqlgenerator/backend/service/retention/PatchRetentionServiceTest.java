@@ -0,0 +1,233 @@
+package com.sqlgenerator.backend.service.retention;
+
+import com.sqlgenerator.backend.model.PatchRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires de la sélection des patchs expirés par la rétention.
+ *
+ * Pourquoi tester la sélection ?
+ * - Une erreur d'ordre (plus récent / plus ancien) supprime les patchs qu'on voulait garder
+ * - Un compagnon oublié (partie, rollback) reste sur le disque sans son patch principal
+ * - Un patch en cours de publication ne doit jamais être touché
+ */
+class PatchRetentionServiceTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private PatchRetentionService service;
+    private MockEnvironment environment;
+
+    @BeforeEach
+    void setUp() {
+        service = new PatchRetentionService();
+        environment = new MockEnvironment();
+        ReflectionTestUtils.setField(service, "environment", environment);
+    }
+
+    @Test
+    void testAge_OnlyOlderPatchesExpire() {
+        // Given : rétention de 30 jours
+        ReflectionTestUtils.setField(service, "defaultMaxAgeDays", 30);
+        List<PatchRecord> records = List.of(
+                record("q1_masse_20240101000000001.sql", "q1", daysAgo(40), 100),
+                record("q1_masse_20240201000000001.sql", "q1", daysAgo(10), 100));
+
+        // When
+        Map<String, String> expired = select(records);
+
+        // Then
+        assertEquals(Map.of("q1_masse_20240101000000001", "age"), expired);
+    }
+
+    @Test
+    void testCount_KeepsTheNewestPatches() {
+        // Given : 4 patchs listés dans le désordre, 2 gardés
+        ReflectionTestUtils.setField(service, "defaultMaxCount", 2);
+        List<PatchRecord> records = List.of(
+                record("q1_masse_20240103000000001.sql", "q1", daysAgo(3), 100),
+                record("q1_masse_20240101000000001.sql", "q1", daysAgo(5), 100),
+                record("q1_masse_20240104000000001.sql", "q1", daysAgo(2), 100),
+                record("q1_masse_20240102000000001.sql", "q1", daysAgo(4), 100));
+
+        // When
+        Map<String, String> expired = select(records);
+
+        // Then : les deux plus anciens partent
+        assertEquals(Map.of(
+                "q1_masse_20240101000000001", "count",
+                "q1_masse_20240102000000001", "count"), expired);
+    }
+
+    @Test
+    void testSize_CumulFromTheNewestAndNewestAlwaysKept() {
+        // Given : 250 octets par requête
+        ReflectionTestUtils.setField(service, "defaultMaxBytes", 250L);
+        List<PatchRecord> records = List.of(
+                record("q1_masse_20240101000000001.sql", "q1", daysAgo(3), 100),
+                record("q1_masse_20240102000000001.sql", "q1", daysAgo(2), 100),
+                record("q1_masse_20240103000000001.sql", "q1", daysAgo(1), 100),
+                record("q2_masse_20240103000000001.sql", "q2", daysAgo(1), 1000));
+
+        // When
+        Map<String, String> expired = select(records);
+
+        // Then : q1 garde les deux plus récents (200 octets) ; q2 garde son seul patch, même trop gros
+        assertEquals(Map.of("q1_masse_20240101000000001", "size"), expired);
+    }
+
+    @Test
+    void testPolicy_OverriddenPerQuery() {
+        // Given : pas de politique par défaut, max-count=1 pour q2 seulement
+        environment.setProperty("patch.retention.query.q2.max-count", "1");
+        List<PatchRecord> records = List.of(
+                record("q1_masse_20240101000000001.sql", "q1", daysAgo(3), 100),
+                record("q1_masse_20240102000000001.sql", "q1", daysAgo(2), 100),
+                record("q2_masse_20240101000000001.sql", "q2", daysAgo(3), 100),
+                record("q2_masse_20240102000000001.sql", "q2", daysAgo(2), 100));
+
+        // When
+        Map<String, String> expired = select(records);
+
+        // Then
+        assertEquals(Map.of("q2_masse_20240101000000001", "count"), expired);
+    }
+
+    @Test
+    void testGrace_RecentPatchesNeverExpireButCountAsKept() {
+        // Given : un seul patch gardé ; deux patchs de moins de 5 minutes, un d'une heure
+        ReflectionTestUtils.setField(service, "defaultMaxCount", 1);
+        List<PatchRecord> records = List.of(
+                record("q1_masse_20240101000000001.sql", "q1", NOW - Duration.ofHours(1).toMillis(), 100),
+                record("q1_masse_20240101000000002.sql", "q1", NOW - Duration.ofMinutes(2).toMillis(), 100),
+                record("q1_masse_20240101000000003.sql", "q1", NOW - Duration.ofMinutes(1).toMillis(), 100));
+
+        // When
+        Map<String, String> expired = select(records);
+
+        // Then : les deux récents restent malgré max-count, l'ancien part
+        assertEquals(Map.of("q1_masse_20240101000000001", "count"), expired);
+    }
+
+    @Test
+    void testGrace_RecentCompanionProtectsTheGroup() {
+        // Given : patch principal ancien, mais son rollback vient d'être écrit
+        ReflectionTestUtils.setField(service, "defaultMaxAgeDays", 1);
+        List<PatchRecord> records = List.of(
+                record("q1_masse_20240101000000001.sql", "q1", daysAgo(10), 100),
+                record("q1_masse_20240101000000001_rollback.sql", "q1", NOW - Duration.ofMinutes(1).toMillis(), 100));
+
+        // When / Then
+        assertTrue(select(records).isEmpty());
+    }
+
+    @Test
+    void testPending_OpenGenerationProtectsTheGroup() {
+        // Given : patch principal ancien dont la partie suivante est encore en cours d'écriture,
+        // et parties orphelines anciennes d'une génération toujours ouverte
+        ReflectionTestUtils.setField(service, "defaultMaxAgeDays", 1);
+        List<PatchRecord> records = List.of(
+                record("q1_masse_20240101000000001.sql", "q1", daysAgo(10), 100),
+                record("q1_masse_20240101000000001_part001.sql", "q1", daysAgo(10), 100),
+                record("q1_masse_20240102000000001_part001.sql", "q1", daysAgo(2), 100),
+                record("q1_masse_20240103000000001.sql", "q1", daysAgo(10), 100));
+        Set<String> pending = Set.of("q1_masse_20240101000000001_part002.sql",
+                "q1_masse_20240102000000001_part002.sql");
+
+        // When
+        Map<String, String> expired = new TreeMap<>();
+        for (PatchRetentionService.Expired e : service.selectExpired(records, pending, NOW)) {
+            expired.put(e.getGroup().getBase(), e.getPolicy());
+        }
+
+        // Then : seul le groupe sans sortie ouverte expire
+        assertEquals(Map.of("q1_masse_20240103000000001", "age"), expired);
+    }
+
+    @Test
+    void testOrphans_ExpireOnlyAfterOrphanGrace() {
+        // Given : parties sans patch principal, l'une de 2 jours, l'autre de 2 heures ; aucune politique
+        List<PatchRecord> records = List.of(
+                record("q1_masse_20240101000000001_part001.sql", "q1", daysAgo(2), 100),
+                record("q1_masse_20240101000000001_part002.sql", "q1", daysAgo(2), 100),
+                record("q1_masse_20240102000000001_part001.sql", "q1", NOW - Duration.ofHours(2).toMillis(), 100));
+
+        // When
+        List<PatchRetentionService.Expired> expired = service.selectExpired(records, Set.of(), NOW);
+
+        // Then : un seul groupe orphelin, avec ses deux parties
+        assertEquals(1, expired.size());
+        assertEquals("orphan", expired.get(0).getPolicy());
+        assertEquals("q1_masse_20240101000000001", expired.get(0).getGroup().getBase());
+    }
+
+    @Test
+    void testCompanions_GroupedWithTheirPrimary() {
+        // Given : patch découpé avec rollback découpé ; le groupe pèse 400 octets
+        ReflectionTestUtils.setField(service, "defaultMaxBytes", 300L);
+        List<PatchRecord> records = new ArrayList<>();
+        records.add(record("q1_masse_20240101000000001.sql", "q1", daysAgo(2), 100));
+        records.add(record("q1_masse_20240101000000001_part001.sql", "q1", daysAgo(2), 100));
+        records.add(record("q1_masse_20240101000000001_rollback.sql", "q1", daysAgo(2), 100));
+        records.add(record("q1_masse_20240101000000001_rollback_part001.sql", "q1", daysAgo(2), 100));
+        records.add(record("q1_masse_20240102000000001.sql", "q1", daysAgo(1), 100));
+        records.add(record("q1_masse_20240102000000001_rollback.sql", "q1", daysAgo(1), 100));
+
+        // When
+        List<PatchRetentionService.Expired> expired = service.selectExpired(records, Set.of(), NOW);
+
+        // Then : un seul expiré, le groupe entier (le plus récent pèse 200, 200 + 400 > 300)
+        assertEquals(1, expired.size());
+        assertEquals("size", expired.get(0).getPolicy());
+        assertEquals("q1_masse_20240101000000001", expired.get(0).getGroup().getBase());
+    }
+
+    @Test
+    void testBaseName_StripsCompanionSuffixes() {
+        assertEquals("q1_masse_20240101000000001", PatchRetentionService.baseName("q1_masse_20240101000000001.sql"));
+        assertEquals("q1_masse_20240101000000001-1",
+                PatchRetentionService.baseName("q1_masse_20240101000000001-1_part002.sql"));
+        assertEquals("q1_masse_20240101000000001",
+                PatchRetentionService.baseName("q1_masse_20240101000000001_rollback.sql"));
+        assertEquals("q1_masse_20240101000000001",
+                PatchRetentionService.baseName("q1_masse_20240101000000001_rollback_part010.sql"));
+        assertNull(PatchRetentionService.baseName("values.txt"));
+    }
+
+    /**
+     * Patchs expirés : nom de base → politique.
+     */
+    private Map<String, String> select(List<PatchRecord> records) {
+        Map<String, String> expired = new TreeMap<>();
+        for (PatchRetentionService.Expired e : service.selectExpired(records, Set.of(), NOW)) {
+            expired.put(e.getGroup().getBase(), e.getPolicy());
+        }
+        return expired;
+    }
+
+    private long daysAgo(int days) {
+        return NOW - Duration.ofDays(days).toMillis();
+    }
+
+    private PatchRecord record(String fileName, String queryId, long createdAt, long sizeBytes) {
+        PatchRecord record = new PatchRecord();
+        record.setFileName(fileName);
+        record.setQueryId(queryId);
+        record.setExecutionType("masse");
+        record.setCreatedAt(createdAt);
+        record.setSizeBytes(sizeBytes);
+        return record;
+    }
+}
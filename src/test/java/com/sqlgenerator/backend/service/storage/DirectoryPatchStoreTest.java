@@ -0,0 +1,189 @@
+package com.sqlgenerator.backend.service.storage;
+
+import com.sqlgenerator.backend.model.PatchRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires du store par répertoire : publication, nommage unique, suppression et listing.
+ *
+ * Pourquoi tester le nommage ?
+ * - Deux générations sur le même nom ne doivent jamais s'écraser
+ * - Le listing reconstruit les enregistrements depuis les noms : un nom mal lu disparaît de l'historique
+ */
+class DirectoryPatchStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DirectoryPatchStore store;
+    private Path root;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = tempDir.resolve("patches");
+        store = new DirectoryPatchStore();
+        ReflectionTestUtils.setField(store, "storePath", root.toString());
+        store.init();
+    }
+
+    @Test
+    void testPublish_ListedFromFileName() throws IOException {
+        // Given / When
+        PatchRecord record = publish("q1_masse_20240102103000123.sql", "-- Ticket: T-1\nSELECT 1;\n");
+        publish("q2_unitaire_20240101103000123.sql", "SELECT 2;\n");
+
+        // Then : listing trié par date de génération, requête et type lus dans le nom
+        assertEquals(25, record.getSizeBytes());
+        List<PatchRecord> records = store.list();
+        assertEquals(List.of("q2_unitaire_20240101103000123.sql", "q1_masse_20240102103000123.sql"),
+                fileNames(records));
+        assertEquals("q1", records.get(1).getQueryId());
+        assertEquals("masse", records.get(1).getExecutionType());
+        assertEquals(25, records.get(1).getSizeBytes());
+        assertEquals("SELECT 2;\n", read("q2_unitaire_20240101103000123.sql"));
+    }
+
+    @Test
+    void testCreate_UniqueNamesAndAbandon() throws IOException {
+        // Given : un patch publié et une génération en cours sur le même nom
+        publish("q1_masse_20240102103000123.sql", "SELECT 1;\n");
+        PatchOutput pending = store.create(record("q1_masse_20240102103000123.sql"));
+
+        // When : une troisième génération, puis abandon de la deuxième
+        PatchRecord third = publish("q1_masse_20240102103000123.sql", "SELECT 3;\n");
+        pending.close();
+
+        // Then : noms réservés dès create(), fichier abandonné supprimé
+        assertEquals("q1_masse_20240102103000123-2.sql", third.getFileName());
+        assertFalse(Files.exists(root.resolve("q1_masse_20240102103000123-1.sql")));
+        assertEquals(List.of("q1_masse_20240102103000123.sql", "q1_masse_20240102103000123-2.sql"),
+                fileNames(store.list()));
+    }
+
+    @Test
+    void testCreate_InvisibleUntilCommit() throws IOException {
+        // Given : une génération en cours, à moitié écrite
+        PatchOutput output = store.create(record("q1_masse_20240102103000123.sql"));
+        output.writer().write("SELECT 1;\n");
+        output.writer().flush();
+
+        // When / Then : ni ouvrable, ni listée, ni sous son nom définitif
+        assertNull(store.open("q1_masse_20240102103000123.sql"));
+        assertTrue(store.list().isEmpty());
+        assertFalse(Files.exists(root.resolve("q1_masse_20240102103000123.sql")));
+        assertEquals(Set.of("q1_masse_20240102103000123.sql"), store.pendingFileNames());
+
+        // Et publiée d'un bloc au commit
+        output.writer().write("SELECT 2;\n");
+        output.commit();
+        output.close();
+        assertTrue(store.pendingFileNames().isEmpty());
+        assertEquals("SELECT 1;\nSELECT 2;\n", read("q1_masse_20240102103000123.sql"));
+        try (Stream<Path> files = Files.list(root)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testInit_DeletesTempFilesOfInterruptedGenerations() throws IOException {
+        // Given : arrêt brutal pendant une génération
+        PatchOutput output = store.create(record("q1_masse_20240102103000123.sql"));
+        output.writer().write("SELECT 1;\n");
+        output.writer().flush();
+
+        // When
+        DirectoryPatchStore restarted = new DirectoryPatchStore();
+        ReflectionTestUtils.setField(restarted, "storePath", root.toString());
+        restarted.init();
+
+        // Then : le nom est de nouveau libre
+        try (Stream<Path> files = Files.list(root)) {
+            assertEquals(0, files.count());
+        }
+        try (PatchOutput next = restarted.create(record("q1_masse_20240102103000123.sql"))) {
+            assertEquals("q1_masse_20240102103000123.sql", next.commit().getFileName());
+        }
+    }
+
+    @Test
+    void testDelete_AndPathTraversalRejected() throws IOException {
+        // Given
+        publish("q1_masse_20240102103000123.sql", "SELECT 1;\n");
+        Files.writeString(tempDir.resolve("outside.sql"), "x", StandardCharsets.UTF_8);
+
+        // When / Then
+        assertTrue(store.delete("q1_masse_20240102103000123.sql"));
+        assertFalse(store.delete("q1_masse_20240102103000123.sql"));
+        assertNull(store.open("q1_masse_20240102103000123.sql"));
+        assertNull(store.open("../outside.sql"));
+        assertFalse(store.delete("../outside.sql"));
+        assertTrue(store.list().isEmpty());
+        assertTrue(Files.exists(tempDir.resolve("outside.sql")));
+    }
+
+    @Test
+    void testList_IgnoresUnknownNames() throws IOException {
+        // Given : fichiers hors convention de nommage
+        publish("q1_masse_20240102103000123.sql", "SELECT 1;\n");
+        Files.writeString(root.resolve("notes.sql"), "--", StandardCharsets.UTF_8);
+        Files.writeString(root.resolve("readme.txt"), "--", StandardCharsets.UTF_8);
+
+        // When / Then
+        assertEquals(List.of("q1_masse_20240102103000123.sql"), fileNames(store.list()));
+    }
+
+    @Test
+    void testFind_TicketReadFromHeader() throws IOException {
+        // Given
+        publish("q1_masse_20240102103000123.sql", "-- Ticket: T-1\nSELECT 1;\n");
+        publish("q1_masse_20240103103000123.sql", "-- Ticket: T-2\nSELECT 2;\n");
+
+        // When
+        List<PatchRecord> found = store.find("q1", "T-2", null, null);
+
+        // Then
+        assertEquals(List.of("q1_masse_20240103103000123.sql"), fileNames(found));
+        assertEquals("T-2", found.get(0).getTicket());
+    }
+
+    private PatchRecord publish(String fileName, String content) throws IOException {
+        try (PatchOutput output = store.create(record(fileName))) {
+            output.writer().write(content);
+            return output.commit();
+        }
+    }
+
+    private PatchRecord record(String fileName) {
+        PatchRecord record = new PatchRecord();
+        record.setFileName(fileName);
+        return record;
+    }
+
+    private String read(String fileName) throws IOException {
+        Resource resource = store.open(fileName);
+        assertNotNull(resource, fileName);
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<String> fileNames(List<PatchRecord> records) {
+        return records.stream().map(PatchRecord::getFileName).collect(Collectors.toList());
+    }
+}
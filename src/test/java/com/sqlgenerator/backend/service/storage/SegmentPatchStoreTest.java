@@ -0,0 +1,274 @@
+package com.sqlgenerator.backend.service.storage;
+
+import com.sqlgenerator.backend.model.PatchRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires du store segmenté : publication, nommage, suppression, rejeu et compaction.
+ *
+ * Pourquoi tester la reprise ?
+ * - Le journal d'index est la seule trace des positions : une entrée perdue rend un patch introuvable
+ * - Un arrêt brutal peut couper le journal ou le segment au milieu d'une écriture
+ */
+class SegmentPatchStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<SegmentPatchStore> opened = new ArrayList<>();
+    private long clock = 1_700_000_000_000L;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (SegmentPatchStore store : opened) {
+            store.close();
+        }
+    }
+
+    @Test
+    void testCrashRecovery_TornIndexLineAndPartialRecord() throws IOException {
+        // Given : deux patchs publiés, puis arrêt brutal simulé pendant la journalisation du second
+        // (dernière ligne du journal coupée) et pendant l'ajout d'un troisième (enregistrement tronqué)
+        SegmentPatchStore store = open(268435456L);
+        publish(store, "q1_masse_20240101000000001.sql", "SELECT 1;\n");
+        publish(store, "q1_masse_20240101000000002.sql", "SELECT 2;\n");
+        store.close();
+        Path indexLog = segments().resolve("index.log");
+        long indexSize = Files.size(indexLog);
+        try (FileChannel channel = FileChannel.open(indexLog, StandardOpenOption.WRITE)) {
+            channel.truncate(indexSize - 10);
+        }
+        Path segment = segments().resolve("segment-000001.seg");
+        long segmentSize = Files.size(segment);
+        Files.write(segment, new byte[]{0x50, 0x41, 0x54, 0x43, 0, 0}, StandardOpenOption.APPEND);
+
+        // When
+        SegmentPatchStore recovered = open(268435456L);
+
+        // Then : le second patch est retrouvé en fin de segment, l'enregistrement incomplet est retiré
+        assertEquals(List.of("q1_masse_20240101000000001.sql", "q1_masse_20240101000000002.sql"),
+                fileNames(recovered.list()));
+        assertEquals("SELECT 2;\n", read(recovered, "q1_masse_20240101000000002.sql"));
+        assertEquals(segmentSize, Files.size(segment));
+
+        // Et le journal repart d'une ligne complète : une nouvelle entrée n'est pas collée à la ligne coupée
+        publish(recovered, "q1_masse_20240101000000003.sql", "SELECT 3;\n");
+        recovered.delete("q1_masse_20240101000000001.sql");
+        recovered.close();
+        SegmentPatchStore reopened = open(268435456L);
+        assertEquals(List.of("q1_masse_20240101000000002.sql", "q1_masse_20240101000000003.sql"),
+                fileNames(reopened.list()));
+        assertEquals("SELECT 3;\n", read(reopened, "q1_masse_20240101000000003.sql"));
+    }
+
+    @Test
+    void testCrashRecovery_UnreadableIndexEntryIgnored() throws IOException {
+        // Given : une entrée illisible au milieu du journal
+        SegmentPatchStore store = open(268435456L);
+        publish(store, "q1_masse_20240101000000001.sql", "SELECT 1;\n");
+        store.close();
+        Files.writeString(segments().resolve("index.log"), "A\tx\t0\t3\tq1\n", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        // When
+        SegmentPatchStore reopened = open(268435456L);
+
+        // Then
+        assertEquals(List.of("q1_masse_20240101000000001.sql"), fileNames(reopened.list()));
+    }
+
+    @Test
+    void testPublish_ReadBackAndFind() throws IOException {
+        // Given
+        SegmentPatchStore store = open(268435456L);
+
+        // When
+        PatchRecord first = publish(store, "q1_masse_20240101000000001.sql", "SELECT 1;\n");
+        publish(store, "q2_unitaire_20240101000000002.sql", "SELECT 22;\n");
+
+        // Then
+        assertEquals(10, first.getSizeBytes());
+        assertEquals("SELECT 22;\n", read(store, "q2_unitaire_20240101000000002.sql"));
+        assertEquals(List.of("q1_masse_20240101000000001.sql"), fileNames(store.find("q1", null, null, null)));
+        assertEquals(List.of("q1_masse_20240101000000001.sql"), fileNames(store.find(null, "T-1", null, null)));
+        assertNull(store.open("absent.sql"));
+    }
+
+    @Test
+    void testCreate_UniqueNamesForPublishedAndReserved() throws IOException {
+        // Given : un patch publié
+        SegmentPatchStore store = open(268435456L);
+        publish(store, "q1_masse_20240101000000001.sql", "SELECT 1;\n");
+
+        // When : deux générations en cours sur le même nom, la seconde abandonnée
+        PatchOutput second = store.create(record("q1_masse_20240101000000001.sql"));
+        PatchOutput third = store.create(record("q1_masse_20240101000000001.sql"));
+        third.close();
+        PatchOutput fourth = store.create(record("q1_masse_20240101000000001.sql"));
+
+        // Then : le nom est réservé dès create(), et libéré par l'abandon
+        assertEquals("q1_masse_20240101000000001-1.sql", second.commit().getFileName());
+        assertEquals("q1_masse_20240101000000001-2.sql", fourth.commit().getFileName());
+        second.close();
+        fourth.close();
+    }
+
+    @Test
+    void testDelete_ReplayedAfterRestart() throws IOException {
+        // Given
+        SegmentPatchStore store = open(268435456L);
+        publish(store, "q1_masse_20240101000000001.sql", "SELECT 1;\n");
+        publish(store, "q1_masse_20240101000000002.sql", "SELECT 2;\n");
+
+        // When
+        assertTrue(store.delete("q1_masse_20240101000000001.sql"));
+        assertFalse(store.delete("q1_masse_20240101000000001.sql"));
+        store.close();
+        SegmentPatchStore reopened = open(268435456L);
+
+        // Then
+        assertEquals(List.of("q1_masse_20240101000000002.sql"), fileNames(reopened.list()));
+        assertNull(reopened.open("q1_masse_20240101000000001.sql"));
+        assertEquals("SELECT 2;\n", read(reopened, "q1_masse_20240101000000002.sql"));
+    }
+
+    @Test
+    void testCompact_RewritesSparseSegmentsAndIndexLog() throws IOException {
+        // Given : segments de 200 octets (deux patchs chacun) ; segment 1 à moitié supprimé, segment 2 vidé
+        SegmentPatchStore store = open(200L);
+        for (int i = 1; i <= 6; i++) {
+            publish(store, "q1_masse_2024010100000000" + i + ".sql", "SELECT " + i + ";\n");
+        }
+        assertEquals(3, segmentFiles().size());
+        store.delete("q1_masse_20240101000000001.sql");
+        store.delete("q1_masse_20240101000000003.sql");
+        store.delete("q1_masse_20240101000000004.sql");
+
+        // When
+        store.compact();
+
+        // Then : le patch vivant du segment 1 est recopié, les segments 1 et 2 supprimés,
+        // le journal réduit aux patchs vivants
+        assertFalse(Files.exists(segments().resolve("segment-000001.seg")));
+        assertFalse(Files.exists(segments().resolve("segment-000002.seg")));
+        assertEquals(3, Files.readAllLines(segments().resolve("index.log")).size());
+        assertEquals("SELECT 2;\n", read(store, "q1_masse_20240101000000002.sql"));
+
+        // Et l'état survit au redémarrage
+        store.close();
+        SegmentPatchStore reopened = open(200L);
+        assertEquals(List.of("q1_masse_20240101000000002.sql", "q1_masse_20240101000000005.sql",
+                "q1_masse_20240101000000006.sql"), fileNames(reopened.list()));
+        assertEquals("SELECT 2;\n", read(reopened, "q1_masse_20240101000000002.sql"));
+    }
+
+    @Test
+    void testOpen_ResourceObtainedBeforeCompactionStillReadable() throws IOException {
+        // Given : une Resource sur un patch du segment 1, obtenue avant la compaction
+        SegmentPatchStore store = open(200L);
+        for (int i = 1; i <= 4; i++) {
+            publish(store, "q1_masse_2024010100000000" + i + ".sql", "SELECT " + i + ";\n");
+        }
+        Resource resource = store.open("q1_masse_20240101000000002.sql");
+        store.delete("q1_masse_20240101000000001.sql");
+
+        // When : le patch est recopié et le segment 1 supprimé
+        store.compact();
+
+        // Then
+        assertFalse(Files.exists(segments().resolve("segment-000001.seg")));
+        try (InputStream in = resource.getInputStream()) {
+            assertEquals("SELECT 2;\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        store.delete("q1_masse_20240101000000002.sql");
+        assertThrows(IOException.class, resource::getInputStream);
+    }
+
+    @Test
+    void testInit_RebuildsMissingIndexLogFromSegments() throws IOException {
+        // Given : journal d'index perdu
+        SegmentPatchStore store = open(200L);
+        for (int i = 1; i <= 3; i++) {
+            publish(store, "q1_masse_2024010100000000" + i + ".sql", "SELECT " + i + ";\n");
+        }
+        store.close();
+        Files.delete(segments().resolve("index.log"));
+
+        // When : reconstruction par parcours des segments, puis un ajout et un redémarrage
+        SegmentPatchStore rebuilt = open(200L);
+        publish(rebuilt, "q1_masse_20240101000000004.sql", "SELECT 4;\n");
+        rebuilt.close();
+        SegmentPatchStore reopened = open(200L);
+
+        // Then : les patchs retrouvés par le parcours ont été journalisés
+        assertEquals(4, reopened.list().size());
+        assertEquals("SELECT 1;\n", read(reopened, "q1_masse_20240101000000001.sql"));
+    }
+
+    private SegmentPatchStore open(long maxSegmentBytes) throws IOException {
+        SegmentPatchStore store = new SegmentPatchStore();
+        ReflectionTestUtils.setField(store, "storePath", tempDir.toString());
+        ReflectionTestUtils.setField(store, "maxSegmentBytes", maxSegmentBytes);
+        ReflectionTestUtils.setField(store, "compactionDeadRatio", 0.5);
+        store.init();
+        opened.add(store);
+        return store;
+    }
+
+    private PatchRecord publish(PatchStore store, String fileName, String content) throws IOException {
+        try (PatchOutput output = store.create(record(fileName))) {
+            output.writer().write(content);
+            return output.commit();
+        }
+    }
+
+    private PatchRecord record(String fileName) {
+        PatchRecord record = new PatchRecord();
+        record.setFileName(fileName);
+        record.setQueryId(fileName.substring(0, fileName.indexOf('_')));
+        record.setTicket("q1".equals(record.getQueryId()) ? "T-1" : null);
+        record.setExecutionType("masse");
+        record.setCreatedAt(++clock);
+        return record;
+    }
+
+    private String read(PatchStore store, String fileName) throws IOException {
+        Resource resource = store.open(fileName);
+        assertNotNull(resource, fileName);
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private Path segments() {
+        return tempDir.resolve("segments");
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(segments())) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".seg")).collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> fileNames(List<PatchRecord> records) {
+        return records.stream().map(PatchRecord::getFileName).collect(Collectors.toList());
+    }
+}
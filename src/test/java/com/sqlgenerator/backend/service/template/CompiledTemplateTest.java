@@ -0,0 +1,56 @@
+package com.sqlgenerator.backend.service.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires du template compilé.
+ *
+ * Pourquoi tester le template ?
+ * - Chaque instruction générée passe par render : un segment perdu ou dupliqué se retrouve dans tous les patchs
+ * - Les blocs mal formés doivent être rejetés au chargement de la requête, pas à la génération
+ */
+class CompiledTemplateTest {
+
+    @Test
+    void testBindKeepsRemainingPlaceholders() {
+        CompiledTemplate template = CompiledTemplate.compile("UPDATE t SET a = {{ name }} WHERE id IN ({{ids}});");
+        CompiledTemplate bound = template.bind(Map.of("name", "'x'"));
+
+        assertEquals(Set.of("ids"), bound.getPlaceholderNames());
+        assertEquals("UPDATE t SET a = 'x' WHERE id IN ('1', '2');", bound.render(name -> "'1', '2'"));
+    }
+
+    @Test
+    void testConditionalAndRepeatBlocks() {
+        CompiledTemplate template = CompiledTemplate.compile("SELECT * FROM t WHERE 1 = 1"
+                + "{{#if name}} AND name = {{name}}{{else}} AND name IS NULL{{/if}}"
+                + " AND ({{#each ids separator=\" OR \"}}id LIKE {{this}}{{/each}})");
+
+        assertTrue(template.hasBlocks());
+        assertEquals(Set.of("name", "ids"), template.getPlaceholderNames());
+
+        StringBuilder out = new StringBuilder();
+        template.renderTo(out, name -> "NULL", name -> List.of("'a%'", "'b%'"));
+        assertEquals("SELECT * FROM t WHERE 1 = 1 AND name IS NULL AND (id LIKE 'a%' OR id LIKE 'b%')", out.toString());
+
+        // Paramètre figé par bind : le bloc est résolu une fois pour toutes
+        CompiledTemplate bound = template.bind(Map.of("name", "'x'"));
+        assertEquals(Set.of("ids"), bound.getPlaceholderNames());
+        out.setLength(0);
+        bound.renderTo(out, name -> "NULL", name -> List.of("'c'"));
+        assertEquals("SELECT * FROM t WHERE 1 = 1 AND name = 'x' AND (id LIKE 'c')", out.toString());
+    }
+
+    @Test
+    void testMalformedBlocksRejectedAtCompile() {
+        assertThrows(IllegalArgumentException.class, () -> CompiledTemplate.compile("{{#if a}} x"));
+        assertThrows(IllegalArgumentException.class, () -> CompiledTemplate.compile("{{#each a}} x {{/if}}"));
+        assertThrows(IllegalArgumentException.class, () -> CompiledTemplate.compile("{{this}}"));
+    }
+}
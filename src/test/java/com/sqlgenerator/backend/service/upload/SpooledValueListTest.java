@@ -0,0 +1,106 @@
+package com.sqlgenerator.backend.service.upload;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires de la liste de valeurs adossée à un fichier spoolé.
+ *
+ * Pourquoi tester l'index ?
+ * - Un offset de bloc décalé d'un octet (CRLF, ligne vide) décale toutes les valeurs des lots suivants
+ * - Les valeurs doivent être celles d'une lecture ligne à ligne (trim, lignes vides ignorées)
+ */
+class SpooledValueListTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testIndex_CrLfBlankLinesAndTrim() throws IOException {
+        // Given : fins de ligne mélangées, lignes vides ou blanches, pas de fin de ligne finale
+        Path file = write("a\r\n\r\n  b \n\n\rc\r   \r\nd");
+
+        // When
+        SpooledValueList values = SpooledValueList.index(file);
+
+        // Then
+        assertEquals(List.of("a", "b", "c", "d"), values);
+    }
+
+    @Test
+    void testIndex_BlockOffsetsAcrossBlocks() throws IOException {
+        // Given : 2,5 blocs de valeurs, en CRLF, avec une ligne vide toutes les 7 valeurs
+        int count = SpooledValueList.BLOCK_SIZE * 5 / 2;
+        List<String> expected = new ArrayList<>();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            expected.add("id-" + i);
+            content.append("id-").append(i).append("\r\n");
+            if (i % 7 == 0) {
+                content.append("\r\n");
+            }
+        }
+        Path file = write(content.toString());
+
+        // When
+        SpooledValueList values = SpooledValueList.index(file);
+
+        // Then : accès direct aux bornes de blocs, dans le désordre
+        assertEquals(count, values.size());
+        int block = SpooledValueList.BLOCK_SIZE;
+        assertEquals("id-" + (2 * block), values.get(2 * block));
+        assertEquals("id-0", values.get(0));
+        assertEquals("id-" + (block - 1), values.get(block - 1));
+        assertEquals("id-" + block, values.get(block));
+        assertEquals("id-" + (count - 1), values.get(count - 1));
+        assertEquals(expected, values);
+        assertEquals(expected.subList(block - 2, block + 2), values.subList(block - 2, block + 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> values.get(count));
+    }
+
+    @Test
+    void testCopy_SharesIndexWithOwnCache() throws IOException {
+        // Given
+        Path file = write("x\ny\nz\n");
+        SpooledValueList values = SpooledValueList.index(file);
+
+        // When
+        SpooledValueList copy = values.copy();
+
+        // Then
+        assertEquals("z", copy.get(2));
+        assertEquals("x", values.get(0));
+        assertEquals(values, copy);
+    }
+
+    @Test
+    void testGet_FileTruncatedAfterIndexing() throws IOException {
+        // Given : fichier indexé puis tronqué
+        Path file = write("a\nb\nc\n");
+        SpooledValueList values = SpooledValueList.index(file);
+        Files.writeString(file, "a\n", StandardCharsets.UTF_8);
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> values.get(2));
+    }
+
+    @Test
+    void testIndex_EmptyFile() throws IOException {
+        assertTrue(SpooledValueList.index(write("\r\n\n  \n")).isEmpty());
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = Files.createTempFile(tempDir, "values", ".txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+}
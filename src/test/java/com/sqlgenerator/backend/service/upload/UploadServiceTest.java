@@ -0,0 +1,174 @@
+package com.sqlgenerator.backend.service.upload;
+
+import com.sqlgenerator.backend.controller.UploadController;
+import com.sqlgenerator.backend.model.UploadStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires des uploads reprenables par morceaux.
+ *
+ * Pourquoi tester la reprise ?
+ * - Un morceau rejoué ou perdu (mauvais offset) corromprait le fichier sans erreur visible
+ * - Un morceau dont l'empreinte est fausse doit être annulé, octets et empreinte du fichier compris
+ */
+class UploadServiceTest {
+
+    private static final byte[] FIRST = "id-1\r\nid-2\r\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SECOND = "id-3\r\nid-4\r\n".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    private UploadService uploadService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        uploadService = new UploadService();
+        ReflectionTestUtils.setField(uploadService, "uploadPath", tempDir.toString());
+        ReflectionTestUtils.setField(uploadService, "maxBytes", 1024L);
+        uploadService.init();
+    }
+
+    @Test
+    void testAppend_ChunksThenComplete() throws IOException {
+        // Given
+        String id = uploadService.create("ids.txt", (long) (FIRST.length + SECOND.length), null).getUploadId();
+
+        // When
+        uploadService.append(id, 0, stream(FIRST), sha256(FIRST));
+        UploadStatus status = uploadService.append(id, FIRST.length, stream(SECOND), null);
+        UploadStatus completed = uploadService.complete(id, sha256(concat(FIRST, SECOND)));
+
+        // Then
+        assertEquals(FIRST.length + SECOND.length, status.getReceivedBytes());
+        assertTrue(completed.isComplete());
+        assertEquals(sha256(concat(FIRST, SECOND)), completed.getSha256());
+        assertEquals(List.of("id-1", "id-2", "id-3", "id-4"), uploadService.openValues(id));
+    }
+
+    @Test
+    void testAppend_BadChunkSha256RollsBack() throws IOException {
+        // Given : premier morceau reçu
+        String id = uploadService.create("ids.txt", null, null).getUploadId();
+        uploadService.append(id, 0, stream(FIRST), null);
+
+        // When : second morceau annoncé avec l'empreinte d'un autre contenu
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.append(id, FIRST.length, stream(SECOND), sha256(FIRST)));
+
+        // Then : spool et offset reviennent à la fin du premier morceau
+        assertEquals(FIRST.length, uploadService.status(id).getReceivedBytes());
+        assertEquals(FIRST.length, Files.size(tempDir.resolve(id + ".part")));
+
+        // Et l'empreinte du fichier aussi : le morceau renvoyé correctement donne l'empreinte attendue
+        uploadService.append(id, FIRST.length, stream(SECOND), sha256(SECOND));
+        UploadStatus completed = uploadService.complete(id, sha256(concat(FIRST, SECOND)));
+        assertTrue(completed.isComplete());
+    }
+
+    @Test
+    void testAppend_InterruptedChunkWithoutSha256Kept() throws IOException {
+        // Given : client coupé après le premier morceau d'un corps plus long
+        String id = uploadService.create("ids.txt", null, null).getUploadId();
+        InputStream cut = new InputStream() {
+            private final InputStream delegate = stream(FIRST);
+
+            @Override
+            public int read() throws IOException {
+                int b = delegate.read();
+                if (b < 0) {
+                    throw new IOException("Connexion interrompue");
+                }
+                return b;
+            }
+        };
+
+        // When
+        assertThrows(IOException.class, () -> uploadService.append(id, 0, cut, null));
+
+        // Then : la reprise se fait après les octets reçus
+        assertEquals(FIRST.length, uploadService.status(id).getReceivedBytes());
+        uploadService.append(id, FIRST.length, stream(SECOND), null);
+        assertEquals(sha256(concat(FIRST, SECOND)), uploadService.complete(id, null).getSha256());
+    }
+
+    @Test
+    void testAppend_WrongOffsetRejected() throws IOException {
+        // Given
+        String id = uploadService.create("ids.txt", null, null).getUploadId();
+        uploadService.append(id, 0, stream(FIRST), null);
+
+        // When / Then : morceau rejoué (offset 0) puis sauté (offset trop loin)
+        assertThrows(IllegalStateException.class, () -> uploadService.append(id, 0, stream(FIRST), null));
+        assertThrows(IllegalStateException.class,
+                () -> uploadService.append(id, FIRST.length + 1, stream(SECOND), null));
+        assertEquals(FIRST.length, uploadService.status(id).getReceivedBytes());
+    }
+
+    @Test
+    void testController_WrongOffsetIs409WithExpectedOffset() throws IOException {
+        // Given
+        UploadController controller = new UploadController();
+        ReflectionTestUtils.setField(controller, "uploadService", uploadService);
+        String id = uploadService.create("ids.txt", null, null).getUploadId();
+        uploadService.append(id, 0, stream(FIRST), null);
+
+        // When
+        ResponseEntity<UploadStatus> response = controller.appendChunk(id, 0, null, stream(FIRST));
+
+        // Then : le corps donne l'offset de reprise
+        assertEquals(HttpStatus.CONFLICT.value(), response.getStatusCode().value());
+        assertEquals(FIRST.length, response.getBody().getReceivedBytes());
+    }
+
+    @Test
+    void testComplete_SizeAndSha256Checked() throws IOException {
+        // Given : 2 morceaux annoncés, un seul reçu
+        String id = uploadService.create("ids.txt", (long) (FIRST.length + SECOND.length), null).getUploadId();
+        uploadService.append(id, 0, stream(FIRST), null);
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> uploadService.complete(id, null));
+        uploadService.append(id, FIRST.length, stream(SECOND), null);
+        assertThrows(IllegalArgumentException.class, () -> uploadService.complete(id, sha256(FIRST)));
+        assertThrows(IllegalArgumentException.class, () -> uploadService.openValues(id));
+        assertTrue(uploadService.complete(id, null).isComplete());
+    }
+
+    private static InputStream stream(byte[] bytes) {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
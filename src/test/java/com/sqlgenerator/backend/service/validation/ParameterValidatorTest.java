@@ -0,0 +1,69 @@
+package com.sqlgenerator.backend.service.validation;
+
+import com.sqlgenerator.backend.model.ParameterDefinition;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires des validateurs de paramètres.
+ *
+ * Pourquoi tester les validateurs ?
+ * - Une valeur acceptée à tort produit un patch qui échoue en production
+ * - Une contrainte mal écrite doit être refusée au chargement, pas à la génération
+ */
+class ParameterValidatorTest {
+
+    @Test
+    void testNumber_RangeAndFormat() {
+        ParameterValidator validator = ParameterValidator.compile(param("montant", "number", true, "min=0;max=100"));
+
+        assertNull(validator.validate(" 42.5 "));
+        assertNotNull(validator.validate("abc"));
+        assertNotNull(validator.validate("-1"));
+        assertNotNull(validator.validate("100.01"));
+        assertEquals("valeur obligatoire", validator.validate("null"));
+    }
+
+    @Test
+    void testText_LengthAndRegexWithSeparators() {
+        ParameterValidator validator = ParameterValidator.compile(param("code", "text", false, "maxLength=4;regex=^[A-Z;|]+$"));
+
+        assertNull(validator.validate("A;|B"));
+        assertNull(validator.validate(""));
+        assertNotNull(validator.validate("ab"));
+        assertNotNull(validator.validate("ABCDE"));
+    }
+
+    @Test
+    void testDate_DefaultAndExplicitFormat() {
+        ParameterValidator defaults = ParameterValidator.compile(param("d", "date", false, null));
+        ParameterValidator explicit = ParameterValidator.compile(param("d", "date", false, "format=dd/MM/yyyy"));
+
+        assertNull(defaults.validate("2025-11-30"));
+        assertNull(defaults.validate("30/11/25"));
+        assertNotNull(defaults.validate("2025-02-30"));
+        assertNull(explicit.validate("30/11/2025"));
+        assertNotNull(explicit.validate("2025-11-30"));
+    }
+
+    @Test
+    void testInvalidConstraint_RejectedAtCompile() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ParameterValidator.compile(param("x", "text", false, "min=3")));
+        assertThrows(IllegalArgumentException.class,
+                () -> ParameterValidator.compile(param("x", "text", false, "unknown=1")));
+        assertThrows(IllegalArgumentException.class,
+                () -> ParameterValidator.compile(param("x", "text", false, "regex=[a-")));
+        assertTrue(ParameterValidator.compile(param("x", "text", false, null)).isTrivial());
+    }
+
+    private static ParameterDefinition param(String name, String type, boolean required, String constraints) {
+        return ParameterDefinition.builder()
+                .name(name)
+                .type(type)
+                .required(required)
+                .constraints(constraints)
+                .build();
+    }
+}